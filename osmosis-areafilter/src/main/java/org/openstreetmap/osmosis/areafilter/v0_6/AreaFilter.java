@@ -94,16 +94,22 @@ public abstract class AreaFilter implements SinkSource, EntityProcessor {
 		storeEntities = completeWays || completeRelations;
 		if (storeEntities) {
 			allNodes = new SimpleObjectStore<NodeContainer>(
-					new SingleClassObjectSerializationFactory(NodeContainer.class), "afn", true);
+					new SingleClassObjectSerializationFactory(NodeContainer.class, NodeContainer.STOREABLE_FACTORY),
+					"afn", true);
 			allWays = new SimpleObjectStore<WayContainer>(
-					new SingleClassObjectSerializationFactory(WayContainer.class), "afw", true);
+					new SingleClassObjectSerializationFactory(WayContainer.class, WayContainer.STOREABLE_FACTORY),
+					"afw", true);
 			allRelations =
 				new SimpleObjectStore<RelationContainer>(
-						new SingleClassObjectSerializationFactory(RelationContainer.class), "afr", true);
+						new SingleClassObjectSerializationFactory(
+								RelationContainer.class, RelationContainer.STOREABLE_FACTORY),
+						"afr", true);
 		} else if (cascadingRelations) {
             allRelations = 
 				new SimpleObjectStore<RelationContainer>(
-						new SingleClassObjectSerializationFactory(RelationContainer.class), "afr", true);
+						new SingleClassObjectSerializationFactory(
+								RelationContainer.class, RelationContainer.STOREABLE_FACTORY),
+						"afr", true);
         }
 	}
 
@@ -0,0 +1,77 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmarks;
+
+import java.util.Map;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * A sink passing all entities to a JMH blackhole so that the work producing
+ * them can't be optimised away.
+ */
+public class BlackholeSink implements Sink {
+
+	private Blackhole blackhole;
+	private long count;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param blackhole
+	 *            The blackhole to receive entities.
+	 */
+	public BlackholeSink(Blackhole blackhole) {
+		this.blackhole = blackhole;
+	}
+
+
+	/**
+	 * Gets the number of entities received.
+	 *
+	 * @return The entity count.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		// Do nothing.
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(EntityContainer entityContainer) {
+		blackhole.consume(entityContainer);
+		count++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		// Do nothing.
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// Do nothing.
+	}
+}
@@ -0,0 +1,112 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.DataPostboxFactory;
+import org.openstreetmap.osmosis.core.store.DataPostboxType;
+
+
+/**
+ * Measures the cost of handing entities from one pipeline thread to another
+ * through a data postbox, as done by the buffer tasks. Results are per
+ * entity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataPostboxBenchmark {
+
+	private static final int NODE_COUNT = 200000;
+
+	/**
+	 * The postbox implementation.
+	 */
+	@Param
+	public DataPostboxType postboxType;
+
+	/**
+	 * The postbox capacity.
+	 */
+	@Param({"100", "10000"})
+	public int capacity;
+
+	private List<EntityContainer> entities;
+
+
+	/**
+	 * Generates the nodes to be transferred.
+	 */
+	@Setup
+	public void setup() {
+		entities = new SyntheticDataGenerator(0).generateEntities(NODE_COUNT).subList(0, NODE_COUNT);
+	}
+
+
+	/**
+	 * Transfers all entities from a producer thread to the benchmark thread.
+	 *
+	 * @param blackhole
+	 *            Receives the transferred entities.
+	 * @throws InterruptedException
+	 *             if the benchmark is interrupted.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NODE_COUNT)
+	public void transfer(Blackhole blackhole) throws InterruptedException {
+		final DataPostbox<EntityContainer> postbox;
+		Thread producer;
+
+		postbox = DataPostboxFactory.createInstance(postboxType, capacity);
+
+		producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postbox.initialize(Collections.<String, Object>emptyMap());
+					for (EntityContainer entity : entities) {
+						postbox.put(entity);
+					}
+					postbox.complete();
+
+				} finally {
+					postbox.close();
+				}
+			}
+		});
+		producer.start();
+
+		try {
+			postbox.outputInitialize();
+			while (postbox.hasNext()) {
+				blackhole.consume(postbox.getNext());
+			}
+			postbox.outputComplete();
+
+		} finally {
+			postbox.outputRelease();
+		}
+
+		producer.join();
+	}
+}
@@ -0,0 +1,115 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.xml.v0_6.impl.FastXmlParser;
+
+
+/**
+ * Measures parsing of an in-memory OSM XML document with the fast XML parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FastXmlParserBenchmark {
+
+	/**
+	 * The number of nodes in the generated data.
+	 */
+	@Param({"100000"})
+	public int nodeCount;
+
+	/**
+	 * If true, timestamps are parsed into dates.
+	 */
+	@Param({"true", "false"})
+	public boolean enableDateParsing;
+
+	/**
+	 * The number of threads building entities, or 0 to build them in the
+	 * parsing thread.
+	 */
+	@Param({"0", "2"})
+	public int workers;
+
+	private byte[] xmlData;
+	private XMLInputFactory factory;
+	private ExecutorService executorService;
+
+
+	/**
+	 * Generates the XML document and configures the parser factory the same
+	 * way as the fast XML reader task.
+	 */
+	@Setup
+	public void setup() {
+		xmlData = SyntheticDataGenerator.toXml(new SyntheticDataGenerator(0).generateEntities(nodeCount));
+
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+
+		if (workers > 0) {
+			executorService = Executors.newFixedThreadPool(workers);
+		}
+	}
+
+
+	/**
+	 * Stops the entity building threads.
+	 */
+	@TearDown
+	public void tearDown() {
+		if (executorService != null) {
+			executorService.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * Parses the document.
+	 *
+	 * @param blackhole
+	 *            Receives the parsed entities.
+	 * @throws XMLStreamException
+	 *             if the document can't be parsed.
+	 */
+	@Benchmark
+	public void parse(Blackhole blackhole) throws XMLStreamException {
+		XMLStreamReader reader;
+
+		reader = factory.createXMLStreamReader(new ByteArrayInputStream(xmlData));
+		try {
+			new FastXmlParser(new BlackholeSink(blackhole), reader, enableDateParsing, executorService, workers + 1)
+					.readOsm();
+
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,115 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
+import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdComparator;
+import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
+import org.openstreetmap.osmosis.core.store.GenericObjectSerializationFactory;
+
+
+/**
+ * Measures sorting shuffled entities. The smaller data set is sorted entirely
+ * in memory, while the larger one is written to temporary files in runs which
+ * are then merged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileBasedSortBenchmark {
+
+	/**
+	 * The approximate memory available to buffer runs when sorting with
+	 * worker threads.
+	 */
+	private static final long MEMORY_BUDGET = 16L * 1024 * 1024;
+
+	/**
+	 * The number of nodes in the generated data.
+	 */
+	@Param({"10000", "200000"})
+	public int nodeCount;
+
+	/**
+	 * If true, temporary files are compressed.
+	 */
+	@Param({"false", "true"})
+	public boolean useCompression;
+
+	/**
+	 * The number of threads sorting and writing runs. If 0, runs are sorted
+	 * on the calling thread.
+	 */
+	@Param({"0", "2"})
+	public int workerCount;
+
+	private List<EntityContainer> entities;
+
+
+	/**
+	 * Generates the entities in random order.
+	 */
+	@Setup
+	public void setup() {
+		SyntheticDataGenerator generator;
+
+		generator = new SyntheticDataGenerator(0);
+		entities = generator.shuffle(generator.generateEntities(nodeCount));
+	}
+
+
+	/**
+	 * Adds all entities to a sort and reads back the sorted result.
+	 *
+	 * @param blackhole
+	 *            Receives the sorted entities.
+	 */
+	@Benchmark
+	public void sort(Blackhole blackhole) {
+		FileBasedSort<EntityContainer> sort;
+		EntityContainerComparator comparator;
+
+		comparator = new EntityContainerComparator(new EntityByTypeThenIdComparator());
+		if (workerCount > 0) {
+			sort = new FileBasedSort<EntityContainer>(
+					new GenericObjectSerializationFactory(), comparator, useCompression, MEMORY_BUDGET, workerCount);
+		} else {
+			sort = new FileBasedSort<EntityContainer>(
+					new GenericObjectSerializationFactory(), comparator, useCompression);
+		}
+
+		try {
+			for (EntityContainer entity : entities) {
+				sort.add(entity);
+			}
+
+			try (ReleasableIterator<EntityContainer> sortedEntities = sort.iterate()) {
+				while (sortedEntities.hasNext()) {
+					blackhole.consume(sortedEntities.next());
+				}
+			}
+
+		} finally {
+			sort.close();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.filter.common.IdTracker;
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerFactory;
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
+
+
+/**
+ * Measures each id tracker implementation. Ids are sparse and ascending like
+ * those selected by area filters, and lookups are made in random order with
+ * roughly half of them hitting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IdTrackerBenchmark {
+
+	/**
+	 * The id tracker implementation. All implementations are measured by
+	 * default.
+	 */
+	@Param
+	public IdTrackerType idTrackerType;
+
+	/**
+	 * The number of ids added to the tracker.
+	 */
+	@Param({"1000000"})
+	public int idCount;
+
+	private long[] ids;
+	private long[] lookupIds;
+	private IdTracker populatedTracker;
+
+
+	/**
+	 * Generates the ids and populates a tracker for the lookup benchmarks.
+	 */
+	@Setup
+	public void setup() {
+		Random random;
+		long id;
+
+		random = new Random(0);
+
+		ids = new long[idCount];
+		id = 0;
+		for (int i = 0; i < idCount; i++) {
+			id += 1 + random.nextInt(3);
+			ids[i] = id;
+		}
+
+		lookupIds = new long[idCount];
+		for (int i = 0; i < idCount; i++) {
+			lookupIds[i] = 1 + (long) (random.nextDouble() * id);
+		}
+
+		populatedTracker = IdTrackerFactory.createInstance(idTrackerType);
+		for (long trackedId : ids) {
+			populatedTracker.set(trackedId);
+		}
+	}
+
+
+	/**
+	 * Adds ascending ids to a new tracker.
+	 *
+	 * @return The populated tracker.
+	 */
+	@Benchmark
+	public IdTracker set() {
+		IdTracker tracker;
+
+		tracker = IdTrackerFactory.createInstance(idTrackerType);
+		for (long trackedId : ids) {
+			tracker.set(trackedId);
+		}
+
+		return tracker;
+	}
+
+
+	/**
+	 * Looks up random ids in a populated tracker.
+	 *
+	 * @return The number of ids found.
+	 */
+	@Benchmark
+	public int get() {
+		int found;
+
+		found = 0;
+		for (long lookupId : lookupIds) {
+			if (populatedTracker.get(lookupId)) {
+				found++;
+			}
+		}
+
+		return found;
+	}
+
+
+	/**
+	 * Iterates over all ids in a populated tracker.
+	 *
+	 * @param blackhole
+	 *            Receives the ids.
+	 */
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (long trackedId : populatedTracker) {
+			blackhole.consume(trackedId);
+		}
+	}
+}
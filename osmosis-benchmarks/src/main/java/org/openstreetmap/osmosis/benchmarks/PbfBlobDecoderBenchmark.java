@@ -0,0 +1,106 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfBlobDecoder;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfBlobDecoderListener;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfRawBlob;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfStreamSplitter;
+
+
+/**
+ * Measures decoding of PBF data blobs into entities, excluding file reading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PbfBlobDecoderBenchmark {
+
+	/**
+	 * The number of nodes in the generated data.
+	 */
+	@Param({"200000"})
+	public int nodeCount;
+
+	private List<byte[]> dataBlobs;
+
+
+	/**
+	 * Generates the PBF data and splits it into blobs.
+	 */
+	@Setup
+	public void setup() {
+		byte[] pbfData;
+		PbfStreamSplitter splitter;
+
+		pbfData = SyntheticDataGenerator.toPbf(new SyntheticDataGenerator(0).generateEntities(nodeCount));
+
+		dataBlobs = new ArrayList<byte[]>();
+		splitter = new PbfStreamSplitter(new DataInputStream(new ByteArrayInputStream(pbfData)));
+		try {
+			while (splitter.hasNext()) {
+				PbfRawBlob rawBlob = splitter.next();
+
+				// Blob buffers may be pooled so each one is copied.
+				if ("OSMData".equals(rawBlob.getType())) {
+					dataBlobs.add(Arrays.copyOf(rawBlob.getData(), rawBlob.getLength()));
+				}
+			}
+
+		} finally {
+			splitter.close();
+		}
+	}
+
+
+	/**
+	 * Decodes every data blob.
+	 *
+	 * @param blackhole
+	 *            Receives the decoded entities.
+	 */
+	@Benchmark
+	public void decode(final Blackhole blackhole) {
+		PbfBlobDecoderListener listener;
+
+		listener = new PbfBlobDecoderListener() {
+			@Override
+			public void complete(List<EntityContainer> decodedEntities) {
+				blackhole.consume(decodedEntities);
+			}
+
+
+			@Override
+			public void error() {
+				throw new OsmosisRuntimeException("Unable to decode blob.");
+			}
+		};
+
+		for (byte[] blob : dataBlobs) {
+			new PbfBlobDecoder("OSMData", blob, listener).run();
+		}
+	}
+}
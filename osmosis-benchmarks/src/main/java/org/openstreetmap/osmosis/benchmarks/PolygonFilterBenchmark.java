@@ -0,0 +1,142 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.osmosis.areafilter.v0_6.PolygonFilter;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.filter.common.IdTrackerType;
+
+
+/**
+ * Measures the point in polygon test used by the polygon area filter. The
+ * polygon is a regular shape in the middle of the synthetic data so that
+ * roughly half the nodes fall inside it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PolygonFilterBenchmark {
+
+	/**
+	 * The number of nodes tested against the polygon.
+	 */
+	@Param({"200000"})
+	public int nodeCount;
+
+	/**
+	 * The number of polygon vertices.
+	 */
+	@Param({"16", "1024"})
+	public int vertexCount;
+
+	private File polygonFile;
+	private List<Node> nodes;
+	private BenchmarkPolygonFilter filter;
+
+
+	/**
+	 * Generates the nodes and writes the polygon file.
+	 *
+	 * @throws IOException
+	 *             if the polygon file can't be written.
+	 */
+	@Setup
+	public void setup() throws IOException {
+		double centreLongitude;
+		double centreLatitude;
+		double radius;
+
+		nodes = new SyntheticDataGenerator(0).generateNodes(nodeCount);
+
+		centreLongitude = SyntheticDataGenerator.MINIMUM_LONGITUDE + SyntheticDataGenerator.AREA_SIZE / 2;
+		centreLatitude = SyntheticDataGenerator.MINIMUM_LATITUDE + SyntheticDataGenerator.AREA_SIZE / 2;
+		radius = SyntheticDataGenerator.AREA_SIZE * 0.4;
+
+		polygonFile = File.createTempFile("benchmark", ".poly");
+		try (PrintWriter writer = new PrintWriter(new FileWriter(polygonFile))) {
+			writer.println("benchmark");
+			writer.println("1");
+			for (int i = 0; i < vertexCount; i++) {
+				double angle;
+
+				// Alternate the radius to give a star shape with concave edges.
+				angle = 2 * Math.PI * i / vertexCount;
+				writer.println("    " + (centreLongitude + radius * (1 - 0.2 * (i % 2)) * Math.cos(angle))
+						+ "    " + (centreLatitude + radius * (1 - 0.2 * (i % 2)) * Math.sin(angle)));
+			}
+			writer.println("END");
+			writer.println("END");
+		}
+
+		filter = new BenchmarkPolygonFilter(polygonFile);
+	}
+
+
+	/**
+	 * Removes the polygon file.
+	 */
+	@TearDown
+	public void tearDown() {
+		if (!polygonFile.delete()) {
+			polygonFile.deleteOnExit();
+		}
+	}
+
+
+	/**
+	 * Tests every node against the polygon.
+	 *
+	 * @return The number of nodes inside the polygon.
+	 */
+	@Benchmark
+	public int isNodeWithinArea() {
+		int count;
+
+		count = 0;
+		for (Node node : nodes) {
+			if (filter.isNodeWithinArea(node)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Exposes the polygon test of the filter to the benchmark.
+	 */
+	private static class BenchmarkPolygonFilter extends PolygonFilter {
+
+		BenchmarkPolygonFilter(File polygonFile) {
+			super(IdTrackerType.Dynamic, polygonFile, false, false, false, false);
+		}
+
+
+		@Override
+		protected boolean isNodeWithinArea(Node node) {
+			return super.isNodeWithinArea(node);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.store.DataInputStoreReader;
+import org.openstreetmap.osmosis.core.store.DataOutputStoreWriter;
+import org.openstreetmap.osmosis.core.store.DynamicStoreClassRegister;
+import org.openstreetmap.osmosis.core.store.GenericObjectSerializationFactory;
+import org.openstreetmap.osmosis.core.store.ObjectReader;
+import org.openstreetmap.osmosis.core.store.ObjectSerializationFactory;
+import org.openstreetmap.osmosis.core.store.ObjectWriter;
+import org.openstreetmap.osmosis.core.store.StoreClassRegister;
+
+
+/**
+ * Measures serialisation of entities through the store writer and reader
+ * classes used by all temporary file stores. The dynamic class register
+ * assigns identifiers as classes are first written, so reads use the register
+ * populated when the data was written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StoreableBenchmark {
+
+	/**
+	 * The number of nodes in the data set. Ways and relations are added in
+	 * proportion.
+	 */
+	@Param({"100000"})
+	public int nodeCount;
+
+	private ObjectSerializationFactory serializationFactory;
+	private List<EntityContainer> entities;
+	private byte[] serializedEntities;
+	private StoreClassRegister serializedClassRegister;
+
+
+	/**
+	 * Generates the entities and their serialised form.
+	 */
+	@Setup
+	public void setup() {
+		serializationFactory = new GenericObjectSerializationFactory();
+		entities = new SyntheticDataGenerator(0).generateEntities(nodeCount);
+		serializedClassRegister = new DynamicStoreClassRegister();
+		serializedEntities = write(serializedClassRegister).toByteArray();
+	}
+
+
+	private ByteArrayOutputStream write(StoreClassRegister storeClassRegister) {
+		ByteArrayOutputStream out;
+		ObjectWriter writer;
+
+		out = new ByteArrayOutputStream();
+		writer = serializationFactory.createObjectWriter(
+				new DataOutputStoreWriter(new DataOutputStream(out)), storeClassRegister);
+		for (EntityContainer entity : entities) {
+			writer.writeObject(entity);
+		}
+
+		return out;
+	}
+
+
+	/**
+	 * Writes all entities to an in-memory buffer.
+	 *
+	 * @return The buffer containing the serialised entities.
+	 */
+	@Benchmark
+	public ByteArrayOutputStream write() {
+		return write(new DynamicStoreClassRegister());
+	}
+
+
+	/**
+	 * Reads all entities back from their serialised form.
+	 *
+	 * @param blackhole
+	 *            Receives the entities.
+	 */
+	@Benchmark
+	public void read(Blackhole blackhole) {
+		ObjectReader reader;
+
+		reader = serializationFactory.createObjectReader(
+				new DataInputStoreReader(new DataInputStream(new ByteArrayInputStream(serializedEntities))),
+				serializedClassRegister);
+		for (int i = 0; i < entities.size(); i++) {
+			blackhole.consume(reader.readObject());
+		}
+	}
+}
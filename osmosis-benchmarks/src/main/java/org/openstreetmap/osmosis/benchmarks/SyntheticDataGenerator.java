@@ -0,0 +1,289 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
+import org.openstreetmap.osmosis.xml.v0_6.XmlWriter;
+
+import crosby.binary.osmosis.OsmosisSerializer;
+
+
+/**
+ * Generates repeatable synthetic OSM data for benchmarks. The data resembles a
+ * small urban extract: nodes are spread over a one degree square with sparse
+ * ascending ids, a fifth of them tagged, ways join runs of nearby nodes, and
+ * relations group ways. The same seed always produces the same data.
+ */
+public class SyntheticDataGenerator {
+
+	/**
+	 * The minimum longitude of generated nodes.
+	 */
+	public static final double MINIMUM_LONGITUDE = 10;
+	/**
+	 * The minimum latitude of generated nodes.
+	 */
+	public static final double MINIMUM_LATITUDE = 50;
+	/**
+	 * The width and height of the area containing generated nodes.
+	 */
+	public static final double AREA_SIZE = 1;
+
+	private static final long BASE_TIMESTAMP = 1483228800000L;
+	private static final int TIMESTAMP_RANGE_SECONDS = 100000000;
+	private static final int USER_COUNT = 50;
+	private static final String[] HIGHWAY_TYPES = {"residential", "service", "primary", "footway", "track"};
+	private static final String[] AMENITY_TYPES = {"bench", "cafe", "parking", "post_box", "restaurant"};
+
+	private Random random;
+	private List<OsmUser> users;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param seed
+	 *            The seed for the random number generator.
+	 */
+	public SyntheticDataGenerator(long seed) {
+		random = new Random(seed);
+
+		users = new ArrayList<OsmUser>(USER_COUNT);
+		for (int i = 1; i <= USER_COUNT; i++) {
+			users.add(new OsmUser(i, "user" + i));
+		}
+	}
+
+
+	private OsmUser nextUser() {
+		return users.get(random.nextInt(users.size()));
+	}
+
+
+	private Date nextTimestamp() {
+		// Timestamps have whole second precision in OSM data.
+		return new Date(BASE_TIMESTAMP + random.nextInt(TIMESTAMP_RANGE_SECONDS) * 1000L);
+	}
+
+
+	private CommonEntityData nextEntityData(long id, Collection<Tag> tags) {
+		return new CommonEntityData(id, 1 + random.nextInt(5), nextTimestamp(), nextUser(), random.nextInt(50000000),
+				tags);
+	}
+
+
+	private double nextCoordinate(double minimum) {
+		// Round to the seven decimal places supported by OSM.
+		return Math.round((minimum + random.nextDouble() * AREA_SIZE) * 1e7) / 1e7;
+	}
+
+
+	/**
+	 * Generates nodes with sparse ascending ids.
+	 *
+	 * @param count
+	 *            The number of nodes.
+	 * @return The nodes.
+	 */
+	public List<Node> generateNodes(int count) {
+		List<Node> nodes;
+		long id;
+
+		nodes = new ArrayList<Node>(count);
+		id = 0;
+		for (int i = 0; i < count; i++) {
+			List<Tag> tags;
+
+			id += 1 + random.nextInt(3);
+
+			tags = new ArrayList<Tag>();
+			if (random.nextInt(5) == 0) {
+				tags.add(new Tag("amenity", AMENITY_TYPES[random.nextInt(AMENITY_TYPES.length)]));
+				tags.add(new Tag("name", "Place " + random.nextInt(1000)));
+			}
+
+			nodes.add(new Node(nextEntityData(id, tags), nextCoordinate(MINIMUM_LATITUDE),
+					nextCoordinate(MINIMUM_LONGITUDE)));
+		}
+
+		return nodes;
+	}
+
+
+	/**
+	 * Generates a complete data set of nodes, ways and relations in the
+	 * standard sorted order. There is one way for every ten nodes and one
+	 * relation for every twenty ways.
+	 *
+	 * @param nodeCount
+	 *            The number of nodes.
+	 * @return The entities.
+	 */
+	public List<EntityContainer> generateEntities(int nodeCount) {
+		List<EntityContainer> entities;
+		List<Node> nodes;
+		List<Long> wayIds;
+		int wayCount;
+		int relationCount;
+
+		entities = new ArrayList<EntityContainer>();
+
+		nodes = generateNodes(nodeCount);
+		for (Node node : nodes) {
+			entities.add(new NodeContainer(node));
+		}
+
+		wayCount = nodeCount / 10;
+		wayIds = new ArrayList<Long>(wayCount);
+		for (int i = 0; i < wayCount; i++) {
+			List<WayNode> wayNodes;
+			List<Tag> tags;
+			int start;
+			int length;
+			long id;
+
+			// Ways join runs of consecutive nodes which mimics the locality of
+			// real data.
+			length = Math.min(2 + random.nextInt(19), nodes.size());
+			start = random.nextInt(nodes.size() - length + 1);
+			wayNodes = new ArrayList<WayNode>(length);
+			for (int j = start; j < start + length; j++) {
+				wayNodes.add(new WayNode(nodes.get(j).getId()));
+			}
+
+			tags = new ArrayList<Tag>();
+			tags.add(new Tag("highway", HIGHWAY_TYPES[random.nextInt(HIGHWAY_TYPES.length)]));
+			tags.add(new Tag("name", "Street " + random.nextInt(5000)));
+
+			id = i + 1;
+			wayIds.add(id);
+			entities.add(new WayContainer(new Way(nextEntityData(id, tags), wayNodes)));
+		}
+
+		relationCount = wayCount / 20;
+		for (int i = 0; i < relationCount; i++) {
+			List<RelationMember> members;
+			List<Tag> tags;
+			int memberCount;
+
+			members = new ArrayList<RelationMember>();
+			memberCount = 2 + random.nextInt(9);
+			for (int j = 0; j < memberCount; j++) {
+				members.add(new RelationMember(wayIds.get(random.nextInt(wayIds.size())), EntityType.Way, "outer"));
+			}
+			members.add(new RelationMember(nodes.get(random.nextInt(nodes.size())).getId(), EntityType.Node,
+					"label"));
+
+			tags = new ArrayList<Tag>();
+			tags.add(new Tag("type", "multipolygon"));
+			tags.add(new Tag("landuse", "residential"));
+
+			entities.add(new RelationContainer(new Relation(nextEntityData(i + 1, tags), members)));
+		}
+
+		return entities;
+	}
+
+
+	/**
+	 * Returns a copy of the entities in random order.
+	 *
+	 * @param entities
+	 *            The entities to be shuffled.
+	 * @return The shuffled entities.
+	 */
+	public List<EntityContainer> shuffle(List<EntityContainer> entities) {
+		List<EntityContainer> shuffled;
+
+		shuffled = new ArrayList<EntityContainer>(entities);
+		Collections.shuffle(shuffled, random);
+
+		return shuffled;
+	}
+
+
+	private static void writeAll(Sink sink, List<EntityContainer> entities) {
+		try {
+			sink.initialize(Collections.<String, Object>emptyMap());
+			for (EntityContainer entity : entities) {
+				sink.process(entity);
+			}
+			sink.complete();
+
+		} finally {
+			sink.close();
+		}
+	}
+
+
+	/**
+	 * Encodes entities as an OSM XML document.
+	 *
+	 * @param entities
+	 *            The entities to be encoded.
+	 * @return The UTF-8 encoded document.
+	 */
+	public static byte[] toXml(List<EntityContainer> entities) {
+		ByteArrayOutputStream out;
+		BufferedWriter writer;
+
+		out = new ByteArrayOutputStream();
+		writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writeAll(new XmlWriter(writer), entities);
+
+		// The XML writer doesn't flush writers it didn't create.
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to flush the XML data.", e);
+		}
+
+		return out.toByteArray();
+	}
+
+
+	/**
+	 * Encodes entities as a PBF file using dense nodes.
+	 *
+	 * @param entities
+	 *            The entities to be encoded.
+	 * @return The encoded file.
+	 */
+	public static byte[] toPbf(List<EntityContainer> entities) {
+		ByteArrayOutputStream out;
+		OsmosisSerializer serializer;
+
+		out = new ByteArrayOutputStream();
+		serializer = new OsmosisSerializer(new BlockOutputStream(out));
+		serializer.setUseDense(true);
+		writeAll(serializer, entities);
+
+		return out.toByteArray();
+	}
+}
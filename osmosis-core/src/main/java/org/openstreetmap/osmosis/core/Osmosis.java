@@ -1,6 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core; 
 
+import java.io.File;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -8,6 +9,8 @@ import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.cli.CommandLineParser;
 import org.openstreetmap.osmosis.core.pipeline.common.Pipeline;
+import org.openstreetmap.osmosis.core.pipeline.common.PipelineMetrics;
+import org.openstreetmap.osmosis.core.store.StoreCompressionMethod;
 
 
 /**
@@ -61,6 +64,7 @@ public final class Osmosis {
 		CommandLineParser commandLineParser;
 		TaskRegistrar taskRegistrar;
 		Pipeline pipeline;
+		PipelineMetrics metrics;
 		long startTime;
 		long finishTime;
 		
@@ -76,11 +80,23 @@ public final class Osmosis {
 		// Configure the new logging level.
 		configureLoggingLevel(commandLineParser.getLogLevelIndex());
 		
+		StoreCompressionMethod.setDefault(commandLineParser.getTempCompressionMethod());
+		
 		LOG.info("Osmosis Version " + OsmosisConstants.VERSION);
 		taskRegistrar = new TaskRegistrar();
 		taskRegistrar.initialize(commandLineParser.getPlugins());
 		
-		pipeline = new Pipeline(taskRegistrar.getFactoryRegister());
+		metrics = null;
+		if (commandLineParser.isMetricsEnabled()) {
+			File metricsFile = null;
+			
+			if (commandLineParser.getMetricsFile() != null) {
+				metricsFile = new File(commandLineParser.getMetricsFile());
+			}
+			metrics = new PipelineMetrics(metricsFile, commandLineParser.getMetricsInterval());
+		}
+		
+		pipeline = new Pipeline(taskRegistrar.getFactoryRegister(), metrics);
 		
 		LOG.info("Preparing pipeline.");
 		pipeline.prepare(commandLineParser.getTaskInfoList());
@@ -1,10 +1,15 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.buffer.v0_6;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.DataPostboxFactory;
+import org.openstreetmap.osmosis.core.store.DataPostboxOwner;
+import org.openstreetmap.osmosis.core.store.DataPostboxType;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSinkRunnableChangeSource;
 
@@ -17,7 +22,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.ChangeSinkRunnableChangeSource;
  * 
  * @author Brett Henderson
  */
-public class ChangeBuffer implements ChangeSinkRunnableChangeSource {
+public class ChangeBuffer implements ChangeSinkRunnableChangeSource, DataPostboxOwner {
 	private ChangeSink changeSink;
 	private DataPostbox<ChangeContainer> buffer;
 	
@@ -29,10 +34,32 @@ public class ChangeBuffer implements ChangeSinkRunnableChangeSource {
 	 *            The size of the buffer to use.
 	 */
 	public ChangeBuffer(int bufferCapacity) {
-		buffer = new DataPostbox<ChangeContainer>(bufferCapacity);
+		this(bufferCapacity, DataPostboxType.Locking);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param bufferCapacity
+	 *            The size of the buffer to use.
+	 * @param postboxType
+	 *            The implementation used to pass data between threads.
+	 */
+	public ChangeBuffer(int bufferCapacity, DataPostboxType postboxType) {
+		buffer = DataPostboxFactory.createInstance(postboxType, bufferCapacity);
 	}
 
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<DataPostbox<?>> getPostboxes() {
+		return Collections.<DataPostbox<?>>singletonList(buffer);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
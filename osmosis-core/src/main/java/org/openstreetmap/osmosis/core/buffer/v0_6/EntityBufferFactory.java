@@ -5,6 +5,7 @@ import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkRunnableSourceManager;
+import org.openstreetmap.osmosis.core.store.DataPostboxType;
 
 
 /**
@@ -14,7 +15,9 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkRunnableSourceManager;
  */
 public class EntityBufferFactory extends TaskManagerFactory {
 	private static final String ARG_BUFFER_CAPACITY = "bufferCapacity";
+	private static final String ARG_POSTBOX_TYPE = "postboxType";
 	private static final int DEFAULT_BUFFER_CAPACITY = 20;
+	private static final String DEFAULT_POSTBOX_TYPE = "Locking";
 	
 	
 	/**
@@ -23,6 +26,7 @@ public class EntityBufferFactory extends TaskManagerFactory {
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
 		int bufferCapacity;
+		DataPostboxType postboxType;
 		
 		// Get the task arguments.
 		bufferCapacity = getIntegerArgument(
@@ -30,10 +34,14 @@ public class EntityBufferFactory extends TaskManagerFactory {
 			ARG_BUFFER_CAPACITY,
 			getDefaultIntegerArgument(taskConfig, DEFAULT_BUFFER_CAPACITY)
 		);
+		postboxType = Enum.valueOf(
+			DataPostboxType.class,
+			getStringArgument(taskConfig, ARG_POSTBOX_TYPE, DEFAULT_POSTBOX_TYPE)
+		);
 		
 		return new SinkRunnableSourceManager(
 			taskConfig.getId(),
-			new EntityBuffer(bufferCapacity),
+			new EntityBuffer(bufferCapacity, postboxType),
 			taskConfig.getPipeArgs()
 		);
 	}
@@ -9,6 +9,7 @@ import java.util.Map;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.pipeline.common.PipelineConstants;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
+import org.openstreetmap.osmosis.core.store.StoreCompressionMethod;
 
 
 /**
@@ -27,6 +28,15 @@ public class CommandLineParser {
 	private static final String OPTION_VERBOSE_LONG = "verbose";
 	private static final String OPTION_PLUGIN_SHORT = "p";
 	private static final String OPTION_PLUGIN_LONG = "plugin";
+	private static final String OPTION_TEMP_COMPRESSION_SHORT = "tc";
+	private static final String OPTION_TEMP_COMPRESSION_LONG = "temp-compression";
+	private static final String OPTION_METRICS_SHORT = "m";
+	private static final String OPTION_METRICS_LONG = "metrics";
+	
+	/**
+	 * The default number of seconds between writes to the metrics file.
+	 */
+	private static final int DEFAULT_METRICS_INTERVAL = 60;
 	
 	
 	/**
@@ -39,6 +49,10 @@ public class CommandLineParser {
 	private int quietValue;
 	private int verboseValue;
 	private List<String> plugins;
+	private StoreCompressionMethod tempCompressionMethod;
+	private boolean metricsEnabled;
+	private String metricsFile;
+	private int metricsInterval;
 	
 	
 	/**
@@ -50,6 +64,10 @@ public class CommandLineParser {
 		quietValue = 0;
 		verboseValue = 0;
 		plugins = new ArrayList<String>();
+		tempCompressionMethod = StoreCompressionMethod.Gzip;
+		metricsEnabled = false;
+		metricsFile = null;
+		metricsInterval = DEFAULT_METRICS_INTERVAL;
 	}
 	
 	
@@ -88,6 +106,11 @@ public class CommandLineParser {
 				verboseValue = parseOptionIntegerWithDefault(globalOption, 0) + 1;
 			} else if (isArgumentForOption(OPTION_PLUGIN_SHORT, OPTION_PLUGIN_LONG, globalOption.name)) {
 				plugins.add(parseOptionString(globalOption));
+			} else if (isArgumentForOption(
+					OPTION_TEMP_COMPRESSION_SHORT, OPTION_TEMP_COMPRESSION_LONG, globalOption.name)) {
+				tempCompressionMethod = parseOptionCompressionMethod(globalOption);
+			} else if (isArgumentForOption(OPTION_METRICS_SHORT, OPTION_METRICS_LONG, globalOption.name)) {
+				parseOptionMetrics(globalOption);
 			} else {
 				throw new OsmosisRuntimeException("Argument " + (globalOption.offset + 1)
 						+ " specifies an unrecognised option \"" + GLOBAL_ARGUMENT_PREFIX + globalOption.name
@@ -190,6 +213,62 @@ public class CommandLineParser {
 	}
 	
 	
+	/**
+	 * Parses a command line option into a temporary store compression method.
+	 * 
+	 * @param globalOption
+	 *            The global option to be parsed.
+	 */
+	private StoreCompressionMethod parseOptionCompressionMethod(GlobalOptionConfiguration globalOption) {
+		String value = parseOptionString(globalOption);
+		
+		try {
+			return StoreCompressionMethod.valueOf(value);
+		} catch (IllegalArgumentException e) {
+			throw new OsmosisRuntimeException(
+					"Argument " + (globalOption.offset + 1) + " specifies an unrecognised compression method \""
+					+ value + "\".", e);
+		}
+	}
+	
+	
+	/**
+	 * Parses the metrics option. The option has an optional file parameter to
+	 * write metrics to, which may be followed by the number of seconds between
+	 * writes.
+	 * 
+	 * @param globalOption
+	 *            The global option to be parsed.
+	 */
+	private void parseOptionMetrics(GlobalOptionConfiguration globalOption) {
+		if (globalOption.parameters.size() > 2) {
+			throw new OsmosisRuntimeException(
+					"Expected argument " + (globalOption.offset + 1) + " to have no more than two parameters.");
+		}
+		
+		metricsEnabled = true;
+		
+		if (globalOption.parameters.size() > 0) {
+			metricsFile = globalOption.parameters.get(0);
+		}
+		
+		if (globalOption.parameters.size() > 1) {
+			try {
+				metricsInterval = Integer.parseInt(globalOption.parameters.get(1));
+				
+			} catch (NumberFormatException e) {
+				throw new OsmosisRuntimeException(
+						"Expected argument " + (globalOption.offset + 3) + " to contain an integer value.");
+			}
+			
+			if (metricsInterval <= 0) {
+				throw new OsmosisRuntimeException(
+						"Expected argument " + (globalOption.offset + 3) + " to be greater than 0.");
+			}
+		}
+	}
+	
+	
 	/**
 	 * Parses the details of a single option.
 	 * 
@@ -355,6 +434,48 @@ public class CommandLineParser {
 	}
 	
 	
+	/**
+	 * Returns the compression method to be used by compressed temporary
+	 * stores.
+	 * 
+	 * @return The compression method.
+	 */
+	public StoreCompressionMethod getTempCompressionMethod() {
+		return tempCompressionMethod;
+	}
+	
+	
+	/**
+	 * Indicates if pipeline metrics should be published.
+	 * 
+	 * @return True if metrics are enabled.
+	 */
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+	
+	
+	/**
+	 * Returns the file that pipeline metrics should be written to.
+	 * 
+	 * @return The file name, or null if metrics should only be published as
+	 *         MBeans.
+	 */
+	public String getMetricsFile() {
+		return metricsFile;
+	}
+	
+	
+	/**
+	 * Returns the number of seconds between writes to the metrics file.
+	 * 
+	 * @return The interval in seconds.
+	 */
+	public int getMetricsInterval() {
+		return metricsInterval;
+	}
+	
+	
 	/**
 	 * A data storage class holding information relating to a global option
 	 * during parsing.
@@ -5,6 +5,7 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
 import org.openstreetmap.osmosis.core.store.StoreClassRegister;
 import org.openstreetmap.osmosis.core.store.StoreReader;
 import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
 
 
 /**
@@ -14,6 +15,17 @@ import org.openstreetmap.osmosis.core.store.StoreWriter;
  */
 public class BoundContainer extends EntityContainer {
 
+	/**
+	 * Creates bound containers from a store without using reflection.
+	 */
+	public static final StoreableFactory<BoundContainer> STOREABLE_FACTORY = new StoreableFactory<BoundContainer>() {
+		@Override
+		public BoundContainer create(StoreReader sr, StoreClassRegister scr) {
+			return new BoundContainer(sr, scr);
+		}
+	};
+	
+
 	private Bound bound;
 
 
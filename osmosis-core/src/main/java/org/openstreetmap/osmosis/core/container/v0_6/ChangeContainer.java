@@ -1,11 +1,12 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.container.v0_6;
 
-import org.openstreetmap.osmosis.core.store.GenericObjectReader;
 import org.openstreetmap.osmosis.core.store.GenericObjectWriter;
+import org.openstreetmap.osmosis.core.store.ObjectSerializationFactory;
 import org.openstreetmap.osmosis.core.store.StoreClassRegister;
 import org.openstreetmap.osmosis.core.store.StoreReader;
 import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
 import org.openstreetmap.osmosis.core.store.Storeable;
 import org.openstreetmap.osmosis.core.task.common.ChangeAction;
 
@@ -16,6 +17,23 @@ import org.openstreetmap.osmosis.core.task.common.ChangeAction;
  * @author Brett Henderson
  */
 public class ChangeContainer implements Storeable {
+
+	/**
+	 * Creates change containers from a store without using reflection.
+	 */
+	public static final StoreableFactory<ChangeContainer> STOREABLE_FACTORY = new StoreableFactory<ChangeContainer>() {
+		@Override
+		public ChangeContainer create(StoreReader sr, StoreClassRegister scr) {
+			return new ChangeContainer(sr, scr);
+		}
+	};
+	
+	/**
+	 * Reads the wrapped entity containers without using reflection.
+	 */
+	private static final ObjectSerializationFactory ENTITY_SERIALIZATION_FACTORY =
+			new EntityContainerSerializationFactory();
+	
 	
 	private EntityContainer entityContainer;
 	private ChangeAction action;
@@ -45,7 +63,7 @@ public class ChangeContainer implements Storeable {
 	 *            within the store.
 	 */
 	public ChangeContainer(StoreReader sr, StoreClassRegister scr) {
-		entityContainer = (EntityContainer) new GenericObjectReader(sr, scr).readObject();
+		entityContainer = (EntityContainer) ENTITY_SERIALIZATION_FACTORY.createObjectReader(sr, scr).readObject();
 		action = ChangeAction.valueOf(sr.readString());
 	}
 	
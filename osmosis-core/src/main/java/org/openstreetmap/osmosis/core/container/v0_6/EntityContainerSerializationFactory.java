@@ -0,0 +1,23 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.container.v0_6;
+
+import org.openstreetmap.osmosis.core.store.GenericObjectSerializationFactory;
+
+
+/**
+ * A generic object serialisation factory with factories registered for all
+ * entity container types, so that stores of mixed entities are read without
+ * reflection.
+ */
+public class EntityContainerSerializationFactory extends GenericObjectSerializationFactory {
+
+	/**
+	 * Creates a new instance.
+	 */
+	public EntityContainerSerializationFactory() {
+		registerStoreableFactory(BoundContainer.class, BoundContainer.STOREABLE_FACTORY);
+		registerStoreableFactory(NodeContainer.class, NodeContainer.STOREABLE_FACTORY);
+		registerStoreableFactory(WayContainer.class, WayContainer.STOREABLE_FACTORY);
+		registerStoreableFactory(RelationContainer.class, RelationContainer.STOREABLE_FACTORY);
+	}
+}
@@ -5,6 +5,7 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.store.StoreClassRegister;
 import org.openstreetmap.osmosis.core.store.StoreReader;
 import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
 
 
 /**
@@ -13,6 +14,17 @@ import org.openstreetmap.osmosis.core.store.StoreWriter;
  * @author Brett Henderson
  */
 public class NodeContainer extends EntityContainer {
+
+	/**
+	 * Creates node containers from a store without using reflection.
+	 */
+	public static final StoreableFactory<NodeContainer> STOREABLE_FACTORY = new StoreableFactory<NodeContainer>() {
+		@Override
+		public NodeContainer create(StoreReader sr, StoreClassRegister scr) {
+			return new NodeContainer(sr, scr);
+		}
+	};
+	
 	
 	private Node node;
 	
@@ -5,6 +5,7 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
 import org.openstreetmap.osmosis.core.store.StoreClassRegister;
 import org.openstreetmap.osmosis.core.store.StoreReader;
 import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
 
 
 /**
@@ -13,6 +14,18 @@ import org.openstreetmap.osmosis.core.store.StoreWriter;
  * @author Brett Henderson
  */
 public class RelationContainer extends EntityContainer {
+
+	/**
+	 * Creates relation containers from a store without using reflection.
+	 */
+	public static final StoreableFactory<RelationContainer> STOREABLE_FACTORY =
+			new StoreableFactory<RelationContainer>() {
+				@Override
+				public RelationContainer create(StoreReader sr, StoreClassRegister scr) {
+					return new RelationContainer(sr, scr);
+				}
+			};
+	
 	
 	private Relation relation;
 	
@@ -5,6 +5,7 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.store.StoreClassRegister;
 import org.openstreetmap.osmosis.core.store.StoreReader;
 import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
 
 
 /**
@@ -13,6 +14,17 @@ import org.openstreetmap.osmosis.core.store.StoreWriter;
  * @author Brett Henderson
  */
 public class WayContainer extends EntityContainer {
+
+	/**
+	 * Creates way containers from a store without using reflection.
+	 */
+	public static final StoreableFactory<WayContainer> STOREABLE_FACTORY = new StoreableFactory<WayContainer>() {
+		@Override
+		public WayContainer create(StoreReader sr, StoreClassRegister scr) {
+			return new WayContainer(sr, scr);
+		}
+	};
+	
 	
 	private Way way;
 	
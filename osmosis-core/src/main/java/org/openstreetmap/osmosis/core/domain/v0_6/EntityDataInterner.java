@@ -0,0 +1,169 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * A bounded cache of strings, tags and users allowing readers to share a single
+ * instance of frequently repeated values between entities. A small number of
+ * tag keys, tag values and users account for the majority of entities, so
+ * sharing instances substantially reduces the memory consumed by entities held
+ * in buffers and the garbage generated while reading.
+ * <p>
+ * Each cache is a fixed size table where every value maps to a single slot, and
+ * a value replaces whatever currently occupies its slot. This keeps the cost
+ * of a lookup constant and bounds memory consumption, while frequently used
+ * values tend to remain cached. Lookups never block and an instance may be
+ * shared by any number of threads. Tags and users are immutable so sharing them
+ * between entities is safe.
+ */
+public class EntityDataInterner {
+
+	private static final int DEFAULT_STRING_CAPACITY = 1 << 16;
+	private static final int DEFAULT_TAG_CAPACITY = 1 << 16;
+	private static final int DEFAULT_USER_CAPACITY = 1 << 14;
+
+	/**
+	 * Tags with long values are rarely repeated, so they aren't worth caching.
+	 */
+	private static final int MAX_TAG_VALUE_LENGTH = 32;
+
+	private static final EntityDataInterner SHARED_INSTANCE = new EntityDataInterner(
+			DEFAULT_STRING_CAPACITY, DEFAULT_TAG_CAPACITY, DEFAULT_USER_CAPACITY);
+
+	private AtomicReferenceArray<String> strings;
+	private AtomicReferenceArray<Tag> tags;
+	private AtomicReferenceArray<OsmUser> users;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param stringCapacity
+	 *            The number of strings to cache. This is rounded up to a power
+	 *            of two.
+	 * @param tagCapacity
+	 *            The number of tags to cache. This is rounded up to a power of
+	 *            two.
+	 * @param userCapacity
+	 *            The number of users to cache. This is rounded up to a power of
+	 *            two.
+	 */
+	public EntityDataInterner(int stringCapacity, int tagCapacity, int userCapacity) {
+		strings = new AtomicReferenceArray<String>(roundToPowerOfTwo(stringCapacity));
+		tags = new AtomicReferenceArray<Tag>(roundToPowerOfTwo(tagCapacity));
+		users = new AtomicReferenceArray<OsmUser>(roundToPowerOfTwo(userCapacity));
+	}
+
+
+	/**
+	 * Gets the instance shared by all readers in the JVM.
+	 *
+	 * @return The shared instance.
+	 */
+	public static EntityDataInterner getSharedInstance() {
+		return SHARED_INSTANCE;
+	}
+
+
+	private static int roundToPowerOfTwo(int capacity) {
+		return Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+	}
+
+
+	/**
+	 * Spreads the hash bits so that similar values don't share slots.
+	 */
+	private static int getSlot(int hash, int length) {
+		return (hash ^ (hash >>> 16)) & (length - 1);
+	}
+
+
+	/**
+	 * Gets a cached string equal to the specified string, caching the
+	 * specified string if none is available.
+	 *
+	 * @param value
+	 *            The string to be interned.
+	 * @return An equal string, possibly the same instance.
+	 */
+	public String intern(String value) {
+		int slot;
+		String cached;
+
+		if (value == null) {
+			return null;
+		}
+
+		slot = getSlot(value.hashCode(), strings.length());
+		cached = strings.get(slot);
+		if (value.equals(cached)) {
+			return cached;
+		}
+
+		strings.lazySet(slot, value);
+
+		return value;
+	}
+
+
+	/**
+	 * Gets a tag with the specified key and value, re-using a cached instance
+	 * where possible.
+	 *
+	 * @param key
+	 *            The key identifying the tag.
+	 * @param value
+	 *            The value associated with the tag.
+	 * @return The tag.
+	 */
+	public Tag getTag(String key, String value) {
+		int slot;
+		Tag cached;
+		Tag tag;
+
+		if (value.length() > MAX_TAG_VALUE_LENGTH) {
+			return new Tag(key, value);
+		}
+
+		slot = getSlot(key.hashCode() * 31 + value.hashCode(), tags.length());
+		cached = tags.get(slot);
+		if (cached != null && key.equals(cached.getKey()) && value.equals(cached.getValue())) {
+			return cached;
+		}
+
+		tag = new Tag(key, value);
+		tags.lazySet(slot, tag);
+
+		return tag;
+	}
+
+
+	/**
+	 * Gets a user with the specified id and name, re-using a cached instance
+	 * where possible.
+	 *
+	 * @param id
+	 *            The user id.
+	 * @param name
+	 *            The user name.
+	 * @return The user.
+	 */
+	public OsmUser getUser(int id, String name) {
+		int slot;
+		OsmUser cached;
+		OsmUser user;
+
+		slot = getSlot(id * 31 + name.hashCode(), users.length());
+		cached = users.get(slot);
+		if (cached != null && cached.getId() == id && name.equals(cached.getName())) {
+			return cached;
+		}
+
+		user = new OsmUser(id, name);
+		users.lazySet(slot, user);
+
+		return user;
+	}
+}
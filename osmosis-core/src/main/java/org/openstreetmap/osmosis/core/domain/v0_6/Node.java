@@ -9,6 +9,7 @@ import org.openstreetmap.osmosis.core.domain.common.TimestampContainer;
 import org.openstreetmap.osmosis.core.store.StoreClassRegister;
 import org.openstreetmap.osmosis.core.store.StoreReader;
 import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
 import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
 
 
@@ -19,6 +20,17 @@ import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
  */
 public class Node extends Entity implements Comparable<Node> {
 
+	/**
+	 * Creates nodes from a store without using reflection.
+	 */
+	public static final StoreableFactory<Node> STOREABLE_FACTORY = new StoreableFactory<Node>() {
+		@Override
+		public Node create(StoreReader sr, StoreClassRegister scr) {
+			return new Node(sr, scr);
+		}
+	};
+	
+
 	private double latitude;
 	private double longitude;
 
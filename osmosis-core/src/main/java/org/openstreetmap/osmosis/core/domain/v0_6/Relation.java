@@ -1,9 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.domain.v0_6;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -13,15 +11,28 @@ import org.openstreetmap.osmosis.core.domain.common.TimestampContainer;
 import org.openstreetmap.osmosis.core.store.StoreClassRegister;
 import org.openstreetmap.osmosis.core.store.StoreReader;
 import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
 
 
 /**
- * A data class representing a single OSM relation.
+ * A data class representing a single OSM relation. Members are held in a
+ * {@link RelationMemberList} which stores member details in arrays.
  * 
  * @author Brett Henderson
  */
 public class Relation extends Entity implements Comparable<Relation> {
-	private List<RelationMember> members;
+
+	/**
+	 * Creates relations from a store without using reflection.
+	 */
+	public static final StoreableFactory<Relation> STOREABLE_FACTORY = new StoreableFactory<Relation>() {
+		@Override
+		public Relation create(StoreReader sr, StoreClassRegister scr) {
+			return new Relation(sr, scr);
+		}
+	};
+	
+	private RelationMemberList members;
 	
 	
 	/**
@@ -64,7 +75,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	public Relation(long id, int version, TimestampContainer timestampContainer, OsmUser user, long changesetId) {
 		super(id, version, timestampContainer, user, changesetId);
 		
-		this.members = new ArrayList<RelationMember>();
+		this.members = new RelationMemberList();
 	}
 	
 	
@@ -77,7 +88,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	public Relation(CommonEntityData entityData) {
 		super(entityData);
 		
-		this.members = new ArrayList<RelationMember>();
+		this.members = new RelationMemberList();
 	}
 	
 	
@@ -133,7 +144,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 			Collection<Tag> tags, List<RelationMember> members) {
 		super(id, version, timestampContainer, user, changesetId, tags);
 		
-		this.members = new ArrayList<RelationMember>(members);
+		this.members = new RelationMemberList(members);
 	}
 	
 	
@@ -149,7 +160,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 			CommonEntityData entityData, List<RelationMember> members) {
 		super(entityData);
 		
-		this.members = new ArrayList<RelationMember>(members);
+		this.members = new RelationMemberList(members);
 	}
 	
 	
@@ -162,7 +173,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	private Relation(Relation originalRelation) {
 		super(originalRelation);
 		
-		this.members = new ArrayList<RelationMember>(originalRelation.members);
+		this.members = new RelationMemberList(originalRelation.members);
 	}
 	
 	
@@ -178,14 +189,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	public Relation(StoreReader sr, StoreClassRegister scr) {
 		super(sr, scr);
 		
-		int featureCount;
-		
-		featureCount = sr.readInteger();
-		
-		members = new ArrayList<RelationMember>();
-		for (int i = 0; i < featureCount; i++) {
-			members.add(new RelationMember(sr, scr));
-		}
+		members = new RelationMemberList(sr);
 	}
 	
 	
@@ -196,10 +200,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	public void store(StoreWriter sw, StoreClassRegister scr) {
 		super.store(sw, scr);
 		
-		sw.writeInteger(members.size());
-		for (RelationMember relationMember : members) {
-			relationMember.store(sw, scr);
-		}
+		members.store(sw);
 	}
 	
 	
@@ -336,7 +337,7 @@ public class Relation extends Entity implements Comparable<Relation> {
 	@Override
 	public void makeReadOnly() {
 		if (!isReadOnly()) {
-			members = Collections.unmodifiableList(members);
+			members.makeReadOnly();
 		}
 		
 		super.makeReadOnly();
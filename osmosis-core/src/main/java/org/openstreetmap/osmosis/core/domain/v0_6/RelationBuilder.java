@@ -1,7 +1,6 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.domain.v0_6;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -20,7 +19,7 @@ import org.openstreetmap.osmosis.core.store.StoreWriter;
  */
 @Deprecated
 public class RelationBuilder extends EntityBuilder<Relation> {
-	private List<RelationMember> members;
+	private RelationMemberList members;
 	
 	
 	/**
@@ -29,7 +28,7 @@ public class RelationBuilder extends EntityBuilder<Relation> {
 	public RelationBuilder() {
 		super();
 		
-		members = new ArrayList<RelationMember>();
+		members = new RelationMemberList();
 	}
 	
 	
@@ -241,6 +240,24 @@ public class RelationBuilder extends EntityBuilder<Relation> {
 	}
 	
 	
+	/**
+	 * Adds a new member without creating a relation member object.
+	 * 
+	 * @param memberId
+	 *            The id of the entity that this member consists of.
+	 * @param memberType
+	 *            The type of the entity that this member consists of.
+	 * @param memberRole
+	 *            The role that this member forms within the relation.
+	 * @return This object allowing method chaining.
+	 */
+	public RelationBuilder addMember(long memberId, EntityType memberType, String memberRole) {
+		members.addMember(memberId, memberType, memberRole);
+		
+		return this;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
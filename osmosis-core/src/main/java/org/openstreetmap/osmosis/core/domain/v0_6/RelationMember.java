@@ -112,6 +112,35 @@ public class RelationMember implements Comparable<RelationMember>, Storeable {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof RelationMember) {
+			return compareTo((RelationMember) o) == 0;
+		} else {
+			return false;
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		int result;
+		
+		result = -17;
+		result = 31 * result + (int) (memberId ^ (memberId >>> 32));
+		result = 31 * result + memberType.ordinal();
+		result = 31 * result + memberRole.hashCode();
+		
+		return result;
+	}
+	
+	
 	/**
 	 * Returns the id of the member entity.
 	 * 
@@ -0,0 +1,300 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+
+
+/**
+ * A list of relation members holding member ids, types and roles in parallel
+ * arrays rather than as individual objects. {@link RelationMember} instances
+ * are created on demand when elements are accessed through the
+ * {@link java.util.List} interface, and callers can avoid them entirely by
+ * using the indexed accessors.
+ */
+public class RelationMemberList extends AbstractList<RelationMember> implements RandomAccess {
+
+	private static final int DEFAULT_CAPACITY = 4;
+	private static final EntityType[] ENTITY_TYPES = EntityType.values();
+
+	private long[] memberIds;
+	private byte[] memberTypes;
+	private String[] memberRoles;
+	private int size;
+	private boolean readOnly;
+
+
+	/**
+	 * Creates a new empty instance.
+	 */
+	public RelationMemberList() {
+		allocate(DEFAULT_CAPACITY);
+		size = 0;
+	}
+
+
+	/**
+	 * Creates a new instance containing the specified members.
+	 *
+	 * @param members
+	 *            The members to be copied into the list.
+	 */
+	public RelationMemberList(Collection<RelationMember> members) {
+		if (members instanceof RelationMemberList) {
+			RelationMemberList source = (RelationMemberList) members;
+			int capacity = Math.max(source.size, 1);
+
+			memberIds = Arrays.copyOf(source.memberIds, capacity);
+			memberTypes = Arrays.copyOf(source.memberTypes, capacity);
+			memberRoles = Arrays.copyOf(source.memberRoles, capacity);
+			size = source.size;
+		} else {
+			allocate(Math.max(members.size(), 1));
+			size = 0;
+			for (RelationMember member : members) {
+				memberIds[size] = member.getMemberId();
+				memberTypes[size] = (byte) member.getMemberType().ordinal();
+				memberRoles[size] = member.getMemberRole();
+				size++;
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a new instance by reading the members from a store. The members
+	 * must have been written by {@link #store(StoreWriter)}.
+	 *
+	 * @param sr
+	 *            The store to read state from.
+	 */
+	public RelationMemberList(StoreReader sr) {
+		size = sr.readInteger();
+		allocate(Math.max(size, 1));
+		for (int i = 0; i < size; i++) {
+			memberIds[i] = sr.readLong();
+			memberTypes[i] = sr.readByte();
+			memberRoles[i] = sr.readString();
+		}
+	}
+
+
+	private void allocate(int capacity) {
+		memberIds = new long[capacity];
+		memberTypes = new byte[capacity];
+		memberRoles = new String[capacity];
+	}
+
+
+	private void ensureCapacity() {
+		if (size >= memberIds.length) {
+			memberIds = Arrays.copyOf(memberIds, size * 2);
+			memberTypes = Arrays.copyOf(memberTypes, size * 2);
+			memberRoles = Arrays.copyOf(memberRoles, size * 2);
+		}
+	}
+
+
+	/**
+	 * Writes the members to a store.
+	 *
+	 * @param sw
+	 *            The store to write state to.
+	 */
+	public void store(StoreWriter sw) {
+		sw.writeInteger(size);
+		for (int i = 0; i < size; i++) {
+			sw.writeLong(memberIds[i]);
+			sw.writeByte(memberTypes[i]);
+			sw.writeString(memberRoles[i]);
+		}
+	}
+
+
+	/**
+	 * Prevents any further changes to the list.
+	 */
+	public void makeReadOnly() {
+		readOnly = true;
+	}
+
+
+	private void assertWriteable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("The relation member list is read-only.");
+		}
+	}
+
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is outside the list size of " + size + ".");
+		}
+	}
+
+
+	/**
+	 * Gets the id of the member at the specified position.
+	 *
+	 * @param index
+	 *            The position in the list.
+	 * @return The member id.
+	 */
+	public long getMemberId(int index) {
+		checkIndex(index);
+
+		return memberIds[index];
+	}
+
+
+	/**
+	 * Gets the type of the member at the specified position.
+	 *
+	 * @param index
+	 *            The position in the list.
+	 * @return The member type.
+	 */
+	public EntityType getMemberType(int index) {
+		checkIndex(index);
+
+		return ENTITY_TYPES[memberTypes[index]];
+	}
+
+
+	/**
+	 * Gets the role of the member at the specified position.
+	 *
+	 * @param index
+	 *            The position in the list.
+	 * @return The member role.
+	 */
+	public String getMemberRole(int index) {
+		checkIndex(index);
+
+		return memberRoles[index];
+	}
+
+
+	/**
+	 * Adds a member to the end of the list without creating a relation member.
+	 *
+	 * @param memberId
+	 *            The id of the entity that this member consists of.
+	 * @param memberType
+	 *            The type of the entity that this member consists of.
+	 * @param memberRole
+	 *            The role that this member forms within the relation.
+	 */
+	public void addMember(long memberId, EntityType memberType, String memberRole) {
+		assertWriteable();
+		if (memberType == null) {
+			throw new IllegalArgumentException("null type given for relation-member");
+		}
+		if (memberRole == null) {
+			throw new IllegalArgumentException("null role given for relation-member");
+		}
+
+		ensureCapacity();
+		memberIds[size] = memberId;
+		memberTypes[size] = (byte) memberType.ordinal();
+		memberRoles[size] = memberRole;
+		size++;
+		modCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RelationMember get(int index) {
+		checkIndex(index);
+
+		return new RelationMember(memberIds[index], ENTITY_TYPES[memberTypes[index]], memberRoles[index]);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RelationMember set(int index, RelationMember element) {
+		RelationMember previous;
+
+		assertWriteable();
+		previous = get(index);
+		memberIds[index] = element.getMemberId();
+		memberTypes[index] = (byte) element.getMemberType().ordinal();
+		memberRoles[index] = element.getMemberRole();
+
+		return previous;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(int index, RelationMember element) {
+		assertWriteable();
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is outside the list size of " + size + ".");
+		}
+
+		ensureCapacity();
+		System.arraycopy(memberIds, index, memberIds, index + 1, size - index);
+		System.arraycopy(memberTypes, index, memberTypes, index + 1, size - index);
+		System.arraycopy(memberRoles, index, memberRoles, index + 1, size - index);
+		memberIds[index] = element.getMemberId();
+		memberTypes[index] = (byte) element.getMemberType().ordinal();
+		memberRoles[index] = element.getMemberRole();
+		size++;
+		modCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RelationMember remove(int index) {
+		RelationMember previous;
+
+		assertWriteable();
+		previous = get(index);
+		System.arraycopy(memberIds, index + 1, memberIds, index, size - index - 1);
+		System.arraycopy(memberTypes, index + 1, memberTypes, index, size - index - 1);
+		System.arraycopy(memberRoles, index + 1, memberRoles, index, size - index - 1);
+		size--;
+		memberRoles[size] = null;
+		modCount++;
+
+		return previous;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		assertWriteable();
+		Arrays.fill(memberRoles, 0, size, null);
+		size = 0;
+		modCount++;
+	}
+}
@@ -1,9 +1,7 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.domain.v0_6;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -13,16 +11,29 @@ import org.openstreetmap.osmosis.core.domain.common.TimestampContainer;
 import org.openstreetmap.osmosis.core.store.StoreClassRegister;
 import org.openstreetmap.osmosis.core.store.StoreReader;
 import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
 
 
 /**
- * A data class representing a single OSM way.
+ * A data class representing a single OSM way. Way nodes are held in a
+ * {@link WayNodeList} which stores only the node ids.
  * 
  * @author Brett Henderson
  */
 public class Way extends Entity implements Comparable<Way> {
+
+	/**
+	 * Creates ways from a store without using reflection.
+	 */
+	public static final StoreableFactory<Way> STOREABLE_FACTORY = new StoreableFactory<Way>() {
+		@Override
+		public Way create(StoreReader sr, StoreClassRegister scr) {
+			return new Way(sr, scr);
+		}
+	};
 	
-	private List<WayNode> wayNodes;
+	
+	private WayNodeList wayNodes;
 	
 	
 	/**
@@ -65,7 +76,7 @@ public class Way extends Entity implements Comparable<Way> {
 	public Way(long id, int version, TimestampContainer timestampContainer, OsmUser user, long changesetId) {
 		super(id, version, timestampContainer, user, changesetId);
 		
-		this.wayNodes = new ArrayList<WayNode>();
+		this.wayNodes = new WayNodeList();
 	}
 	
 	
@@ -78,7 +89,7 @@ public class Way extends Entity implements Comparable<Way> {
 	public Way(CommonEntityData entityData) {
 		super(entityData);
 		
-		this.wayNodes = new ArrayList<WayNode>();
+		this.wayNodes = new WayNodeList();
 	}
 	
 	
@@ -133,7 +144,7 @@ public class Way extends Entity implements Comparable<Way> {
 			Collection<Tag> tags, List<WayNode> wayNodes) {
 		super(id, version, timestampContainer, user, changesetId, tags);
 		
-		this.wayNodes = new ArrayList<WayNode>(wayNodes);
+		this.wayNodes = new WayNodeList(wayNodes);
 	}
 	
 	
@@ -149,7 +160,7 @@ public class Way extends Entity implements Comparable<Way> {
 			CommonEntityData entityData, List<WayNode> wayNodes) {
 		super(entityData);
 		
-		this.wayNodes = new ArrayList<WayNode>(wayNodes);
+		this.wayNodes = new WayNodeList(wayNodes);
 	}
 	
 	
@@ -162,7 +173,7 @@ public class Way extends Entity implements Comparable<Way> {
 	private Way(Way originalWay) {
 		super(originalWay);
 		
-		this.wayNodes = new ArrayList<WayNode>(originalWay.wayNodes);
+		this.wayNodes = new WayNodeList(originalWay.wayNodes);
 	}
 	
 	
@@ -178,14 +189,7 @@ public class Way extends Entity implements Comparable<Way> {
 	public Way(StoreReader sr, StoreClassRegister scr) {
 		super(sr, scr);
 		
-		int featureCount;
-		
-		featureCount = sr.readInteger();
-		
-		wayNodes = new ArrayList<WayNode>();
-		for (int i = 0; i < featureCount; i++) {
-			wayNodes.add(new WayNode(sr, scr));
-		}
+		wayNodes = new WayNodeList(sr);
 	}
 	
 	
@@ -196,10 +200,7 @@ public class Way extends Entity implements Comparable<Way> {
 	public void store(StoreWriter sw, StoreClassRegister scr) {
 		super.store(sw, scr);
 		
-		sw.writeInteger(wayNodes.size());
-		for (WayNode wayNode : wayNodes) {
-			wayNode.store(sw, scr);
-		}
+		wayNodes.store(sw);
 	}
 	
 	
@@ -258,6 +259,26 @@ public class Way extends Entity implements Comparable<Way> {
 			return wayNodes.size() - comparisonWayNodes.size();
 		}
 		
+		// Compare node ids directly where possible to avoid creating way nodes.
+		if (comparisonWayNodes instanceof WayNodeList) {
+			WayNodeList comparisonList = (WayNodeList) comparisonWayNodes;
+			
+			for (int k = 0; k < wayNodes.size(); k++) {
+				long nodeId = wayNodes.getNodeId(k);
+				long comparisonNodeId = comparisonList.getNodeId(k);
+				
+				if (nodeId != comparisonNodeId) {
+					if (nodeId < comparisonNodeId) {
+						return -1;
+					} else {
+						return 1;
+					}
+				}
+			}
+			
+			return 0;
+		}
+		
 		// Check the individual way nodes.
 		i = wayNodes.iterator();
 		j = comparisonWayNodes.iterator();
@@ -334,7 +355,7 @@ public class Way extends Entity implements Comparable<Way> {
 	@Override
 	public void makeReadOnly() {
 		if (!isReadOnly()) {
-			wayNodes = Collections.unmodifiableList(wayNodes);
+			wayNodes.makeReadOnly();
 		}
 		
 		super.makeReadOnly();
@@ -370,7 +391,7 @@ public class Way extends Entity implements Comparable<Way> {
      * @return True or false
      */
     public boolean isClosed() {
-        return wayNodes.get(0).getNodeId() == wayNodes.get(wayNodes.size() - 1).getNodeId();
+        return wayNodes.getNodeId(0) == wayNodes.getNodeId(wayNodes.size() - 1);
     }
 
     /** 
@@ -1,7 +1,6 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.domain.v0_6;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -20,7 +19,7 @@ import org.openstreetmap.osmosis.core.store.StoreWriter;
  */
 @Deprecated
 public class WayBuilder extends EntityBuilder<Way> {
-	private List<WayNode> wayNodes;
+	private WayNodeList wayNodes;
 	
 	
 	/**
@@ -29,7 +28,7 @@ public class WayBuilder extends EntityBuilder<Way> {
 	public WayBuilder() {
 		super();
 		
-		wayNodes = new ArrayList<WayNode>();
+		wayNodes = new WayNodeList();
 	}
 	
 	
@@ -239,6 +238,20 @@ public class WayBuilder extends EntityBuilder<Way> {
 	}
 	
 	
+	/**
+	 * Adds a new way node without creating a way node object.
+	 * 
+	 * @param nodeId
+	 *            The id of the new way node.
+	 * @return This object allowing method chaining.
+	 */
+	public WayBuilder addWayNode(long nodeId) {
+		wayNodes.addNodeId(nodeId);
+		
+		return this;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -74,6 +74,28 @@ public class WayNode implements Comparable<WayNode>, Storeable {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof WayNode) {
+			return nodeId == ((WayNode) o).nodeId;
+		} else {
+			return false;
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return (int) (nodeId ^ (nodeId >>> 32));
+	}
+	
+	
 	/**
 	 * @return The nodeId.
 	 */
@@ -0,0 +1,233 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+
+
+/**
+ * A list of way nodes holding only the node ids in a primitive array. Large
+ * datasets contain billions of way node references, so holding them as
+ * individual objects consumes far more memory than the ids themselves.
+ * {@link WayNode} instances are created on demand when elements are accessed
+ * through the {@link java.util.List} interface, and callers only interested in
+ * node ids can avoid them entirely by using {@link #getNodeId(int)}.
+ */
+public class WayNodeList extends AbstractList<WayNode> implements RandomAccess {
+
+	private static final int DEFAULT_CAPACITY = 8;
+
+	private long[] nodeIds;
+	private int size;
+	private boolean readOnly;
+
+
+	/**
+	 * Creates a new empty instance.
+	 */
+	public WayNodeList() {
+		nodeIds = new long[DEFAULT_CAPACITY];
+		size = 0;
+	}
+
+
+	/**
+	 * Creates a new instance containing the specified way nodes.
+	 *
+	 * @param wayNodes
+	 *            The way nodes to be copied into the list.
+	 */
+	public WayNodeList(Collection<WayNode> wayNodes) {
+		if (wayNodes instanceof WayNodeList) {
+			WayNodeList source = (WayNodeList) wayNodes;
+
+			nodeIds = Arrays.copyOf(source.nodeIds, Math.max(source.size, 1));
+			size = source.size;
+		} else {
+			nodeIds = new long[Math.max(wayNodes.size(), 1)];
+			size = 0;
+			for (WayNode wayNode : wayNodes) {
+				nodeIds[size++] = wayNode.getNodeId();
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a new instance by reading the node ids from a store. The ids must
+	 * have been written by {@link #store(StoreWriter)}.
+	 *
+	 * @param sr
+	 *            The store to read state from.
+	 */
+	public WayNodeList(StoreReader sr) {
+		long nodeId = 0;
+
+		size = sr.readInteger();
+		nodeIds = new long[Math.max(size, 1)];
+		for (int i = 0; i < size; i++) {
+			nodeId += sr.readLong();
+			nodeIds[i] = nodeId;
+		}
+	}
+
+
+	/**
+	 * Writes the node ids to a store. Each id is written as a delta against
+	 * the previous id because nodes within a way usually have similar ids,
+	 * which allows stores using variable length encoding to write them in
+	 * fewer bytes.
+	 *
+	 * @param sw
+	 *            The store to write state to.
+	 */
+	public void store(StoreWriter sw) {
+		long previousNodeId = 0;
+
+		sw.writeInteger(size);
+		for (int i = 0; i < size; i++) {
+			sw.writeLong(nodeIds[i] - previousNodeId);
+			previousNodeId = nodeIds[i];
+		}
+	}
+
+
+	/**
+	 * Prevents any further changes to the list.
+	 */
+	public void makeReadOnly() {
+		readOnly = true;
+	}
+
+
+	private void assertWriteable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("The way node list is read-only.");
+		}
+	}
+
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is outside the list size of " + size + ".");
+		}
+	}
+
+
+	/**
+	 * Gets the id of the node at the specified position without creating a
+	 * way node.
+	 *
+	 * @param index
+	 *            The position in the list.
+	 * @return The node id.
+	 */
+	public long getNodeId(int index) {
+		checkIndex(index);
+
+		return nodeIds[index];
+	}
+
+
+	/**
+	 * Adds a node to the end of the list without creating a way node.
+	 *
+	 * @param nodeId
+	 *            The id of the node.
+	 */
+	public void addNodeId(long nodeId) {
+		assertWriteable();
+
+		if (size >= nodeIds.length) {
+			nodeIds = Arrays.copyOf(nodeIds, size * 2);
+		}
+		nodeIds[size++] = nodeId;
+		modCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public WayNode get(int index) {
+		return new WayNode(getNodeId(index));
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public WayNode set(int index, WayNode element) {
+		WayNode previous;
+
+		assertWriteable();
+		previous = get(index);
+		nodeIds[index] = element.getNodeId();
+
+		return previous;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(int index, WayNode element) {
+		assertWriteable();
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is outside the list size of " + size + ".");
+		}
+
+		if (size >= nodeIds.length) {
+			nodeIds = Arrays.copyOf(nodeIds, size * 2);
+		}
+		System.arraycopy(nodeIds, index, nodeIds, index + 1, size - index);
+		nodeIds[index] = element.getNodeId();
+		size++;
+		modCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public WayNode remove(int index) {
+		WayNode previous;
+
+		assertWriteable();
+		previous = get(index);
+		System.arraycopy(nodeIds, index + 1, nodeIds, index, size - index - 1);
+		size--;
+		modCount++;
+
+		return previous;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		assertWriteable();
+		size = 0;
+		modCount++;
+	}
+}
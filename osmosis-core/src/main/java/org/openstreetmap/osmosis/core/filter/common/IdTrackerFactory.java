@@ -33,6 +33,10 @@ public final class IdTrackerFactory {
 			return new ListIdTracker();
 		} else if (IdTrackerType.Dynamic.equals(idTrackerType)) {
 			return new DynamicIdTracker();
+		} else if (IdTrackerType.PagedBitSet.equals(idTrackerType)) {
+			return new PagedBitSetIdTracker();
+		} else if (IdTrackerType.Roaring.equals(idTrackerType)) {
+			return new RoaringIdTracker();
 		} else {
 			throw new OsmosisRuntimeException("The IdTrackerType " + idTrackerType + " is not recognised.");
 		}
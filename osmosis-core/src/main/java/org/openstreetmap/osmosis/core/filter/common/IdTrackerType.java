@@ -28,5 +28,19 @@ public enum IdTrackerType {
 	 * either one of the two other id list implementations depending on the number of ids to be
 	 * managed.
 	 */
-	Dynamic
+	Dynamic,
+	/**
+	 * The paged BitSet implementation is similar to the BitSet implementation but supports 64-bit
+	 * ids. The id range is split into fixed size pages which are only allocated once an id within
+	 * them is set. This is the most compact and fastest option when a large portion of a full
+	 * planet must be stored.
+	 */
+	PagedBitSet,
+	/**
+	 * The Roaring implementation splits the id range into chunks of 65536 ids and stores each
+	 * chunk as a sorted array, a bitmap or a list of runs depending on which is smallest. It adapts
+	 * to both sparse and dense ids, and merging two trackers of this type is performed a chunk at a
+	 * time rather than an id at a time.
+	 */
+	Roaring
 }
@@ -0,0 +1,420 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.filter.common;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Implements the IdTracker interface using bitmaps split into fixed size pages.
+ * Unlike the BitSetIdTracker it supports the full 64-bit id range. Pages are
+ * only allocated once an id within their range is set, so memory usage is
+ * approximately one bit per id across the ranges actually in use.
+ */
+public class PagedBitSetIdTracker implements IdTracker {
+	/**
+	 * The number of bits used to address an id within a page. Each page holds
+	 * 2^20 ids in 128KB.
+	 */
+	private static final int PAGE_SHIFT = 20;
+	private static final long PAGE_MASK = (1L << PAGE_SHIFT) - 1;
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_MASK = (1 << WORD_SHIFT) - 1;
+	private static final int WORDS_PER_PAGE = 1 << (PAGE_SHIFT - WORD_SHIFT);
+
+	/**
+	 * The positive ids including 0. It is not private to allow the
+	 * IdIterator to access it efficiently.
+	 */
+	/* package */ PageSet positiveSet;
+	/**
+	 * The negative ids. Each id is stored as its one's complement (ie. -1 is
+	 * stored as 0) so that both sets address from 0 upwards. It is not private
+	 * to allow the IdIterator to access it efficiently.
+	 */
+	/* package */ PageSet negativeSet;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public PagedBitSetIdTracker() {
+		positiveSet = new PageSet();
+		negativeSet = new PageSet();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void set(long id) {
+		if (id >= 0) {
+			positiveSet.set(id);
+		} else {
+			negativeSet.set(~id);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean get(long id) {
+		if (id >= 0) {
+			return positiveSet.get(id);
+		} else {
+			return negativeSet.get(~id);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Long> iterator() {
+		return new IdIterator();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setAll(IdTracker idTracker) {
+		if (idTracker instanceof PagedBitSetIdTracker) {
+			PagedBitSetIdTracker other = (PagedBitSetIdTracker) idTracker;
+
+			// Merge whole pages instead of setting ids one at a time.
+			positiveSet.setAll(other.positiveSet);
+			negativeSet.setAll(other.negativeSet);
+
+		} else {
+			for (Long id : idTracker) {
+				set(id);
+			}
+		}
+	}
+
+
+	/**
+	 * A bitmap addressed by non-negative longs with pages allocated on demand.
+	 */
+	/* package */ static class PageSet {
+		/**
+		 * The pages indexed by page number. Entries are null until an id in
+		 * that page is set.
+		 */
+		private long[][] pages;
+
+
+		/**
+		 * Creates a new instance.
+		 */
+		PageSet() {
+			pages = new long[0][];
+		}
+
+
+		private static int getPageIndex(long value) {
+			long pageIndex;
+
+			pageIndex = value >>> PAGE_SHIFT;
+			if (pageIndex >= Integer.MAX_VALUE) {
+				throw new OsmosisRuntimeException("Id " + value + " is too large to be tracked.");
+			}
+
+			return (int) pageIndex;
+		}
+
+
+		private long[] getPage(int pageIndex, boolean createIfMissing) {
+			long[] page;
+
+			if (pageIndex >= pages.length) {
+				if (!createIfMissing) {
+					return null;
+				}
+
+				// Grow the page directory by at least half again to avoid
+				// frequent copying when ids arrive in increasing order.
+				pages = Arrays.copyOf(pages, (int) Math.min(
+						Integer.MAX_VALUE, Math.max(pageIndex + 1L, pages.length * 3L / 2)));
+			}
+
+			page = pages[pageIndex];
+			if (page == null && createIfMissing) {
+				page = new long[WORDS_PER_PAGE];
+				pages[pageIndex] = page;
+			}
+
+			return page;
+		}
+
+
+		/**
+		 * Sets the specified value.
+		 *
+		 * @param value
+		 *            The value to set.
+		 */
+		public void set(long value) {
+			long[] page;
+			int bitOffset;
+
+			page = getPage(getPageIndex(value), true);
+			bitOffset = (int) (value & PAGE_MASK);
+
+			page[bitOffset >>> WORD_SHIFT] |= 1L << (bitOffset & WORD_MASK);
+		}
+
+
+		/**
+		 * Checks whether the specified value is set.
+		 *
+		 * @param value
+		 *            The value to check.
+		 * @return True if the value is set.
+		 */
+		public boolean get(long value) {
+			long pageIndex;
+			long[] page;
+			int bitOffset;
+
+			pageIndex = value >>> PAGE_SHIFT;
+			if (pageIndex >= pages.length) {
+				return false;
+			}
+			page = pages[(int) pageIndex];
+			if (page == null) {
+				return false;
+			}
+			bitOffset = (int) (value & PAGE_MASK);
+
+			return (page[bitOffset >>> WORD_SHIFT] & (1L << (bitOffset & WORD_MASK))) != 0;
+		}
+
+
+		/**
+		 * Sets all values set in another page set.
+		 *
+		 * @param other
+		 *            The page set to merge into this one.
+		 */
+		public void setAll(PageSet other) {
+			for (int pageIndex = 0; pageIndex < other.pages.length; pageIndex++) {
+				long[] otherPage;
+				long[] page;
+
+				otherPage = other.pages[pageIndex];
+				if (otherPage == null) {
+					continue;
+				}
+
+				page = getPage(pageIndex, true);
+				for (int i = 0; i < WORDS_PER_PAGE; i++) {
+					page[i] |= otherPage[i];
+				}
+			}
+		}
+
+
+		/**
+		 * Finds the lowest set value greater than or equal to the specified
+		 * value.
+		 *
+		 * @param fromValue
+		 *            The value to begin searching from.
+		 * @return The next set value, or -1 if none remain.
+		 */
+		public long nextSetValue(long fromValue) {
+			long pageIndex;
+			int wordIndex;
+			long word;
+
+			pageIndex = fromValue >>> PAGE_SHIFT;
+			wordIndex = (int) ((fromValue & PAGE_MASK) >>> WORD_SHIFT);
+			// Mask off bits in the first word below the starting value.
+			word = -1L << (fromValue & WORD_MASK);
+
+			for (; pageIndex < pages.length; pageIndex++) {
+				long[] page = pages[(int) pageIndex];
+
+				if (page != null) {
+					for (; wordIndex < WORDS_PER_PAGE; wordIndex++) {
+						word &= page[wordIndex];
+						if (word != 0) {
+							return (pageIndex << PAGE_SHIFT) + ((long) wordIndex << WORD_SHIFT)
+									+ Long.numberOfTrailingZeros(word);
+						}
+						word = -1L;
+					}
+				}
+				wordIndex = 0;
+				word = -1L;
+			}
+
+			return -1;
+		}
+
+
+		/**
+		 * Finds the highest set value less than or equal to the specified
+		 * value.
+		 *
+		 * @param fromValue
+		 *            The value to begin searching from.
+		 * @return The previous set value, or -1 if none remain.
+		 */
+		public long previousSetValue(long fromValue) {
+			long pageIndex;
+			int wordIndex;
+			long word;
+
+			if (fromValue < 0) {
+				return -1;
+			}
+
+			pageIndex = fromValue >>> PAGE_SHIFT;
+			wordIndex = (int) ((fromValue & PAGE_MASK) >>> WORD_SHIFT);
+			// Mask off bits in the first word above the starting value.
+			word = -1L >>> (WORD_MASK - (fromValue & WORD_MASK));
+
+			if (pageIndex >= pages.length) {
+				pageIndex = pages.length - 1;
+				wordIndex = WORDS_PER_PAGE - 1;
+				word = -1L;
+			}
+
+			for (; pageIndex >= 0; pageIndex--) {
+				long[] page = pages[(int) pageIndex];
+
+				if (page != null) {
+					for (; wordIndex >= 0; wordIndex--) {
+						word &= page[wordIndex];
+						if (word != 0) {
+							return (pageIndex << PAGE_SHIFT) + ((long) wordIndex << WORD_SHIFT)
+									+ WORD_MASK - Long.numberOfLeadingZeros(word);
+						}
+						word = -1L;
+					}
+				}
+				wordIndex = WORDS_PER_PAGE - 1;
+				word = -1L;
+			}
+
+			return -1;
+		}
+
+
+		/**
+		 * Gets the highest value that could be stored without growing the page
+		 * directory.
+		 *
+		 * @return The maximum addressable value, or -1 if no pages exist.
+		 */
+		public long getMaxValue() {
+			return ((long) pages.length << PAGE_SHIFT) - 1;
+		}
+	}
+
+
+	/**
+	 * The iterator implementation for providing access to the list of ids. The
+	 * negative ids are returned first, followed by the positive ids, giving
+	 * ascending order overall.
+	 */
+	private class IdIterator implements Iterator<Long> {
+
+		/**
+		 * Tracks whether we're currently reading positive or negative ids.
+		 */
+		private boolean readingPositive;
+		private long nextId;
+		private boolean nextIdAvailable;
+		/**
+		 * The next value to search from in the set currently being read.
+		 */
+		private long searchOffset;
+
+
+		/**
+		 * Creates a new instance.
+		 */
+		IdIterator() {
+			readingPositive = false;
+			nextIdAvailable = false;
+
+			// The most negative id has the largest stored value.
+			searchOffset = negativeSet.getMaxValue();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			if (!nextIdAvailable) {
+				if (!readingPositive) {
+					long value;
+
+					value = negativeSet.previousSetValue(searchOffset);
+					if (value >= 0) {
+						nextId = ~value;
+						nextIdAvailable = true;
+						searchOffset = value - 1;
+					} else {
+						readingPositive = true;
+						searchOffset = 0;
+					}
+				}
+
+				if (readingPositive && searchOffset >= 0) {
+					long value;
+
+					value = positiveSet.nextSetValue(searchOffset);
+					if (value >= 0) {
+						nextId = value;
+						nextIdAvailable = true;
+						searchOffset = value + 1;
+					} else {
+						// Stop searching on subsequent calls.
+						searchOffset = -1;
+					}
+				}
+			}
+
+			return nextIdAvailable;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Long next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			nextIdAvailable = false;
+
+			return nextId;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
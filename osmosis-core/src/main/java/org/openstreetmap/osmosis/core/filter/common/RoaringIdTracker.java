@@ -0,0 +1,994 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.filter.common;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+
+/**
+ * Implements the IdTracker interface using compressed bitmaps in the style of
+ * Roaring bitmaps. The id space is split into chunks of 65536 ids keyed by the
+ * upper 48 bits of the id. Each chunk is held in the most compact of three
+ * container types: a sorted array for sparse chunks, a bitmap for dense
+ * chunks, or a list of runs for chunks made of long consecutive ranges.
+ * <p>
+ * Merging two trackers of this type unions their containers directly and
+ * iteration returns primitive longs, making it well suited to the repeated
+ * setAll and iteration passes performed by the area filter tasks.
+ */
+public class RoaringIdTracker implements IdTracker {
+	private static final int CHUNK_SHIFT = 16;
+	private static final int LOW_MASK = (1 << CHUNK_SHIFT) - 1;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	/**
+	 * Array containers are converted to bitmaps once they exceed this size
+	 * because a bitmap is smaller beyond this point.
+	 */
+	private static final int MAX_ARRAY_SIZE = 4096;
+	private static final int BITMAP_WORDS = CHUNK_SIZE / 64;
+
+	private long[] keys;
+	private Container[] containers;
+	private int containerCount;
+	/**
+	 * The index of the most recently accessed container. Ids are typically
+	 * accessed in ascending order so this avoids most binary searches.
+	 */
+	private int lastIndex;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public RoaringIdTracker() {
+		keys = new long[1];
+		containers = new Container[1];
+		containerCount = 0;
+		lastIndex = 0;
+	}
+
+
+	/**
+	 * Finds the index of the container for the specified key.
+	 *
+	 * @param key
+	 *            The upper bits of the id.
+	 * @return The index if found, otherwise (-(insertion point) - 1).
+	 */
+	private int findContainer(long key) {
+		int index;
+
+		if (lastIndex < containerCount && keys[lastIndex] == key) {
+			return lastIndex;
+		}
+
+		index = Arrays.binarySearch(keys, 0, containerCount, key);
+		if (index >= 0) {
+			lastIndex = index;
+		}
+
+		return index;
+	}
+
+
+	private void insertContainer(int index, long key, Container container) {
+		if (containerCount == keys.length) {
+			int newLength = keys.length * 2;
+
+			keys = Arrays.copyOf(keys, newLength);
+			containers = Arrays.copyOf(containers, newLength);
+		}
+
+		System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+		System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+		keys[index] = key;
+		containers[index] = container;
+		containerCount++;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void set(long id) {
+		long key;
+		int low;
+		int index;
+
+		key = id >> CHUNK_SHIFT;
+		low = (int) (id & LOW_MASK);
+
+		index = findContainer(key);
+		if (index >= 0) {
+			containers[index] = containers[index].add(low);
+		} else {
+			index = -index - 1;
+			insertContainer(index, key, new ArrayContainer().add(low));
+			lastIndex = index;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean get(long id) {
+		int index;
+
+		index = findContainer(id >> CHUNK_SHIFT);
+		if (index < 0) {
+			return false;
+		}
+
+		return containers[index].contains((int) (id & LOW_MASK));
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setAll(IdTracker idTracker) {
+		if (idTracker instanceof RoaringIdTracker) {
+			setAll((RoaringIdTracker) idTracker);
+		} else {
+			for (Long id : idTracker) {
+				set(id);
+			}
+		}
+	}
+
+
+	/**
+	 * Merges the containers of another tracker into this one.
+	 *
+	 * @param other
+	 *            The tracker containing the ids to set.
+	 */
+	private void setAll(RoaringIdTracker other) {
+		long[] newKeys;
+		Container[] newContainers;
+		int newCount;
+		int thisIndex;
+		int otherIndex;
+
+		// Both key lists are sorted, so merge them into new arrays in a
+		// single pass.
+		newKeys = new long[Math.max(1, containerCount + other.containerCount)];
+		newContainers = new Container[newKeys.length];
+		newCount = 0;
+		thisIndex = 0;
+		otherIndex = 0;
+		while (thisIndex < containerCount || otherIndex < other.containerCount) {
+			if (otherIndex >= other.containerCount
+					|| (thisIndex < containerCount && keys[thisIndex] < other.keys[otherIndex])) {
+				newKeys[newCount] = keys[thisIndex];
+				newContainers[newCount] = containers[thisIndex];
+				thisIndex++;
+
+			} else if (thisIndex >= containerCount || other.keys[otherIndex] < keys[thisIndex]) {
+				// Containers are mutable so must not be shared between trackers.
+				newKeys[newCount] = other.keys[otherIndex];
+				newContainers[newCount] = other.containers[otherIndex].copy();
+				otherIndex++;
+
+			} else {
+				newKeys[newCount] = keys[thisIndex];
+				newContainers[newCount] = containers[thisIndex].or(other.containers[otherIndex]);
+				thisIndex++;
+				otherIndex++;
+			}
+			newCount++;
+		}
+
+		keys = newKeys;
+		containers = newContainers;
+		containerCount = newCount;
+		lastIndex = 0;
+	}
+
+
+	/**
+	 * Converts containers to run-length encoding wherever that is the more
+	 * compact representation. This is worthwhile after loading ids that form
+	 * long consecutive ranges.
+	 */
+	public void runOptimize() {
+		for (int i = 0; i < containerCount; i++) {
+			containers[i] = containers[i].runOptimize();
+		}
+	}
+
+
+	/**
+	 * Gets the number of ids that are set.
+	 *
+	 * @return The number of ids.
+	 */
+	public long getCardinality() {
+		long cardinality = 0;
+
+		for (int i = 0; i < containerCount; i++) {
+			cardinality += containers[i].getCardinality();
+		}
+
+		return cardinality;
+	}
+
+
+	/**
+	 * Returns an iterator over all ids in ascending order without boxing each
+	 * id.
+	 *
+	 * @return The iterator.
+	 */
+	public PrimitiveIterator.OfLong longIterator() {
+		return new IdIterator();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PrimitiveIterator.OfLong iterator() {
+		return longIterator();
+	}
+
+
+	/**
+	 * The iterator implementation for providing access to the list of ids.
+	 */
+	private class IdIterator implements PrimitiveIterator.OfLong {
+		private int containerIndex;
+		/**
+		 * The next value within the current container to search from.
+		 */
+		private int nextLow;
+		private long nextId;
+		private boolean nextIdAvailable;
+
+
+		/**
+		 * Creates a new instance.
+		 */
+		IdIterator() {
+			containerIndex = 0;
+			nextLow = 0;
+			nextIdAvailable = false;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			while (!nextIdAvailable && containerIndex < containerCount) {
+				int low = -1;
+
+				if (nextLow < CHUNK_SIZE) {
+					low = containers[containerIndex].nextValue(nextLow);
+				}
+
+				if (low >= 0) {
+					nextId = (keys[containerIndex] << CHUNK_SHIFT) | low;
+					nextIdAvailable = true;
+					nextLow = low + 1;
+				} else {
+					containerIndex++;
+					nextLow = 0;
+				}
+			}
+
+			return nextIdAvailable;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long nextLong() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			nextIdAvailable = false;
+
+			return nextId;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
+	/**
+	 * Holds the low 16 bits of the ids within a single chunk. Operations that
+	 * may change the best representation return the container to be used
+	 * from then on, which may be this container or a replacement.
+	 */
+	private abstract static class Container {
+		/**
+		 * Checks whether a value is set.
+		 *
+		 * @param low
+		 *            The value to check.
+		 * @return True if set.
+		 */
+		abstract boolean contains(int low);
+
+
+		/**
+		 * Sets a value.
+		 *
+		 * @param low
+		 *            The value to set.
+		 * @return The container holding the result.
+		 */
+		abstract Container add(int low);
+
+
+		/**
+		 * Gets the number of values that are set.
+		 *
+		 * @return The cardinality.
+		 */
+		abstract int getCardinality();
+
+
+		/**
+		 * Finds the lowest set value greater than or equal to the specified
+		 * value.
+		 *
+		 * @param fromLow
+		 *            The value to begin searching from.
+		 * @return The next set value, or -1 if none remain.
+		 */
+		abstract int nextValue(int fromLow);
+
+
+		/**
+		 * Sets the corresponding bits in a bitmap for all values in this
+		 * container.
+		 *
+		 * @param words
+		 *            The bitmap words to update.
+		 */
+		abstract void orInto(long[] words);
+
+
+		/**
+		 * Creates an independent copy of this container.
+		 *
+		 * @return The copy.
+		 */
+		abstract Container copy();
+
+
+		/**
+		 * Counts the runs of consecutive values in this container.
+		 *
+		 * @return The number of runs.
+		 */
+		abstract int countRuns();
+
+
+		/**
+		 * Gets the approximate number of bytes of data held by this container.
+		 *
+		 * @return The size in bytes.
+		 */
+		abstract int getSizeInBytes();
+
+
+		/**
+		 * Sets all values contained in another container. The other container
+		 * is not modified.
+		 *
+		 * @param other
+		 *            The container to merge.
+		 * @return The container holding the result.
+		 */
+		Container or(Container other) {
+			long[] words;
+
+			words = new long[BITMAP_WORDS];
+			orInto(words);
+			other.orInto(words);
+
+			return BitmapContainer.fromWords(words);
+		}
+
+
+		/**
+		 * Converts this container to a run container if that would be
+		 * smaller.
+		 *
+		 * @return The container to use.
+		 */
+		Container runOptimize() {
+			if (RunContainer.getSizeInBytes(countRuns()) < getSizeInBytes()) {
+				return RunContainer.fromContainer(this, countRuns());
+			}
+
+			return this;
+		}
+	}
+
+
+	/**
+	 * Stores values as a sorted array. Used for sparse chunks.
+	 */
+	private static final class ArrayContainer extends Container {
+		private char[] values;
+		private int size;
+
+
+		/**
+		 * Creates a new empty instance.
+		 */
+		ArrayContainer() {
+			this(new char[4], 0);
+		}
+
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param values
+		 *            The sorted values.
+		 * @param size
+		 *            The number of valid entries in values.
+		 */
+		ArrayContainer(char[] values, int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+
+		private int find(int low) {
+			return Arrays.binarySearch(values, 0, size, (char) low);
+		}
+
+
+		@Override
+		boolean contains(int low) {
+			return find(low) >= 0;
+		}
+
+
+		@Override
+		Container add(int low) {
+			int index;
+
+			// Fast path for ids arriving in ascending order.
+			if (size > 0 && values[size - 1] < low) {
+				index = size;
+			} else {
+				index = find(low);
+				if (index >= 0) {
+					return this;
+				}
+				index = -index - 1;
+			}
+
+			if (size >= MAX_ARRAY_SIZE) {
+				return BitmapContainer.fromContainer(this).add(low);
+			}
+
+			if (size == values.length) {
+				values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, values.length * 2));
+			}
+			System.arraycopy(values, index, values, index + 1, size - index);
+			values[index] = (char) low;
+			size++;
+
+			return this;
+		}
+
+
+		@Override
+		int getCardinality() {
+			return size;
+		}
+
+
+		@Override
+		int nextValue(int fromLow) {
+			int index;
+
+			index = find(fromLow);
+			if (index < 0) {
+				index = -index - 1;
+			}
+			if (index < size) {
+				return values[index];
+			}
+
+			return -1;
+		}
+
+
+		@Override
+		void orInto(long[] words) {
+			for (int i = 0; i < size; i++) {
+				int value = values[i];
+
+				words[value >>> 6] |= 1L << value;
+			}
+		}
+
+
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, size), size);
+		}
+
+
+		@Override
+		Container or(Container other) {
+			if (other instanceof ArrayContainer) {
+				ArrayContainer otherArray = (ArrayContainer) other;
+				char[] merged;
+				int mergedSize;
+				int i;
+				int j;
+
+				// Merge the two sorted arrays, dropping duplicates.
+				merged = new char[size + otherArray.size];
+				mergedSize = 0;
+				i = 0;
+				j = 0;
+				while (i < size || j < otherArray.size) {
+					char next;
+
+					if (j >= otherArray.size || (i < size && values[i] < otherArray.values[j])) {
+						next = values[i++];
+					} else if (i >= size || otherArray.values[j] < values[i]) {
+						next = otherArray.values[j++];
+					} else {
+						next = values[i++];
+						j++;
+					}
+					merged[mergedSize++] = next;
+				}
+
+				if (mergedSize <= MAX_ARRAY_SIZE) {
+					return new ArrayContainer(merged, mergedSize);
+				}
+			}
+
+			return super.or(other);
+		}
+
+
+		@Override
+		int countRuns() {
+			int runs = 0;
+
+			for (int i = 0; i < size; i++) {
+				if (i == 0 || values[i] != values[i - 1] + 1) {
+					runs++;
+				}
+			}
+
+			return runs;
+		}
+
+
+		@Override
+		int getSizeInBytes() {
+			return size * 2;
+		}
+	}
+
+
+	/**
+	 * Stores values as a bitmap with one bit per possible value. Used for
+	 * dense chunks.
+	 */
+	private static final class BitmapContainer extends Container {
+		private long[] words;
+		private int cardinality;
+
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param words
+		 *            The bitmap.
+		 * @param cardinality
+		 *            The number of bits set in the bitmap.
+		 */
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+
+		/**
+		 * Creates a bitmap container holding all values of another container.
+		 *
+		 * @param container
+		 *            The container to convert.
+		 * @return The new container.
+		 */
+		static BitmapContainer fromContainer(Container container) {
+			long[] words;
+
+			words = new long[BITMAP_WORDS];
+			container.orInto(words);
+
+			return new BitmapContainer(words, container.getCardinality());
+		}
+
+
+		/**
+		 * Creates the best container for a bitmap.
+		 *
+		 * @param words
+		 *            The bitmap.
+		 * @return The new container.
+		 */
+		static Container fromWords(long[] words) {
+			int cardinality = 0;
+
+			for (long word : words) {
+				cardinality += Long.bitCount(word);
+			}
+
+			if (cardinality == CHUNK_SIZE) {
+				return RunContainer.full();
+			}
+
+			return new BitmapContainer(words, cardinality);
+		}
+
+
+		@Override
+		boolean contains(int low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+
+		@Override
+		Container add(int low) {
+			long word;
+
+			word = words[low >>> 6];
+			if ((word & (1L << low)) == 0) {
+				words[low >>> 6] = word | (1L << low);
+				cardinality++;
+
+				// A full chunk is represented far more compactly as a run.
+				if (cardinality == CHUNK_SIZE) {
+					return RunContainer.full();
+				}
+			}
+
+			return this;
+		}
+
+
+		@Override
+		int getCardinality() {
+			return cardinality;
+		}
+
+
+		@Override
+		int nextValue(int fromLow) {
+			int wordIndex;
+			long word;
+
+			wordIndex = fromLow >>> 6;
+			word = words[wordIndex] & (-1L << fromLow);
+			while (true) {
+				if (word != 0) {
+					return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+				}
+				wordIndex++;
+				if (wordIndex >= BITMAP_WORDS) {
+					return -1;
+				}
+				word = words[wordIndex];
+			}
+		}
+
+
+		@Override
+		void orInto(long[] targetWords) {
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				targetWords[i] |= words[i];
+			}
+		}
+
+
+		@Override
+		Container copy() {
+			return new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS), cardinality);
+		}
+
+
+		@Override
+		Container or(Container other) {
+			// Update the bitmap in place rather than allocating a new one.
+			other.orInto(words);
+
+			return fromWords(words);
+		}
+
+
+		@Override
+		int countRuns() {
+			int runs = 0;
+
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long word = words[i];
+				long previousTopBit;
+
+				if (i > 0) {
+					previousTopBit = words[i - 1] >>> 63;
+				} else {
+					previousTopBit = 0;
+				}
+
+				// Count bits that are set where the preceding bit is clear.
+				runs += Long.bitCount(word & ~((word << 1) | previousTopBit));
+			}
+
+			return runs;
+		}
+
+
+		@Override
+		int getSizeInBytes() {
+			return BITMAP_WORDS * 8;
+		}
+	}
+
+
+	/**
+	 * Stores values as a sorted list of runs. Used for chunks made of long
+	 * consecutive ranges. Values are added by converting back to another
+	 * container type because run containers are normally only created once
+	 * a chunk is complete.
+	 */
+	private static final class RunContainer extends Container {
+		/**
+		 * Pairs of run start and run length minus one.
+		 */
+		private char[] runs;
+		private int runCount;
+
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param runs
+		 *            The run start and length pairs.
+		 * @param runCount
+		 *            The number of runs.
+		 */
+		RunContainer(char[] runs, int runCount) {
+			this.runs = runs;
+			this.runCount = runCount;
+		}
+
+
+		/**
+		 * Creates a container with every value set.
+		 *
+		 * @return The new container.
+		 */
+		static RunContainer full() {
+			return new RunContainer(new char[] {0, (char) (CHUNK_SIZE - 1)}, 1);
+		}
+
+
+		/**
+		 * Gets the number of bytes a run container with the specified number
+		 * of runs would use.
+		 *
+		 * @param runCount
+		 *            The number of runs.
+		 * @return The size in bytes.
+		 */
+		static int getSizeInBytes(int runCount) {
+			return runCount * 4;
+		}
+
+
+		/**
+		 * Creates a run container holding all values of another container.
+		 *
+		 * @param container
+		 *            The container to convert.
+		 * @param runCount
+		 *            The number of runs in the container.
+		 * @return The new container.
+		 */
+		static RunContainer fromContainer(Container container, int runCount) {
+			char[] runs;
+			int runIndex;
+			int value;
+
+			runs = new char[runCount * 2];
+			runIndex = 0;
+			value = container.nextValue(0);
+			while (value >= 0) {
+				int end = value;
+				int next;
+
+				// Extend the run while values are consecutive.
+				while (true) {
+					if (end + 1 >= CHUNK_SIZE) {
+						next = -1;
+						break;
+					}
+					next = container.nextValue(end + 1);
+					if (next != end + 1) {
+						break;
+					}
+					end = next;
+				}
+
+				runs[runIndex * 2] = (char) value;
+				runs[runIndex * 2 + 1] = (char) (end - value);
+				runIndex++;
+				value = next;
+			}
+
+			return new RunContainer(runs, runIndex);
+		}
+
+
+		/**
+		 * Finds the index of the last run starting at or before the specified
+		 * value.
+		 *
+		 * @param low
+		 *            The value to search for.
+		 * @return The run index, or -1 if all runs start after the value.
+		 */
+		private int findRun(int low) {
+			int begin = 0;
+			int end = runCount - 1;
+			int result = -1;
+
+			while (begin <= end) {
+				int mid = (begin + end) >>> 1;
+
+				if (runs[mid * 2] <= low) {
+					result = mid;
+					begin = mid + 1;
+				} else {
+					end = mid - 1;
+				}
+			}
+
+			return result;
+		}
+
+
+		@Override
+		boolean contains(int low) {
+			int runIndex = findRun(low);
+
+			return runIndex >= 0 && low - runs[runIndex * 2] <= runs[runIndex * 2 + 1];
+		}
+
+
+		@Override
+		Container add(int low) {
+			Container container;
+
+			if (contains(low)) {
+				return this;
+			}
+
+			if (getCardinality() < MAX_ARRAY_SIZE) {
+				char[] values = new char[getCardinality()];
+				int size = 0;
+
+				for (int value = nextValue(0); value >= 0; value = nextValue(value + 1)) {
+					values[size++] = (char) value;
+				}
+				container = new ArrayContainer(values, size);
+			} else {
+				container = BitmapContainer.fromContainer(this);
+			}
+
+			return container.add(low);
+		}
+
+
+		@Override
+		int getCardinality() {
+			int cardinality = 0;
+
+			for (int i = 0; i < runCount; i++) {
+				cardinality += runs[i * 2 + 1] + 1;
+			}
+
+			return cardinality;
+		}
+
+
+		@Override
+		int nextValue(int fromLow) {
+			int runIndex;
+
+			runIndex = findRun(fromLow);
+			if (runIndex >= 0 && fromLow - runs[runIndex * 2] <= runs[runIndex * 2 + 1]) {
+				return fromLow;
+			}
+			runIndex++;
+			if (runIndex < runCount) {
+				return runs[runIndex * 2];
+			}
+
+			return -1;
+		}
+
+
+		@Override
+		void orInto(long[] words) {
+			for (int i = 0; i < runCount; i++) {
+				int start = runs[i * 2];
+				int end = start + runs[i * 2 + 1];
+
+				for (int value = start; value <= end;) {
+					// Set whole words at a time where possible.
+					if ((value & 63) == 0 && value + 63 <= end) {
+						words[value >>> 6] = -1L;
+						value += 64;
+					} else {
+						words[value >>> 6] |= 1L << value;
+						value++;
+					}
+				}
+			}
+		}
+
+
+		@Override
+		Container copy() {
+			return new RunContainer(Arrays.copyOf(runs, runCount * 2), runCount);
+		}
+
+
+		@Override
+		Container or(Container other) {
+			if (runCount == 1 && runs[1] == CHUNK_SIZE - 1) {
+				// Already full, nothing can be added.
+				return this;
+			}
+
+			return super.or(other);
+		}
+
+
+		@Override
+		int countRuns() {
+			return runCount;
+		}
+
+
+		@Override
+		int getSizeInBytes() {
+			return getSizeInBytes(runCount);
+		}
+	}
+}
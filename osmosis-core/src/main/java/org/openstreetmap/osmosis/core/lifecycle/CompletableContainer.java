@@ -3,6 +3,13 @@ package org.openstreetmap.osmosis.core.lifecycle;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 
 
 
@@ -52,6 +59,54 @@ public class CompletableContainer implements Completable {
 	}
 	
 	
+	/**
+	 * Completes the managed objects concurrently. This may only be used if the
+	 * objects don't depend on each other during completion.
+	 * 
+	 * @param threadCount
+	 *            The maximum number of objects to complete at once. If 1 or
+	 *            less, objects are completed in turn on the calling thread.
+	 */
+	public void complete(int threadCount) {
+		ExecutorService executorService;
+		List<Future<Void>> results;
+		
+		if (threadCount <= 1 || objects.size() <= 1) {
+			complete();
+			return;
+		}
+		
+		executorService = Executors.newFixedThreadPool(Math.min(threadCount, objects.size()));
+		try {
+			results = new ArrayList<Future<Void>>(objects.size());
+			
+			for (final Completable object : objects) {
+				results.add(executorService.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						object.complete();
+						
+						return null;
+					}
+				}));
+			}
+			
+			for (Future<Void> result : results) {
+				try {
+					result.get();
+				} catch (InterruptedException e) {
+					throw new OsmosisRuntimeException("Thread was interrupted.", e);
+				} catch (ExecutionException e) {
+					throw new OsmosisRuntimeException("Unable to complete an object.", e.getCause());
+				}
+			}
+			
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
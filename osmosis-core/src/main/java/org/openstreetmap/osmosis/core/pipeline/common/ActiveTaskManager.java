@@ -6,6 +6,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.store.DataPostboxOwner;
 
 
 /**
@@ -49,6 +50,8 @@ public abstract class ActiveTaskManager extends TaskManager {
 	 */
 	@Override
 	public void execute() {
+		Runnable task;
+		
 		LOG.fine("Launching task " + getTaskId() + " in a new thread.");
 		
 		if (thread != null) {
@@ -56,7 +59,14 @@ public abstract class ActiveTaskManager extends TaskManager {
 					+ " is already running.");
 		}
 		
-		thread = new TaskRunner(getTask(), "Thread-" + getTaskId());
+		task = getTask();
+		
+		// Tasks receiving data from other threads can report on their postboxes.
+		if (getMetrics() != null && task instanceof DataPostboxOwner) {
+			getMetrics().addPostboxes(((DataPostboxOwner) task).getPostboxes());
+		}
+		
+		thread = new TaskRunner(task, "Thread-" + getTaskId());
 		
 		thread.start();
 	}
@@ -4,6 +4,7 @@ package org.openstreetmap.osmosis.core.pipeline.common;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -24,6 +25,7 @@ public class PipeTasks {
 	
 	private Map<String, Task> namedTasks;
 	private Deque<Task> defaultTasks;
+	private Map<Task, TaskMetrics> taskMetrics;
 	
 	
 	/**
@@ -32,6 +34,7 @@ public class PipeTasks {
 	public PipeTasks() {
 		namedTasks = new HashMap<String, Task>();
 		defaultTasks = new ArrayDeque<Task>();
+		taskMetrics = new IdentityHashMap<Task, TaskMetrics>();
 	}
 	
 	
@@ -197,4 +200,32 @@ public class PipeTasks {
 	public Set<String> getPipeNames() {
 		return namedTasks.keySet();
 	}
+	
+	
+	/**
+	 * Records the metrics of the task producing the specified output task.
+	 * These remain available after the task is retrieved so that the consumer
+	 * can attribute entities to the producer.
+	 * 
+	 * @param task
+	 *            The output task.
+	 * @param metrics
+	 *            The metrics of the producing task.
+	 */
+	public void putTaskMetrics(Task task, TaskMetrics metrics) {
+		taskMetrics.put(task, metrics);
+	}
+	
+	
+	/**
+	 * Returns the metrics of the task that produced the specified output task.
+	 * 
+	 * @param task
+	 *            The output task.
+	 * @return The metrics of the producing task, or null if metrics are not
+	 *         being collected.
+	 */
+	public TaskMetrics getTaskMetrics(Task task) {
+		return taskMetrics.get(task);
+	}
 }
@@ -21,6 +21,7 @@ public class Pipeline {
 	
 	private TaskManagerFactoryRegister factoryRegister;
 	private List<TaskManager> taskManagers;
+	private PipelineMetrics metrics;
 	
 	
 	/**
@@ -30,7 +31,22 @@ public class Pipeline {
 	 *            The register containing all known task manager factories.
 	 */
 	public Pipeline(TaskManagerFactoryRegister factoryRegister) {
+		this(factoryRegister, null);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param factoryRegister
+	 *            The register containing all known task manager factories.
+	 * @param metrics
+	 *            Publishes the metrics of each task while the pipeline runs, or
+	 *            null if metrics are not required.
+	 */
+	public Pipeline(TaskManagerFactoryRegister factoryRegister, PipelineMetrics metrics) {
 		this.factoryRegister = factoryRegister;
+		this.metrics = metrics;
 		
 		taskManagers = new ArrayList<TaskManager>();
 	}
@@ -46,10 +62,14 @@ public class Pipeline {
 	 */
 	private void buildTasks(List<TaskConfiguration> taskInfoList) {
 		for (TaskConfiguration taskConfig : taskInfoList) {
+			TaskManager taskManager;
+			
 			// Create the new task manager and add to the pipeline.
-			taskManagers.add(
-				factoryRegister.getInstance(taskConfig.getType()).createTaskManager(taskConfig)
-			);
+			taskManager = factoryRegister.getInstance(taskConfig.getType()).createTaskManager(taskConfig);
+			if (metrics != null) {
+				taskManager.setMetrics(metrics.createTaskMetrics(taskConfig.getId(), taskConfig.getType()));
+			}
+			taskManagers.add(taskManager);
 			
 			if (LOG.isLoggable(Level.FINE)) {
 				LOG.fine("Created task \"" + taskConfig.getId() + "\"");
@@ -121,6 +141,10 @@ public class Pipeline {
 	 * Launches the execution of the tasks within the pipeline.
 	 */
 	public void execute() {
+		if (metrics != null) {
+			metrics.start();
+		}
+		
 		// Initiate execution of all nodes.
 		for (TaskManager taskManager : taskManagers) {
 			taskManager.execute();
@@ -142,6 +166,10 @@ public class Pipeline {
 			}
 		}
 		
+		if (metrics != null) {
+			metrics.stop();
+		}
+		
 		if (!successful) {
 			throw new OsmosisRuntimeException("One or more tasks failed.");
 		}
@@ -0,0 +1,232 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.common;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Publishes the metrics of all tasks within a pipeline. Each task is
+ * registered as an MBean with the platform MBean server while the pipeline
+ * runs, and the metrics may also be appended to a CSV file at a fixed
+ * interval, which is easier to analyse after long runs than a JMX console.
+ */
+public class PipelineMetrics {
+
+	private static final Logger LOG = Logger.getLogger(PipelineMetrics.class.getName());
+
+	/**
+	 * The domain and type of the MBean names. The task identifier is appended
+	 * as the name key.
+	 */
+	private static final String OBJECT_NAME_PREFIX = "org.openstreetmap.osmosis:type=Task,name=";
+
+	private File dumpFile;
+	private int dumpInterval;
+	private List<TaskMetrics> taskMetricsList;
+	private List<ObjectName> registeredNames;
+	private Timer dumpTimer;
+
+
+	/**
+	 * Creates a new instance that publishes metrics as MBeans only.
+	 */
+	public PipelineMetrics() {
+		this(null, 0);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param dumpFile
+	 *            The file to append metrics to, or null to only publish
+	 *            metrics as MBeans.
+	 * @param dumpInterval
+	 *            The number of seconds between writes to the dump file. Metrics
+	 *            are also written once when the pipeline completes.
+	 */
+	public PipelineMetrics(File dumpFile, int dumpInterval) {
+		if (dumpFile != null && dumpInterval <= 0) {
+			throw new OsmosisRuntimeException(
+					"A metrics interval of " + dumpInterval + " is invalid, must be greater than 0.");
+		}
+
+		this.dumpFile = dumpFile;
+		this.dumpInterval = dumpInterval;
+
+		taskMetricsList = new ArrayList<TaskMetrics>();
+		registeredNames = new ArrayList<ObjectName>();
+	}
+
+
+	/**
+	 * Creates the metrics for a new task in the pipeline.
+	 * 
+	 * @param taskId
+	 *            The unique identifier of the task.
+	 * @param taskType
+	 *            The type of the task.
+	 * @return The task metrics.
+	 */
+	public TaskMetrics createTaskMetrics(String taskId, String taskType) {
+		TaskMetrics taskMetrics;
+
+		taskMetrics = new TaskMetrics(taskId, taskType);
+		taskMetricsList.add(taskMetrics);
+
+		return taskMetrics;
+	}
+
+
+	/**
+	 * Returns the metrics of all tasks in the pipeline.
+	 * 
+	 * @return The task metrics.
+	 */
+	public List<TaskMetrics> getTaskMetrics() {
+		return taskMetricsList;
+	}
+
+
+	/**
+	 * Publishes the metrics and starts measuring rates. This is called when
+	 * pipeline execution begins.
+	 */
+	public void start() {
+		MBeanServer server;
+
+		server = ManagementFactory.getPlatformMBeanServer();
+
+		for (TaskMetrics taskMetrics : taskMetricsList) {
+			ObjectName name;
+
+			taskMetrics.start();
+
+			try {
+				name = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(taskMetrics.getTaskId()));
+				server.registerMBean(taskMetrics, name);
+
+			} catch (JMException e) {
+				throw new OsmosisRuntimeException(
+						"Unable to register metrics for task " + taskMetrics.getTaskId() + ".", e);
+			}
+
+			registeredNames.add(name);
+		}
+
+		if (dumpFile != null) {
+			dumpTimer = new Timer("Thread-metrics", true);
+			dumpTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					dump();
+				}
+			}, dumpInterval * 1000L, dumpInterval * 1000L);
+		}
+	}
+
+
+	/**
+	 * Writes the final metrics and removes the MBeans. This is called when the
+	 * pipeline completes, whether successfully or not.
+	 */
+	public void stop() {
+		MBeanServer server;
+
+		if (dumpTimer != null) {
+			dumpTimer.cancel();
+			dumpTimer = null;
+
+			dump();
+		}
+
+		server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : registeredNames) {
+			try {
+				server.unregisterMBean(name);
+
+			} catch (JMException e) {
+				// Metrics are not essential so there's no need to fail.
+				LOG.log(Level.WARNING, "Unable to unregister metrics " + name + ".", e);
+			}
+		}
+		registeredNames.clear();
+	}
+
+
+	/**
+	 * Appends the current metrics of all tasks to the dump file. Failures are
+	 * logged rather than aborting the pipeline.
+	 */
+	private synchronized void dump() {
+		boolean newFile;
+
+		// Earlier runs may have written to the same file.
+		newFile = dumpFile.length() == 0;
+
+		try (Writer writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(dumpFile, true), StandardCharsets.UTF_8))) {
+			if (newFile) {
+				writer.write("time,taskId,taskType,entitiesIn,entitiesOut,entitiesInPerSecond,entitiesOutPerSecond,"
+						+ "putBlockedMillis,getBlockedMillis,queueSize,queueCapacity\n");
+			}
+
+			writeMetrics(writer, new Date());
+
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Unable to write metrics to " + dumpFile + ".", e);
+		}
+	}
+
+
+	/**
+	 * Writes one CSV line per task.
+	 * 
+	 * @param writer
+	 *            The destination for the metrics.
+	 * @param time
+	 *            The time to record against the metrics.
+	 * @throws IOException
+	 *             if the metrics can't be written.
+	 */
+	/* package */ void writeMetrics(Writer writer, Date time) throws IOException {
+		SimpleDateFormat dateFormat;
+		String timestamp;
+
+		dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		timestamp = dateFormat.format(time);
+
+		for (TaskMetrics taskMetrics : taskMetricsList) {
+			writer.write(timestamp + "," + taskMetrics.getTaskId() + "," + taskMetrics.getTaskType() + ","
+					+ taskMetrics.getEntitiesIn() + "," + taskMetrics.getEntitiesOut() + ","
+					+ String.format(Locale.US, "%.1f,%.1f", taskMetrics.getEntitiesInPerSecond(),
+							taskMetrics.getEntitiesOutPerSecond()) + ","
+					+ taskMetrics.getPutBlockedMillis() + "," + taskMetrics.getGetBlockedMillis() + ","
+					+ taskMetrics.getQueueSize() + "," + taskMetrics.getQueueCapacity() + "\n");
+		}
+	}
+}
@@ -20,6 +20,7 @@ public abstract class TaskManager {
 	private String taskId;
 	private Map<Integer, String> inputPipeNames;
 	private Map<Integer, String> outputPipeNames;
+	private TaskMetrics metrics;
 	
 	
 	/**
@@ -189,6 +190,25 @@ public abstract class TaskManager {
 		} else {
 			pipeTasks.putTask(taskId, outputTask);
 		}
+		
+		if (metrics != null) {
+			pipeTasks.putTaskMetrics(outputTask, metrics);
+		}
+	}
+	
+	
+	/**
+	 * Returns the metrics of the task producing an input task.
+	 * 
+	 * @param pipeTasks
+	 *            The currently registered pipe tasks.
+	 * @param inputTask
+	 *            The input task previously retrieved with getInputTask.
+	 * @return The metrics of the producing task, or null if metrics are not
+	 *         being collected.
+	 */
+	protected TaskMetrics getInputTaskMetrics(PipeTasks pipeTasks, Task inputTask) {
+		return pipeTasks.getTaskMetrics(inputTask);
 	}
 	
 	
@@ -200,6 +220,28 @@ public abstract class TaskManager {
 	}
 	
 	
+	/**
+	 * Enables collection of metrics for the task. This must be called before
+	 * the task is connected.
+	 * 
+	 * @param metrics
+	 *            The metrics to be updated as the task runs.
+	 */
+	public void setMetrics(TaskMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	
+	/**
+	 * Returns the metrics for the task.
+	 * 
+	 * @return The metrics, or null if metrics are not being collected.
+	 */
+	public TaskMetrics getMetrics() {
+		return metrics;
+	}
+	
+	
 	/**
 	 * Connects the task to any input tasks based upon the pipes created by
 	 * source tasks, and makes any output pipes available to be used by
@@ -0,0 +1,236 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.common;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openstreetmap.osmosis.core.store.DataPostbox;
+
+
+/**
+ * Collects the runtime metrics of a single pipeline task. Counters may be
+ * updated by any pipeline thread and read at any time by management clients.
+ */
+public class TaskMetrics implements TaskMetricsMBean {
+
+	private String taskId;
+	private String taskType;
+	private LongAdder entitiesIn;
+	private LongAdder entitiesOut;
+	private List<DataPostbox<?>> postboxes;
+	private volatile boolean started;
+	private volatile long startNanos;
+	private volatile boolean finished;
+	private volatile long finishNanos;
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param taskId
+	 *            The unique identifier of the task.
+	 * @param taskType
+	 *            The type of the task.
+	 */
+	public TaskMetrics(String taskId, String taskType) {
+		this.taskId = taskId;
+		this.taskType = taskType;
+
+		entitiesIn = new LongAdder();
+		entitiesOut = new LongAdder();
+		postboxes = new CopyOnWriteArrayList<DataPostbox<?>>();
+	}
+
+
+	/**
+	 * Marks the start of pipeline execution, entity rates are calculated from
+	 * this point.
+	 */
+	public void start() {
+		startNanos = System.nanoTime();
+		started = true;
+		finished = false;
+	}
+
+
+	/**
+	 * Marks the completion of a pipe connected to the task. Entity rates are
+	 * calculated up to the last completion.
+	 */
+	public void markComplete() {
+		finishNanos = System.nanoTime();
+		finished = true;
+	}
+
+
+	/**
+	 * Records an entity received by the task.
+	 */
+	public void addEntityIn() {
+		entitiesIn.increment();
+	}
+
+
+	/**
+	 * Records an entity sent by the task.
+	 */
+	public void addEntityOut() {
+		entitiesOut.increment();
+	}
+
+
+	/**
+	 * Adds postboxes owned by the task to those being reported.
+	 * 
+	 * @param newPostboxes
+	 *            The postboxes.
+	 */
+	public void addPostboxes(Collection<DataPostbox<?>> newPostboxes) {
+		postboxes.addAll(newPostboxes);
+	}
+
+
+	private double getElapsedSeconds() {
+		long endNanos;
+
+		if (!started) {
+			return 0;
+		}
+
+		if (finished) {
+			endNanos = finishNanos;
+		} else {
+			endNanos = System.nanoTime();
+		}
+
+		return (endNanos - startNanos) / 1e9;
+	}
+
+
+	private double getRate(long count) {
+		double elapsedSeconds = getElapsedSeconds();
+
+		if (elapsedSeconds <= 0) {
+			return 0;
+		}
+
+		return count / elapsedSeconds;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getTaskId() {
+		return taskId;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getTaskType() {
+		return taskType;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEntitiesIn() {
+		return entitiesIn.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEntitiesOut() {
+		return entitiesOut.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getEntitiesInPerSecond() {
+		return getRate(getEntitiesIn());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getEntitiesOutPerSecond() {
+		return getRate(getEntitiesOut());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getPutBlockedMillis() {
+		long nanos = 0;
+
+		for (DataPostbox<?> postbox : postboxes) {
+			nanos += postbox.getInputBlockedNanos();
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getGetBlockedMillis() {
+		long nanos = 0;
+
+		for (DataPostbox<?> postbox : postboxes) {
+			nanos += postbox.getOutputBlockedNanos();
+		}
+
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getQueueSize() {
+		int size = 0;
+
+		for (DataPostbox<?> postbox : postboxes) {
+			size += postbox.getSize();
+		}
+
+		return size;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getQueueCapacity() {
+		int capacity = 0;
+
+		for (DataPostbox<?> postbox : postboxes) {
+			capacity += postbox.getCapacity();
+		}
+
+		return capacity;
+	}
+}
@@ -0,0 +1,99 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.common;
+
+
+/**
+ * The management interface exposing the metrics of a single pipeline task.
+ * Entity counts and rates include all entity and change pipes connected to the
+ * task. Postbox statistics are only available for tasks such as buffers that
+ * pass data between threads, and are summed over all postboxes owned by the
+ * task.
+ */
+public interface TaskMetricsMBean {
+
+	/**
+	 * Returns the unique identifier of the task.
+	 * 
+	 * @return The task identifier.
+	 */
+	String getTaskId();
+
+
+	/**
+	 * Returns the type of the task, as specified on the command line.
+	 * 
+	 * @return The task type.
+	 */
+	String getTaskType();
+
+
+	/**
+	 * Returns the number of entities received by the task.
+	 * 
+	 * @return The entity count.
+	 */
+	long getEntitiesIn();
+
+
+	/**
+	 * Returns the number of entities sent by the task.
+	 * 
+	 * @return The entity count.
+	 */
+	long getEntitiesOut();
+
+
+	/**
+	 * Returns the average rate at which the task has received entities since
+	 * the pipeline started.
+	 * 
+	 * @return The number of entities per second.
+	 */
+	double getEntitiesInPerSecond();
+
+
+	/**
+	 * Returns the average rate at which the task has sent entities since the
+	 * pipeline started.
+	 * 
+	 * @return The number of entities per second.
+	 */
+	double getEntitiesOutPerSecond();
+
+
+	/**
+	 * Returns the total time the upstream thread has spent blocked adding data
+	 * to the postboxes of this task because they were full. A large value
+	 * means the tasks downstream of this one are the bottleneck.
+	 * 
+	 * @return The blocked time in milliseconds.
+	 */
+	long getPutBlockedMillis();
+
+
+	/**
+	 * Returns the total time the thread of this task has spent blocked waiting
+	 * for data from its postboxes because they were empty. A large value means
+	 * the tasks upstream of this one are the bottleneck.
+	 * 
+	 * @return The blocked time in milliseconds.
+	 */
+	long getGetBlockedMillis();
+
+
+	/**
+	 * Returns the number of objects currently waiting in the postboxes of this
+	 * task.
+	 * 
+	 * @return The number of objects.
+	 */
+	int getQueueSize();
+
+
+	/**
+	 * Returns the total capacity of the postboxes of this task.
+	 * 
+	 * @return The number of objects.
+	 */
+	int getQueueCapacity();
+}
@@ -51,6 +51,6 @@ public class ChangeSinkManager extends PassiveTaskManager {
 		
 		// Cast the input feed to the correct type.
 		// Connect the tasks.
-		source.setChangeSink(task);
+		source.setChangeSink(PipeMeters.meter(task, getInputTaskMetrics(pipeTasks, source), getMetrics()));
 	}
 }
@@ -0,0 +1,79 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.v0_6;
+
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
+import org.openstreetmap.osmosis.core.pipeline.common.TaskMetrics;
+import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
+
+
+/**
+ * Counts the changes passing through a pipe between two tasks.
+ */
+class MeteredChangeSink implements ChangeSink {
+
+	private ChangeSink sink;
+	private TaskMetrics producerMetrics;
+	private TaskMetrics consumerMetrics;
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param sink
+	 *            The sink receiving the changes.
+	 * @param producerMetrics
+	 *            The metrics of the task writing to the pipe.
+	 * @param consumerMetrics
+	 *            The metrics of the task reading from the pipe.
+	 */
+	MeteredChangeSink(ChangeSink sink, TaskMetrics producerMetrics, TaskMetrics consumerMetrics) {
+		this.sink = sink;
+		this.producerMetrics = producerMetrics;
+		this.consumerMetrics = consumerMetrics;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		sink.initialize(metaData);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void process(ChangeContainer change) {
+		producerMetrics.addEntityOut();
+		consumerMetrics.addEntityIn();
+
+		sink.process(change);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		producerMetrics.markComplete();
+
+		sink.complete();
+
+		consumerMetrics.markComplete();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		sink.close();
+	}
+}
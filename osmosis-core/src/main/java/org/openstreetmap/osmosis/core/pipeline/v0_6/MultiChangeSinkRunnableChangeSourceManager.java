@@ -58,7 +58,7 @@ public class MultiChangeSinkRunnableChangeSourceManager extends ActiveTaskManage
 			source = (ChangeSource) getInputTask(pipeTasks, i, ChangeSource.class);
 			
 			// Connect the tasks.
-			source.setChangeSink(sink);
+			source.setChangeSink(PipeMeters.meter(sink, getInputTaskMetrics(pipeTasks, source), getMetrics()));
 		}
 		
 		// Register the source as an output task.
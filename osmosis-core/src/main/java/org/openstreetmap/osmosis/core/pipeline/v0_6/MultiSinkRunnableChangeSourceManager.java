@@ -58,7 +58,7 @@ public class MultiSinkRunnableChangeSourceManager extends ActiveTaskManager {
 			source = (Source) getInputTask(pipeTasks, i, Source.class);
 			
 			// Connect the tasks.
-			source.setSink(sink);
+			source.setSink(PipeMeters.meter(sink, getInputTaskMetrics(pipeTasks, source), getMetrics()));
 		}
 		
 		// Register the change source as an output task.
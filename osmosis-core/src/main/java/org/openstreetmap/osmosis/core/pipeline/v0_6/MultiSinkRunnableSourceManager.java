@@ -57,7 +57,7 @@ public class MultiSinkRunnableSourceManager extends ActiveTaskManager {
 			source = (Source) getInputTask(pipeTasks, i, Source.class);
 			
 			// Connect the tasks.
-			source.setSink(sink);
+			source.setSink(PipeMeters.meter(sink, getInputTaskMetrics(pipeTasks, source), getMetrics()));
 		}
 		
 		// Register the source as an output task.
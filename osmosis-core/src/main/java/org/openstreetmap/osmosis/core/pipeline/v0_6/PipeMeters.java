@@ -0,0 +1,66 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.v0_6;
+
+import org.openstreetmap.osmosis.core.pipeline.common.TaskMetrics;
+import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Adds entity counting to the pipes connecting tasks when pipeline metrics are
+ * enabled. Sinks are returned unchanged if metrics are disabled so that there
+ * is no overhead.
+ */
+public final class PipeMeters {
+
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private PipeMeters() {
+	}
+
+
+	/**
+	 * Returns a sink that counts the entities passed to it.
+	 * 
+	 * @param sink
+	 *            The sink receiving the entities.
+	 * @param producerMetrics
+	 *            The metrics of the task writing to the pipe, or null if
+	 *            metrics are disabled.
+	 * @param consumerMetrics
+	 *            The metrics of the task reading from the pipe, or null if
+	 *            metrics are disabled.
+	 * @return The sink to connect to the producing task.
+	 */
+	public static Sink meter(Sink sink, TaskMetrics producerMetrics, TaskMetrics consumerMetrics) {
+		if (producerMetrics == null || consumerMetrics == null) {
+			return sink;
+		}
+
+		return new MeteredSink(sink, producerMetrics, consumerMetrics);
+	}
+
+
+	/**
+	 * Returns a change sink that counts the changes passed to it.
+	 * 
+	 * @param changeSink
+	 *            The sink receiving the changes.
+	 * @param producerMetrics
+	 *            The metrics of the task writing to the pipe, or null if
+	 *            metrics are disabled.
+	 * @param consumerMetrics
+	 *            The metrics of the task reading from the pipe, or null if
+	 *            metrics are disabled.
+	 * @return The sink to connect to the producing task.
+	 */
+	public static ChangeSink meter(ChangeSink changeSink, TaskMetrics producerMetrics,
+			TaskMetrics consumerMetrics) {
+		if (producerMetrics == null || consumerMetrics == null) {
+			return changeSink;
+		}
+
+		return new MeteredChangeSink(changeSink, producerMetrics, consumerMetrics);
+	}
+}
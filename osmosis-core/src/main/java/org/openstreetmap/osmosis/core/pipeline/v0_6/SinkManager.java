@@ -51,6 +51,6 @@ public class SinkManager extends PassiveTaskManager {
 		
 		// Cast the input feed to the correct type.
 		// Connect the tasks.
-		source.setSink(task);
+		source.setSink(PipeMeters.meter(task, getInputTaskMetrics(pipeTasks, source), getMetrics()));
 	}
 }
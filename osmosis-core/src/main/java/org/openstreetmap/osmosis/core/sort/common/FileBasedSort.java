@@ -1,65 +1,92 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.sort.common;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
-import org.openstreetmap.osmosis.core.store.ChunkedObjectStore;
 import org.openstreetmap.osmosis.core.store.ObjectSerializationFactory;
-import org.openstreetmap.osmosis.core.store.PersistentIterator;
+import org.openstreetmap.osmosis.core.store.ReleasableAdaptorForIterator;
+import org.openstreetmap.osmosis.core.store.SimpleObjectStore;
 import org.openstreetmap.osmosis.core.store.Storeable;
 
 
 /**
  * Allows a large number of objects to be sorted by writing them all to disk
  * then sorting using a merge sort algorithm.
+ * <p>
+ * Objects are collected into runs which are sorted in memory and written to
+ * their own temporary file. If worker threads are configured, runs are sorted
+ * and written in the background while new objects continue to be added. The
+ * runs are then combined using a k-way merge. Temporary files may be spread
+ * across several directories.
  * 
  * @param <T>
  *            The object type to be sorted.
  * @author Brett Henderson
  */
 public class FileBasedSort<T extends Storeable> implements Closeable {
+	
+	private static final Logger LOG = Logger.getLogger(FileBasedSort.class.getName());
+	
 	/**
-	 * The maximum number of entities to perform memory-based sorting on,
-	 * amounts larger than this will be split into chunks of this size, the
-	 * chunks sorted in memory before writing to file, and all the results
-	 * merged using the merge sort algorithm.
+	 * The default number of entities to perform memory-based sorting on,
+	 * amounts larger than this will be split into runs of this size, the runs
+	 * sorted in memory before writing to file, and all the results merged
+	 * using the merge sort algorithm.
 	 */
 	private static final int MAX_MEMORY_SORT_COUNT = 16384;
 	
 	/**
-	 * The maximum number of sources to merge together at a single level of the
-	 * merge sort hierarchy. Must be 2 or higher. A standard merge sort is 2.
+	 * The smallest run size that will be derived from a memory budget.
 	 */
-	private static final int MAX_MERGE_SOURCE_COUNT = 2;
+	private static final int MIN_RUN_SIZE = 1024;
 	
+	/**
+	 * The approximate number of bytes of heap consumed by a buffered object.
+	 * Object sizes vary widely, so this is only used to convert a memory budget
+	 * into a run size.
+	 */
+	private static final int ESTIMATED_OBJECT_SIZE = 256;
 	
 	/**
-	 * The number of levels in the merge sort hierarchy to perform in memory
-	 * before persisting to a file. By persisting to file at regular hierarchy
-	 * levels, the number of file handles is minimised. File handle count is
-	 * likely to be an issue before memory usage due to the small number of
-	 * in-flight objects at any point in time.
-	 * <p>
-	 * The number of file handles will be MAX_MERGE_SOURCE_COUNT raised to the
-	 * power of MAX_MEMORY_SORT_DEPTH.
+	 * The maximum number of runs to merge together in a single pass. If more
+	 * runs exist, groups of runs are merged into larger runs until the limit
+	 * is met. This limits the number of file handles open at once.
 	 */
-	private static final int MAX_MEMORY_SORT_DEPTH = 8;
+	private static final int MAX_MERGE_SOURCE_COUNT = 256;
+	
 	
-
 	private ObjectSerializationFactory serializationFactory;
 	private Comparator<T> comparator;
-	private ChunkedObjectStore<T> chunkedEntityStore;
-	private List<T> addBuffer;
 	private boolean useCompression;
+	private int runSize;
+	private int workerCount;
+	private List<File> tempDirectories;
+	private int nextTempDirectoryIndex;
+	private List<T> addBuffer;
+	private List<SimpleObjectStore<T>> runs;
+	private Queue<PendingRun> pendingRuns;
+	private ExecutorService executorService;
+	private int intermediateMergePassCount;
 	
 	
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance. Runs are sorted on the calling thread.
 	 * 
 	 * @param serializationFactory
 	 *            The factory defining the object serialisation implementation.
@@ -70,190 +97,263 @@ public class FileBasedSort<T extends Storeable> implements Closeable {
 	 */
 	public FileBasedSort(
 			ObjectSerializationFactory serializationFactory, Comparator<T> comparator, boolean useCompression) {
+		this(serializationFactory, comparator, useCompression, MAX_MEMORY_SORT_COUNT, 0,
+				Collections.<File>emptyList());
+	}
+	
+	
+	/**
+	 * Creates a new instance with the run size derived from a memory budget.
+	 * 
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param comparator
+	 *            The comparator to be used for sorting the results.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param memoryBudget
+	 *            The approximate number of bytes available for buffering
+	 *            objects, shared between the run being filled and the runs
+	 *            being written by worker threads.
+	 * @param workerCount
+	 *            The number of background threads used to sort and write
+	 *            runs. If 0, runs are sorted on the calling thread.
+	 */
+	public FileBasedSort(
+			ObjectSerializationFactory serializationFactory, Comparator<T> comparator, boolean useCompression,
+			long memoryBudget, int workerCount) {
+		this(serializationFactory, comparator, useCompression, memoryBudget, workerCount,
+				Collections.<File>emptyList());
+	}
+	
+	
+	/**
+	 * Creates a new instance with the run size derived from a memory budget
+	 * and temporary files written to the specified directories.
+	 * 
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param comparator
+	 *            The comparator to be used for sorting the results.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param memoryBudget
+	 *            The approximate number of bytes available for buffering
+	 *            objects, shared between the run being filled and the runs
+	 *            being written by worker threads.
+	 * @param workerCount
+	 *            The number of background threads used to sort and write
+	 *            runs. If 0, runs are sorted on the calling thread.
+	 * @param tempDirectories
+	 *            The directories to write temporary files to. Each new file
+	 *            uses the next directory in turn. If empty, the default
+	 *            temporary file directory is used.
+	 */
+	public FileBasedSort(
+			ObjectSerializationFactory serializationFactory, Comparator<T> comparator, boolean useCompression,
+			long memoryBudget, int workerCount, List<File> tempDirectories) {
+		this(serializationFactory, comparator, useCompression,
+				getRunSize(memoryBudget, workerCount), workerCount, tempDirectories);
+	}
+	
+	
+	/**
+	 * Creates a new instance with an explicit run size. This is private to
+	 * avoid confusion with the memory budget constructor, use
+	 * {@link #createWithRunSize} instead.
+	 * 
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param comparator
+	 *            The comparator to be used for sorting the results.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param runSize
+	 *            The number of objects to sort in memory before writing a run
+	 *            to file.
+	 * @param workerCount
+	 *            The number of background threads used to sort and write
+	 *            runs. If 0, runs are sorted on the calling thread.
+	 * @param tempDirectories
+	 *            The directories to write temporary files to. If empty, the
+	 *            default temporary file directory is used.
+	 */
+	private FileBasedSort(
+			ObjectSerializationFactory serializationFactory, Comparator<T> comparator, boolean useCompression,
+			int runSize, int workerCount, List<File> tempDirectories) {
+		if (runSize <= 0) {
+			throw new OsmosisRuntimeException("Run size must be greater than 0.");
+		}
+		if (workerCount < 0) {
+			throw new OsmosisRuntimeException("Worker count cannot be negative.");
+		}
+		
 		this.serializationFactory = serializationFactory;
 		this.comparator = comparator;
 		this.useCompression = useCompression;
+		this.runSize = runSize;
+		this.workerCount = workerCount;
+		this.tempDirectories = new ArrayList<File>(tempDirectories);
 		
-		chunkedEntityStore = new ChunkedObjectStore<T>(serializationFactory, "emta", "idx", useCompression);
-		addBuffer = new ArrayList<T>(MAX_MEMORY_SORT_COUNT);
+		addBuffer = new ArrayList<T>(Math.min(runSize, MAX_MEMORY_SORT_COUNT));
+		runs = new ArrayList<SimpleObjectStore<T>>();
+		pendingRuns = new LinkedList<PendingRun>();
 	}
 	
 	
 	/**
-	 * Sorts the data currently in the add buffer, writes it to the object
-	 * store, and clears the buffer.
+	 * Creates a new instance with an explicit run size instead of a memory
+	 * budget. This allows tests to create many small runs.
+	 * 
+	 * @param <T>
+	 *            The object type to be sorted.
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param comparator
+	 *            The comparator to be used for sorting the results.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param runSize
+	 *            The number of objects to sort in memory before writing a run
+	 *            to file.
+	 * @param workerCount
+	 *            The number of background threads used to sort and write
+	 *            runs. If 0, runs are sorted on the calling thread.
+	 * @param tempDirectories
+	 *            The directories to write temporary files to. If empty, the
+	 *            default temporary file directory is used.
+	 * @return The new instance.
 	 */
-	private void flushAddBuffer() {
-		if (addBuffer.size() >= 0) {
-			// Sort the chunk prior to writing.
-			Collections.sort(addBuffer, comparator);
-			
-			// Write all entities in the buffer to entity storage.
-			for (T entity : addBuffer) {
-				chunkedEntityStore.add(entity);
-			}
-			
-			addBuffer.clear();
-			
-			// Close the chunk in the underlying data store so that it can be
-			// read separately.
-			chunkedEntityStore.closeChunk();
-		}
+	/* package */ static <T extends Storeable> FileBasedSort<T> createWithRunSize(
+			ObjectSerializationFactory serializationFactory, Comparator<T> comparator, boolean useCompression,
+			int runSize, int workerCount, List<File> tempDirectories) {
+		return new FileBasedSort<T>(
+				serializationFactory, comparator, useCompression, runSize, workerCount, tempDirectories);
 	}
 	
 	
 	/**
-	 * Adds a new object to be sorted.
+	 * Calculates the number of objects per run that fit within a memory
+	 * budget. One buffer is filled while up to one buffer per worker is being
+	 * sorted and written.
+	 */
+	private static int getRunSize(long memoryBudget, int workerCount) {
+		long runSize;
+		
+		runSize = memoryBudget / ESTIMATED_OBJECT_SIZE / (workerCount + 1);
+		
+		return (int) Math.max(MIN_RUN_SIZE, Math.min(Integer.MAX_VALUE - 8, runSize));
+	}
+	
+	
+	/**
+	 * Selects the directory for the next temporary file. This is only called
+	 * by the thread using the sorter so that the directories are used in
+	 * order.
 	 * 
-	 * @param value
-	 *            The data object.
+	 * @return The directory, or null to use the default.
 	 */
-	public void add(T value) {
-		// Add the new data entity to the add buffer.
-		addBuffer.add(value);
+	private File getNextTempDirectory() {
+		File tempDirectory;
 		
-		// If the add buffer is full, it must be sorted and written to entity
-		// storage.
-		if (addBuffer.size() >= MAX_MEMORY_SORT_COUNT) {
-			flushAddBuffer();
+		if (tempDirectories.isEmpty()) {
+			return null;
 		}
+		
+		tempDirectory = tempDirectories.get(nextTempDirectoryIndex);
+		nextTempDirectoryIndex = (nextTempDirectoryIndex + 1) % tempDirectories.size();
+		
+		return tempDirectory;
 	}
 	
 	
 	/**
-	 * This is a wrapper method around the iterate method with the same argument
-	 * list that persists the sort results prior to returning. This forces all
-	 * sorting by nested recursive method calls to be performed allowing all
-	 * associated memory can be freed.
+	 * Sorts the provided objects and writes them to a new store.
 	 * 
-	 * @param nestLevel
-	 *            The current recursive nesting level of the merge sort
-	 *            operation.
-	 * @param beginChunkIndex
-	 *            The initial chunk to begin sorting from.
-	 * @param chunkCount
-	 *            The number of chunks to sort.
-	 * @return An iterator providing access to the sort result.
+	 * @param run
+	 *            The objects to be written.
+	 * @param tempDirectory
+	 *            The directory to create the store in.
+	 * @return The store containing the sorted run.
 	 */
-	private ReleasableIterator<T> iteratePersisted(int nestLevel, long beginChunkIndex, long chunkCount) {
-		ReleasableIterator<T> persistentIterator;
+	private SimpleObjectStore<T> writeRun(List<T> run, File tempDirectory) {
+		SimpleObjectStore<T> store;
 		
-		// Create a persistent iterator based on the requested underlying chunk
-		// iterator.
-		persistentIterator = new PersistentIterator<T>(
-			serializationFactory,
-			iterate(nestLevel, beginChunkIndex, chunkCount),
-			"emtb",
-			useCompression
-		);
+		Collections.sort(run, comparator);
 		
-		// Prime the persistent iterator so that all underlying iterator data is
-		// written to file.
+		store = new SimpleObjectStore<T>(serializationFactory, "emta", useCompression, tempDirectory);
 		try {
-			ReleasableIterator<T> result;
+			for (T entity : run) {
+				store.add(entity);
+			}
+			store.complete();
 			
-			result = persistentIterator;
+			SimpleObjectStore<T> result = store;
+			store = null;
 			
-			// This will cause all data to be read from the underlying iterator
-			// into the persistent store.
-			persistentIterator.hasNext();
+			return result;
 			
-			persistentIterator = null;
+		} finally {
+			if (store != null) {
+				store.close();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Merges the provided runs into a single new run. The provided runs are
+	 * released once the merge is complete.
+	 * 
+	 * @param sourceRuns
+	 *            The runs to be merged.
+	 * @param tempDirectory
+	 *            The directory to create the store in.
+	 * @return The store containing the merged run.
+	 */
+	private SimpleObjectStore<T> mergeRuns(List<SimpleObjectStore<T>> sourceRuns, File tempDirectory) {
+		SimpleObjectStore<T> store;
+		
+		store = new SimpleObjectStore<T>(serializationFactory, "emtb", useCompression, tempDirectory);
+		try {
+			try (ReleasableIterator<T> iterator = iterate(sourceRuns)) {
+				while (iterator.hasNext()) {
+					store.add(iterator.next());
+				}
+			}
+			store.complete();
+			
+			SimpleObjectStore<T> result = store;
+			store = null;
 			
 			return result;
 			
 		} finally {
-			// This will release the persistent iterator and its underlying
-			// source iterator if the persistence operations failed.
-			if (persistentIterator != null) {
-				persistentIterator.close();
+			if (store != null) {
+				store.close();
+			}
+			for (SimpleObjectStore<T> sourceRun : sourceRuns) {
+				sourceRun.close();
 			}
 		}
 	}
 	
 	
 	/**
-	 * Sorts the specified sub-section of the overall storage contents. This
-	 * result list is not backed by a file and should be persisted prior to
-	 * being incorporated into a higher level merge operation.
-	 * 
-	 * @param nestLevel
-	 *            The current recursive nesting level of the merge sort
-	 *            operation.
-	 * @param beginChunkIndex
-	 *            The initial chunk to begin sorting from.
-	 * @param chunkCount
-	 *            The number of chunks to sort.
-	 * @return An iterator providing access to the sort result.
+	 * Creates a merging iterator across all of the provided runs.
 	 */
-	private ReleasableIterator<T> iterate(int nestLevel, long beginChunkIndex, long chunkCount) {
+	private ReleasableIterator<T> iterate(List<SimpleObjectStore<T>> sourceRuns) {
 		List<ReleasableIterator<T>> sources;
 		
-		sources = new ArrayList<ReleasableIterator<T>>();
+		sources = new ArrayList<ReleasableIterator<T>>(sourceRuns.size());
 		
 		try {
 			MergingIterator<T> mergingIterator;
 			
-			// If we are down to a small number of entities, we retrieve each source from file.
-			// Otherwise we recurse and split the number of entities down into smaller chunks.
-			if (chunkCount <= MAX_MERGE_SOURCE_COUNT) {
-				for (int i = 0; i < chunkCount; i++) {
-					sources.add(
-						chunkedEntityStore.iterate(beginChunkIndex + i)
-					);
-				}
-				
-			} else {
-				long maxChunkIndex;
-				long subChunkCount;
-				
-				/*
-				 * The current chunk count must be divided by
-				 * MAX_MERGE_SOURCE_COUNT and we must recurse for each of those
-				 * sub chunk counts. Where the result isn't exact, we round up
-				 * to the nearest multiple of MAX_MERGE_SOURCE_COUNT to ensure
-				 * we don't end up with more than MAX_MERGE_SOURCE_COUNT
-				 * sources.
-				 */
-				subChunkCount = chunkCount / MAX_MERGE_SOURCE_COUNT;
-				subChunkCount += chunkCount % MAX_MERGE_SOURCE_COUNT;
-				
-				// We can never pass beyond the chunk boundaries specified for
-				// this function.
-				maxChunkIndex = beginChunkIndex + chunkCount;
-				
-				for (
-						long subFirstChunk = beginChunkIndex;
-						subFirstChunk < maxChunkIndex;
-						subFirstChunk += subChunkCount) {
-					
-					// The chunk count passed to the nested function should not
-					// make the nested function exceed this function's boundaries.
-					if (subFirstChunk + subChunkCount > maxChunkIndex) {
-						subChunkCount = maxChunkIndex - subFirstChunk;
-					}
-					
-					/*
-					 * Either call the persistent or standard version of the
-					 * recursive iterate based on whether this nesting level
-					 * requires persistence. If we only have one chunk left at
-					 * this point we make an exception and skip persistence
-					 * because it will only result in a single file being opened
-					 * anyway.
-					 */
-					if (((nestLevel + 1) % MAX_MEMORY_SORT_DEPTH) == 0 && subChunkCount > 1) {
-						sources.add(
-							iteratePersisted(nestLevel + 1, subFirstChunk, subChunkCount)
-						);
-					} else {
-						sources.add(
-							iterate(nestLevel + 1, subFirstChunk, subChunkCount)
-						);
-					}
-				}
+			for (SimpleObjectStore<T> sourceRun : sourceRuns) {
+				sources.add(sourceRun.iterate());
 			}
 			
-			// Create a merging iterator to merge all of the sources.
 			mergingIterator = new MergingIterator<T>(sources, comparator);
 			
 			// The merging iterator owns the sources now, so we clear our copy
@@ -270,15 +370,148 @@ public class FileBasedSort<T extends Storeable> implements Closeable {
 	}
 	
 	
+	/**
+	 * Waits for pending background tasks to complete until no more than the
+	 * target number remain, and adds their results to the list of runs.
+	 * 
+	 * @param targetCount
+	 *            The maximum number of tasks that may remain pending.
+	 */
+	private void waitForPendingRuns(int targetCount) {
+		while (pendingRuns.size() > targetCount) {
+			try {
+				runs.add(pendingRuns.remove().future.get());
+			} catch (InterruptedException e) {
+				throw new OsmosisRuntimeException("Thread was interrupted.", e);
+			} catch (ExecutionException e) {
+				throw new OsmosisRuntimeException("A sort worker thread failed, aborting.", e.getCause());
+			}
+		}
+	}
+	
+	
+	/**
+	 * Writes the contents of the add buffer to a new run, and replaces the
+	 * buffer. If worker threads are available this occurs in the background.
+	 */
+	private void flushAddBuffer() {
+		final List<T> run;
+		final File tempDirectory;
+		
+		if (addBuffer.isEmpty()) {
+			return;
+		}
+		
+		run = addBuffer;
+		addBuffer = new ArrayList<T>(Math.min(runSize, MAX_MEMORY_SORT_COUNT));
+		tempDirectory = getNextTempDirectory();
+		
+		if (workerCount > 0) {
+			if (executorService == null) {
+				executorService = Executors.newFixedThreadPool(workerCount);
+			}
+			
+			pendingRuns.add(new PendingRun(executorService.submit(new Callable<SimpleObjectStore<T>>() {
+				@Override
+				public SimpleObjectStore<T> call() {
+					return writeRun(run, tempDirectory);
+				}
+			}), Collections.<SimpleObjectStore<T>>emptyList()));
+			
+			// Block until a worker is free so that no more than one buffer per
+			// worker is waiting to be written alongside the buffer being
+			// filled, which keeps memory use within budget.
+			waitForPendingRuns(workerCount);
+			
+		} else {
+			runs.add(writeRun(run, tempDirectory));
+		}
+	}
+	
+	
+	/**
+	 * Merges groups of runs into larger runs until no more than
+	 * MAX_MERGE_SOURCE_COUNT remain. Groups are merged in parallel if worker
+	 * threads are available.
+	 */
+	private void reduceRuns() {
+		while (runs.size() > MAX_MERGE_SOURCE_COUNT) {
+			List<SimpleObjectStore<T>> currentRuns;
+			
+			currentRuns = runs;
+			runs = new ArrayList<SimpleObjectStore<T>>();
+			
+			for (int i = 0; i < currentRuns.size(); i += MAX_MERGE_SOURCE_COUNT) {
+				final List<SimpleObjectStore<T>> group = new ArrayList<SimpleObjectStore<T>>(
+						currentRuns.subList(i, Math.min(currentRuns.size(), i + MAX_MERGE_SOURCE_COUNT)));
+				final File tempDirectory = getNextTempDirectory();
+				
+				if (executorService != null) {
+					pendingRuns.add(new PendingRun(executorService.submit(new Callable<SimpleObjectStore<T>>() {
+						@Override
+						public SimpleObjectStore<T> call() {
+							return mergeRuns(group, tempDirectory);
+						}
+					}), group));
+				} else {
+					runs.add(mergeRuns(group, tempDirectory));
+				}
+			}
+			
+			waitForPendingRuns(0);
+			intermediateMergePassCount++;
+		}
+	}
+	
+	
+	/**
+	 * Gets the number of merge passes performed before the final merge
+	 * because there were too many runs to merge at once.
+	 * 
+	 * @return The number of intermediate merge passes.
+	 */
+	/* package */ int getIntermediateMergePassCount() {
+		return intermediateMergePassCount;
+	}
+	
+	
+	/**
+	 * Adds a new object to be sorted.
+	 * 
+	 * @param value
+	 *            The data object.
+	 */
+	public void add(T value) {
+		// Add the new data entity to the add buffer.
+		addBuffer.add(value);
+		
+		// If the add buffer is full, it must be sorted and written to entity
+		// storage.
+		if (addBuffer.size() >= runSize) {
+			flushAddBuffer();
+		}
+	}
+	
+	
 	/**
 	 * Sorts and returns the contents of the sorter.
 	 * 
 	 * @return An iterator providing access to the sorted entities.
 	 */
 	public ReleasableIterator<T> iterate() {
+		// If nothing has been written to file, everything fits in a single
+		// run and can be sorted and returned without touching the disk.
+		if (runs.isEmpty() && pendingRuns.isEmpty()) {
+			Collections.sort(addBuffer, comparator);
+			
+			return new ReleasableAdaptorForIterator<T>(addBuffer.iterator());
+		}
+		
 		flushAddBuffer();
+		waitForPendingRuns(0);
+		reduceRuns();
 		
-		return iterate(0, 0, chunkedEntityStore.getChunkCount());
+		return iterate(runs);
 	}
 	
 	
@@ -286,6 +519,67 @@ public class FileBasedSort<T extends Storeable> implements Closeable {
 	 * {@inheritDoc}
 	 */
 	public void close() {
-		chunkedEntityStore.close();
+		// Cancel tasks that haven't started yet. Tasks that are already
+		// running can't be cancelled and will complete, so it is safe to wait
+		// for them below.
+		for (PendingRun pendingRun : pendingRuns) {
+			pendingRun.future.cancel(false);
+		}
+		
+		if (executorService != null) {
+			executorService.shutdownNow();
+			executorService = null;
+		}
+		
+		// Release the results of any background tasks still in progress, or the
+		// inputs of merges that never started.
+		for (PendingRun pendingRun : pendingRuns) {
+			if (pendingRun.future.isCancelled()) {
+				for (SimpleObjectStore<T> source : pendingRun.sources) {
+					source.close();
+				}
+				continue;
+			}
+			
+			try {
+				pendingRun.future.get().close();
+			} catch (InterruptedException e) {
+				// We cannot throw an exception within a release statement.
+				LOG.log(Level.WARNING, "Interrupted while releasing a pending sort run.", e);
+			} catch (ExecutionException e) {
+				// The task failed so there is no run to release.
+				LOG.log(Level.WARNING, "A sort worker thread failed.", e.getCause());
+			}
+		}
+		pendingRuns.clear();
+		
+		for (SimpleObjectStore<T> run : runs) {
+			run.close();
+		}
+		runs.clear();
+	}
+	
+	
+	/**
+	 * A run being produced by a background task, along with the runs it
+	 * consumes. The consumed runs must be released if the task never starts.
+	 */
+	private class PendingRun {
+		private Future<SimpleObjectStore<T>> future;
+		private List<SimpleObjectStore<T>> sources;
+		
+		
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param future
+		 *            The result of the background task.
+		 * @param sources
+		 *            The runs consumed by the task.
+		 */
+		PendingRun(Future<SimpleObjectStore<T>> future, List<SimpleObjectStore<T>> sources) {
+			this.future = future;
+			this.sources = sources;
+		}
 	}
 }
@@ -11,7 +11,10 @@ import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 
 /**
  * This iterator examines a list of sorted input sources and merges them into a
- * single sorted list.
+ * single sorted list. The current item from each source is held in a binary
+ * heap so that each item returned requires only a logarithmic number of
+ * comparisons, allowing a large number of sources to be merged in a single
+ * pass. Where items compare as equal, they are returned in source order.
  * 
  * @param <DataType>
  *            The object type to be sorted.
@@ -21,6 +24,12 @@ public class MergingIterator<DataType> implements ReleasableIterator<DataType> {
 	private List<ReleasableIterator<DataType>> sources;
 	private Comparator<DataType> comparator;
 	private List<DataType> sourceData;
+	/**
+	 * The indexes of all sources with data remaining, arranged as a heap
+	 * ordered by their current data item.
+	 */
+	private int[] heap;
+	private int heapSize;
 	
 	
 	/**
@@ -42,21 +51,79 @@ public class MergingIterator<DataType> implements ReleasableIterator<DataType> {
 	 */
 	private void initialize() {
 		if (sourceData == null) {
-			// Get the first entity from each source.  Delete any empty sources.
+			// Get the first entity from each source.  Release any empty sources.
 			sourceData = new ArrayList<DataType>(sources.size());
-			for (int sourceIndex = 0; sourceIndex < sources.size();) {
+			heap = new int[sources.size()];
+			heapSize = 0;
+			for (int sourceIndex = 0; sourceIndex < sources.size(); sourceIndex++) {
 				ReleasableIterator<DataType> source;
 				
 				source = sources.get(sourceIndex);
 				
 				if (source.hasNext()) {
 					sourceData.add(source.next());
-					sourceIndex++;
+					heap[heapSize++] = sourceIndex;
 				} else {
-					sources.remove(sourceIndex).close();
+					sourceData.add(null);
+					source.close();
+					sources.set(sourceIndex, null);
 				}
 			}
+			
+			for (int i = heapSize / 2 - 1; i >= 0; i--) {
+				siftDown(i);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Checks whether the current item of one source must be returned before
+	 * the current item of another.
+	 */
+	private boolean isBefore(int sourceIndex1, int sourceIndex2) {
+		int result;
+		
+		result = comparator.compare(sourceData.get(sourceIndex1), sourceData.get(sourceIndex2));
+		
+		if (result == 0) {
+			return sourceIndex1 < sourceIndex2;
 		}
+		
+		return result < 0;
+	}
+	
+	
+	/**
+	 * Moves the source at the specified heap position down the heap until
+	 * neither of its children sort before it.
+	 */
+	private void siftDown(int position) {
+		int sourceIndex;
+		int currentPosition;
+		
+		sourceIndex = heap[position];
+		currentPosition = position;
+		
+		while (true) {
+			int childPosition;
+			
+			childPosition = currentPosition * 2 + 1;
+			if (childPosition >= heapSize) {
+				break;
+			}
+			if (childPosition + 1 < heapSize && isBefore(heap[childPosition + 1], heap[childPosition])) {
+				childPosition++;
+			}
+			if (!isBefore(heap[childPosition], sourceIndex)) {
+				break;
+			}
+			
+			heap[currentPosition] = heap[childPosition];
+			currentPosition = childPosition;
+		}
+		
+		heap[currentPosition] = sourceIndex;
 	}
 	
 	
@@ -66,7 +133,7 @@ public class MergingIterator<DataType> implements ReleasableIterator<DataType> {
 	public boolean hasNext() {
 		initialize();
 		
-		return sourceData.size() > 0;
+		return heapSize > 0;
 	}
 	
 	
@@ -78,34 +145,30 @@ public class MergingIterator<DataType> implements ReleasableIterator<DataType> {
 		int indexMinimum;
 		ReleasableIterator<DataType> source;
 		
-		initialize();
-		
 		if (!hasNext()) {
 			throw new NoSuchElementException();
 		}
 		
-		dataMinimum = sourceData.get(0);
-		indexMinimum = 0;
-		
-		// Find the minimum entity.
-		for (int indexCurrent = 1; indexCurrent < sources.size(); indexCurrent++) {
-			DataType dataCurrent = sourceData.get(indexCurrent);
-			
-			// Check if the current data entity is less than the existing minimum.
-			if (comparator.compare(dataMinimum, dataCurrent) > 0) {
-				dataMinimum = dataCurrent;
-				indexMinimum = indexCurrent;
-			}
-		}
+		// The minimum entity belongs to the source at the top of the heap.
+		indexMinimum = heap[0];
+		dataMinimum = sourceData.get(indexMinimum);
 		
 		// Get the next entity from the source if available.
-		// Otherwise remove the source and its current data.
+		// Otherwise release the source and remove it from the heap.
 		source = sources.get(indexMinimum);
 		if (source.hasNext()) {
 			sourceData.set(indexMinimum, source.next());
 		} else {
-			sources.remove(indexMinimum).close();
-			sourceData.remove(indexMinimum);
+			source.close();
+			sources.set(indexMinimum, null);
+			sourceData.set(indexMinimum, null);
+			
+			heapSize--;
+			heap[0] = heap[heapSize];
+		}
+		
+		if (heapSize > 0) {
+			siftDown(0);
 		}
 		
 		return dataMinimum;
@@ -125,7 +188,9 @@ public class MergingIterator<DataType> implements ReleasableIterator<DataType> {
 	 */
 	public void close() {
 		for (ReleasableIterator<DataType> source : sources) {
-			source.close();
+			if (source != null) {
+				source.close();
+			}
 		}
 	}
 }
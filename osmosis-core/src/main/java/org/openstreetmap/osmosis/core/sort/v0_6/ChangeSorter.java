@@ -1,7 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.sort.v0_6;
 
+import java.io.File;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
@@ -32,7 +34,32 @@ public class ChangeSorter implements ChangeSinkChangeSource {
 	public ChangeSorter(Comparator<ChangeContainer> comparator) {
 		fileBasedSort =
 			new FileBasedSort<ChangeContainer>(
-					new SingleClassObjectSerializationFactory(ChangeContainer.class), comparator, true);
+					new SingleClassObjectSerializationFactory(ChangeContainer.class, ChangeContainer.STOREABLE_FACTORY),
+					comparator, true);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param comparator
+	 *            The comparator to use for sorting.
+	 * @param memoryBudget
+	 *            The approximate number of bytes to use for buffering changes
+	 *            before they are written to temporary files.
+	 * @param workerCount
+	 *            The number of background threads used to sort and write
+	 *            buffered changes. If 0, sorting occurs on the calling thread.
+	 * @param tempDirectories
+	 *            The directories to write temporary files to in turn. If
+	 *            empty, the default temporary file directory is used.
+	 */
+	public ChangeSorter(Comparator<ChangeContainer> comparator, long memoryBudget, int workerCount,
+			List<File> tempDirectories) {
+		fileBasedSort =
+			new FileBasedSort<ChangeContainer>(
+					new SingleClassObjectSerializationFactory(ChangeContainer.class, ChangeContainer.STOREABLE_FACTORY),
+					comparator, true, memoryBudget, workerCount, tempDirectories);
 	}
 
 
@@ -1,8 +1,10 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.sort.v0_6;
 
+import java.io.File;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
@@ -20,6 +22,12 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.ChangeSinkChangeSourceManage
  */
 public class ChangeSorterFactory extends TaskManagerFactory {
 	private static final String ARG_COMPARATOR_TYPE = "type";
+	private static final String ARG_BUFFER_MB = "bufferMb";
+	private static final String ARG_WORKERS = "workers";
+	private static final String ARG_TEMP_DIRS = "tempDirs";
+	private static final int DEFAULT_BUFFER_MB = 4;
+	private static final int DEFAULT_WORKERS = 0;
+	private static final String DEFAULT_TEMP_DIRS = "";
 	
 	private Map<String, Comparator<ChangeContainer>> comparatorMap;
 	private String defaultComparatorType;
@@ -81,6 +89,9 @@ public class ChangeSorterFactory extends TaskManagerFactory {
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
 		Comparator<ChangeContainer> comparator;
+		int bufferMb;
+		int workers;
+		List<File> tempDirectories;
 		
 		// Get the comparator.
 		comparator = getComparator(
@@ -91,9 +102,21 @@ public class ChangeSorterFactory extends TaskManagerFactory {
 			)
 		);
 		
+		bufferMb = getIntegerArgument(taskConfig, ARG_BUFFER_MB, DEFAULT_BUFFER_MB);
+		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		tempDirectories = EntitySorterFactory.parseTempDirectories(
+				getStringArgument(taskConfig, ARG_TEMP_DIRS, DEFAULT_TEMP_DIRS));
+		
+		if (bufferMb <= 0) {
+			throw new OsmosisRuntimeException("Argument " + ARG_BUFFER_MB + " must be greater than 0.");
+		}
+		if (workers < 0) {
+			throw new OsmosisRuntimeException("Argument " + ARG_WORKERS + " cannot be negative.");
+		}
+		
 		return new ChangeSinkChangeSourceManager(
 			taskConfig.getId(),
-			new ChangeSorter(comparator),
+			new ChangeSorter(comparator, bufferMb * 1024L * 1024L, workers, tempDirectories),
 			taskConfig.getPipeArgs()
 		);
 	}
@@ -1,13 +1,15 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.sort.v0_6;
 
+import java.io.File;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainerSerializationFactory;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
-import org.openstreetmap.osmosis.core.store.GenericObjectSerializationFactory;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.core.task.v0_6.SinkSource;
 
@@ -43,7 +45,31 @@ public class EntitySorter implements SinkSource {
 	 */
 	public EntitySorter(Comparator<EntityContainer> comparator, boolean useCompression) {
 		fileBasedSort = new FileBasedSort<EntityContainer>(
-			new GenericObjectSerializationFactory(), comparator, useCompression);
+			new EntityContainerSerializationFactory(), comparator, useCompression);
+	}
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param comparator
+	 *            The comparator to use for sorting.
+	 * @param useCompression
+	 *            If true, the storage files will be compressed.
+	 * @param memoryBudget
+	 *            The approximate number of bytes to use for buffering entities
+	 *            before they are written to temporary files.
+	 * @param workerCount
+	 *            The number of background threads used to sort and write
+	 *            buffered entities. If 0, sorting occurs on the calling thread.
+	 * @param tempDirectories
+	 *            The directories to write temporary files to in turn. If
+	 *            empty, the default temporary file directory is used.
+	 */
+	public EntitySorter(Comparator<EntityContainer> comparator, boolean useCompression, long memoryBudget,
+			int workerCount, List<File> tempDirectories) {
+		fileBasedSort = new FileBasedSort<EntityContainer>(
+			new EntityContainerSerializationFactory(), comparator, useCompression, memoryBudget, workerCount,
+			tempDirectories);
 	}
 
 
@@ -1,8 +1,11 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.sort.v0_6;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
@@ -20,6 +23,12 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
  */
 public class EntitySorterFactory extends TaskManagerFactory {
 	private static final String ARG_COMPARATOR_TYPE = "type";
+	private static final String ARG_BUFFER_MB = "bufferMb";
+	private static final String ARG_WORKERS = "workers";
+	private static final String ARG_TEMP_DIRS = "tempDirs";
+	private static final int DEFAULT_BUFFER_MB = 4;
+	private static final int DEFAULT_WORKERS = 0;
+	private static final String DEFAULT_TEMP_DIRS = "";
 	
 	private Map<String, Comparator<EntityContainer>> comparatorMap;
 	private String defaultComparatorType;
@@ -75,12 +84,46 @@ public class EntitySorterFactory extends TaskManagerFactory {
 	}
 	
 	
+	/**
+	 * Parses a comma separated list of directories for storing temporary sort
+	 * files.
+	 * 
+	 * @param tempDirList
+	 *            The comma separated list of directories.
+	 * @return The directories, empty if none were specified.
+	 */
+	/* package */ static List<File> parseTempDirectories(String tempDirList) {
+		List<File> tempDirectories;
+		
+		tempDirectories = new ArrayList<File>();
+		for (String tempDirName : tempDirList.split(",")) {
+			File tempDirectory;
+			
+			tempDirName = tempDirName.trim();
+			if (tempDirName.isEmpty()) {
+				continue;
+			}
+			
+			tempDirectory = new File(tempDirName);
+			if (!tempDirectory.isDirectory()) {
+				throw new OsmosisRuntimeException("Sort temporary directory " + tempDirectory + " doesn't exist.");
+			}
+			tempDirectories.add(tempDirectory);
+		}
+		
+		return tempDirectories;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	protected TaskManager createTaskManagerImpl(TaskConfiguration taskConfig) {
 		Comparator<EntityContainer> comparator;
+		int bufferMb;
+		int workers;
+		List<File> tempDirectories;
 		
 		// Get the comparator.
 		comparator = getComparator(
@@ -91,9 +134,21 @@ public class EntitySorterFactory extends TaskManagerFactory {
 			)
 		);
 		
+		bufferMb = getIntegerArgument(taskConfig, ARG_BUFFER_MB, DEFAULT_BUFFER_MB);
+		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		tempDirectories = parseTempDirectories(
+				getStringArgument(taskConfig, ARG_TEMP_DIRS, DEFAULT_TEMP_DIRS));
+		
+		if (bufferMb <= 0) {
+			throw new OsmosisRuntimeException("Argument " + ARG_BUFFER_MB + " must be greater than 0.");
+		}
+		if (workers < 0) {
+			throw new OsmosisRuntimeException("Argument " + ARG_WORKERS + " cannot be negative.");
+		}
+		
 		return new SinkSourceManager(
 			taskConfig.getId(),
-			new EntitySorter(comparator),
+			new EntitySorter(comparator, true, bufferMb * 1024L * 1024L, workers, tempDirectories),
 			taskConfig.getPipeArgs()
 		);
 	}
@@ -30,8 +30,6 @@ public abstract class BaseObjectReader implements ObjectReader {
 	public BaseObjectReader(StoreReader storeReader, StoreClassRegister storeClassRegister) {
 		this.storeReader = storeReader;
 		this.storeClassRegister = storeClassRegister;
-		
-		constructorCache = new StoreableConstructorCache();
 	}
 	
 	
@@ -47,6 +45,21 @@ public abstract class BaseObjectReader implements ObjectReader {
 	protected abstract Class<?> readClassFromIdentifier(StoreReader sr, StoreClassRegister scr);
 	
 	
+	/**
+	 * Gets the factory for creating objects of the specified class. This
+	 * implementation returns null, sub-classes may override it to avoid
+	 * reflection.
+	 * 
+	 * @param clazz
+	 *            The class to be instantiated.
+	 * @return The factory, or null if objects must be created using the
+	 *         storeable constructor of the class.
+	 */
+	protected StoreableFactory<?> getStoreableFactory(Class<?> clazz) {
+		return null;
+	}
+	
+	
 	/**
 	 * Reads an object from storage using identifiers embedded in the stream to
 	 * determine the correct class type to instantiate.
@@ -55,10 +68,20 @@ public abstract class BaseObjectReader implements ObjectReader {
 	 */
 	public Storeable readObject() {
 		Class<?> clazz;
+		StoreableFactory<?> factory;
 		Constructor<?> constructor;
 		
 		clazz = readClassFromIdentifier(storeReader, storeClassRegister);
 		
+		factory = getStoreableFactory(clazz);
+		if (factory != null) {
+			return factory.create(storeReader, storeClassRegister);
+		}
+		
+		// Only readers of classes without a factory need the cache.
+		if (constructorCache == null) {
+			constructorCache = new StoreableConstructorCache();
+		}
 		constructor = constructorCache.getStoreableConstructor(clazz);
 		
 		try {
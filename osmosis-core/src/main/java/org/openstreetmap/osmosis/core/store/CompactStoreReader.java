@@ -0,0 +1,213 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Reads persisted input written by a {@link CompactStoreWriter} from a
+ * DataInput implementation. The use of a string dictionary must match the
+ * setting of the writer.
+ */
+public class CompactStoreReader implements StoreReader {
+	private DataInput input;
+	private List<String> dictionary;
+	private byte[] stringBuffer;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param input
+	 *            The data input to read data from.
+	 * @param useStringDictionary
+	 *            If true, strings may be references to previous occurrences.
+	 */
+	public CompactStoreReader(DataInput input, boolean useStringDictionary) {
+		this.input = input;
+
+		if (useStringDictionary) {
+			dictionary = new ArrayList<String>();
+		}
+		stringBuffer = new byte[256];
+	}
+
+
+	private long readVarint() throws IOException {
+		long result = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = input.readByte();
+
+			result |= ((long) (b & 0x7F)) << shift;
+			if (b >= 0) {
+				return result;
+			}
+		}
+
+		throw new OsmosisRuntimeException("The store contains a malformed variable length value.");
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean readBoolean() {
+		try {
+			return input.readBoolean();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a boolean from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read a boolean from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte readByte() {
+		try {
+			return input.readByte();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a byte from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a byte from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char readCharacter() {
+		try {
+			return (char) readVarint();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a character from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a character from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int readInteger() {
+		try {
+			int value = (int) readVarint();
+
+			return (value >>> 1) ^ -(value & 1);
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read an integer from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read an integer from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long readLong() {
+		try {
+			long value = readVarint();
+
+			return (value >>> 1) ^ -(value & 1);
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a long from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a long from the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double readDouble() {
+		try {
+			return input.readDouble();
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a double from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a double from the store.", e);
+		}
+	}
+
+
+	private String readStringData() throws IOException {
+		int length = (int) readVarint();
+
+		if (length > stringBuffer.length) {
+			stringBuffer = new byte[Math.max(length, stringBuffer.length * 2)];
+		}
+		input.readFully(stringBuffer, 0, length);
+
+		return new String(stringBuffer, 0, length, CompactStoreWriter.UTF8);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String readString() {
+		try {
+			String value;
+			int index;
+
+			if (dictionary == null) {
+				return readStringData();
+			}
+
+			index = (int) readVarint();
+			if (index > 0) {
+				return dictionary.get(index - 1);
+			}
+
+			value = readStringData();
+
+			// Mirror the dictionary maintenance performed by the writer.
+			if (value.length() <= CompactStoreWriter.MAX_DICTIONARY_STRING_LENGTH) {
+				dictionary.add(value);
+				if (dictionary.size() >= CompactStoreWriter.MAX_DICTIONARY_SIZE) {
+					dictionary.clear();
+				}
+			}
+
+			return value;
+
+		} catch (EOFException e) {
+			throw new EndOfStoreException(
+					"End of stream was reached while attempting to read a String from the store.", e);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read a String from the store.", e);
+		}
+	}
+}
@@ -0,0 +1,200 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Writes persisted output to a DataOutput implementation using a compact
+ * encoding. Integers, longs and characters are written as variable length
+ * zig-zag encoded values so that small values, such as versions, counts and
+ * deltas, occupy only one or two bytes. Strings are written as UTF-8 with a
+ * variable length size prefix.
+ * <p>
+ * Optionally, short strings are added to a dictionary as they are written and
+ * later occurrences are written as a reference to the dictionary entry. Tag
+ * keys, common tag values, user names and member roles are heavily repeated,
+ * so this removes most string data from the output. The dictionary spans the
+ * lifetime of the writer, so data written using a dictionary can only be read
+ * sequentially from the start of the stream by a {@link CompactStoreReader}
+ * also using a dictionary. Random access stores must disable it.
+ */
+public class CompactStoreWriter implements StoreWriter {
+
+	/**
+	 * The maximum number of entries in the string dictionary. The dictionary
+	 * is cleared when it becomes full.
+	 */
+	/* package */ static final int MAX_DICTIONARY_SIZE = 16384;
+	/**
+	 * The maximum length of a string added to the dictionary. Longer strings
+	 * are rarely repeated.
+	 */
+	/* package */ static final int MAX_DICTIONARY_STRING_LENGTH = 64;
+	/**
+	 * The character set used to encode strings.
+	 */
+	/* package */ static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private DataOutput output;
+	private Map<String, Integer> dictionary;
+	private byte[] varintBuffer;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param output
+	 *            The destination to write the data to.
+	 * @param useStringDictionary
+	 *            If true, repeated strings are written as references to
+	 *            previous occurrences.
+	 */
+	public CompactStoreWriter(DataOutput output, boolean useStringDictionary) {
+		this.output = output;
+
+		if (useStringDictionary) {
+			dictionary = new HashMap<String, Integer>();
+		}
+		varintBuffer = new byte[10];
+	}
+
+
+	private void writeVarint(long value) throws IOException {
+		long remaining = value;
+		int length = 0;
+
+		while ((remaining & ~0x7FL) != 0) {
+			varintBuffer[length++] = (byte) ((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		varintBuffer[length++] = (byte) remaining;
+
+		output.write(varintBuffer, 0, length);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBoolean(boolean value) {
+		try {
+			output.writeBoolean(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write boolean " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeByte(byte value) {
+		try {
+			output.writeByte(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write byte " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeCharacter(char value) {
+		try {
+			writeVarint(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write character " + ((int) value) + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeInteger(int value) {
+		try {
+			writeVarint(((long) ((value << 1) ^ (value >> 31))) & 0xFFFFFFFFL);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write integer " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeLong(long value) {
+		try {
+			writeVarint((value << 1) ^ (value >> 63));
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write long " + value + " to the store.", e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeDouble(double value) {
+		try {
+			output.writeDouble(value);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write double " + value + " to the store.", e);
+		}
+	}
+
+
+	private void writeStringData(String value) throws IOException {
+		byte[] data = value.getBytes(UTF8);
+
+		writeVarint(data.length);
+		output.write(data);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeString(String value) {
+		try {
+			if (dictionary == null) {
+				writeStringData(value);
+
+			} else {
+				Integer index = dictionary.get(value);
+
+				if (index != null) {
+					// Index zero indicates a string literal so references are offset by one.
+					writeVarint(index.intValue() + 1);
+				} else {
+					writeVarint(0);
+					writeStringData(value);
+
+					if (value.length() <= MAX_DICTIONARY_STRING_LENGTH) {
+						dictionary.put(value, dictionary.size());
+						if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+							dictionary.clear();
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to write String (" + value + ") to the store.", e);
+		}
+	}
+}
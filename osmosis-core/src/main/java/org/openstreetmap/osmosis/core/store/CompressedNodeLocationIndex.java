@@ -0,0 +1,334 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
+
+
+/**
+ * Stores node locations in memory in compressed blocks. Unlike indexes
+ * allocating a slot for every possible node id, memory consumption depends only
+ * on the number of nodes stored, which makes it suitable for extracts of large
+ * datasets where node ids are sparse.
+ * <p>
+ * Nodes must be added in increasing id order. They are grouped into blocks of
+ * consecutive nodes, each of which stores the first node in full and
+ * subsequent nodes as variable length deltas from the previous node. A small
+ * directory holding the first id of each block is used to locate the block
+ * holding a node, and the most recently used block is kept in decoded form so
+ * that lookups of nearby nodes, as is typical when building way geometries, are
+ * fast.
+ */
+public class CompressedNodeLocationIndex implements Closeable {
+
+	private static final int BLOCK_SIZE = 128;
+	/**
+	 * The maximum encoded size of a node is a ten byte id plus two five byte
+	 * coordinates.
+	 */
+	private static final int MAX_ENCODED_BLOCK_SIZE = BLOCK_SIZE * 20;
+	private static final int CHUNK_SHIFT = 20;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private List<byte[]> chunks;
+	private int chunkOffset;
+	private long[] blockFirstIds;
+	private long[] blockOffsets;
+	private int blockCount;
+
+	private byte[] openBlock;
+	private int openBlockLength;
+	private int openBlockCount;
+	private long openBlockFirstId;
+	private long lastId;
+	private int lastLongitude;
+	private int lastLatitude;
+
+	private int decodedBlock;
+	private int decodedCount;
+	private long[] decodedIds;
+	private int[] decodedLongitudes;
+	private int[] decodedLatitudes;
+	private int decodeOffset;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public CompressedNodeLocationIndex() {
+		chunks = new ArrayList<byte[]>();
+		chunkOffset = CHUNK_SIZE;
+		blockFirstIds = new long[16];
+		blockOffsets = new long[16];
+		blockCount = 0;
+
+		openBlock = new byte[MAX_ENCODED_BLOCK_SIZE];
+		openBlockLength = 0;
+		openBlockCount = 0;
+
+		decodedBlock = -1;
+		decodedIds = new long[BLOCK_SIZE];
+		decodedLongitudes = new int[BLOCK_SIZE];
+		decodedLatitudes = new int[BLOCK_SIZE];
+	}
+
+
+	private void writeVarint(long value) {
+		long remaining = value;
+
+		while ((remaining & ~0x7FL) != 0) {
+			openBlock[openBlockLength++] = (byte) ((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		openBlock[openBlockLength++] = (byte) remaining;
+	}
+
+
+	private void writeSignedVarint(long value) {
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+
+	private long readVarint(byte[] data) {
+		long result = 0;
+
+		for (int shift = 0;; shift += 7) {
+			byte b = data[decodeOffset++];
+
+			result |= ((long) (b & 0x7F)) << shift;
+			if (b >= 0) {
+				return result;
+			}
+		}
+	}
+
+
+	private long readSignedVarint(byte[] data) {
+		long value = readVarint(data);
+
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+
+	/**
+	 * Moves the open block into chunk storage and adds it to the directory.
+	 */
+	private void closeOpenBlock() {
+		byte[] chunk;
+
+		if (chunkOffset + openBlockLength > CHUNK_SIZE) {
+			chunks.add(new byte[CHUNK_SIZE]);
+			chunkOffset = 0;
+		}
+		chunk = chunks.get(chunks.size() - 1);
+		System.arraycopy(openBlock, 0, chunk, chunkOffset, openBlockLength);
+
+		if (blockCount >= blockFirstIds.length) {
+			blockFirstIds = Arrays.copyOf(blockFirstIds, blockCount * 2);
+			blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+		}
+		blockFirstIds[blockCount] = openBlockFirstId;
+		blockOffsets[blockCount] = (((long) chunks.size() - 1) << CHUNK_SHIFT) + chunkOffset;
+		blockCount++;
+
+		chunkOffset += openBlockLength;
+		openBlockLength = 0;
+		openBlockCount = 0;
+	}
+
+
+	/**
+	 * Adds a node location to the index.
+	 *
+	 * @param nodeId
+	 *            The node identifier. This must be greater than the identifier
+	 *            of the previously added node.
+	 * @param longitude
+	 *            The longitude of the node.
+	 * @param latitude
+	 *            The latitude of the node.
+	 */
+	public void put(long nodeId, double longitude, double latitude) {
+		int fixedLongitude = FixedPrecisionCoordinateConvertor.convertToFixed(longitude);
+		int fixedLatitude = FixedPrecisionCoordinateConvertor.convertToFixed(latitude);
+
+		if (openBlockCount == 0) {
+			if (blockCount > 0 && nodeId <= lastId) {
+				throw new OsmosisRuntimeException("The node id of " + nodeId
+						+ " must be greater than the previous id of " + lastId + ".");
+			}
+
+			openBlockFirstId = nodeId;
+			writeSignedVarint(nodeId);
+			writeSignedVarint(fixedLongitude);
+			writeSignedVarint(fixedLatitude);
+
+		} else {
+			if (nodeId <= lastId) {
+				throw new OsmosisRuntimeException("The node id of " + nodeId
+						+ " must be greater than the previous id of " + lastId + ".");
+			}
+
+			writeVarint(nodeId - lastId);
+			writeSignedVarint(((long) fixedLongitude) - lastLongitude);
+			writeSignedVarint(((long) fixedLatitude) - lastLatitude);
+		}
+
+		lastId = nodeId;
+		lastLongitude = fixedLongitude;
+		lastLatitude = fixedLatitude;
+		openBlockCount++;
+
+		// The decoded copy of the open block is now out of date.
+		if (decodedBlock == blockCount) {
+			decodedBlock = -1;
+		}
+
+		if (openBlockCount >= BLOCK_SIZE) {
+			closeOpenBlock();
+		}
+	}
+
+
+	private void decodeBlock(int block) {
+		byte[] data;
+		int count;
+		long id;
+		long longitude;
+		long latitude;
+
+		if (block == blockCount) {
+			data = openBlock;
+			decodeOffset = 0;
+			count = openBlockCount;
+		} else {
+			data = chunks.get((int) (blockOffsets[block] >>> CHUNK_SHIFT));
+			decodeOffset = (int) (blockOffsets[block] & (CHUNK_SIZE - 1));
+			count = BLOCK_SIZE;
+		}
+
+		id = readSignedVarint(data);
+		longitude = readSignedVarint(data);
+		latitude = readSignedVarint(data);
+		decodedIds[0] = id;
+		decodedLongitudes[0] = (int) longitude;
+		decodedLatitudes[0] = (int) latitude;
+
+		for (int i = 1; i < count; i++) {
+			id += readVarint(data);
+			longitude += readSignedVarint(data);
+			latitude += readSignedVarint(data);
+			decodedIds[i] = id;
+			decodedLongitudes[i] = (int) longitude;
+			decodedLatitudes[i] = (int) latitude;
+		}
+
+		decodedBlock = block;
+		decodedCount = count;
+	}
+
+
+	/**
+	 * Finds the specified node, decoding its block if necessary.
+	 *
+	 * @return The index of the node within the decoded block, or -1 if the
+	 *         node doesn't exist.
+	 */
+	private int find(long nodeId) {
+		int block;
+		int index;
+
+		if (decodedBlock < 0 || nodeId < decodedIds[0] || nodeId > decodedIds[decodedCount - 1]) {
+			if (openBlockCount > 0 && nodeId >= openBlockFirstId) {
+				block = blockCount;
+			} else {
+				block = Arrays.binarySearch(blockFirstIds, 0, blockCount, nodeId);
+				if (block < 0) {
+					// Use the block preceding the insertion point.
+					block = -block - 2;
+				}
+				if (block < 0) {
+					return -1;
+				}
+			}
+
+			if (block != decodedBlock) {
+				decodeBlock(block);
+			}
+		}
+
+		index = Arrays.binarySearch(decodedIds, 0, decodedCount, nodeId);
+		if (index < 0) {
+			return -1;
+		}
+
+		return index;
+	}
+
+
+	/**
+	 * Indicates if the index contains a location for the specified node.
+	 *
+	 * @param nodeId
+	 *            The node identifier.
+	 * @return True if the node location is available.
+	 */
+	public boolean contains(long nodeId) {
+		return find(nodeId) >= 0;
+	}
+
+
+	/**
+	 * Gets the longitude of the specified node.
+	 *
+	 * @param nodeId
+	 *            The node identifier.
+	 * @return The longitude.
+	 */
+	public double getLongitude(long nodeId) {
+		int index = find(nodeId);
+
+		if (index < 0) {
+			throw new OsmosisRuntimeException("Node " + nodeId + " does not exist in the index.");
+		}
+
+		return FixedPrecisionCoordinateConvertor.convertToDouble(decodedLongitudes[index]);
+	}
+
+
+	/**
+	 * Gets the latitude of the specified node.
+	 *
+	 * @param nodeId
+	 *            The node identifier.
+	 * @return The latitude.
+	 */
+	public double getLatitude(long nodeId) {
+		int index = find(nodeId);
+
+		if (index < 0) {
+			throw new OsmosisRuntimeException("Node " + nodeId + " does not exist in the index.");
+		}
+
+		return FixedPrecisionCoordinateConvertor.convertToDouble(decodedLatitudes[index]);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		chunks.clear();
+		chunkOffset = CHUNK_SIZE;
+		blockCount = 0;
+		openBlockLength = 0;
+		openBlockCount = 0;
+		decodedBlock = -1;
+	}
+}
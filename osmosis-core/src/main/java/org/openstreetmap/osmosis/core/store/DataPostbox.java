@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -74,6 +75,11 @@ import org.openstreetmap.osmosis.core.task.v0_6.Initializable;
  * output methods must be called an equal number of times or deadlock will
  * occur. Re-use may occur after input or output threads fail, however in all
  * cases calls to release and outputRelease must be matched.
+ * </p>
+ * <p>
+ * The time each thread spends blocked waiting for the other to add or remove
+ * data is recorded, along with the number of objects waiting to be consumed,
+ * so that pipeline bottlenecks can be identified.
  * 
  * @param <T>
  *            The type of data held in the postbox.
@@ -97,6 +103,9 @@ public class DataPostbox<T> implements Initializable {
 	private boolean outputExit;
 	private boolean inputOkay;
 	private boolean outputOkay;
+	private volatile int centralQueueSize;
+	private AtomicLong inputBlockedNanos;
+	private AtomicLong outputBlockedNanos;
 
 
 	/**
@@ -139,6 +148,9 @@ public class DataPostbox<T> implements Initializable {
 		inputOkay = true;
 		outputOkay = true;
 
+		inputBlockedNanos = new AtomicLong();
+		outputBlockedNanos = new AtomicLong();
+
 		// Create the inter-thread data transfer queues.
 		initializeQueues();
 	}
@@ -149,6 +161,7 @@ public class DataPostbox<T> implements Initializable {
 		centralQueue = new ArrayList<T>();
 		inboundQueue = new ArrayList<T>();
 		outboundQueue = new ArrayDeque<T>();
+		centralQueueSize = 0;
 	}
 
 
@@ -213,14 +226,21 @@ public class DataPostbox<T> implements Initializable {
 			checkForOutputErrors();
 
 			// Wait until the currently posted data is cleared.
-			while (centralQueue.size() >= bufferCapacity) {
-				waitForUpdate();
-				checkForOutputErrors();
+			if (centralQueue.size() >= bufferCapacity) {
+				long waitStart = System.nanoTime();
+
+				while (centralQueue.size() >= bufferCapacity) {
+					waitForUpdate();
+					checkForOutputErrors();
+				}
+
+				addInputBlockedTime(System.nanoTime() - waitStart);
 			}
 
 			// Post the new data.
 			centralQueue.addAll(inboundQueue);
 			inboundQueue.clear();
+			centralQueueSize = centralQueue.size();
 			signalUpdate();
 
 		} finally {
@@ -239,13 +259,20 @@ public class DataPostbox<T> implements Initializable {
 			checkForInputErrors();
 
 			// Wait until data is available.
-			while (!((centralQueue.size() > 0) || inputComplete)) {
-				waitForUpdate();
-				checkForInputErrors();
+			if (!((centralQueue.size() > 0) || inputComplete)) {
+				long waitStart = System.nanoTime();
+
+				while (!((centralQueue.size() > 0) || inputComplete)) {
+					waitForUpdate();
+					checkForInputErrors();
+				}
+
+				addOutputBlockedTime(System.nanoTime() - waitStart);
 			}
 
 			outboundQueue.addAll(centralQueue);
 			centralQueue.clear();
+			centralQueueSize = 0;
 
 			signalUpdate();
 
@@ -255,6 +282,78 @@ public class DataPostbox<T> implements Initializable {
 	}
 
 
+	/**
+	 * Records time the input thread spent waiting for the output thread to
+	 * consume data.
+	 * 
+	 * @param nanos
+	 *            The time spent waiting in nanoseconds.
+	 */
+	protected void addInputBlockedTime(long nanos) {
+		inputBlockedNanos.addAndGet(nanos);
+	}
+
+
+	/**
+	 * Records time the output thread spent waiting for the input thread to
+	 * provide data.
+	 * 
+	 * @param nanos
+	 *            The time spent waiting in nanoseconds.
+	 */
+	protected void addOutputBlockedTime(long nanos) {
+		outputBlockedNanos.addAndGet(nanos);
+	}
+
+
+	/**
+	 * Returns the total time the input thread has spent blocked in put calls
+	 * waiting for the output thread to consume data. A large value indicates
+	 * that processing after the postbox is slower than processing before it.
+	 * 
+	 * @return The blocked time in nanoseconds.
+	 */
+	public long getInputBlockedNanos() {
+		return inputBlockedNanos.get();
+	}
+
+
+	/**
+	 * Returns the total time the output thread has spent blocked in hasNext
+	 * calls waiting for the input thread to provide data. A large value
+	 * indicates that processing before the postbox is slower than processing
+	 * after it.
+	 * 
+	 * @return The blocked time in nanoseconds.
+	 */
+	public long getOutputBlockedNanos() {
+		return outputBlockedNanos.get();
+	}
+
+
+	/**
+	 * Returns the number of objects passed to the output thread but not yet
+	 * retrieved by it. This may be called from any thread, the result is
+	 * approximate because both threads continue to modify the postbox.
+	 * 
+	 * @return The number of objects.
+	 */
+	public int getSize() {
+		return centralQueueSize;
+	}
+
+
+	/**
+	 * Returns the maximum number of objects held in the postbox before the
+	 * input thread blocks.
+	 * 
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return bufferCapacity;
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,41 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Creates DataPostbox implementation instances depending on the requested
+ * postbox type.
+ */
+public final class DataPostboxFactory {
+	
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private DataPostboxFactory() {
+	}
+	
+	
+	/**
+	 * Creates the requested postbox type.
+	 * 
+	 * @param <T>
+	 *            The type of data held in the postbox.
+	 * @param postboxType
+	 *            The type of postbox to instantiate.
+	 * @param capacity
+	 *            The maximum number of objects to hold in the postbox before
+	 *            blocking.
+	 * @return The new postbox.
+	 */
+	public static <T> DataPostbox<T> createInstance(DataPostboxType postboxType, int capacity) {
+		if (DataPostboxType.Locking.equals(postboxType)) {
+			return new DataPostbox<T>(capacity);
+		} else if (DataPostboxType.RingBuffer.equals(postboxType)) {
+			return new RingBufferDataPostbox<T>(capacity);
+		} else {
+			throw new OsmosisRuntimeException("The DataPostboxType " + postboxType + " is not recognised.");
+		}
+	}
+}
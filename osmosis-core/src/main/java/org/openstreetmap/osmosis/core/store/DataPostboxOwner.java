@@ -0,0 +1,20 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.List;
+
+
+/**
+ * Implemented by tasks that pass data between threads using postboxes. This
+ * allows the pipeline to report how full the postboxes are and how long
+ * threads spend waiting on them.
+ */
+public interface DataPostboxOwner {
+
+	/**
+	 * Returns the postboxes used by the task.
+	 * 
+	 * @return The postboxes.
+	 */
+	List<DataPostbox<?>> getPostboxes();
+}
@@ -0,0 +1,21 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+/**
+ * Defines the different data postbox implementations available.
+ */
+public enum DataPostboxType {
+	/**
+	 * The locking implementation transfers chunks of objects between threads
+	 * using a lock and condition. Waiting threads are suspended immediately so
+	 * it uses the least CPU.
+	 */
+	Locking,
+	/**
+	 * The ring buffer implementation transfers objects between threads through
+	 * a lock-free ring buffer. Waiting threads spin briefly before parking.
+	 * This has lower overhead per object when both threads are busy, at the
+	 * cost of some CPU usage while waiting.
+	 */
+	RingBuffer
+}
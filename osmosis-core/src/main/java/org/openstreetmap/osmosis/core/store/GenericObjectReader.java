@@ -1,6 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.store;
 
+import java.util.Collections;
+import java.util.Map;
+
 
 /**
  * Provides functionality to deserialise a Storeable implementation from a
@@ -10,8 +13,12 @@ package org.openstreetmap.osmosis.core.store;
  */
 public class GenericObjectReader extends BaseObjectReader {
 	
+	private Map<Class<?>, StoreableFactory<?>> storeableFactories;
+	
+	
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance. All objects are created using the storeable
+	 * constructor of their class.
 	 * 
 	 * @param storeReader
 	 *            The store writer to read all serialised data from.
@@ -19,7 +26,26 @@ public class GenericObjectReader extends BaseObjectReader {
 	 *            The register for class to identifier mappings.
 	 */
 	public GenericObjectReader(StoreReader storeReader, StoreClassRegister storeClassRegister) {
+		this(storeReader, storeClassRegister, Collections.<Class<?>, StoreableFactory<?>>emptyMap());
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param storeReader
+	 *            The store writer to read all serialised data from.
+	 * @param storeClassRegister
+	 *            The register for class to identifier mappings.
+	 * @param storeableFactories
+	 *            The factories for creating objects of known classes. Other
+	 *            classes are created using their storeable constructor.
+	 */
+	public GenericObjectReader(StoreReader storeReader, StoreClassRegister storeClassRegister,
+			Map<Class<?>, StoreableFactory<?>> storeableFactories) {
 		super(storeReader, storeClassRegister);
+		
+		this.storeableFactories = storeableFactories;
 	}
 	
 	
@@ -30,4 +56,13 @@ public class GenericObjectReader extends BaseObjectReader {
 	protected Class<?> readClassFromIdentifier(StoreReader sr, StoreClassRegister scr) {
 		return scr.getClassFromIdentifier(sr);
 	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected StoreableFactory<?> getStoreableFactory(Class<?> clazz) {
+		return storeableFactories.get(clazz);
+	}
 }
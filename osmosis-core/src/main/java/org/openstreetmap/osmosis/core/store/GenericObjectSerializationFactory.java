@@ -1,22 +1,54 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.store;
 
+import java.util.HashMap;
+import java.util.Map;
+
 
 /**
  * An object reader and writer factory providing generic object serialisation
  * capabilities capable of storing and loading any Storeable class
- * implementations.
+ * implementations. Classes with a registered factory are loaded without
+ * reflection.
  * 
  * @author Brett Henderson
  */
 public class GenericObjectSerializationFactory implements ObjectSerializationFactory {
 	
+	private Map<Class<?>, StoreableFactory<?>> storeableFactories;
+	
+	
+	/**
+	 * Creates a new instance.
+	 */
+	public GenericObjectSerializationFactory() {
+		storeableFactories = new HashMap<Class<?>, StoreableFactory<?>>();
+	}
+	
+	
+	/**
+	 * Registers the factory used to create objects of a class. Factories must
+	 * be registered before any readers are created.
+	 * 
+	 * @param <T>
+	 *            The class type.
+	 * @param storeableType
+	 *            The class type.
+	 * @param storeableFactory
+	 *            The factory creating objects of the class type.
+	 */
+	public <T extends Storeable> void registerStoreableFactory(
+			Class<T> storeableType, StoreableFactory<T> storeableFactory) {
+		storeableFactories.put(storeableType, storeableFactory);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public ObjectReader createObjectReader(StoreReader storeReader, StoreClassRegister storeClassRegister) {
-		return new GenericObjectReader(storeReader, storeClassRegister);
+		return new GenericObjectReader(storeReader, storeClassRegister, storeableFactories);
 	}
 	
 	
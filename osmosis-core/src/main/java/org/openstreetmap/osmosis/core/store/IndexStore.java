@@ -201,6 +201,7 @@ public class IndexStore<K, T extends IndexElement<K>> implements Completable {
 							indexStore.add(sortIterator.next());
 						}
 					}
+					indexStore.complete();
 					
 				}
 			}
@@ -5,8 +5,11 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.util.LruCache;
 
 
 /**
@@ -15,6 +18,12 @@ import org.openstreetmap.osmosis.core.lifecycle.Closeable;
  * heavyweight resources such as file handles used to access the store
  * eliminating the need for objects such as object iterators to be cleaned up
  * explicitly.
+ * <p>
+ * The first key of each page of elements is loaded the first time a search
+ * visits the page and is then held in memory, and recently used pages are
+ * cached. Keys near the top of the search are shared by all lookups, so after
+ * a few lookups most searches only read the page containing the key. Nothing
+ * is read when the reader is opened.
  * 
  * @param <K>
  *            The index key type.
@@ -23,14 +32,29 @@ import org.openstreetmap.osmosis.core.lifecycle.Closeable;
  * @author Brett Henderson
  */
 public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable {
+	/**
+	 * The number of index elements in each page. The first key of each page is
+	 * held in memory once loaded, and pages are loaded from disk as a unit.
+	 */
+	private static final int PAGE_SIZE = 256;
+	/**
+	 * Fence keys are held in blocks covering this many consecutive pages, and
+	 * blocks are only allocated once one of their keys is loaded.
+	 */
+	private static final int FENCE_BLOCK_SIZE = 256;
+	/**
+	 * The maximum number of pages held in the page cache.
+	 */
+	private static final int PAGE_CACHE_SIZE = 128;
+	
 	private RandomAccessObjectStoreReader<T> indexStoreReader;
 	private Comparator<K> ordering;
 	private boolean elementDetailsInitialized;
 	private long elementCount;
 	private long elementSize;
-	private long binarySearchElementCount;
-	private int binarySearchDepth;
-	private List<ComparisonElement<K>> binarySearchCache;
+	private int pageCount;
+	private Object[][] fenceKeyBlocks;
+	private Map<Integer, List<T>> pageCache;
 	
 	
 	/**
@@ -47,15 +71,17 @@ public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable
 		this.ordering = ordering;
 		
 		elementDetailsInitialized = false;
+		pageCache = new LruCache<Integer, List<T>>(PAGE_CACHE_SIZE);
 	}
 	
 	
 	/**
-	 * Initialises the element count and element size required for performing
-	 * binary searches within the index.
+	 * Initialises the element count and element size required for searching
+	 * within the index. Fence keys are loaded as they are needed.
 	 */
 	private void initializeElementDetails() {
 		long dataLength;
+		long totalPages;
 		
 		dataLength = indexStoreReader.length();
 		
@@ -68,22 +94,95 @@ public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable
 			elementCount = dataLength / elementSize;
 		}
 		
-		// Determine how many levels of a binary tree must be traversed to reach a result.
-		binarySearchDepth = 0;
-		binarySearchElementCount = 1;
-		// Must add 1 here because we search from offset -1 to elementCount
-		while (binarySearchElementCount < (elementCount + 1)) {
-			binarySearchDepth++;
-			binarySearchElementCount *= 2;
+		totalPages = (elementCount + PAGE_SIZE - 1) / PAGE_SIZE;
+		if (totalPages > Integer.MAX_VALUE) {
+			throw new OsmosisRuntimeException("Index contains too many elements (" + elementCount + ").");
 		}
+		pageCount = (int) totalPages;
+		fenceKeyBlocks = new Object[(pageCount + FENCE_BLOCK_SIZE - 1) / FENCE_BLOCK_SIZE][];
+		
+		elementDetailsInitialized = true;
+	}
+	
+	
+	/**
+	 * Records the first key of a page.
+	 * 
+	 * @param page
+	 *            The page number.
+	 * @param key
+	 *            The first key of the page.
+	 */
+	private void putFenceKey(int page, K key) {
+		Object[] block;
 		
-		// Initialise the binary search cache.
-		binarySearchCache = new ArrayList<ComparisonElement<K>>(binarySearchDepth);
-		for (int i = 0; i < binarySearchDepth; i++) {
-			binarySearchCache.add(null);
+		block = fenceKeyBlocks[page / FENCE_BLOCK_SIZE];
+		if (block == null) {
+			block = new Object[FENCE_BLOCK_SIZE];
+			fenceKeyBlocks[page / FENCE_BLOCK_SIZE] = block;
 		}
 		
-		elementDetailsInitialized = true;
+		block[page % FENCE_BLOCK_SIZE] = key;
+	}
+	
+	
+	/**
+	 * Returns the first key of a page, reading it from the index if it hasn't
+	 * been loaded yet.
+	 * 
+	 * @param page
+	 *            The page number.
+	 * @return The first key of the page.
+	 */
+	@SuppressWarnings("unchecked")
+	private K getFenceKey(int page) {
+		Object[] block;
+		K key;
+		
+		block = fenceKeyBlocks[page / FENCE_BLOCK_SIZE];
+		if (block != null && block[page % FENCE_BLOCK_SIZE] != null) {
+			return (K) block[page % FENCE_BLOCK_SIZE];
+		}
+		
+		key = indexStoreReader.get((long) page * PAGE_SIZE * elementSize).getKey();
+		putFenceKey(page, key);
+		
+		return key;
+	}
+	
+	
+	/**
+	 * Returns the elements in the specified page, loading them from the index
+	 * if they aren't already cached.
+	 * 
+	 * @param page
+	 *            The page number.
+	 * @return The page elements.
+	 */
+	private List<T> getPage(int page) {
+		List<T> elements;
+		
+		elements = pageCache.get(page);
+		
+		if (elements == null) {
+			long pageBegin;
+			int pageLength;
+			Iterator<T> pageIterator;
+			
+			pageBegin = (long) page * PAGE_SIZE;
+			pageLength = (int) Math.min(PAGE_SIZE, elementCount - pageBegin);
+			
+			pageIterator = indexStoreReader.iterate(pageBegin * elementSize);
+			elements = new ArrayList<T>(pageLength);
+			for (int i = 0; i < pageLength; i++) {
+				elements.add(pageIterator.next());
+			}
+			
+			pageCache.put(page, elements);
+			putFenceKey(page, elements.get(0).getKey());
+		}
+		
+		return elements;
 	}
 	
 	
@@ -96,76 +195,52 @@ public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable
 	 * @return The matching index.
 	 */
 	private long getKeyIndex(K searchKey) {
-		long intervalBegin;
-		long intervalEnd;
-		int currentSearchDepth;
-		boolean useCache;
-		boolean higherThanPrevious;
+		int intervalBegin;
+		int intervalEnd;
+		int page;
+		List<T> elements;
 		
 		// The element details must be initialised before searching.
 		if (!elementDetailsInitialized) {
 			initializeElementDetails();
 		}
 		
-		intervalBegin = -1;
-		intervalEnd = binarySearchElementCount;
-		currentSearchDepth = 0;
-		useCache = true;
-		higherThanPrevious = true;
-		while ((intervalBegin + 1) < intervalEnd) {
-			long intervalMid;
-			
-			// Calculate the mid point of the current interval.
-			intervalMid = (intervalBegin + intervalEnd) / 2;
+		if (elementCount == 0) {
+			return 0;
+		}
+		
+		// Find the number of pages beginning with a key lower than the search
+		// key. The first matching element is in the last of those pages, or is
+		// the first element of the next page.
+		intervalBegin = 0;
+		intervalEnd = pageCount;
+		while (intervalBegin < intervalEnd) {
+			int intervalMid = (intervalBegin + intervalEnd) >>> 1;
 			
-			// We can only perform a comparison if the mid point of the current
-			// search interval is within the data set.
-			if (intervalMid < elementCount) {
-				K intervalMidKey = null;
-				ComparisonElement<K> searchElement;
-				boolean comparisonHigher;
-				
-				// Attempt to retrieve the key for the mid point from the search
-				// cache.
-				if (useCache) {
-					searchElement = binarySearchCache.get(currentSearchDepth);
-					
-					if (searchElement != null && searchElement.getIndexOffset() == intervalMid) {
-						intervalMidKey = searchElement.getKey();
-					} else {
-						useCache = false;
-					}
-				}
-				
-				// If the value couldn't be retrieved from cache, load it from
-				// the underlying dataset.
-				if (!useCache) {
-					intervalMidKey = indexStoreReader.get(intervalMid * elementSize).getKey();
-				}
-				
-				// Compare the current key for equality with the desired key.
-				comparisonHigher = ordering.compare(searchKey, intervalMidKey) > 0;
-				
-				if (!useCache) {
-					binarySearchCache.set(currentSearchDepth, new ComparisonElement<K>(intervalMid, intervalMidKey));
-				}
-				
-				higherThanPrevious = comparisonHigher;
-				
+			if (ordering.compare(getFenceKey(intervalMid), searchKey) < 0) {
+				intervalBegin = intervalMid + 1;
 			} else {
-				higherThanPrevious = false;
+				intervalEnd = intervalMid;
 			}
+		}
+		page = Math.max(0, intervalBegin - 1);
+		
+		// Search within the page for the first element not lower than the
+		// search key.
+		elements = getPage(page);
+		intervalBegin = 0;
+		intervalEnd = elements.size();
+		while (intervalBegin < intervalEnd) {
+			int intervalMid = (intervalBegin + intervalEnd) >>> 1;
 			
-			// Update binary search attributes based on recent comparison.
-			currentSearchDepth++;
-			if (higherThanPrevious) {
-				intervalBegin = intervalMid;
+			if (ordering.compare(elements.get(intervalMid).getKey(), searchKey) < 0) {
+				intervalBegin = intervalMid + 1;
 			} else {
 				intervalEnd = intervalMid;
 			}
 		}
 		
-		return intervalEnd;
+		return (long) page * PAGE_SIZE + intervalBegin;
 	}
 	
 	
@@ -186,7 +261,7 @@ public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable
 			T element;
 			K locatedKey;
 			
-			element = indexStoreReader.get(keyIndex * elementSize);
+			element = getPage((int) (keyIndex / PAGE_SIZE)).get((int) (keyIndex % PAGE_SIZE));
 			locatedKey = element.getKey();
 			
 			if (ordering.compare(key, locatedKey) == 0) {
@@ -233,50 +308,4 @@ public class IndexStoreReader<K, T extends IndexElement<K>> implements Closeable
 	public void close() {
 		indexStoreReader.close();
 	}
-	
-	
-	/**
-	 * Maintains the state associated with a single index search comparison. The
-	 * complete path to the previously searched element is maintained using a
-	 * list of these elements between searches, improving performance for
-	 * searches on keys that are closely located.
-	 */
-	private static class ComparisonElement<K> {
-		private long indexOffset;
-		private K key;
-		
-		
-		/**
-		 * Creates a new instance.
-		 * 
-		 * @param indexOffset
-		 *            The offset of the current key within the index.
-		 * @param key
-		 *            The key of the index element compared against.
-		 */
-		ComparisonElement(long indexOffset, K key) {
-			this.indexOffset = indexOffset;
-			this.key = key;
-		}
-		
-		
-		/**
-		 * Returns the index offset this key is located at.
-		 * 
-		 * @return The offset of the key within the index.
-		 */
-		public long getIndexOffset() {
-			return indexOffset;
-		}
-		
-		
-		/**
-		 * Returns the key associated with this comparison.
-		 * 
-		 * @return The comparison key.
-		 */
-		public K getKey() {
-			return key;
-		}
-	}
 }
@@ -27,7 +27,7 @@ public class IndexedObjectStore<T extends Storeable> implements Completable {
 	 *            The prefix of the storage file.
 	 */
 	public IndexedObjectStore(ObjectSerializationFactory serializationFactory, String tmpFilePrefix) {
-		objectStore = new RandomAccessObjectStore<T>(serializationFactory, tmpFilePrefix + "d");
+		objectStore = new RandomAccessObjectStore<T>(serializationFactory, tmpFilePrefix + "d", true);
 		
 		indexStore = new IndexStore<Long, LongLongIndexElement>(
 			LongLongIndexElement.class,
@@ -49,7 +49,7 @@ public class IndexedObjectStore<T extends Storeable> implements Completable {
 	 */
 	public IndexedObjectStore(
 			ObjectSerializationFactory serializationFactory, File objectStorageFile, File indexStorageFile) {
-		objectStore = new RandomAccessObjectStore<T>(serializationFactory, objectStorageFile);
+		objectStore = new RandomAccessObjectStore<T>(serializationFactory, objectStorageFile, true);
 		indexStore = new IndexStore<Long, LongLongIndexElement>(
 			LongLongIndexElement.class,
 			new ComparableComparator<Long>(),
@@ -85,9 +85,27 @@ public class IndexedObjectStore<T extends Storeable> implements Completable {
 	 * @return A store reader.
 	 */
 	public IndexedObjectStoreReader<T> createReader() {
+		return createReader(false, 0);
+	}
+	
+	
+	/**
+	 * Creates a new reader capable of accessing the contents of this store. The
+	 * reader must be explicitly released when no longer required. Readers must
+	 * be released prior to this store.
+	 * 
+	 * @param useMemoryMapping
+	 *            If true, the object file is read through memory mappings.
+	 * @param objectCacheSize
+	 *            The number of recently read objects the reader will retain,
+	 *            or zero to disable caching. Objects returned by a caching
+	 *            reader are shared between calls and must not be modified.
+	 * @return A store reader.
+	 */
+	public IndexedObjectStoreReader<T> createReader(boolean useMemoryMapping, int objectCacheSize) {
 		RandomAccessObjectStoreReader<T> objectStoreReader = null;
 		
-		objectStoreReader = objectStore.createReader();
+		objectStoreReader = objectStore.createReader(useMemoryMapping, objectCacheSize);
 		
 		try {
 			IndexStoreReader<Long, LongLongIndexElement> indexStoreReader;
@@ -0,0 +1,184 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+
+/**
+ * Reads a file through read-only memory mappings. Seeking only updates the
+ * read position, so randomly accessing data that is already in the operating
+ * system page cache requires no system calls or copying into intermediate
+ * buffers. The file must not change length while it is being read.
+ */
+public class MappedFileInputStream extends RandomAccessInputStream {
+	
+	/**
+	 * Files are mapped in segments because a single mapping is limited to
+	 * 2GB.
+	 */
+	private static final int SEGMENT_SHIFT = 30;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+	
+	private RandomAccessFile randomFile;
+	private MappedByteBuffer[] segments;
+	private long length;
+	private long position;
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param file
+	 *            The file to be read.
+	 * @throws IOException
+	 *             if the file cannot be opened or mapped.
+	 */
+	public MappedFileInputStream(File file) throws IOException {
+		randomFile = new RandomAccessFile(file, "r");
+		
+		try {
+			FileChannel channel;
+			int segmentCount;
+			
+			channel = randomFile.getChannel();
+			length = channel.size();
+			
+			segmentCount = (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+			segments = new MappedByteBuffer[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				long segmentBegin = ((long) i) << SEGMENT_SHIFT;
+				long segmentLength = Math.min(SEGMENT_SIZE, length - segmentBegin);
+				
+				segments[i] = channel.map(MapMode.READ_ONLY, segmentBegin, segmentLength);
+			}
+			
+		} catch (IOException e) {
+			randomFile.close();
+			throw e;
+		}
+		
+		position = 0;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		int value;
+		
+		if (position >= length) {
+			return -1;
+		}
+		
+		value = segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK)) & 0xFF;
+		position++;
+		
+		return value;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		MappedByteBuffer segment;
+		int segmentOffset;
+		int count;
+		
+		if (len == 0) {
+			return 0;
+		}
+		if (position >= length) {
+			return -1;
+		}
+		
+		// Reads don't cross segment boundaries, callers requiring more data
+		// will read again.
+		segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+		segmentOffset = (int) (position & SEGMENT_MASK);
+		count = Math.min(len, segment.limit() - segmentOffset);
+		
+		segment.position(segmentOffset);
+		segment.get(b, off, count);
+		position += count;
+		
+		return count;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long skip(long n) {
+		long count;
+		
+		count = Math.max(0, Math.min(n, length - position));
+		position += count;
+		
+		return count;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int available() {
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(0, length - position));
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void seek(long pos) throws IOException {
+		if (pos < 0) {
+			throw new IOException("Cannot seek to negative position " + pos + ".");
+		}
+		
+		position = pos;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long length() {
+		return length;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long position() {
+		return position;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		// The mappings are only released once the buffers are garbage
+		// collected, but on most platforms the file can still be deleted.
+		segments = new MappedByteBuffer[0];
+		length = 0;
+		
+		randomFile.close();
+	}
+}
@@ -0,0 +1,247 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
+
+
+/**
+ * Stores node locations in a temporary file indexed directly by node id. The
+ * file is memory mapped in large pages, so once the operating system has cached
+ * the file a lookup is just a memory read, and the data doesn't consume JVM
+ * heap. Regions of the file holding no nodes are never written, so on file
+ * systems supporting sparse files they consume no disk space.
+ * <p>
+ * Each node occupies eight bytes holding the longitude and latitude in fixed
+ * precision form. The latitude is biased so that it is never zero, which allows
+ * unwritten (zero-filled) slots to be recognised as missing.
+ */
+public class MappedNodeLocationIndex implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(MappedNodeLocationIndex.class.getName());
+
+	private static final int NODE_DATA_SIZE = 8;
+	/**
+	 * Each page is 64MB, holding 8M nodes.
+	 */
+	private static final int PAGE_SHIFT = 26;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int LATITUDE_BIAS = 1 << 30;
+
+	private File storageDirectory;
+	private File file;
+	private RandomAccessFile randomAccessFile;
+	private FileChannel channel;
+	private MappedByteBuffer[] pages;
+	private long maxNodeId;
+
+
+	/**
+	 * Creates a new instance using the default temporary directory.
+	 */
+	public MappedNodeLocationIndex() {
+		this(null);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param storageDirectory
+	 *            The directory to create the index file in, or null to use the
+	 *            default temporary directory.
+	 */
+	public MappedNodeLocationIndex(File storageDirectory) {
+		this.storageDirectory = storageDirectory;
+
+		pages = new MappedByteBuffer[0];
+		maxNodeId = -1;
+	}
+
+
+	private void initialize() {
+		try {
+			file = File.createTempFile("nodeloc", null, storageDirectory);
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			channel = randomAccessFile.getChannel();
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to create node location index file " + file + ".", e);
+		}
+	}
+
+
+	/**
+	 * Gets the page holding the specified node, mapping it if necessary.
+	 * Mapping a page beyond the end of the file extends the file without
+	 * writing to it.
+	 */
+	private MappedByteBuffer getPage(int pageIndex) {
+		MappedByteBuffer page;
+
+		if (pageIndex >= pages.length) {
+			pages = Arrays.copyOf(pages, Math.max(pageIndex + 1, pages.length * 2));
+		}
+
+		page = pages[pageIndex];
+		if (page == null) {
+			try {
+				page = channel.map(MapMode.READ_WRITE, ((long) pageIndex) << PAGE_SHIFT, PAGE_SIZE);
+			} catch (IOException e) {
+				throw new OsmosisRuntimeException("Unable to map page " + pageIndex + " of node location index file "
+						+ file + ".", e);
+			}
+			pages[pageIndex] = page;
+		}
+
+		return page;
+	}
+
+
+	/**
+	 * Adds a node location to the index, replacing any existing location for
+	 * the node.
+	 *
+	 * @param nodeId
+	 *            The node identifier. Must not be negative.
+	 * @param longitude
+	 *            The longitude of the node.
+	 * @param latitude
+	 *            The latitude of the node.
+	 */
+	public void put(long nodeId, double longitude, double latitude) {
+		long offset;
+		MappedByteBuffer page;
+		int pageOffset;
+
+		if (nodeId < 0) {
+			throw new OsmosisRuntimeException("Node id " + nodeId + " is negative and cannot be indexed.");
+		}
+		if (channel == null) {
+			initialize();
+		}
+
+		offset = nodeId * NODE_DATA_SIZE;
+		page = getPage((int) (offset >>> PAGE_SHIFT));
+		pageOffset = (int) (offset & (PAGE_SIZE - 1));
+
+		page.putInt(pageOffset, FixedPrecisionCoordinateConvertor.convertToFixed(longitude));
+		page.putInt(pageOffset + 4, FixedPrecisionCoordinateConvertor.convertToFixed(latitude) + LATITUDE_BIAS);
+
+		if (nodeId > maxNodeId) {
+			maxNodeId = nodeId;
+		}
+	}
+
+
+	/**
+	 * Gets the slot offset within its page for the specified node, or -1 if
+	 * the node can't be in the index.
+	 */
+	private int getPageOffset(long nodeId) {
+		int pageOffset;
+
+		if (nodeId < 0 || nodeId > maxNodeId) {
+			return -1;
+		}
+
+		pageOffset = (int) ((nodeId * NODE_DATA_SIZE) & (PAGE_SIZE - 1));
+		if (getPage((int) ((nodeId * NODE_DATA_SIZE) >>> PAGE_SHIFT)).getInt(pageOffset + 4) == 0) {
+			return -1;
+		}
+
+		return pageOffset;
+	}
+
+
+	/**
+	 * Indicates if the index contains a location for the specified node.
+	 *
+	 * @param nodeId
+	 *            The node identifier.
+	 * @return True if the node location is available.
+	 */
+	public boolean contains(long nodeId) {
+		return getPageOffset(nodeId) >= 0;
+	}
+
+
+	/**
+	 * Gets the longitude of the specified node.
+	 *
+	 * @param nodeId
+	 *            The node identifier.
+	 * @return The longitude.
+	 */
+	public double getLongitude(long nodeId) {
+		int pageOffset = getPageOffset(nodeId);
+
+		if (pageOffset < 0) {
+			throw new OsmosisRuntimeException("Node " + nodeId + " does not exist in the index.");
+		}
+
+		return FixedPrecisionCoordinateConvertor.convertToDouble(
+				pages[(int) ((nodeId * NODE_DATA_SIZE) >>> PAGE_SHIFT)].getInt(pageOffset));
+	}
+
+
+	/**
+	 * Gets the latitude of the specified node.
+	 *
+	 * @param nodeId
+	 *            The node identifier.
+	 * @return The latitude.
+	 */
+	public double getLatitude(long nodeId) {
+		int pageOffset = getPageOffset(nodeId);
+
+		if (pageOffset < 0) {
+			throw new OsmosisRuntimeException("Node " + nodeId + " does not exist in the index.");
+		}
+
+		return FixedPrecisionCoordinateConvertor.convertToDouble(
+				pages[(int) ((nodeId * NODE_DATA_SIZE) >>> PAGE_SHIFT)].getInt(pageOffset + 4) - LATITUDE_BIAS);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// The mappings are only released once the buffers are garbage
+		// collected, but on most platforms the file can still be deleted.
+		pages = new MappedByteBuffer[0];
+		maxNodeId = -1;
+
+		if (randomAccessFile != null) {
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+				// We cannot throw an exception within a release method.
+				LOG.log(Level.WARNING, "Unable to close node location index file " + file + ".", e);
+			}
+			randomAccessFile = null;
+			channel = null;
+		}
+
+		if (file != null) {
+			if (!file.delete()) {
+				// We cannot throw an exception within a release method.
+				LOG.warning("Unable to delete file " + file);
+			}
+			file = null;
+		}
+	}
+}
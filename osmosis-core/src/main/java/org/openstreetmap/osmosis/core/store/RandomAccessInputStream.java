@@ -0,0 +1,42 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * An input stream over a file that allows the read position to be moved.
+ */
+public abstract class RandomAccessInputStream extends InputStream {
+	
+	/**
+	 * Seeks to the specified position in the file.
+	 * 
+	 * @param pos
+	 *            The position within the file to seek to.
+	 * @throws IOException
+	 *             if an error occurs during seeking.
+	 */
+	public abstract void seek(long pos) throws IOException;
+	
+	
+	/**
+	 * Returns the length of the data file.
+	 * 
+	 * @return The file length in bytes.
+	 * @throws IOException
+	 *             if an error occurs during the length operation.
+	 */
+	public abstract long length() throws IOException;
+	
+	
+	/**
+	 * Returns the current read position in the data file.
+	 * 
+	 * @return The current file offset in bytes.
+	 * @throws IOException
+	 *             if an error occurs during the position operation.
+	 */
+	public abstract long position() throws IOException;
+}
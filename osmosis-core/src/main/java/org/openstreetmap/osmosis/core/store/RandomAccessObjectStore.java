@@ -5,7 +5,6 @@ import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.logging.Level;
@@ -35,10 +34,11 @@ public class RandomAccessObjectStore<T extends Storeable> implements Completable
 	private OffsetTrackingOutputStream offsetTrackingStream;
 	private StoreClassRegister storeClassRegister;
 	private ObjectWriter objectWriter;
+	private boolean useCompactEncoding;
 	
 	
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance writing objects with a fixed width encoding.
 	 * 
 	 * @param serializationFactory
 	 *            The factory defining the object serialisation implementation.
@@ -46,8 +46,27 @@ public class RandomAccessObjectStore<T extends Storeable> implements Completable
 	 *            The prefix of the temporary file.
 	 */
 	public RandomAccessObjectStore(ObjectSerializationFactory serializationFactory, String tempFilePrefix) {
+		this(serializationFactory, tempFilePrefix, false);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param tempFilePrefix
+	 *            The prefix of the temporary file.
+	 * @param useCompactEncoding
+	 *            If true, objects are written with a variable length encoding
+	 *            using less space. This must not be used if objects are
+	 *            required to be of a fixed size.
+	 */
+	public RandomAccessObjectStore(
+			ObjectSerializationFactory serializationFactory, String tempFilePrefix, boolean useCompactEncoding) {
 		this.serializationFactory = serializationFactory;
 		this.tempFilePrefix = tempFilePrefix;
+		this.useCompactEncoding = useCompactEncoding;
 		
 		storeClassRegister = new DynamicStoreClassRegister();
 		
@@ -56,7 +75,7 @@ public class RandomAccessObjectStore<T extends Storeable> implements Completable
 	
 	
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance writing objects with a fixed width encoding.
 	 * 
 	 * @param serializationFactory
 	 *            The factory defining the object serialisation implementation.
@@ -64,8 +83,27 @@ public class RandomAccessObjectStore<T extends Storeable> implements Completable
 	 *            The storage file to use.
 	 */
 	public RandomAccessObjectStore(ObjectSerializationFactory serializationFactory, File storageFile) {
+		this(serializationFactory, storageFile, false);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param storageFile
+	 *            The storage file to use.
+	 * @param useCompactEncoding
+	 *            If true, objects are written with a variable length encoding
+	 *            using less space. This must not be used if objects are
+	 *            required to be of a fixed size.
+	 */
+	public RandomAccessObjectStore(
+			ObjectSerializationFactory serializationFactory, File storageFile, boolean useCompactEncoding) {
 		this.serializationFactory = serializationFactory;
 		this.storageFile = storageFile;
+		this.useCompactEncoding = useCompactEncoding;
 		
 		storeClassRegister = new DynamicStoreClassRegister();
 		
@@ -73,6 +111,26 @@ public class RandomAccessObjectStore<T extends Storeable> implements Completable
 	}
 	
 	
+	private StoreWriter createStoreWriter(DataOutputStream dataOutStream) {
+		if (useCompactEncoding) {
+			// A string dictionary can't be used because objects are read
+			// individually at arbitrary offsets.
+			return new CompactStoreWriter(dataOutStream, false);
+		} else {
+			return new DataOutputStoreWriter(dataOutStream);
+		}
+	}
+	
+	
+	private StoreReader createStoreReader(DataInputStream dataInStream) {
+		if (useCompactEncoding) {
+			return new CompactStoreReader(dataInStream, false);
+		} else {
+			return new DataInputStoreReader(dataInStream);
+		}
+	}
+	
+	
 	/**
 	 * Initialises the output file and configures the class for adding data.
 	 */
@@ -98,7 +156,7 @@ public class RandomAccessObjectStore<T extends Storeable> implements Completable
 				fileStream = null;
 				
 				objectWriter = serializationFactory.createObjectWriter(
-					new DataOutputStoreWriter(new DataOutputStream(offsetTrackingStream)),
+					createStoreWriter(new DataOutputStream(offsetTrackingStream)),
 					storeClassRegister
 				);
 				
@@ -178,21 +236,45 @@ public class RandomAccessObjectStore<T extends Storeable> implements Completable
 	 * @return A store reader.
 	 */
 	public RandomAccessObjectStoreReader<T> createReader() {
+		return createReader(false, 0);
+	}
+	
+	
+	/**
+	 * Creates a new reader capable of accessing the contents of this store. The
+	 * reader must be explicitly released when no longer required. Readers must
+	 * be released prior to this store.
+	 * 
+	 * @param useMemoryMapping
+	 *            If true, the store file is read through memory mappings
+	 *            instead of buffered file reads. This is faster for random
+	 *            access but consumes address space equal to the file size.
+	 * @param objectCacheSize
+	 *            The number of recently read objects the reader will retain,
+	 *            or zero to disable caching. Objects returned by a caching
+	 *            reader are shared between calls and must not be modified.
+	 * @return A store reader.
+	 */
+	public RandomAccessObjectStoreReader<T> createReader(boolean useMemoryMapping, int objectCacheSize) {
 		initializeReadingStage();
 		
 		try {
-			BufferedRandomAccessFileInputStream randomFileReader;
+			RandomAccessInputStream randomFileReader;
 			
-			randomFileReader = new BufferedRandomAccessFileInputStream(storageFile);
+			if (useMemoryMapping) {
+				randomFileReader = new MappedFileInputStream(storageFile);
+			} else {
+				randomFileReader = new BufferedRandomAccessFileInputStream(storageFile);
+			}
 			
 			return new RandomAccessObjectStoreReader<T>(
 				randomFileReader,
 				serializationFactory.createObjectReader(
-						new DataInputStoreReader(
-								new DataInputStream(randomFileReader)), storeClassRegister)
+						createStoreReader(new DataInputStream(randomFileReader)), storeClassRegister),
+				objectCacheSize
 			);
 			
-		} catch (FileNotFoundException e) {
+		} catch (IOException e) {
 			throw new OsmosisRuntimeException(
 					"Unable to create object stream reading from file " + storageFile + ".", e);
 		}
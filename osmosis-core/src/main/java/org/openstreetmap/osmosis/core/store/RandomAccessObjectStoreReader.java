@@ -3,11 +3,13 @@ package org.openstreetmap.osmosis.core.store;
 
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.util.LruCache;
 
 
 /**
@@ -24,8 +26,9 @@ import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 public class RandomAccessObjectStoreReader<T> implements Closeable {
 	private static final Logger LOG = Logger.getLogger(RandomAccessObjectStoreReader.class.getName());
 	
-	private BufferedRandomAccessFileInputStream randomFile;
+	private RandomAccessInputStream randomFile;
 	private ObjectReader objectReader;
+	private Map<Long, T> objectCache;
 	
 	
 	/**
@@ -36,9 +39,31 @@ public class RandomAccessObjectStoreReader<T> implements Closeable {
 	 * @param objectReader
 	 *            The reader containing the objects to be deserialized.
 	 */
-	public RandomAccessObjectStoreReader(BufferedRandomAccessFileInputStream randomFile, ObjectReader objectReader) {
+	public RandomAccessObjectStoreReader(RandomAccessInputStream randomFile, ObjectReader objectReader) {
+		this(randomFile, objectReader, 0);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param randomFile
+	 *            A read-only random access file opened on the store file.
+	 * @param objectReader
+	 *            The reader containing the objects to be deserialized.
+	 * @param objectCacheSize
+	 *            The number of recently read objects to retain. Objects
+	 *            returned by the get method are shared between calls and
+	 *            must not be modified if this is greater than zero.
+	 */
+	public RandomAccessObjectStoreReader(
+			RandomAccessInputStream randomFile, ObjectReader objectReader, int objectCacheSize) {
 		this.randomFile = randomFile;
 		this.objectReader = objectReader;
+		
+		if (objectCacheSize > 0) {
+			objectCache = new LruCache<Long, T>(objectCacheSize);
+		}
 	}
 	
 	
@@ -58,7 +83,8 @@ public class RandomAccessObjectStoreReader<T> implements Closeable {
 	
 	
 	/**
-	 * Reads the object at the specified file offset.
+	 * Reads the object at the specified file offset. If object caching is
+	 * enabled, the object may be returned from the cache instead.
 	 * 
 	 * @param offset
 	 *            The file offset to read an object from.
@@ -66,9 +92,24 @@ public class RandomAccessObjectStoreReader<T> implements Closeable {
 	 */
 	@SuppressWarnings("unchecked")
 	public T get(long offset) {
+		T data;
+		
+		if (objectCache != null) {
+			data = objectCache.get(offset);
+			
+			if (data != null) {
+				return data;
+			}
+		}
+		
 		seek(offset);
+		data = (T) objectReader.readObject();
+		
+		if (objectCache != null) {
+			objectCache.put(offset, data);
+		}
 		
-		return (T) objectReader.readObject();
+		return data;
 	}
 	
 	
@@ -0,0 +1,418 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * A {@link DataPostbox} that passes data between the input and output threads
+ * through a lock-free ring buffer. The initialize, complete and release
+ * handshakes still use the locking implementation because they only occur once
+ * per run, but objects are passed without acquiring a lock.
+ * <p>
+ * Each thread only publishes its position in the ring once per batch of
+ * objects which minimises cache traffic between the threads. A thread waiting
+ * for the other will spin briefly, then yield, then park for short periods so
+ * that a stalled pipeline stage doesn't consume a CPU.
+ * <p>
+ * The same single input thread and single output thread restrictions apply as
+ * for the locking implementation.
+ *
+ * @param <T>
+ *            The type of data held in the postbox.
+ */
+public class RingBufferDataPostbox<T> extends DataPostbox<T> {
+	private static final int SPIN_COUNT = 1000;
+	private static final int YIELD_COUNT = 100;
+	private static final long PARK_NANOS = 50000;
+
+	private Object[] ring;
+	private int ringMask;
+	private int batchSize;
+
+	/**
+	 * The number of objects written by the input thread as visible to the
+	 * output thread.
+	 */
+	private AtomicLong tailSequence;
+	/**
+	 * The number of objects consumed by the output thread as visible to the
+	 * input thread.
+	 */
+	private AtomicLong headSequence;
+	private volatile boolean inputDone;
+	private volatile boolean inputFailed;
+	private volatile boolean outputFailed;
+
+	// Fields only accessed by the input thread.
+	private boolean inputInitialized;
+	private long tail;
+	private long publishedTail;
+	private long cachedHead;
+
+	// Fields only accessed by the output thread.
+	private boolean outputInitialized;
+	private boolean outputCompleted;
+	private long head;
+	private long publishedHead;
+	private long cachedTail;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param capacity
+	 *            The maximum number of objects to hold in the postbox before
+	 *            blocking. This is rounded up to a power of two.
+	 */
+	public RingBufferDataPostbox(int capacity) {
+		super(capacity);
+
+		int ringSize;
+
+		ringSize = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		if (ringSize <= 0) {
+			throw new OsmosisRuntimeException("A capacity of " + capacity + " is too large.");
+		}
+
+		ring = new Object[ringSize];
+		ringMask = ringSize - 1;
+
+		// Publish positions at the same granularity as the locking
+		// implementation transfers chunks.
+		batchSize = Math.max(1, capacity / 4);
+
+		tailSequence = new AtomicLong();
+		headSequence = new AtomicLong();
+	}
+
+
+	/**
+	 * Resets the ring for a new run. This is called by the input thread before
+	 * the initialize handshake, so the output thread will see the results once
+	 * its own handshake completes.
+	 */
+	private void resetRing() {
+		Arrays.fill(ring, null);
+		tailSequence.set(0);
+		headSequence.set(0);
+		inputDone = false;
+		inputFailed = false;
+		outputFailed = false;
+
+		tail = 0;
+		publishedTail = 0;
+		cachedHead = 0;
+
+		head = 0;
+		publishedHead = 0;
+		cachedTail = 0;
+	}
+
+
+	/**
+	 * Waits for the other thread to make progress. Threads spin first because
+	 * the wait is usually very short, then back off to avoid wasting CPU.
+	 *
+	 * @param iteration
+	 *            The number of times the caller has already waited.
+	 */
+	private void idle(int iteration) {
+		if (iteration < SPIN_COUNT) {
+			return;
+		} else if (iteration < SPIN_COUNT + YIELD_COUNT) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+			if (Thread.interrupted()) {
+				throw new OsmosisRuntimeException("Thread was interrupted.");
+			}
+		}
+	}
+
+
+	private void publishTail() {
+		if (publishedTail != tail) {
+			tailSequence.lazySet(tail);
+			publishedTail = tail;
+		}
+	}
+
+
+	private void publishHead() {
+		if (publishedHead != head) {
+			headSequence.lazySet(head);
+			publishedHead = head;
+		}
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private T getElement(int index) {
+		return (T) ring[index];
+	}
+
+
+	/**
+	 * Waits until the output thread has freed a slot in the ring.
+	 */
+	private void waitForSpace() {
+		long waitStart = 0;
+
+		// The output thread may be waiting for objects we haven't published.
+		publishTail();
+
+		for (int i = 0;; i++) {
+			cachedHead = headSequence.get();
+			if (tail - cachedHead < ring.length) {
+				if (waitStart != 0) {
+					addInputBlockedTime(System.nanoTime() - waitStart);
+				}
+				return;
+			}
+			if (outputFailed) {
+				throw new OsmosisRuntimeException("An output error has occurred, aborting.");
+			}
+
+			if (i == 0) {
+				waitStart = System.nanoTime();
+			}
+			idle(i);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		// Positions are only published once per batch so this lags slightly.
+		return (int) Math.max(0, tailSequence.get() - headSequence.get());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getCapacity() {
+		// The capacity is rounded up to fill the ring.
+		return ring.length;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void initialize(Map<String, Object> metaData) {
+		if (inputInitialized) {
+			throw new OsmosisRuntimeException("initialize has already been called");
+		}
+
+		resetRing();
+
+		super.initialize(metaData);
+
+		inputInitialized = true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(T o) {
+		if (!inputInitialized) {
+			throw new OsmosisRuntimeException("initialize has not been called");
+		}
+
+		if (tail - cachedHead >= ring.length) {
+			waitForSpace();
+		}
+
+		ring[(int) tail & ringMask] = o;
+		tail++;
+
+		if (tail - publishedTail >= batchSize) {
+			publishTail();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		if (!inputInitialized) {
+			throw new OsmosisRuntimeException("initialize has not been called");
+		}
+
+		// Make all remaining objects visible before flagging completion.
+		publishTail();
+		inputDone = true;
+
+		super.complete();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// Releasing without completing is an error which the output thread
+		// must detect even if it is not waiting on the lock.
+		if (!inputDone) {
+			inputFailed = true;
+		}
+
+		inputInitialized = false;
+
+		super.close();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, Object> outputInitialize() {
+		Map<String, Object> metaData;
+
+		if (outputInitialized) {
+			throw new OsmosisRuntimeException("outputInitialize has already been called");
+		}
+
+		metaData = super.outputInitialize();
+
+		outputInitialized = true;
+		outputCompleted = false;
+
+		return metaData;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasNext() {
+		if (!outputInitialized) {
+			throw new OsmosisRuntimeException("outputInitialize has not been called");
+		}
+
+		if (head < cachedTail) {
+			return true;
+		}
+
+		// Let the input thread re-use the slots we've finished with before
+		// waiting for it.
+		publishHead();
+
+		return waitForData();
+	}
+
+
+	/**
+	 * Waits until the input thread has published more objects or completed.
+	 * 
+	 * @return True if data is available.
+	 */
+	private boolean waitForData() {
+		long waitStart = 0;
+
+		try {
+			for (int i = 0;; i++) {
+				cachedTail = tailSequence.get();
+				if (head < cachedTail) {
+					return true;
+				}
+				if (inputDone) {
+					// The final tail is published before the done flag is set.
+					cachedTail = tailSequence.get();
+					return head < cachedTail;
+				}
+				if (inputFailed) {
+					throw new OsmosisRuntimeException("An input error has occurred, aborting.");
+				}
+
+				if (i == 0) {
+					waitStart = System.nanoTime();
+				}
+				idle(i);
+			}
+
+		} finally {
+			if (waitStart != 0) {
+				addOutputBlockedTime(System.nanoTime() - waitStart);
+			}
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public T getNext() {
+		if (hasNext()) {
+			int index;
+			T result;
+
+			index = (int) head & ringMask;
+			result = getElement(index);
+			ring[index] = null;
+			head++;
+
+			if (head - publishedHead >= batchSize) {
+				publishHead();
+			}
+
+			return result;
+
+		} else {
+			throw new OsmosisRuntimeException("No data is available, should call hasNext first.");
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void outputComplete() {
+		if (!outputInitialized) {
+			throw new OsmosisRuntimeException("outputInitialize has not been called");
+		}
+
+		super.outputComplete();
+
+		outputCompleted = true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void outputRelease() {
+		// Releasing without completing is an error which the input thread
+		// must detect even if it is not waiting on the lock.
+		if (!outputCompleted) {
+			outputFailed = true;
+		}
+
+		outputInitialized = false;
+		outputCompleted = false;
+
+		super.outputRelease();
+	}
+}
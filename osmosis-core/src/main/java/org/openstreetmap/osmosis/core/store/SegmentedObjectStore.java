@@ -12,12 +12,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPOutputStream;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.lifecycle.Completable;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
-import org.openstreetmap.osmosis.core.util.MultiMemberGZIPInputStream;
 
 
 /**
@@ -49,6 +47,7 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 	private ObjectWriter objectWriter;
 	private boolean chunkActive; 
 	private boolean useCompression;
+	private StoreCompressionMethod compressionMethod;
 	private long fileSize;
 	
 	
@@ -60,13 +59,15 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 	 * @param storageFilePrefix
 	 *            The prefix of the storage file.
 	 * @param useCompression
-	 *            If true, the storage file will be compressed.
+	 *            If true, the storage file will be compressed using the
+	 *            default {@link StoreCompressionMethod}.
 	 */
 	public SegmentedObjectStore(
 			ObjectSerializationFactory serializationFactory, String storageFilePrefix, boolean useCompression) {
 		this.serializationFactory = serializationFactory;
 		this.storageFilePrefix = storageFilePrefix;
 		this.useCompression = useCompression;
+		compressionMethod = StoreCompressionMethod.getDefault();
 		
 		storeClassRegister = new DynamicStoreClassRegister();
 		
@@ -111,13 +112,15 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 				if (useCompression) {
 					dataOutStream = new DataOutputStream(
 							new BufferedOutputStream(
-									new GZIPOutputStream(arrayOutStream), 65536));
+									compressionMethod.createCompressingStream(arrayOutStream), 65536));
 				} else {
 					dataOutStream = new DataOutputStream(new BufferedOutputStream(arrayOutStream, 65536));
 				}
 				
+				// A string dictionary can't be used because iteration may
+				// span chunks written by different writers.
 				objectWriter = serializationFactory.createObjectWriter(
-						new DataOutputStoreWriter(dataOutStream), storeClassRegister);
+						new CompactStoreWriter(dataOutStream, false), storeClassRegister);
 				
 				chunkActive = true;
 				
@@ -274,7 +277,7 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 				if (useCompression) {
 					dataInStream = new DataInputStream(
 							new BufferedInputStream(
-									new MultiMemberGZIPInputStream(fileStream), 65536));
+									compressionMethod.createDecompressingStream(fileStream), 65536));
 				} else {
 					dataInStream = new DataInputStream(new BufferedInputStream(fileStream, 65536));
 				}
@@ -288,7 +291,7 @@ public class SegmentedObjectStore<T extends Storeable> implements Completable {
 			fileStream = null;
 			
 			objectReader = serializationFactory.createObjectReader(
-					new DataInputStoreReader(dataInStream), storeClassRegister);
+					new CompactStoreReader(dataInStream, false), storeClassRegister);
 			
 			if (maxObjectCount >= 0) {
 				return new SubObjectStreamIterator<T>(dataInStream, objectReader, maxObjectCount);
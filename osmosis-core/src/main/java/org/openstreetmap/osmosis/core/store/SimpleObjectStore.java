@@ -11,12 +11,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPOutputStream;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.lifecycle.Completable;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
-import org.openstreetmap.osmosis.core.util.MultiMemberGZIPInputStream;
 
 
 /**
@@ -34,12 +32,14 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 	private ObjectSerializationFactory serializationFactory;
 	private StorageStage stage;
 	private String storageFilePrefix;
+	private File storageDirectory;
 	private File file;
 	private FileOutputStream fileOutStream;
 	private DataOutputStream dataOutStream;
 	private StoreClassRegister storeClassRegister;
 	private ObjectWriter objectWriter;
 	private boolean useCompression;
+	private StoreCompressionMethod compressionMethod;
 	
 	
 	/**
@@ -50,13 +50,37 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 	 * @param storageFilePrefix
 	 *            The prefix of the storage file.
 	 * @param useCompression
-	 *            If true, the storage file will be compressed.
+	 *            If true, the storage file will be compressed using the
+	 *            default {@link StoreCompressionMethod}.
 	 */
 	public SimpleObjectStore(
 			ObjectSerializationFactory serializationFactory, String storageFilePrefix, boolean useCompression) {
+		this(serializationFactory, storageFilePrefix, useCompression, null);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param serializationFactory
+	 *            The factory defining the object serialisation implementation.
+	 * @param storageFilePrefix
+	 *            The prefix of the storage file.
+	 * @param useCompression
+	 *            If true, the storage file will be compressed using the
+	 *            default {@link StoreCompressionMethod}.
+	 * @param storageDirectory
+	 *            The directory to create the storage file in, or null to use
+	 *            the default temporary file directory.
+	 */
+	public SimpleObjectStore(
+			ObjectSerializationFactory serializationFactory, String storageFilePrefix, boolean useCompression,
+			File storageDirectory) {
 		this.serializationFactory = serializationFactory;
 		this.storageFilePrefix = storageFilePrefix;
 		this.useCompression = useCompression;
+		compressionMethod = StoreCompressionMethod.getDefault();
+		this.storageDirectory = storageDirectory;
 		
 		storeClassRegister = new DynamicStoreClassRegister();
 		
@@ -79,20 +103,20 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 		// If we're not up to the add stage, initialise for adding.
 		if (stage.compareTo(StorageStage.Add) < 0) {
 			try {
-				file = File.createTempFile(storageFilePrefix, null);
+				file = File.createTempFile(storageFilePrefix, null, storageDirectory);
 				
 				fileOutStream = new FileOutputStream(file);
 				
 				if (useCompression) {
 					dataOutStream = new DataOutputStream(
-							new BufferedOutputStream(new GZIPOutputStream(fileOutStream), 65536));
+							new BufferedOutputStream(compressionMethod.createCompressingStream(fileOutStream), 65536));
 				} else {
 					dataOutStream = new DataOutputStream(
 							new BufferedOutputStream(fileOutStream, 65536));
 				}
 				
 				objectWriter = serializationFactory.createObjectWriter(
-						new DataOutputStoreWriter(dataOutStream), storeClassRegister);
+						new CompactStoreWriter(dataOutStream, true), storeClassRegister);
 				
 				stage = StorageStage.Add;
 				
@@ -173,7 +197,7 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 			try {
 				if (useCompression) {
 					dataInStream = new DataInputStream(
-							new BufferedInputStream(new MultiMemberGZIPInputStream(fileStream), 65536));
+							new BufferedInputStream(compressionMethod.createDecompressingStream(fileStream), 65536));
 				} else {
 					dataInStream = new DataInputStream(
 							new BufferedInputStream(fileStream, 65536));
@@ -190,7 +214,7 @@ public class SimpleObjectStore<T extends Storeable> implements Completable {
 			return new ObjectStreamIterator<T>(
 					dataInStream,
 					serializationFactory.createObjectReader(
-							new DataInputStoreReader(dataInStream), storeClassRegister));
+							new CompactStoreReader(dataInStream, true), storeClassRegister));
 			
 		} finally {
 			if (fileStream != null) {
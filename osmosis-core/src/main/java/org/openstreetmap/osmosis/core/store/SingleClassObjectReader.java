@@ -11,6 +11,7 @@ package org.openstreetmap.osmosis.core.store;
 public class SingleClassObjectReader extends BaseObjectReader {
 	
 	private Class<?> storeableType;
+	private StoreableFactory<?> storeableFactory;
 	
 	
 	/**
@@ -25,9 +26,29 @@ public class SingleClassObjectReader extends BaseObjectReader {
 	 */
 	protected SingleClassObjectReader(
 			StoreReader storeReader, StoreClassRegister storeClassRegister, Class<?> storeableType) {
+		this(storeReader, storeClassRegister, storeableType, null);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param storeReader
+	 *            The store writer to read all serialised data from.
+	 * @param storeClassRegister
+	 *            The register for class to identifier mappings.
+	 * @param storeableType
+	 *            The type of class to be stored.
+	 * @param storeableFactory
+	 *            The factory creating objects of the stored type, or null to
+	 *            use the storeable constructor of the class.
+	 */
+	protected SingleClassObjectReader(StoreReader storeReader, StoreClassRegister storeClassRegister,
+			Class<?> storeableType, StoreableFactory<?> storeableFactory) {
 		super(storeReader, storeClassRegister);
 		
 		this.storeableType = storeableType;
+		this.storeableFactory = storeableFactory;
 	}
 	
 	
@@ -40,4 +61,13 @@ public class SingleClassObjectReader extends BaseObjectReader {
 		// required.
 		return storeableType;
 	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected StoreableFactory<?> getStoreableFactory(Class<?> clazz) {
+		return storeableFactory;
+	}
 }
@@ -11,10 +11,12 @@ package org.openstreetmap.osmosis.core.store;
 public class SingleClassObjectSerializationFactory implements ObjectSerializationFactory {
 	
 	private Class<?> storeableType;
+	private StoreableFactory<?> storeableFactory;
 	
 	
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance. Objects are created using the storeable
+	 * constructor of the class.
 	 * 
 	 * @param storeableType
 	 *            The class type to be supported.
@@ -24,12 +26,30 @@ public class SingleClassObjectSerializationFactory implements ObjectSerializatio
 	}
 	
 	
+	/**
+	 * Creates a new instance. Objects are created using the provided factory
+	 * instead of reflection.
+	 * 
+	 * @param <T>
+	 *            The class type to be supported.
+	 * @param storeableType
+	 *            The class type to be supported.
+	 * @param storeableFactory
+	 *            The factory creating objects of the class type.
+	 */
+	public <T extends Storeable> SingleClassObjectSerializationFactory(
+			Class<T> storeableType, StoreableFactory<T> storeableFactory) {
+		this.storeableType = storeableType;
+		this.storeableFactory = storeableFactory;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public ObjectReader createObjectReader(StoreReader storeReader, StoreClassRegister storeClassRegister) {
-		return new SingleClassObjectReader(storeReader, storeClassRegister, storeableType);
+		return new SingleClassObjectReader(storeReader, storeClassRegister, storeableType, storeableFactory);
 	}
 	
 	
@@ -0,0 +1,102 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openstreetmap.osmosis.core.util.LzBlockInputStream;
+import org.openstreetmap.osmosis.core.util.LzBlockOutputStream;
+import org.openstreetmap.osmosis.core.util.MultiMemberGZIPInputStream;
+
+
+/**
+ * Defines the compression methods available to temporary object stores that
+ * have compression enabled. The default method applies to all stores created
+ * after it is set, and is normally configured by a global command line option.
+ */
+public enum StoreCompressionMethod {
+	/**
+	 * GZIP compression. Produces the smallest files but is CPU intensive.
+	 */
+	Gzip {
+		@Override
+		public OutputStream createCompressingStream(OutputStream out) throws IOException {
+			return new GZIPOutputStream(out);
+		}
+
+
+		@Override
+		public InputStream createDecompressingStream(InputStream in) throws IOException {
+			return new MultiMemberGZIPInputStream(in);
+		}
+	},
+
+	/**
+	 * A fast LZ block compression. Produces larger files than GZIP but is
+	 * several times faster to write and read.
+	 */
+	Lz {
+		@Override
+		public OutputStream createCompressingStream(OutputStream out) {
+			return new LzBlockOutputStream(out);
+		}
+
+
+		@Override
+		public InputStream createDecompressingStream(InputStream in) {
+			return new LzBlockInputStream(in);
+		}
+	};
+
+
+	private static volatile StoreCompressionMethod defaultMethod = Gzip;
+
+
+	/**
+	 * Wraps a stream to compress data written to it. Data written by several
+	 * streams to the same destination can be read back by a single
+	 * decompressing stream.
+	 *
+	 * @param out
+	 *            The stream to write compressed data to.
+	 * @return The compressing stream.
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	public abstract OutputStream createCompressingStream(OutputStream out) throws IOException;
+
+
+	/**
+	 * Wraps a stream to decompress data read from it.
+	 *
+	 * @param in
+	 *            The stream to read compressed data from.
+	 * @return The decompressing stream.
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	public abstract InputStream createDecompressingStream(InputStream in) throws IOException;
+
+
+	/**
+	 * Gets the compression method used by new stores.
+	 *
+	 * @return The default compression method.
+	 */
+	public static StoreCompressionMethod getDefault() {
+		return defaultMethod;
+	}
+
+
+	/**
+	 * Sets the compression method used by new stores.
+	 *
+	 * @param method
+	 *            The new default compression method.
+	 */
+	public static void setDefault(StoreCompressionMethod method) {
+		defaultMethod = method;
+	}
+}
@@ -0,0 +1,25 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+
+/**
+ * Creates Storeable objects from a store without using reflection. Object
+ * readers use a factory when one is registered for a class and fall back to
+ * the class's storeable constructor otherwise.
+ *
+ * @param <T>
+ *            The type of object created.
+ */
+public interface StoreableFactory<T extends Storeable> {
+	/**
+	 * Creates an object from the state in a store.
+	 *
+	 * @param sr
+	 *            The store to read state from.
+	 * @param scr
+	 *            Maintains the mapping between classes and their identifiers
+	 *            within the store.
+	 * @return The new object.
+	 */
+	T create(StoreReader sr, StoreClassRegister scr);
+}
@@ -0,0 +1,43 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A map holding a bounded number of entries which discards the least recently
+ * accessed entry when full. It is not thread safe.
+ * 
+ * @param <K>
+ *            the type of keys maintained by this map
+ * @param <V>
+ *            the type of mapped values
+ */
+public class LruCache<K, V> extends LinkedHashMap<K, V> {
+	private static final long serialVersionUID = 1L;
+	
+	private int maxEntries;
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param maxEntries
+	 *            The maximum number of entries to retain.
+	 */
+	public LruCache(int maxEntries) {
+		super(16, 0.75f, true);
+		
+		this.maxEntries = maxEntries;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+		return size() > maxEntries;
+	}
+}
@@ -0,0 +1,250 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * A fast LZ77 block compressor in the style of LZ4. It makes a single greedy
+ * pass over the input looking up four byte sequences in a hash table of recent
+ * positions, and never searches for better matches. It compresses less than
+ * deflate but many times faster, which suits temporary data that is written
+ * and read once.
+ * <p>
+ * Compressed data is a series of sequences, each holding a token byte, a run
+ * of literal bytes and a back reference to a previous match. The upper four
+ * bits of the token hold the literal count and the lower four bits hold the
+ * match length less four, with values of 15 extended by following bytes which
+ * are summed until one is less than 255. The back reference is a two byte
+ * little endian offset followed by any match length extension bytes. The final
+ * sequence holds literals only.
+ * <p>
+ * Instances re-use an internal hash table and are not thread safe.
+ */
+public class LzBlockCodec {
+
+	/**
+	 * The maximum supported block size. Back references can't reach further
+	 * than this.
+	 */
+	public static final int MAX_BLOCK_SIZE = 1 << 16;
+
+	private static final int MIN_MATCH = 4;
+	private static final int MAX_OFFSET = MAX_BLOCK_SIZE - 1;
+	/**
+	 * Matches stop short of the end of the block so that the final sequence
+	 * always contains literals.
+	 */
+	private static final int LAST_LITERALS = 5;
+	private static final int MATCH_FIND_LIMIT = 12;
+	private static final int HASH_BITS = 14;
+	private static final int HASH_MULTIPLIER = -1640531535;
+	private static final int RUN_MASK = 15;
+
+	private int[] hashTable;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public LzBlockCodec() {
+		hashTable = new int[1 << HASH_BITS];
+	}
+
+
+	/**
+	 * Gets the maximum compressed size of a block, which occurs if the data
+	 * can't be compressed.
+	 *
+	 * @param length
+	 *            The uncompressed length.
+	 * @return The maximum compressed length.
+	 */
+	public static int getMaxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+
+	private static int readInt(byte[] data, int offset) {
+		return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8) | ((data[offset + 2] & 0xFF) << 16)
+				| ((data[offset + 3] & 0xFF) << 24);
+	}
+
+
+	private static int writeLength(byte[] data, int offset, int length) {
+		int remaining = length;
+		int position = offset;
+
+		while (remaining >= 255) {
+			data[position++] = (byte) 255;
+			remaining -= 255;
+		}
+		data[position++] = (byte) remaining;
+
+		return position;
+	}
+
+
+	private static int writeLiterals(byte[] dest, int destOffset, byte[] src, int srcOffset, int literalLength,
+			int matchToken) {
+		int position = destOffset;
+
+		if (literalLength >= RUN_MASK) {
+			dest[position++] = (byte) ((RUN_MASK << 4) | matchToken);
+			position = writeLength(dest, position, literalLength - RUN_MASK);
+		} else {
+			dest[position++] = (byte) ((literalLength << 4) | matchToken);
+		}
+		System.arraycopy(src, srcOffset, dest, position, literalLength);
+
+		return position + literalLength;
+	}
+
+
+	/**
+	 * Compresses a block of data.
+	 *
+	 * @param src
+	 *            The data to compress.
+	 * @param length
+	 *            The number of bytes to compress, no more than
+	 *            {@link #MAX_BLOCK_SIZE}.
+	 * @param dest
+	 *            The buffer to write compressed data to. It must be at least
+	 *            {@link #getMaxCompressedLength(int)} bytes long.
+	 * @return The compressed length.
+	 */
+	public int compress(byte[] src, int length, byte[] dest) {
+		int anchor = 0;
+		int position = 0;
+		int destPosition = 0;
+		int limit = length - MATCH_FIND_LIMIT;
+
+		if (length > MAX_BLOCK_SIZE) {
+			throw new IllegalArgumentException("Block length " + length + " exceeds the maximum of "
+					+ MAX_BLOCK_SIZE + ".");
+		}
+
+		// Table entries hold the position plus one so that zero means empty.
+		Arrays.fill(hashTable, 0);
+
+		while (position < limit) {
+			int sequence = readInt(src, position);
+			int hash = (sequence * HASH_MULTIPLIER) >>> (32 - HASH_BITS);
+			int reference = hashTable[hash] - 1;
+
+			hashTable[hash] = position + 1;
+
+			if (reference >= 0 && position - reference <= MAX_OFFSET && readInt(src, reference) == sequence) {
+				int matchLength = MIN_MATCH;
+				int matchLimit = length - LAST_LITERALS;
+				int matchToken;
+
+				while (position + matchLength < matchLimit
+						&& src[reference + matchLength] == src[position + matchLength]) {
+					matchLength++;
+				}
+
+				if (matchLength - MIN_MATCH >= RUN_MASK) {
+					matchToken = RUN_MASK;
+				} else {
+					matchToken = matchLength - MIN_MATCH;
+				}
+
+				destPosition = writeLiterals(dest, destPosition, src, anchor, position - anchor, matchToken);
+				dest[destPosition++] = (byte) (position - reference);
+				dest[destPosition++] = (byte) ((position - reference) >>> 8);
+				if (matchToken == RUN_MASK) {
+					destPosition = writeLength(dest, destPosition, matchLength - MIN_MATCH - RUN_MASK);
+				}
+
+				position += matchLength;
+				anchor = position;
+			} else {
+				position++;
+			}
+		}
+
+		return writeLiterals(dest, destPosition, src, anchor, length - anchor, 0);
+	}
+
+
+	/**
+	 * Decompresses a block of data.
+	 *
+	 * @param src
+	 *            The compressed data.
+	 * @param length
+	 *            The compressed length.
+	 * @param dest
+	 *            The buffer to write the decompressed data to.
+	 * @param expectedLength
+	 *            The length of the uncompressed data.
+	 * @throws IOException
+	 *             if the data is corrupt.
+	 */
+	public static void decompress(byte[] src, int length, byte[] dest, int expectedLength) throws IOException {
+		int position = 0;
+		int destPosition = 0;
+
+		try {
+			while (true) {
+				int token = src[position++] & 0xFF;
+				int literalLength = token >>> 4;
+				int matchLength = token & RUN_MASK;
+				int offset;
+				int reference;
+
+				if (literalLength == RUN_MASK) {
+					int b;
+
+					do {
+						b = src[position++] & 0xFF;
+						literalLength += b;
+					} while (b == 255);
+				}
+				System.arraycopy(src, position, dest, destPosition, literalLength);
+				position += literalLength;
+				destPosition += literalLength;
+
+				if (position >= length) {
+					break;
+				}
+
+				offset = (src[position] & 0xFF) | ((src[position + 1] & 0xFF) << 8);
+				position += 2;
+				if (matchLength == RUN_MASK) {
+					int b;
+
+					do {
+						b = src[position++] & 0xFF;
+						matchLength += b;
+					} while (b == 255);
+				}
+				matchLength += MIN_MATCH;
+
+				reference = destPosition - offset;
+				if (offset == 0 || reference < 0 || destPosition + matchLength > expectedLength) {
+					throw new IOException("Compressed block contains an invalid match.");
+				}
+				if (offset >= matchLength) {
+					System.arraycopy(dest, reference, dest, destPosition, matchLength);
+					destPosition += matchLength;
+				} else {
+					// The match overlaps the data being written so must be copied a byte at a time.
+					for (int i = 0; i < matchLength; i++) {
+						dest[destPosition++] = dest[reference++];
+					}
+				}
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Compressed block is corrupt.", e);
+		}
+
+		if (position != length || destPosition != expectedLength) {
+			throw new IOException("Compressed block decompressed to " + destPosition + " bytes instead of "
+					+ expectedLength + ".");
+		}
+	}
+}
@@ -0,0 +1,157 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Decompresses data written by one or more {@link LzBlockOutputStream}
+ * instances.
+ */
+public class LzBlockInputStream extends InputStream {
+
+	private InputStream in;
+	private byte[] buffer;
+	private int bufferLength;
+	private int bufferPosition;
+	private byte[] compressedBuffer;
+	private byte[] header;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param in
+	 *            The stream to read compressed data from.
+	 */
+	public LzBlockInputStream(InputStream in) {
+		this.in = in;
+
+		buffer = new byte[LzBlockCodec.MAX_BLOCK_SIZE];
+		bufferLength = 0;
+		bufferPosition = 0;
+		compressedBuffer = new byte[LzBlockCodec.MAX_BLOCK_SIZE];
+		header = new byte[8];
+	}
+
+
+	private static int readInt(byte[] data, int offset) {
+		return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16) | ((data[offset + 2] & 0xFF) << 8)
+				| (data[offset + 3] & 0xFF);
+	}
+
+
+	/**
+	 * Reads the requested number of bytes, returning false if the end of
+	 * stream is reached before any are read.
+	 */
+	private boolean readFully(byte[] data, int length) throws IOException {
+		int offset = 0;
+
+		while (offset < length) {
+			int count = in.read(data, offset, length - offset);
+
+			if (count < 0) {
+				if (offset == 0) {
+					return false;
+				}
+				throw new EOFException("Compressed stream ended part way through a block.");
+			}
+			offset += count;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Reads the next block into the buffer.
+	 *
+	 * @return False if the end of the stream has been reached.
+	 */
+	private boolean readBlock() throws IOException {
+		int length;
+		int storedLength;
+
+		if (!readFully(header, header.length)) {
+			return false;
+		}
+
+		length = readInt(header, 0);
+		storedLength = readInt(header, 4);
+		if (length <= 0 || length > LzBlockCodec.MAX_BLOCK_SIZE || storedLength <= 0 || storedLength > length) {
+			throw new IOException("Compressed block header is corrupt.");
+		}
+
+		if (storedLength == length) {
+			if (!readFully(buffer, length)) {
+				throw new EOFException("Compressed stream ended part way through a block.");
+			}
+		} else {
+			if (!readFully(compressedBuffer, storedLength)) {
+				throw new EOFException("Compressed stream ended part way through a block.");
+			}
+			LzBlockCodec.decompress(compressedBuffer, storedLength, buffer, length);
+		}
+
+		bufferLength = length;
+		bufferPosition = 0;
+
+		return true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		if (bufferPosition >= bufferLength && !readBlock()) {
+			return -1;
+		}
+
+		return buffer[bufferPosition++] & 0xFF;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int count;
+
+		if (len == 0) {
+			return 0;
+		}
+		if (bufferPosition >= bufferLength && !readBlock()) {
+			return -1;
+		}
+
+		count = Math.min(len, bufferLength - bufferPosition);
+		System.arraycopy(buffer, bufferPosition, b, off, count);
+		bufferPosition += count;
+
+		return count;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int available() {
+		return bufferLength - bufferPosition;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,135 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Compresses data using {@link LzBlockCodec} in blocks of up to 64KB. Each
+ * block is preceded by its uncompressed and stored lengths as four byte big
+ * endian integers, and blocks that don't compress are stored as is. There is
+ * no stream header or trailer so the output of several streams may be
+ * concatenated and read by a single {@link LzBlockInputStream}.
+ */
+public class LzBlockOutputStream extends OutputStream {
+
+	private OutputStream out;
+	private LzBlockCodec codec;
+	private byte[] buffer;
+	private int bufferLength;
+	private byte[] compressedBuffer;
+	private byte[] header;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param out
+	 *            The stream to write compressed data to.
+	 */
+	public LzBlockOutputStream(OutputStream out) {
+		this.out = out;
+
+		codec = new LzBlockCodec();
+		buffer = new byte[LzBlockCodec.MAX_BLOCK_SIZE];
+		bufferLength = 0;
+		compressedBuffer = new byte[LzBlockCodec.getMaxCompressedLength(LzBlockCodec.MAX_BLOCK_SIZE)];
+		header = new byte[8];
+	}
+
+
+	private static void writeInt(byte[] data, int offset, int value) {
+		data[offset] = (byte) (value >>> 24);
+		data[offset + 1] = (byte) (value >>> 16);
+		data[offset + 2] = (byte) (value >>> 8);
+		data[offset + 3] = (byte) value;
+	}
+
+
+	private void writeBlock() throws IOException {
+		int compressedLength;
+
+		if (bufferLength == 0) {
+			return;
+		}
+
+		compressedLength = codec.compress(buffer, bufferLength, compressedBuffer);
+
+		writeInt(header, 0, bufferLength);
+		if (compressedLength < bufferLength) {
+			writeInt(header, 4, compressedLength);
+			out.write(header);
+			out.write(compressedBuffer, 0, compressedLength);
+		} else {
+			writeInt(header, 4, bufferLength);
+			out.write(header);
+			out.write(buffer, 0, bufferLength);
+		}
+
+		bufferLength = 0;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		if (bufferLength >= buffer.length) {
+			writeBlock();
+		}
+		buffer[bufferLength++] = (byte) b;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		int offset = off;
+		int remaining = len;
+
+		while (remaining > 0) {
+			int count;
+
+			if (bufferLength >= buffer.length) {
+				writeBlock();
+			}
+
+			count = Math.min(remaining, buffer.length - bufferLength);
+			System.arraycopy(b, offset, buffer, bufferLength, count);
+			bufferLength += count;
+			offset += count;
+			remaining -= count;
+		}
+	}
+
+
+	/**
+	 * Compresses and writes any buffered data, then flushes the underlying
+	 * stream. Frequent flushing reduces the compression ratio.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writeBlock();
+		out.flush();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			writeBlock();
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -9,6 +9,7 @@ import org.junit.Test;
 
 import org.openstreetmap.osmosis.core.LogLevels;
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.store.StoreCompressionMethod;
 
 
 /**
@@ -127,6 +128,77 @@ public class CommandLineParserTest {
 	}
 	
 	
+	/**
+	 * Validates the temporary store compression option.
+	 */
+	@Test
+	public void testTempCompressionOption() {
+		CommandLineParser commandLineParser;
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {});
+		Assert.assertEquals(
+				"Incorrect default compression method.",
+				StoreCompressionMethod.Gzip,
+				commandLineParser.getTempCompressionMethod());
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {"-tc", "Lz"});
+		Assert.assertEquals(
+				"Incorrect compression method.",
+				StoreCompressionMethod.Lz,
+				commandLineParser.getTempCompressionMethod());
+	}
+	
+	
+	/**
+	 * Validates the metrics option.
+	 */
+	@Test
+	public void testMetricsOption() {
+		CommandLineParser commandLineParser;
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {});
+		Assert.assertFalse("Metrics should be disabled by default.", commandLineParser.isMetricsEnabled());
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {"-m"});
+		Assert.assertTrue("Metrics should be enabled.", commandLineParser.isMetricsEnabled());
+		Assert.assertNull("No metrics file should be set.", commandLineParser.getMetricsFile());
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {"-metrics", "metrics.csv", "10"});
+		Assert.assertTrue("Metrics should be enabled.", commandLineParser.isMetricsEnabled());
+		Assert.assertEquals("Incorrect metrics file.", "metrics.csv", commandLineParser.getMetricsFile());
+		Assert.assertEquals("Incorrect metrics interval.", 10, commandLineParser.getMetricsInterval());
+	}
+	
+	
+	/**
+	 * Validates failure when an invalid metrics interval is specified.
+	 */
+	@Test (expected = OsmosisRuntimeException.class)
+	public void testInvalidMetricsInterval() {
+		CommandLineParser commandLineParser;
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {"-metrics", "metrics.csv", "0"});
+	}
+	
+	
+	/**
+	 * Validates failure when an unknown compression method is specified.
+	 */
+	@Test (expected = OsmosisRuntimeException.class)
+	public void testUnknownTempCompressionMethod() {
+		CommandLineParser commandLineParser;
+		
+		commandLineParser = new CommandLineParser();
+		commandLineParser.parse(new String[] {"-temp-compression", "Zip"});
+	}
+	
+	
 	/**
 	 * Validates failure when an unknown option is specified.
 	 */
@@ -0,0 +1,78 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link EntityDataInterner} class.
+ */
+public class EntityDataInternerTest {
+
+	/**
+	 * Verifies that equal strings resolve to a single instance.
+	 */
+	@Test
+	public void testIntern() {
+		EntityDataInterner interner = new EntityDataInterner(16, 16, 16);
+		String first = new String("highway");
+		String second = new String("highway");
+
+		Assert.assertSame(first, interner.intern(first));
+		Assert.assertSame(first, interner.intern(second));
+		Assert.assertNull(interner.intern(null));
+	}
+
+
+	/**
+	 * Verifies that tags are shared only when both key and value match, and
+	 * that tags with long values are not cached.
+	 */
+	@Test
+	public void testGetTag() {
+		EntityDataInterner interner = new EntityDataInterner(16, 16, 16);
+		Tag tag = interner.getTag("highway", "residential");
+		String longValue = "This value is too long to be worth caching in the interner.";
+
+		Assert.assertSame(tag, interner.getTag("highway", "residential"));
+		Assert.assertEquals("highway", tag.getKey());
+		Assert.assertEquals("residential", tag.getValue());
+		Assert.assertEquals("primary", interner.getTag("highway", "primary").getValue());
+		Assert.assertNotSame(interner.getTag("name", longValue), interner.getTag("name", longValue));
+	}
+
+
+	/**
+	 * Verifies that users are shared only when both id and name match.
+	 */
+	@Test
+	public void testGetUser() {
+		EntityDataInterner interner = new EntityDataInterner(16, 16, 16);
+		OsmUser user = interner.getUser(10, "user10");
+
+		Assert.assertSame(user, interner.getUser(10, "user10"));
+		Assert.assertEquals(10, user.getId());
+		Assert.assertEquals("user10", interner.getUser(10, "user10").getName());
+		Assert.assertEquals("renamed", interner.getUser(10, "renamed").getName());
+		Assert.assertEquals(11, interner.getUser(11, "user10").getId());
+	}
+
+
+	/**
+	 * Verifies that the cache remains correct when many more values are added
+	 * than it can hold.
+	 */
+	@Test
+	public void testEviction() {
+		EntityDataInterner interner = new EntityDataInterner(4, 4, 4);
+
+		for (int i = 0; i < 1000; i++) {
+			Tag tag = interner.getTag("key" + (i % 50), "value" + i);
+
+			Assert.assertEquals("key" + (i % 50), tag.getKey());
+			Assert.assertEquals("value" + i, tag.getValue());
+			Assert.assertEquals("value" + i, interner.intern("value" + i));
+		}
+	}
+}
@@ -0,0 +1,89 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.store.DataInputStoreReader;
+import org.openstreetmap.osmosis.core.store.DataOutputStoreWriter;
+import org.openstreetmap.osmosis.core.store.DynamicStoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+
+
+/**
+ * Tests the {@link RelationMemberList} class.
+ */
+public class RelationMemberListTest {
+
+	/**
+	 * Verifies that the relation member list behaves like a standard list.
+	 */
+	@Test
+	public void testRelationMemberListOperations() {
+		RelationMemberList members = new RelationMemberList();
+		List<RelationMember> expected = new ArrayList<RelationMember>();
+
+		for (int i = 0; i < 20; i++) {
+			EntityType type = EntityType.values()[i % 3];
+
+			members.addMember(i, type, "role" + i);
+			expected.add(new RelationMember(i, type, "role" + i));
+		}
+		members.add(0, new RelationMember(99, EntityType.Relation, ""));
+		expected.add(0, new RelationMember(99, EntityType.Relation, ""));
+		members.remove(7);
+		expected.remove(7);
+
+		Assert.assertEquals(expected, members);
+		Assert.assertEquals(99, members.getMemberId(0));
+		Assert.assertEquals(EntityType.Relation, members.getMemberType(0));
+		Assert.assertEquals("role1", members.getMemberRole(2));
+		Assert.assertEquals(expected, new RelationMemberList(members));
+	}
+
+
+	/**
+	 * Verifies that the members of a read-only relation cannot be modified.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		Relation relation = new Relation(
+				new CommonEntityData(1, 2, new Date(0), OsmUser.NONE, 3), new RelationMemberList());
+
+		relation.makeReadOnly();
+		relation.getMembers().add(new RelationMember(1, EntityType.Node, ""));
+	}
+
+
+	/**
+	 * Ensure relations are correctly written to and read from the store.
+	 */
+	@Test
+	public void testGetInstanceFromStore() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StoreWriter sw = new DataOutputStoreWriter(new DataOutputStream(out));
+		StoreClassRegister scr = new DynamicStoreClassRegister();
+		List<RelationMember> members = new ArrayList<RelationMember>();
+
+		members.add(new RelationMember(1, EntityType.Way, "outer"));
+		members.add(new RelationMember(2, EntityType.Node, ""));
+
+		Relation relation = new Relation(new CommonEntityData(4, 5, new Date(0), OsmUser.NONE, 6), members);
+		relation.store(sw, scr);
+
+		StoreReader sr = new DataInputStoreReader(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+		Relation storedRelation = new Relation(sr, scr);
+
+		Assert.assertEquals(relation, storedRelation);
+		Assert.assertEquals(members, storedRelation.getMembers());
+	}
+}
@@ -0,0 +1,93 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.domain.v0_6;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.store.DataInputStoreReader;
+import org.openstreetmap.osmosis.core.store.DataOutputStoreWriter;
+import org.openstreetmap.osmosis.core.store.DynamicStoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+
+
+/**
+ * Tests the {@link WayNodeList} class.
+ */
+public class WayNodeListTest {
+
+	/**
+	 * Verifies that the way node list behaves like a standard list.
+	 */
+	@Test
+	public void testWayNodeListOperations() {
+		WayNodeList wayNodes = new WayNodeList();
+		List<WayNode> expected = new ArrayList<WayNode>();
+
+		for (int i = 0; i < 20; i++) {
+			wayNodes.addNodeId(i * 10);
+			expected.add(new WayNode(i * 10));
+		}
+		wayNodes.add(5, new WayNode(-1));
+		expected.add(5, new WayNode(-1));
+		wayNodes.remove(0);
+		expected.remove(0);
+		wayNodes.set(3, new WayNode(1000));
+		expected.set(3, new WayNode(1000));
+
+		Assert.assertEquals(expected, wayNodes);
+		Assert.assertEquals(-1, wayNodes.getNodeId(4));
+		Assert.assertEquals(4, wayNodes.indexOf(new WayNode(-1)));
+		Assert.assertEquals(expected, new WayNodeList(wayNodes));
+		Assert.assertEquals(expected, new WayNodeList(expected));
+
+		wayNodes.clear();
+		Assert.assertTrue(wayNodes.isEmpty());
+	}
+
+
+	/**
+	 * Verifies that the way nodes of a read-only way cannot be modified.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		Way way = new Way(new CommonEntityData(1, 2, new Date(0), OsmUser.NONE, 3), new WayNodeList());
+
+		way.makeReadOnly();
+		way.getWayNodes().add(new WayNode(1));
+	}
+
+
+	/**
+	 * Ensure ways are correctly written to and read from the store.
+	 */
+	@Test
+	public void testGetInstanceFromStore() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StoreWriter sw = new DataOutputStoreWriter(new DataOutputStream(out));
+		StoreClassRegister scr = new DynamicStoreClassRegister();
+		List<WayNode> wayNodes = new ArrayList<WayNode>();
+
+		wayNodes.add(new WayNode(5));
+		wayNodes.add(new WayNode(3));
+		wayNodes.add(new WayNode(5));
+
+		Way way = new Way(new CommonEntityData(1, 2, new Date(0), OsmUser.NONE, 3), wayNodes);
+		way.store(sw, scr);
+
+		StoreReader sr = new DataInputStoreReader(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+		Way storedWay = new Way(sr, scr);
+
+		Assert.assertEquals(way, storedWay);
+		Assert.assertEquals(wayNodes, storedWay.getWayNodes());
+		Assert.assertTrue(storedWay.isClosed());
+	}
+}
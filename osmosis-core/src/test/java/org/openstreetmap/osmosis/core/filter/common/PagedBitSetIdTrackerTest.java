@@ -0,0 +1,123 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.filter.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the paged bitset id tracker implementation.
+ */
+public class PagedBitSetIdTrackerTest extends IdTrackerBase {
+
+	private static final long[] SORTED_IDS = new long[] {
+		-5000000000L, -1048577, -1048576, -64, -1, 0, 63, 64, 1048575, 1048576, 2147483648L, 11000000000L};
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected IdTracker getImplementation() {
+		return new PagedBitSetIdTracker();
+	}
+
+
+	private List<Long> toList(Iterable<Long> ids) {
+		List<Long> result = new ArrayList<Long>();
+
+		for (Long id : ids) {
+			result.add(id);
+		}
+
+		return result;
+	}
+
+
+	private List<Long> toList(long[] ids) {
+		List<Long> result = new ArrayList<Long>();
+
+		for (long id : ids) {
+			result.add(id);
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Tests that ids outside the 32-bit range can be stored.
+	 */
+	@Test
+	public void testLargeIds() {
+		IdTracker idTracker = new PagedBitSetIdTracker();
+
+		idTracker.set(4294967296L);
+		idTracker.set(-4294967296L);
+
+		assertTrue(idTracker.get(4294967296L));
+		assertTrue(idTracker.get(-4294967296L));
+		assertFalse(idTracker.get(0));
+		assertFalse(idTracker.get(4294967295L));
+		assertFalse(idTracker.get(4294967297L));
+		assertFalse(idTracker.get(-4294967295L));
+	}
+
+
+	/**
+	 * Tests that iteration returns all ids in ascending order regardless of
+	 * insertion order.
+	 */
+	@Test
+	public void testIterationOrder() {
+		IdTracker idTracker = new PagedBitSetIdTracker();
+		long[] shuffledIds = Arrays.copyOf(SORTED_IDS, SORTED_IDS.length);
+
+		for (int i = 0; i < shuffledIds.length; i++) {
+			// Swap with a mirrored position to break the sorted order.
+			int j = shuffledIds.length - 1 - (i * 7) % shuffledIds.length;
+			long tmp = shuffledIds[i];
+			shuffledIds[i] = shuffledIds[j];
+			shuffledIds[j] = tmp;
+		}
+		for (long id : shuffledIds) {
+			idTracker.set(id);
+		}
+
+		assertEquals(toList(SORTED_IDS), toList(idTracker));
+	}
+
+
+	/**
+	 * Tests merging trackers of the same and of different implementations.
+	 */
+	@Test
+	public void testSetAllIds() {
+		IdTracker source = new PagedBitSetIdTracker();
+		IdTracker otherSource = new ListIdTracker();
+		IdTracker target = new PagedBitSetIdTracker();
+
+		for (int i = 0; i < SORTED_IDS.length; i += 2) {
+			source.set(SORTED_IDS[i]);
+		}
+		for (int i = 1; i < SORTED_IDS.length; i += 2) {
+			if (SORTED_IDS[i] >= Integer.MIN_VALUE && SORTED_IDS[i] <= Integer.MAX_VALUE) {
+				otherSource.set(SORTED_IDS[i]);
+			} else {
+				target.set(SORTED_IDS[i]);
+			}
+		}
+
+		target.setAll(source);
+		target.setAll(otherSource);
+
+		assertEquals(toList(SORTED_IDS), toList(target));
+	}
+}
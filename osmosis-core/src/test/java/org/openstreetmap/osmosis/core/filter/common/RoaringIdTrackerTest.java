@@ -0,0 +1,127 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.filter.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+
+/**
+ * Tests the roaring id tracker implementation.
+ */
+public class RoaringIdTrackerTest extends IdTrackerBase {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected IdTracker getImplementation() {
+		return new RoaringIdTracker();
+	}
+
+
+	private List<Long> toList(RoaringIdTracker idTracker) {
+		List<Long> result = new ArrayList<Long>();
+
+		for (PrimitiveIterator.OfLong i = idTracker.longIterator(); i.hasNext();) {
+			result.add(i.nextLong());
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Tests sparse, dense, full and large ids against a reference set,
+	 * including after converting containers to runs.
+	 */
+	@Test
+	public void testAgainstReference() {
+		RoaringIdTracker idTracker = new RoaringIdTracker();
+		TreeSet<Long> reference = new TreeSet<Long>();
+		Random random = new Random(0);
+
+		// A sparse chunk, a dense chunk, a full chunk, and negative and 64-bit ids.
+		for (int i = 0; i < 100; i++) {
+			reference.add((long) random.nextInt(65536));
+		}
+		for (int i = 0; i < 20000; i++) {
+			reference.add(65536L + random.nextInt(65536));
+		}
+		for (long id = 3 * 65536L; id < 4 * 65536L; id++) {
+			reference.add(id);
+		}
+		for (int i = 0; i < 1000; i++) {
+			reference.add(-1 - (long) random.nextInt(200000));
+			reference.add(11000000000L + random.nextInt(1000000));
+		}
+
+		for (long id : reference) {
+			idTracker.set(id);
+		}
+
+		assertEquals(reference.size(), idTracker.getCardinality());
+		assertEquals(new ArrayList<Long>(reference), toList(idTracker));
+
+		idTracker.runOptimize();
+		assertEquals(new ArrayList<Long>(reference), toList(idTracker));
+		for (long id = -200001; id < 5 * 65536L; id++) {
+			assertEquals(reference.contains(id), idTracker.get(id));
+		}
+
+		// Adding to a run container must convert it back to another type.
+		idTracker.set(4 * 65536L);
+		assertTrue(idTracker.get(4 * 65536L));
+		assertFalse(idTracker.get(4 * 65536L + 1));
+	}
+
+
+	/**
+	 * Tests merging trackers of the same and of different implementations.
+	 */
+	@Test
+	public void testSetAllIds() {
+		RoaringIdTracker target = new RoaringIdTracker();
+		RoaringIdTracker source = new RoaringIdTracker();
+		IdTracker otherSource = new DynamicIdTracker();
+		TreeSet<Long> reference = new TreeSet<Long>();
+		Random random = new Random(1);
+
+		for (int i = 0; i < 50000; i++) {
+			long id = random.nextInt(1000000) - 100000;
+
+			reference.add(id);
+			switch (i % 3) {
+			case 0:
+				target.set(id);
+				break;
+			case 1:
+				source.set(id);
+				break;
+			default:
+				otherSource.set(id);
+				break;
+			}
+		}
+
+		target.setAll(source);
+		target.setAll(otherSource);
+
+		assertEquals(new ArrayList<Long>(reference), toList(target));
+
+		// The source must be unaffected by later changes to the target.
+		source.set(5000000);
+		target.setAll(source);
+		target.set(5000001);
+		assertTrue(target.get(5000000));
+		assertFalse(source.get(5000001));
+	}
+}
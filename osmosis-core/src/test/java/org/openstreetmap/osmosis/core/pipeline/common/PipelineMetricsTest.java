@@ -0,0 +1,145 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.pipeline.common;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.buffer.v0_6.EntityBuffer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.misc.v0_6.NullWriter;
+import org.openstreetmap.osmosis.core.pipeline.v0_6.RunnableSourceManager;
+import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkManager;
+import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkRunnableSourceManager;
+import org.openstreetmap.osmosis.core.store.DataPostboxType;
+import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+
+/**
+ * Tests the {@link PipelineMetrics} class.
+ */
+public class PipelineMetricsTest {
+
+	private static final int NODE_COUNT = 10000;
+
+
+	/**
+	 * Verifies that entities are counted on each pipe and that postbox
+	 * statistics and MBeans are available while the pipeline runs.
+	 * 
+	 * @throws JMException
+	 *             if the MBeans can't be queried.
+	 * @throws IOException
+	 *             if the metrics can't be written.
+	 */
+	@Test
+	public void testBufferedPipeline() throws JMException, IOException {
+		Map<String, String> noPipes = new HashMap<String, String>();
+		PipelineMetrics metrics = new PipelineMetrics();
+		TaskManager[] managers = new TaskManager[] {
+			new RunnableSourceManager("1-source", new NodeSource(), noPipes),
+			new SinkRunnableSourceManager("2-buffer", new EntityBuffer(100, DataPostboxType.RingBuffer), noPipes),
+			new SinkManager("3-sink", new NullWriter(), noPipes)
+		};
+		PipeTasks pipeTasks = new PipeTasks();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName bufferName = new ObjectName("org.openstreetmap.osmosis:type=Task,name=\"2-buffer\"");
+		StringWriter csv = new StringWriter();
+
+		for (TaskManager manager : managers) {
+			manager.setMetrics(metrics.createTaskMetrics(manager.getTaskId(), "test"));
+		}
+		for (TaskManager manager : managers) {
+			manager.connect(pipeTasks);
+		}
+
+		metrics.start();
+		for (TaskManager manager : managers) {
+			manager.execute();
+		}
+		for (TaskManager manager : managers) {
+			Assert.assertTrue(manager.waitForCompletion());
+		}
+
+		Assert.assertEquals(0L, managers[0].getMetrics().getEntitiesIn());
+		Assert.assertEquals(NODE_COUNT, managers[0].getMetrics().getEntitiesOut());
+		Assert.assertEquals(NODE_COUNT, managers[1].getMetrics().getEntitiesIn());
+		Assert.assertEquals(NODE_COUNT, managers[1].getMetrics().getEntitiesOut());
+		Assert.assertEquals(NODE_COUNT, managers[2].getMetrics().getEntitiesIn());
+		Assert.assertEquals(0L, managers[2].getMetrics().getEntitiesOut());
+		Assert.assertTrue(managers[1].getMetrics().getEntitiesInPerSecond() > 0);
+
+		// The buffer reports on its postbox, which is empty once complete.
+		Assert.assertEquals(128, server.getAttribute(bufferName, "QueueCapacity"));
+		Assert.assertEquals(0, server.getAttribute(bufferName, "QueueSize"));
+		Assert.assertEquals(0, managers[0].getMetrics().getQueueCapacity());
+
+		metrics.writeMetrics(csv, new Date(0));
+		Assert.assertTrue(csv.toString().startsWith("1970-01-01T00:00:00Z,1-source,test,0," + NODE_COUNT + ","));
+		Assert.assertEquals(3, csv.toString().split("\n").length);
+
+		metrics.stop();
+		Assert.assertFalse(server.isRegistered(bufferName));
+	}
+
+
+	/**
+	 * Verifies that pipes are not metered when metrics are disabled.
+	 */
+	@Test
+	public void testMetricsDisabled() {
+		Map<String, String> noPipes = new HashMap<String, String>();
+		NodeSource source = new NodeSource();
+		NullWriter writer = new NullWriter();
+		PipeTasks pipeTasks = new PipeTasks();
+
+		new RunnableSourceManager("1-source", source, noPipes).connect(pipeTasks);
+		new SinkManager("2-sink", writer, noPipes).connect(pipeTasks);
+
+		Assert.assertSame(writer, source.sink);
+	}
+
+
+	/**
+	 * Generates a fixed number of nodes.
+	 */
+	private static class NodeSource implements RunnableSource {
+		private Sink sink;
+
+
+		@Override
+		public void setSink(Sink sink) {
+			this.sink = sink;
+		}
+
+
+		@Override
+		public void run() {
+			try {
+				sink.initialize(Collections.<String, Object>emptyMap());
+				for (int i = 1; i <= NODE_COUNT; i++) {
+					sink.process(new NodeContainer(
+							new Node(new CommonEntityData(i, 1, new Date(), OsmUser.NONE, 1), 0, 0)));
+				}
+				sink.complete();
+
+			} finally {
+				sink.close();
+			}
+		}
+	}
+}
@@ -1,11 +1,17 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.core.sort.common;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
 import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
 
@@ -15,56 +21,149 @@ import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactor
  */
 public class FileBasedSortTest {
 
+	/**
+	 * Provides directories for temporary sort files.
+	 */
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private SingleClassObjectSerializationFactory objectFactory = new SingleClassObjectSerializationFactory(
+			SampleStoreable.class);
+	private Comparator<SampleStoreable> comparator = new Comparator<SampleStoreable>() {
+		@Override
+		public int compare(SampleStoreable o1, SampleStoreable o2) {
+			long value1 = o1.getValue();
+			long value2 = o2.getValue();
+
+			if (value1 > value2) {
+				return 1;
+			} else if (value1 < value2) {
+				return -1;
+			} else {
+				return 0;
+			}
+		}
+	};
+
+
+	private void checkSort(FileBasedSort<SampleStoreable> fileBasedSort, long itemCount) {
+		// Add randomly generated test values into the sorter.
+		Random random = new Random();
+		for (long i = 0; i < itemCount; i++) {
+			fileBasedSort.add(new SampleStoreable(random.nextInt()));
+		}
+
+		// Read back all values in the sorter and verify that they are
+		// sorted correctly.
+		try (ReleasableIterator<SampleStoreable> resultIterator = fileBasedSort.iterate()) {
+			int lastValue = Integer.MIN_VALUE;
+			long resultCount = 0;
+			while (resultIterator.hasNext()) {
+				int currentValue = resultIterator.next().getValue();
+				Assert.assertTrue(currentValue >= lastValue);
+				lastValue = currentValue;
+				resultCount++;
+			}
+			Assert.assertEquals(itemCount, resultCount);
+		}
+	}
+
+
 	/**
 	 * Stores a large number of items into the file-based sorter and verifies
-	 * that they are returned in the correct sequence. It exceeds the in-memory
-	 * sorting limit, but doesn't trigger additional persistence at sub-levels
-	 * in the merge sort to minimise file handles as this would take too much
-	 * time for a unit test. The item count must be greater than
-	 * (MAX_MEMORY_SORT_COUNT * (MAX_MERGE_SOURCE_COUNT ^
-	 * MAX_MEMORY_SORT_DEPTH)) to trigger intermediate persistence.
+	 * that they are returned in the correct sequence.
 	 */
 	@Test
 	public void test() {
-		final long itemCount = 10000;
-
-		// Create a new file-based sorter for the TestStoreable type.
-		SingleClassObjectSerializationFactory objectFactory = new SingleClassObjectSerializationFactory(
-				SampleStoreable.class);
-		Comparator<SampleStoreable> comparator = new Comparator<SampleStoreable>() {
-			@Override
-			public int compare(SampleStoreable o1, SampleStoreable o2) {
-				long value1 = o1.getValue();
-				long value2 = o2.getValue();
-
-				if (value1 > value2) {
-					return 1;
-				} else if (value1 < value2) {
-					return -1;
-				} else {
-					return 0;
-				}
-			}
-		};
-
 		try (FileBasedSort<SampleStoreable> fileBasedSort =
 				new FileBasedSort<SampleStoreable>(objectFactory, comparator, true)) {
-			// Add randomly generated test values into the sorter.
-			Random random = new Random();
-			for (long i = 0; i < itemCount; i++) {
-				fileBasedSort.add(new SampleStoreable(random.nextInt()));
-			}
+			checkSort(fileBasedSort, 10000);
+		}
+	}
+
+
+	/**
+	 * Uses a small run size and multiple worker threads so that runs are
+	 * written in the background and more runs are created than can be merged
+	 * in a single pass. Temporary files are spread across two directories.
+	 * 
+	 * @throws IOException
+	 *             if the temporary directories cannot be created.
+	 */
+	@Test
+	public void testMultiPassWithWorkers() throws IOException {
+		List<File> tempDirectories = Arrays.asList(tempFolder.newFolder(), tempFolder.newFolder());
+
+		try (FileBasedSort<SampleStoreable> fileBasedSort =
+				FileBasedSort.createWithRunSize(objectFactory, comparator, false, 20, 4, tempDirectories)) {
+			checkSort(fileBasedSort, 10000);
+
+			// 500 runs exceed the merge limit so they must be merged in more
+			// than one pass.
+			Assert.assertTrue(fileBasedSort.getIntermediateMergePassCount() > 0);
 
-			// Read back all values in the sorter and verify that they are
-			// sorted correctly.
-			try (ReleasableIterator<SampleStoreable> resultIterator = fileBasedSort.iterate()) {
-				int lastValue = Integer.MIN_VALUE;
-				while (resultIterator.hasNext()) {
-					int currentValue = resultIterator.next().getValue();
-					Assert.assertTrue(currentValue >= lastValue);
-					lastValue = currentValue;
-				}
+			// Both directories must have been used, and only the final runs
+			// remain after intermediate merges.
+			Assert.assertTrue(tempDirectories.get(0).list().length > 0);
+			Assert.assertTrue(tempDirectories.get(1).list().length > 0);
+			Assert.assertTrue(tempDirectories.get(0).list().length + tempDirectories.get(1).list().length <= 256);
+		}
+
+		// All temporary files must be removed on close.
+		Assert.assertEquals(0, tempDirectories.get(0).list().length + tempDirectories.get(1).list().length);
+	}
+
+
+	/**
+	 * Verifies that closing a sorter with runs still being written by workers
+	 * completes and removes all temporary files.
+	 * 
+	 * @throws IOException
+	 *             if the temporary directory cannot be created.
+	 */
+	@Test
+	public void testCloseWithoutIterating() throws IOException {
+		File tempDirectory = tempFolder.newFolder();
+
+		try (FileBasedSort<SampleStoreable> fileBasedSort = FileBasedSort.createWithRunSize(
+				objectFactory, comparator, false, 20, 2, Arrays.asList(tempDirectory))) {
+			for (int i = 0; i < 1000; i++) {
+				fileBasedSort.add(new SampleStoreable(i));
 			}
 		}
+
+		Assert.assertEquals(0, tempDirectory.list().length);
+	}
+
+
+	/**
+	 * Verifies that items fitting within a single run are sorted in memory
+	 * without writing temporary files.
+	 * 
+	 * @throws IOException
+	 *             if the temporary directory cannot be created.
+	 */
+	@Test
+	public void testSingleRunInMemory() throws IOException {
+		File tempDirectory = tempFolder.newFolder();
+
+		try (FileBasedSort<SampleStoreable> fileBasedSort = FileBasedSort.createWithRunSize(
+				objectFactory, comparator, false, 1000, 2, Arrays.asList(tempDirectory))) {
+			checkSort(fileBasedSort, 999);
+
+			Assert.assertEquals(0, tempDirectory.list().length);
+		}
+	}
+
+
+	/**
+	 * Verifies that an empty sorter returns no items.
+	 */
+	@Test
+	public void testEmpty() {
+		try (FileBasedSort<SampleStoreable> fileBasedSort =
+				new FileBasedSort<SampleStoreable>(objectFactory, comparator, true, 1L << 20, 2)) {
+			checkSort(fileBasedSort, 0);
+		}
 	}
 }
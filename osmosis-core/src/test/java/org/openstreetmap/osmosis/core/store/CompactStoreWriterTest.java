@@ -0,0 +1,133 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.sort.common.SampleStoreable;
+
+
+/**
+ * Tests the {@link CompactStoreWriter} and {@link CompactStoreReader} classes.
+ */
+public class CompactStoreWriterTest {
+
+	private static final long[] LONG_VALUES = {0, 1, -1, 63, -64, 64, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE};
+	private static final int[] INT_VALUES = {0, 1, -1, 127, 128, -129, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+
+	private void writeValues(StoreWriter sw) {
+		for (long value : LONG_VALUES) {
+			sw.writeLong(value);
+		}
+		for (int value : INT_VALUES) {
+			sw.writeInteger(value);
+		}
+		sw.writeCharacter('\uffff');
+		sw.writeBoolean(true);
+		sw.writeByte((byte) -5);
+		sw.writeDouble(-12.5);
+		for (int i = 0; i < 3 * CompactStoreWriter.MAX_DICTIONARY_SIZE; i++) {
+			sw.writeString("value" + (i % 1000));
+			sw.writeString("highway");
+		}
+		sw.writeString("");
+		sw.writeString("\u00e9\u4e2d\ud83d\ude00");
+	}
+
+
+	private void readValues(StoreReader sr) {
+		for (long value : LONG_VALUES) {
+			Assert.assertEquals(value, sr.readLong());
+		}
+		for (int value : INT_VALUES) {
+			Assert.assertEquals(value, sr.readInteger());
+		}
+		Assert.assertEquals('\uffff', sr.readCharacter());
+		Assert.assertTrue(sr.readBoolean());
+		Assert.assertEquals(-5, sr.readByte());
+		Assert.assertEquals(-12.5, sr.readDouble(), 0);
+		for (int i = 0; i < 3 * CompactStoreWriter.MAX_DICTIONARY_SIZE; i++) {
+			Assert.assertEquals("value" + (i % 1000), sr.readString());
+			Assert.assertEquals("highway", sr.readString());
+		}
+		Assert.assertEquals("", sr.readString());
+		Assert.assertEquals("\u00e9\u4e2d\ud83d\ude00", sr.readString());
+	}
+
+
+	private byte[] checkRoundTrip(boolean useStringDictionary) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StoreReader sr;
+
+		writeValues(new CompactStoreWriter(new DataOutputStream(out), useStringDictionary));
+
+		sr = new CompactStoreReader(new DataInputStream(new ByteArrayInputStream(out.toByteArray())),
+				useStringDictionary);
+		readValues(sr);
+		try {
+			sr.readByte();
+			Assert.fail("The end of the store was not detected.");
+		} catch (EndOfStoreException e) {
+			// Expected.
+		}
+
+		return out.toByteArray();
+	}
+
+
+	/**
+	 * Verifies that all value types can be read back, and that the string
+	 * dictionary reduces the size of the output.
+	 */
+	@Test
+	public void testRoundTrip() {
+		int plainSize = checkRoundTrip(false).length;
+		int dictionarySize = checkRoundTrip(true).length;
+
+		Assert.assertTrue("The dictionary did not reduce the output size.", dictionarySize < plainSize / 2);
+	}
+
+
+	/**
+	 * Verifies that objects are created by registered factories, and that
+	 * classes without a factory are still created using reflection.
+	 */
+	@Test
+	public void testStoreableFactories() {
+		final int[] factoryCount = new int[1];
+		GenericObjectSerializationFactory serializationFactory = new GenericObjectSerializationFactory();
+		StoreClassRegister scr = new DynamicStoreClassRegister();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Node node = new Node(new CommonEntityData(1, 2, new Date(0), OsmUser.NONE, 3), 4, 5);
+		ObjectWriter writer;
+		ObjectReader reader;
+
+		serializationFactory.registerStoreableFactory(NodeContainer.class, new StoreableFactory<NodeContainer>() {
+			@Override
+			public NodeContainer create(StoreReader sr, StoreClassRegister register) {
+				factoryCount[0]++;
+				return new NodeContainer(sr, register);
+			}
+		});
+
+		writer = serializationFactory.createObjectWriter(new CompactStoreWriter(new DataOutputStream(out), true), scr);
+		writer.writeObject(new NodeContainer(node));
+		writer.writeObject(new SampleStoreable(6));
+
+		reader = serializationFactory.createObjectReader(
+				new CompactStoreReader(new DataInputStream(new ByteArrayInputStream(out.toByteArray())), true), scr);
+		Assert.assertEquals(node, ((NodeContainer) reader.readObject()).getEntity());
+		Assert.assertEquals(6, ((SampleStoreable) reader.readObject()).getValue());
+		Assert.assertEquals(1, factoryCount[0]);
+	}
+}
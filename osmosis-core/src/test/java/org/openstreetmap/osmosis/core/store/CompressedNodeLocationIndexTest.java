@@ -0,0 +1,75 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Tests the {@link CompressedNodeLocationIndex} class.
+ */
+public class CompressedNodeLocationIndexTest {
+
+	/**
+	 * Stores sparse nodes with large ids and verifies that sequential and
+	 * random lookups return the stored locations, including while nodes are
+	 * still being added.
+	 */
+	@Test
+	public void testPutAndGet() {
+		CompressedNodeLocationIndex index = new CompressedNodeLocationIndex();
+		TreeMap<Long, double[]> reference = new TreeMap<Long, double[]>();
+		Random random = new Random(0);
+		long nodeId = 11000000000L;
+
+		for (int i = 0; i < 100000; i++) {
+			double[] location = new double[] {
+					Math.round((random.nextDouble() * 360 - 180) * 10000000) / 10000000.0,
+					Math.round((random.nextDouble() * 180 - 90) * 10000000) / 10000000.0};
+
+			nodeId += 1 + random.nextInt(1000);
+			index.put(nodeId, location[0], location[1]);
+			reference.put(nodeId, location);
+
+			// Lookups must see nodes in the block still being built.
+			if (i % 1000 == 0) {
+				Assert.assertEquals(location[0], index.getLongitude(nodeId), 0.00000001);
+				Assert.assertFalse(index.contains(nodeId + 1));
+			}
+		}
+
+		for (long id : reference.keySet()) {
+			Assert.assertEquals(reference.get(id)[0], index.getLongitude(id), 0.00000001);
+			Assert.assertEquals(reference.get(id)[1], index.getLatitude(id), 0.00000001);
+		}
+		for (int i = 0; i < 100000; i++) {
+			long id = 11000000000L + random.nextInt(60000000);
+
+			Assert.assertEquals(reference.containsKey(id), index.contains(id));
+			if (reference.containsKey(id)) {
+				Assert.assertEquals(reference.get(id)[1], index.getLatitude(id), 0.00000001);
+			}
+		}
+
+		Assert.assertFalse(index.contains(0));
+		Assert.assertFalse(index.contains(Long.MAX_VALUE));
+
+		index.close();
+	}
+
+
+	/**
+	 * Verifies that nodes must be added in id order.
+	 */
+	@Test(expected = OsmosisRuntimeException.class)
+	public void testUnsortedNodes() {
+		CompressedNodeLocationIndex index = new CompressedNodeLocationIndex();
+
+		index.put(10, 0, 0);
+		index.put(5, 0, 0);
+	}
+}
@@ -0,0 +1,107 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link IndexStoreReader} class.
+ */
+public class IndexStoreReaderTest {
+
+	private IndexStore<Long, LongLongIndexElement> createStore(int elementCount) {
+		IndexStore<Long, LongLongIndexElement> store;
+
+		store = new IndexStore<Long, LongLongIndexElement>(LongLongIndexElement.class,
+				new ComparableComparator<Long>(), "idxtest");
+
+		// Write the elements out of order so that the store must be sorted.
+		for (int i = elementCount - 1; i >= 0; i--) {
+			store.write(new LongLongIndexElement(i * 2, i));
+		}
+		store.complete();
+
+		return store;
+	}
+
+
+	/**
+	 * Verifies that existing keys are found and missing keys are rejected
+	 * across many pages.
+	 */
+	@Test
+	public void testGet() {
+		try (IndexStore<Long, LongLongIndexElement> store = createStore(5000);
+				IndexStoreReader<Long, LongLongIndexElement> reader = store.createReader()) {
+			for (int i = 0; i < 5000; i += 7) {
+				Assert.assertEquals(i, reader.get((long) i * 2).getValue());
+			}
+			// Search in reverse to exercise the page cache eviction.
+			for (int i = 4999; i >= 0; i -= 13) {
+				Assert.assertEquals(i, reader.get((long) i * 2).getValue());
+			}
+			for (long key : new long[] {-1, 1, 2001, 9999, 10000}) {
+				try {
+					reader.get(key);
+					Assert.fail("Key " + key + " should not exist.");
+				} catch (NoSuchIndexElementException e) {
+					// Expected.
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Verifies that keys are found in an index large enough for its fence keys
+	 * to be held in more than one block.
+	 */
+	@Test
+	public void testGetAcrossFenceBlocks() {
+		try (IndexStore<Long, LongLongIndexElement> store = createStore(70000);
+				IndexStoreReader<Long, LongLongIndexElement> reader = store.createReader()) {
+			for (int i = 69999; i >= 0; i -= 997) {
+				Assert.assertEquals(i, reader.get((long) i * 2).getValue());
+			}
+			Assert.assertEquals(65536, reader.get(65536L * 2).getValue());
+			Assert.assertEquals(0, reader.get(0L).getValue());
+		}
+	}
+
+
+	/**
+	 * Verifies that ranges spanning page boundaries are returned.
+	 */
+	@Test
+	public void testGetRange() {
+		try (IndexStore<Long, LongLongIndexElement> store = createStore(5000);
+				IndexStoreReader<Long, LongLongIndexElement> reader = store.createReader()) {
+			Iterator<LongLongIndexElement> range;
+			long expectedValue;
+
+			range = reader.getRange(501L, 1201L);
+			expectedValue = 251;
+			while (range.hasNext()) {
+				Assert.assertEquals(expectedValue++, range.next().getValue());
+			}
+			Assert.assertEquals(601, expectedValue);
+
+			Assert.assertFalse(reader.getRange(10001L, 20000L).hasNext());
+		}
+	}
+
+
+	/**
+	 * Verifies that an empty index can be searched.
+	 */
+	@Test(expected = NoSuchIndexElementException.class)
+	public void testEmptyIndex() {
+		try (IndexStore<Long, LongLongIndexElement> store = createStore(0);
+				IndexStoreReader<Long, LongLongIndexElement> reader = store.createReader()) {
+			reader.get(1L);
+		}
+	}
+}
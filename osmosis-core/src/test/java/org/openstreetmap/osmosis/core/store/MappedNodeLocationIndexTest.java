@@ -0,0 +1,53 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link MappedNodeLocationIndex} class.
+ */
+public class MappedNodeLocationIndexTest {
+
+	/**
+	 * Verifies that locations are returned for stored nodes only, including
+	 * locations at the extremes of the coordinate ranges and nodes spread over
+	 * several pages.
+	 */
+	@Test
+	public void testPutAndGet() {
+		MappedNodeLocationIndex index = new MappedNodeLocationIndex();
+
+		try {
+			Assert.assertFalse(index.contains(0));
+
+			index.put(0, 0, 0);
+			index.put(1, -180, -90);
+			index.put(2, 180, 90);
+			index.put(100000000, 12.3456789, -45.6789012);
+			// Nodes may be added in any order.
+			index.put(50, -0.0000001, 0.0000001);
+
+			Assert.assertTrue(index.contains(0));
+			Assert.assertEquals(0, index.getLongitude(0), 0);
+			Assert.assertEquals(0, index.getLatitude(0), 0);
+			Assert.assertEquals(-180, index.getLongitude(1), 0);
+			Assert.assertEquals(-90, index.getLatitude(1), 0);
+			Assert.assertEquals(180, index.getLongitude(2), 0);
+			Assert.assertEquals(90, index.getLatitude(2), 0);
+			Assert.assertEquals(-0.0000001, index.getLongitude(50), 0.00000001);
+			Assert.assertEquals(0.0000001, index.getLatitude(50), 0.00000001);
+			Assert.assertEquals(12.3456789, index.getLongitude(100000000), 0.00000001);
+			Assert.assertEquals(-45.6789012, index.getLatitude(100000000), 0.00000001);
+
+			Assert.assertFalse(index.contains(3));
+			Assert.assertFalse(index.contains(99999999));
+			Assert.assertFalse(index.contains(100000001));
+			Assert.assertFalse(index.contains(-1));
+
+		} finally {
+			index.close();
+		}
+	}
+}
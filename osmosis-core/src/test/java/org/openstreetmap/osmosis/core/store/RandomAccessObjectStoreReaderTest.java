@@ -0,0 +1,72 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link RandomAccessObjectStoreReader} class.
+ */
+public class RandomAccessObjectStoreReaderTest {
+
+	private void checkReader(RandomAccessObjectStoreReader<LongLongIndexElement> reader, List<Long> offsets) {
+		Iterator<LongLongIndexElement> iterator;
+
+		// Read in reverse to force seeking.
+		for (int i = offsets.size() - 1; i >= 0; i--) {
+			LongLongIndexElement element = reader.get(offsets.get(i));
+
+			Assert.assertEquals(i, element.getId());
+			Assert.assertEquals(i * 1000L, element.getValue());
+		}
+
+		iterator = reader.iterate(offsets.get(500));
+		for (int i = 500; i < offsets.size(); i++) {
+			Assert.assertEquals(i, iterator.next().getId());
+		}
+		Assert.assertFalse(iterator.hasNext());
+	}
+
+
+	/**
+	 * Verifies that buffered, memory mapped and caching readers all return the
+	 * stored objects.
+	 */
+	@Test
+	public void testReaders() {
+		try (RandomAccessObjectStore<LongLongIndexElement> store = new RandomAccessObjectStore<LongLongIndexElement>(
+				new SingleClassObjectSerializationFactory(LongLongIndexElement.class), "rastest", true)) {
+			List<Long> offsets = new ArrayList<Long>();
+
+			for (int i = 0; i < 1000; i++) {
+				offsets.add(store.add(new LongLongIndexElement(i, i * 1000L)));
+			}
+			store.complete();
+
+			try (RandomAccessObjectStoreReader<LongLongIndexElement> reader = store.createReader()) {
+				checkReader(reader, offsets);
+			}
+			try (RandomAccessObjectStoreReader<LongLongIndexElement> reader = store.createReader(true, 0)) {
+				checkReader(reader, offsets);
+			}
+			try (RandomAccessObjectStoreReader<LongLongIndexElement> reader = store.createReader(true, 100)) {
+				LongLongIndexElement element;
+
+				checkReader(reader, offsets);
+
+				// Recently read objects are returned from the cache until evicted.
+				element = reader.get(offsets.get(3));
+				Assert.assertSame(element, reader.get(offsets.get(3)));
+				for (int i = 100; i < 300; i++) {
+					reader.get(offsets.get(i));
+				}
+				Assert.assertNotSame(element, reader.get(offsets.get(3)));
+			}
+		}
+	}
+}
@@ -0,0 +1,160 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.store;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+
+
+/**
+ * Tests the {@link RingBufferDataPostbox} class.
+ */
+public class RingBufferDataPostboxTest {
+
+	private ExecutorService executorService;
+
+
+	/**
+	 * Creates the thread used to run the output side of each postbox.
+	 */
+	@Before
+	public void setUp() {
+		executorService = Executors.newSingleThreadExecutor();
+	}
+
+
+	/**
+	 * Stops the output thread.
+	 */
+	@After
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+
+	private Future<Long> startConsumer(final DataPostbox<Integer> postbox) {
+		return executorService.submit(new Callable<Long>() {
+			@Override
+			public Long call() {
+				try {
+					long count = 0;
+
+					postbox.outputInitialize();
+					while (postbox.hasNext()) {
+						Assert.assertEquals(Integer.valueOf((int) count), postbox.getNext());
+						count++;
+					}
+					postbox.outputComplete();
+
+					return count;
+
+				} finally {
+					postbox.outputRelease();
+				}
+			}
+		});
+	}
+
+
+	private void produce(DataPostbox<Integer> postbox, int count) {
+		try {
+			postbox.initialize(Collections.<String, Object>emptyMap());
+			for (int i = 0; i < count; i++) {
+				postbox.put(i);
+			}
+			postbox.complete();
+
+		} finally {
+			postbox.close();
+		}
+	}
+
+
+	/**
+	 * Passes data between two threads several times using the same postbox,
+	 * including a run with no data. The capacity is deliberately not a power
+	 * of two.
+	 *
+	 * @throws Exception
+	 *             if the consumer fails.
+	 */
+	@Test
+	public void testTransferAndReuse() throws Exception {
+		DataPostbox<Integer> postbox = new RingBufferDataPostbox<Integer>(10);
+
+		for (int count : new int[] {100000, 0, 7}) {
+			Future<Long> consumer = startConsumer(postbox);
+
+			produce(postbox, count);
+
+			Assert.assertEquals(count, consumer.get().longValue());
+		}
+	}
+
+
+	/**
+	 * Verifies that an input failure is reported to the output thread.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted.
+	 */
+	@Test
+	public void testInputFailure() throws InterruptedException {
+		DataPostbox<Integer> postbox = new RingBufferDataPostbox<Integer>(10);
+		Future<Long> consumer = startConsumer(postbox);
+
+		try {
+			postbox.initialize(Collections.<String, Object>emptyMap());
+			postbox.put(0);
+		} finally {
+			// Release without completing.
+			postbox.close();
+		}
+
+		try {
+			consumer.get();
+			Assert.fail("Expected the output thread to fail.");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof OsmosisRuntimeException);
+		}
+	}
+
+
+	/**
+	 * Verifies that an output failure is reported to an input thread waiting
+	 * for space in the ring.
+	 */
+	@Test
+	public void testOutputFailure() {
+		final DataPostbox<Integer> postbox = new RingBufferDataPostbox<Integer>(4);
+
+		executorService.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postbox.outputInitialize();
+					postbox.getNext();
+				} finally {
+					// Release without completing.
+					postbox.outputRelease();
+				}
+			}
+		});
+
+		try {
+			produce(postbox, 1000);
+			Assert.fail("Expected the input thread to fail.");
+		} catch (OsmosisRuntimeException e) {
+			// Expected.
+		}
+	}
+}
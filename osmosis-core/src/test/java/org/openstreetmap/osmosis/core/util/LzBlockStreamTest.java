@@ -0,0 +1,145 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link LzBlockOutputStream} and {@link LzBlockInputStream} classes.
+ */
+public class LzBlockStreamTest {
+
+	private byte[] compress(byte[] data, int writeSize) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OutputStream lzOut = new LzBlockOutputStream(out);
+
+		for (int offset = 0; offset < data.length; offset += writeSize) {
+			if (writeSize == 1) {
+				lzOut.write(data[offset]);
+			} else {
+				lzOut.write(data, offset, Math.min(writeSize, data.length - offset));
+			}
+		}
+		lzOut.close();
+
+		return out.toByteArray();
+	}
+
+
+	private byte[] decompress(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream lzIn = new LzBlockInputStream(new ByteArrayInputStream(data));
+		byte[] buffer = new byte[1000];
+		int count;
+
+		while ((count = lzIn.read(buffer)) >= 0) {
+			out.write(buffer, 0, count);
+		}
+		lzIn.close();
+
+		return out.toByteArray();
+	}
+
+
+	/**
+	 * Builds data resembling serialised entities, with many short repeated
+	 * sequences spread over several blocks.
+	 */
+	private byte[] buildRepetitiveData() {
+		StringBuilder builder = new StringBuilder();
+		Random random = new Random(0);
+
+		for (int i = 0; i < 20000; i++) {
+			builder.append("node id=").append(1000000 + i * 3).append(" version=").append(random.nextInt(5));
+			builder.append(" highway=residential name=Street ").append(random.nextInt(100)).append('\n');
+		}
+		// A long run of identical bytes exercises overlapping matches.
+		for (int i = 0; i < 5000; i++) {
+			builder.append('x');
+		}
+
+		return builder.toString().getBytes();
+	}
+
+
+	/**
+	 * Verifies that compressible data is compressed and restored correctly.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testRepetitiveData() throws IOException {
+		byte[] data = buildRepetitiveData();
+		byte[] compressed = compress(data, 777);
+
+		Assert.assertTrue("The data was not compressed.", compressed.length < data.length / 2);
+		Assert.assertArrayEquals(data, decompress(compressed));
+		Assert.assertArrayEquals(data, decompress(compress(data, 1)));
+	}
+
+
+	/**
+	 * Verifies that incompressible and tiny inputs are restored correctly.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testIncompressibleData() throws IOException {
+		byte[] data = new byte[200000];
+
+		new Random(1).nextBytes(data);
+
+		Assert.assertArrayEquals(data, decompress(compress(data, 100000)));
+		Assert.assertEquals(0, decompress(compress(new byte[0], 1)).length);
+		for (int length = 1; length < 40; length++) {
+			byte[] shortData = Arrays.copyOf(data, length);
+
+			Assert.assertArrayEquals(shortData, decompress(compress(shortData, length)));
+		}
+	}
+
+
+	/**
+	 * Verifies that the output of several streams can be concatenated.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testConcatenatedStreams() throws IOException {
+		byte[] data = buildRepetitiveData();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		out.write(compress(data, 4096));
+		out.write(compress(data, 4096));
+
+		byte[] expected = Arrays.copyOf(data, data.length * 2);
+		System.arraycopy(data, 0, expected, data.length, data.length);
+		Assert.assertArrayEquals(expected, decompress(out.toByteArray()));
+	}
+
+
+	/**
+	 * Verifies that a truncated stream is detected.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test(expected = IOException.class)
+	public void testTruncatedStream() throws IOException {
+		byte[] compressed = compress(buildRepetitiveData(), 4096);
+
+		decompress(Arrays.copyOf(compressed, compressed.length - 10));
+	}
+}
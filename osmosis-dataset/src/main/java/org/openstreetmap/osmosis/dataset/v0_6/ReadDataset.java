@@ -32,8 +32,26 @@ public class ReadDataset implements RunnableDatasetSource {
 	 *            index is used.
 	 */
 	public ReadDataset(File directory, boolean enableWayTileIndex) {
+		this(directory, enableWayTileIndex, false);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param directory
+	 *            The directory to store all data files in.
+	 * @param enableWayTileIndex
+	 *            If true a tile index is created for ways, otherwise a node-way
+	 *            index is used.
+	 * @param enableSpatialIndex
+	 *            If true the Hilbert ordered R-tree indexes are used for
+	 *            bounding box queries. The dataset must have been written with
+	 *            spatial indexes enabled.
+	 */
+	public ReadDataset(File directory, boolean enableWayTileIndex, boolean enableSpatialIndex) {
 		fileManager = new PermanentFileDatasetStoreFileManager(directory);
-		store = new DatasetStore(fileManager, enableWayTileIndex);
+		store = new DatasetStore(fileManager, enableWayTileIndex, enableSpatialIndex, 0);
 	}
 	
 	
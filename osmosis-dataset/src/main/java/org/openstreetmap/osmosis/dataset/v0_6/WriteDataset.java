@@ -33,8 +33,30 @@ public class WriteDataset implements Sink {
 	 *            index is used.
 	 */
 	public WriteDataset(File directory, boolean enableWayTileIndex) {
+		this(directory, enableWayTileIndex, false, 0);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param directory
+	 *            The directory to store all data files in.
+	 * @param enableWayTileIndex
+	 *            If true a tile index is created for ways, otherwise a node-way
+	 *            index is used.
+	 * @param enableSpatialIndex
+	 *            If true Hilbert ordered R-tree indexes are created for nodes
+	 *            and ways, along with copies of the nodes and ways stored in
+	 *            the same order.
+	 * @param workerCount
+	 *            The number of stores and indexes sorted and finalised at the
+	 *            same time once all data has been received, each on its own
+	 *            thread. If 0 or 1, all work occurs on the pipeline thread.
+	 */
+	public WriteDataset(File directory, boolean enableWayTileIndex, boolean enableSpatialIndex, int workerCount) {
 		fileManager = new PermanentFileDatasetStoreFileManager(directory);
-		store = new DatasetStore(fileManager, enableWayTileIndex);
+		store = new DatasetStore(fileManager, enableWayTileIndex, enableSpatialIndex, workerCount);
 	}
 
 
@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.dataset.v0_6;
 
 import java.io.File;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
@@ -17,8 +18,12 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkManager;
 public class WriteDatasetFactory extends TaskManagerFactory {
 	private static final String ARG_DIRECTORY_NAME = "directory";
 	private static final String ARG_ENABLE_WAY_TILE_INDEX = "enableWayTileIndex";
+	private static final String ARG_ENABLE_SPATIAL_INDEX = "enableSpatialIndex";
+	private static final String ARG_WORKERS = "workers";
 	private static final String DEFAULT_DIRECTORY_NAME = "dataset";
 	private static final boolean DEFAULT_ENABLE_WAY_TILE_INDEX = false;
+	private static final boolean DEFAULT_ENABLE_SPATIAL_INDEX = false;
+	private static final int DEFAULT_WORKERS = 0;
 	
 	/**
 	 * {@inheritDoc}
@@ -28,6 +33,8 @@ public class WriteDatasetFactory extends TaskManagerFactory {
 		String directoryName;
 		File directory;
 		boolean enableWayTileIndex;
+		boolean enableSpatialIndex;
+		int workers;
 		WriteDataset task;
 		
 		// Get the task arguments.
@@ -41,12 +48,22 @@ public class WriteDatasetFactory extends TaskManagerFactory {
 			ARG_ENABLE_WAY_TILE_INDEX,
 			DEFAULT_ENABLE_WAY_TILE_INDEX
 		);
+		enableSpatialIndex = getBooleanArgument(
+			taskConfig,
+			ARG_ENABLE_SPATIAL_INDEX,
+			DEFAULT_ENABLE_SPATIAL_INDEX
+		);
+		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		
+		if (workers < 0) {
+			throw new OsmosisRuntimeException("Argument " + ARG_WORKERS + " cannot be negative.");
+		}
 		
 		// Create a file object from the directory name provided.
 		directory = new File(directoryName);
 		
 		// Build the task object.
-		task = new WriteDataset(directory, enableWayTileIndex);
+		task = new WriteDataset(directory, enableWayTileIndex, enableSpatialIndex, workers);
 		
 		return new SinkManager(
 			taskConfig.getId(),
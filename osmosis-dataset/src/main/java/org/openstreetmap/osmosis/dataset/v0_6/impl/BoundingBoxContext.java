@@ -7,6 +7,7 @@ import java.util.Comparator;
 import org.openstreetmap.osmosis.core.filter.common.DynamicIdTracker;
 import org.openstreetmap.osmosis.core.filter.common.IdTracker;
 import org.openstreetmap.osmosis.core.store.UnsignedIntegerComparator;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
 import org.openstreetmap.osmosis.core.util.TileCalculator;
 
 
@@ -29,6 +30,26 @@ public class BoundingBoxContext {
 	 * The minimum tile value for the box.
 	 */
 	public final int minimumTile;
+	/**
+	 * The fixed precision minimum longitude of the box, clamped to valid
+	 * coordinates.
+	 */
+	public final int minimumFixedLongitude;
+	/**
+	 * The fixed precision minimum latitude of the box, clamped to valid
+	 * coordinates.
+	 */
+	public final int minimumFixedLatitude;
+	/**
+	 * The fixed precision maximum longitude of the box, clamped to valid
+	 * coordinates.
+	 */
+	public final int maximumFixedLongitude;
+	/**
+	 * The fixed precision maximum latitude of the box, clamped to valid
+	 * coordinates.
+	 */
+	public final int maximumFixedLatitude;
 	/**
 	 * All node ids are stored within this tracker.
 	 */
@@ -116,10 +137,22 @@ public class BoundingBoxContext {
 		maximumTile = tmpMaximumTile;
 		minimumTile = tmpMinimumTile;
 		
+		// Calculate fixed precision coordinates for use with spatial indexes.
+		// Out of range values are clamped to avoid integer overflow.
+		minimumFixedLongitude = toFixed(left, 180);
+		minimumFixedLatitude = toFixed(bottom, 90);
+		maximumFixedLongitude = toFixed(right, 180);
+		maximumFixedLatitude = toFixed(top, 90);
+		
 		// Create the id trackers.
 		nodeIdTracker = new DynamicIdTracker();
 		wayIdTracker = new DynamicIdTracker();
 		relationIdTracker = new DynamicIdTracker();
 		externalNodeIdTracker = new DynamicIdTracker();
 	}
+	
+	
+	private static int toFixed(double coordinate, double limit) {
+		return FixedPrecisionCoordinateConvertor.convertToFixed(Math.max(-limit, Math.min(limit, coordinate)));
+	}
 }
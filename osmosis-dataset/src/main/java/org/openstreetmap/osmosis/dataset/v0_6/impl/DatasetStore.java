@@ -1,6 +1,12 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.dataset.v0_6.impl;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,6 +40,7 @@ import org.openstreetmap.osmosis.core.store.RandomAccessObjectStoreReader;
 import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
 import org.openstreetmap.osmosis.core.store.UnsignedIntegerComparator;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.core.util.FixedPrecisionCoordinateConvertor;
 import org.openstreetmap.osmosis.core.util.TileCalculator;
 
 
@@ -46,12 +53,28 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 	
 	private static final Logger LOG = Logger.getLogger(DatasetStore.class.getName());
 	
+	/**
+	 * Nodes are read repeatedly while building way geometries, so a number of
+	 * recently read nodes are cached by each reader.
+	 */
+	private static final int NODE_CACHE_SIZE = 20000;
+	private static final int WAY_CACHE_SIZE = 5000;
+	
+	/**
+	 * The version of the layout of the dataset files. This must be incremented
+	 * whenever a change prevents existing datasets from being read.
+	 */
+	/* package */ static final int FORMAT_VERSION = 2;
+	
 	
 	private SortedEntityPipeValidator sortedPipeValidator;
 	private TileCalculator tileCalculator;
 	private UnsignedIntegerComparator uintComparator;
 	
 	private boolean enableWayTileIndex;
+	private boolean enableSpatialIndex;
+	private int workerCount;
+	private File formatVersionFile;
 	
 	private CompletableContainer storeContainer;
 	private RandomAccessObjectStore<Node> nodeObjectStore;
@@ -66,6 +89,8 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 	private IndexStore<Long, LongLongIndexElement> nodeRelationIndexWriter;
 	private IndexStore<Long, LongLongIndexElement> wayRelationIndexWriter;
 	private IndexStore<Long, LongLongIndexElement> relationRelationIndexWriter;
+	private PackedRTree<Node> nodeSpatialIndexWriter;
+	private PackedRTree<Way> waySpatialIndexWriter;
 	
 	private RandomAccessObjectStoreReader<Node> nodeObjectReader;
 	private IndexStoreReader<Long, LongLongIndexElement> nodeObjectOffsetIndexReader;
@@ -81,7 +106,39 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 	 *            index is used.
 	 */
 	public DatasetStore(DatasetStoreFileManager fileManager, boolean enableWayTileIndex) {
+		this(fileManager, enableWayTileIndex, false, 0);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param fileManager
+	 *            The manager providing access to store files.
+	 * @param enableWayTileIndex
+	 *            If true a tile index is created for ways, otherwise a node-way
+	 *            index is used.
+	 * @param enableSpatialIndex
+	 *            If true Hilbert ordered R-tree indexes are created for nodes
+	 *            and ways and used in preference to the tile based indexes for
+	 *            bounding box queries. Nodes and ways are also stored a second
+	 *            time in the order of these indexes so that the entities
+	 *            matching a query are read from contiguous parts of the files.
+	 * @param workerCount
+	 *            The number of stores and indexes completed at the same time
+	 *            once all data has been received. Each one is sorted on its
+	 *            own thread without further workers, so at most this many
+	 *            threads and sort buffers are in use at once. If 0 or 1, all
+	 *            work occurs on the calling thread.
+	 */
+	public DatasetStore(
+			DatasetStoreFileManager fileManager, boolean enableWayTileIndex, boolean enableSpatialIndex,
+			int workerCount) {
 		this.enableWayTileIndex = enableWayTileIndex;
+		this.enableSpatialIndex = enableSpatialIndex;
+		this.workerCount = workerCount;
+		
+		formatVersionFile = fileManager.getFormatVersionFile();
 		
 		storeContainer = new CompletableContainer();
 		
@@ -113,8 +170,9 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 		// Create node store and indexes.
 		nodeObjectStore = storeContainer.add(
 			new RandomAccessObjectStore<Node>(
-				new SingleClassObjectSerializationFactory(Node.class),
-				fileManager.getNodeObjectFile()
+				new SingleClassObjectSerializationFactory(Node.class, Node.STOREABLE_FACTORY),
+				fileManager.getNodeObjectFile(),
+				true
 			)
 		);
 		nodeObjectOffsetIndexWriter = storeContainer.add(
@@ -135,8 +193,9 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 		// Create way store and indexes.
 		wayObjectStore = storeContainer.add(
 			new RandomAccessObjectStore<Way>(
-				new SingleClassObjectSerializationFactory(Way.class),
-				fileManager.getWayObjectFile()
+				new SingleClassObjectSerializationFactory(Way.class, Way.STOREABLE_FACTORY),
+				fileManager.getWayObjectFile(),
+				true
 			)
 		);
 		wayObjectOffsetIndexWriter = storeContainer.add(
@@ -158,8 +217,9 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 		// Create relation store and indexes.
 		relationObjectStore = storeContainer.add(
 			new RandomAccessObjectStore<Relation>(
-				new SingleClassObjectSerializationFactory(Relation.class),
-				fileManager.getRelationObjectFile()
+				new SingleClassObjectSerializationFactory(Relation.class, Relation.STOREABLE_FACTORY),
+				fileManager.getRelationObjectFile(),
+				true
 			)
 		);
 		relationObjectOffsetIndexWriter = storeContainer.add(
@@ -190,6 +250,26 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 				fileManager.getRelationRelationIndexFile()
 			)
 		);
+		
+		// Create spatial indexes.
+		if (enableSpatialIndex) {
+			nodeSpatialIndexWriter = storeContainer.add(
+				new PackedRTree<Node>(
+					fileManager.getNodeSpatialIndexFile(),
+					fileManager.getNodeSpatialObjectFile(),
+					Node.class,
+					Node.STOREABLE_FACTORY
+				)
+			);
+			waySpatialIndexWriter = storeContainer.add(
+				new PackedRTree<Way>(
+					fileManager.getWaySpatialIndexFile(),
+					fileManager.getWaySpatialObjectFile(),
+					Way.class,
+					Way.STOREABLE_FACTORY
+				)
+			);
+		}
 	}
 
 
@@ -253,56 +333,83 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 			new IntegerLongIndexElement((int) tileCalculator.calculateTile(node.getLatitude(), node.getLongitude()),
 			nodeId)
 		);
+		
+		// Write the node location to the spatial index.
+		if (enableSpatialIndex) {
+			int longitude = FixedPrecisionCoordinateConvertor.convertToFixed(node.getLongitude());
+			int latitude = FixedPrecisionCoordinateConvertor.convertToFixed(node.getLatitude());
+			
+			nodeSpatialIndexWriter.add(node, longitude, latitude, longitude, latitude);
+		}
 	}
 	
 	
 	/**
-	 * {@inheritDoc}
+	 * Loads the nodes referenced by a way, ignoring any that don't exist.
+	 * 
+	 * @param way
+	 *            The way.
+	 * @return The nodes that were found.
 	 */
-	public void process(WayContainer wayContainer) {
-		Way way;
-		long wayId;
-		long objectOffset;
-		int minimumTile;
-		int maximumTile;
-		boolean tilesFound;
+	private List<Node> loadWayNodes(Way way) {
+		List<Node> nodes;
 		
 		if (nodeObjectReader == null) {
 			nodeObjectStore.complete();
-			nodeObjectReader = nodeObjectStore.createReader();
+			nodeObjectReader = nodeObjectStore.createReader(true, NODE_CACHE_SIZE);
 		}
 		if (nodeObjectOffsetIndexReader == null) {
 			nodeObjectOffsetIndexWriter.complete();
 			nodeObjectOffsetIndexReader = nodeObjectOffsetIndexWriter.createReader();
 		}
 		
-		way = wayContainer.getEntity();
-		wayId = way.getId();
+		nodes = new ArrayList<Node>(way.getWayNodes().size());
+		for (WayNode wayNode : way.getWayNodes()) {
+			long nodeId;
+			
+			nodeId = wayNode.getNodeId();
+			
+			try {
+				nodes.add(nodeObjectReader.get(
+					nodeObjectOffsetIndexReader.get(nodeId).getValue()
+				));
+				
+			} catch (NoSuchIndexElementException e) {
+				// Ignore any referential integrity problems.
+				if (LOG.isLoggable(Level.FINER)) {
+					LOG.finest(
+						"Ignoring referential integrity problem where way " + way.getId()
+						+ " refers to non-existent node " + nodeId + "."
+					);
+				}
+			}
+		}
 		
-		// Write the way to the object store and save the file offset in an
-		// index keyed by way id.
-		objectOffset = wayObjectStore.add(way);
-		wayObjectOffsetIndexWriter.write(
-			new LongLongIndexElement(wayId, objectOffset)
-		);
+		return nodes;
+	}
+	
+	
+	/**
+	 * Writes the way id to an index keyed by the range of tiles covered by its
+	 * nodes.
+	 * 
+	 * @param wayId
+	 *            The way id.
+	 * @param nodes
+	 *            The nodes of the way, of which there must be at least one.
+	 */
+	private void writeWayTileIndex(long wayId, List<Node> nodes) {
+		int minimumTile;
+		int maximumTile;
+		boolean tilesFound;
 		
-		if (enableWayTileIndex) {
 		// Calculate the minimum and maximum tile indexes for the way.
 		tilesFound = false;
 		minimumTile = 0;
 		maximumTile = 0;
-		for (WayNode wayNode : way.getWayNodes()) {
-			long nodeId;
-			Node node;
+		for (Node node : nodes) {
 			int tile;
 			
-			nodeId = wayNode.getNodeId();
-			
-			try {
-			node = nodeObjectReader.get(
-				nodeObjectOffsetIndexReader.get(nodeId).getValue()
-			);
-			
 			tile = (int) tileCalculator.calculateTile(node.getLatitude(), node.getLongitude());
 			
 			if (tilesFound) {
@@ -319,25 +426,77 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 				
 				tilesFound = true;
 			}
-				
-			} catch (NoSuchIndexElementException e) {
-				// Ignore any referential integrity problems.
-				if (LOG.isLoggable(Level.FINER)) {
-					LOG.finest(
-						"Ignoring referential integrity problem where way " + wayId
-						+ " refers to non-existent node " + nodeId + "."
-					);
-		}
-			}
 		}
 		
-		// Write the way id to an index keyed by tile but only if tiles were
-		// actually found.
-		if (tilesFound) {
 		wayTileIndexWriter.write(wayId, minimumTile, maximumTile);
-			}
+	}
+	
+	
+	/**
+	 * Writes the way and the bounding box of its nodes to the way spatial
+	 * index.
+	 * 
+	 * @param way
+	 *            The way.
+	 * @param nodes
+	 *            The nodes of the way, of which there must be at least one.
+	 */
+	private void writeWaySpatialIndex(Way way, List<Node> nodes) {
+		int minimumLongitude = Integer.MAX_VALUE;
+		int minimumLatitude = Integer.MAX_VALUE;
+		int maximumLongitude = Integer.MIN_VALUE;
+		int maximumLatitude = Integer.MIN_VALUE;
+		
+		for (Node node : nodes) {
+			int longitude = FixedPrecisionCoordinateConvertor.convertToFixed(node.getLongitude());
+			int latitude = FixedPrecisionCoordinateConvertor.convertToFixed(node.getLatitude());
 			
-		} else {
+			minimumLongitude = Math.min(minimumLongitude, longitude);
+			minimumLatitude = Math.min(minimumLatitude, latitude);
+			maximumLongitude = Math.max(maximumLongitude, longitude);
+			maximumLatitude = Math.max(maximumLatitude, latitude);
+		}
+		
+		waySpatialIndexWriter.add(way, minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void process(WayContainer wayContainer) {
+		Way way;
+		long wayId;
+		long objectOffset;
+		
+		way = wayContainer.getEntity();
+		wayId = way.getId();
+		
+		// Write the way to the object store and save the file offset in an
+		// index keyed by way id.
+		objectOffset = wayObjectStore.add(way);
+		wayObjectOffsetIndexWriter.write(
+			new LongLongIndexElement(wayId, objectOffset)
+		);
+		
+		// Write the way id to the geometry based indexes but only if nodes
+		// were actually found.
+		if (enableWayTileIndex || enableSpatialIndex) {
+			List<Node> nodes;
+			
+			nodes = loadWayNodes(way);
+			
+			if (nodes.size() > 0) {
+				if (enableWayTileIndex) {
+					writeWayTileIndex(wayId, nodes);
+				}
+				if (enableSpatialIndex) {
+					writeWaySpatialIndex(way, nodes);
+				}
+			}
+		}
+		
+		if (!enableWayTileIndex) {
 			for (WayNode wayNode : way.getWayNodes()) {
 				long nodeId;
 				
@@ -345,7 +504,7 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 				
 				nodeWayIndexWriter.write(new LongLongIndexElement(nodeId, wayId));
 			}
-	}
+		}
 	}
 	
 	
@@ -390,8 +549,19 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 	 * {@inheritDoc}
 	 */
 	public void complete() {
-		// Complete all the stores to ensure their data is fully persisted.
-		storeContainer.complete();
+		// Complete all the stores to ensure their data is fully persisted. The
+		// stores are independent so out of order indexes can be sorted at the
+		// same time. Each store sorts on the thread completing it, which keeps
+		// the number of threads and sort buffers within the worker count.
+		storeContainer.complete(workerCount);
+		
+		// Record the format last so that an incomplete dataset can't be read.
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(formatVersionFile))) {
+			out.writeInt(FORMAT_VERSION);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to write dataset format version file " + formatVersionFile + ".", e);
+		}
 	}
 	
 	
@@ -400,26 +570,40 @@ public class DatasetStore implements Sink, EntityProcessor, Dataset {
 	 */
 	@Override
 	public DatasetContext createReader() {
+		DatasetStoreReader.checkFormatVersion(formatVersionFile);
+		
 		try (ReleasableContainer releasableContainer = new ReleasableContainer()) {
 			DatasetContext reader;
+			PackedRTreeReader<Node> nodeSpatialIndexReader;
+			PackedRTreeReader<Way> waySpatialIndexReader;
+			
+			if (enableSpatialIndex) {
+				nodeSpatialIndexReader = releasableContainer.add(nodeSpatialIndexWriter.createReader());
+				waySpatialIndexReader = releasableContainer.add(waySpatialIndexWriter.createReader());
+			} else {
+				nodeSpatialIndexReader = null;
+				waySpatialIndexReader = null;
+			}
 			
 			reader = new DatasetStoreReader(
 					new NodeStorageContainer(
-							releasableContainer.add(nodeObjectStore.createReader()),
+							releasableContainer.add(nodeObjectStore.createReader(true, NODE_CACHE_SIZE)),
 							releasableContainer.add(nodeObjectOffsetIndexWriter.createReader()),
 							releasableContainer.add(nodeTileIndexWriter.createReader()),
 							releasableContainer.add(nodeWayIndexWriter.createReader()),
 							releasableContainer.add(nodeRelationIndexWriter.createReader())),
 					new WayStorageContainer(
-							releasableContainer.add(wayObjectStore.createReader()),
+							releasableContainer.add(wayObjectStore.createReader(true, WAY_CACHE_SIZE)),
 							releasableContainer.add(wayObjectOffsetIndexWriter.createReader()),
 							releasableContainer.add(wayTileIndexWriter.createReader()),
 							releasableContainer.add(wayRelationIndexWriter.createReader())),
 					new RelationStorageContainer(
-							releasableContainer.add(relationObjectStore.createReader()),
+							releasableContainer.add(relationObjectStore.createReader(true, 0)),
 							releasableContainer.add(relationObjectOffsetIndexWriter.createReader()),
 							releasableContainer.add(relationRelationIndexWriter.createReader())),
-					enableWayTileIndex
+					enableWayTileIndex,
+					nodeSpatialIndexReader,
+					waySpatialIndexReader
 			);
 			
 			// Stop the release of all created objects.
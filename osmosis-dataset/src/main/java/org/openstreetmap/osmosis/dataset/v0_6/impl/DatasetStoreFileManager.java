@@ -117,4 +117,47 @@ public interface DatasetStoreFileManager extends Closeable {
 	 * @return The relation relation index file.
 	 */
 	File getRelationRelationIndexFile();
+	
+	
+	/**
+	 * Returns the file to be used for the node spatial index.
+	 * 
+	 * @return The node spatial index file.
+	 */
+	File getNodeSpatialIndexFile();
+	
+	
+	/**
+	 * Returns the file to be used for the way spatial index.
+	 * 
+	 * @return The way spatial index file.
+	 */
+	File getWaySpatialIndexFile();
+	
+	
+	/**
+	 * Returns the file to be used for storing node objects in the order of the
+	 * node spatial index.
+	 * 
+	 * @return The node spatial object file.
+	 */
+	File getNodeSpatialObjectFile();
+	
+	
+	/**
+	 * Returns the file to be used for storing way objects in the order of the
+	 * way spatial index.
+	 * 
+	 * @return The way spatial object file.
+	 */
+	File getWaySpatialObjectFile();
+	
+	
+	/**
+	 * Returns the file to be used for recording the format version of the
+	 * dataset files.
+	 * 
+	 * @return The format version file.
+	 */
+	File getFormatVersionFile();
 }
@@ -2,6 +2,10 @@
 package org.openstreetmap.osmosis.dataset.v0_6.impl;
 
 import java.awt.geom.Rectangle2D;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -9,6 +13,7 @@ import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.DatasetContext;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityManager;
@@ -45,6 +50,12 @@ public class DatasetStoreReader implements DatasetContext {
 	
 	private static final Logger LOG = Logger.getLogger(DatasetStoreReader.class.getName());
 	
+	/**
+	 * The number of fixed precision units by which spatial index queries are
+	 * expanded, and inside checks contracted, to allow for rounding.
+	 */
+	private static final int SPATIAL_INDEX_MARGIN = 2;
+	
 	private NodeStorageContainer nodeStorageContainer;
 	private WayStorageContainer wayStorageContainer;
 	private RelationStorageContainer relationStorageContainer;
@@ -53,6 +64,8 @@ public class DatasetStoreReader implements DatasetContext {
 	private RelationManager relationManager;
 	
 	private boolean enableWayTileIndex;
+	private PackedRTreeReader<Node> nodeSpatialIndexReader;
+	private PackedRTreeReader<Way> waySpatialIndexReader;
 	
 	
 	/**
@@ -73,11 +86,43 @@ public class DatasetStoreReader implements DatasetContext {
 			WayStorageContainer wayStorageContainer,
 			RelationStorageContainer relationStorageContainer,
 			boolean enableWayTileIndex) {
+		this(nodeStorageContainer, wayStorageContainer, relationStorageContainer, enableWayTileIndex, null, null);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param nodeStorageContainer
+	 *            The node storages.
+	 * @param wayStorageContainer
+	 *            The way storages.
+	 * @param relationStorageContainer
+	 *            The relation storages.
+	 * @param enableWayTileIndex
+	 *            If true a tile index is created for ways, otherwise a node-way
+	 *            index is used.
+	 * @param nodeSpatialIndexReader
+	 *            The node spatial index, or null if the tile index is to be
+	 *            used for selecting nodes.
+	 * @param waySpatialIndexReader
+	 *            The way spatial index, or null if the tile-way or node-way
+	 *            index is to be used for selecting ways.
+	 */
+	public DatasetStoreReader(
+			NodeStorageContainer nodeStorageContainer,
+			WayStorageContainer wayStorageContainer,
+			RelationStorageContainer relationStorageContainer,
+			boolean enableWayTileIndex,
+			PackedRTreeReader<Node> nodeSpatialIndexReader,
+			PackedRTreeReader<Way> waySpatialIndexReader) {
 		this.nodeStorageContainer = nodeStorageContainer;
 		this.wayStorageContainer = wayStorageContainer;
 		this.relationStorageContainer = relationStorageContainer;
 		
 		this.enableWayTileIndex = enableWayTileIndex;
+		this.nodeSpatialIndexReader = nodeSpatialIndexReader;
+		this.waySpatialIndexReader = waySpatialIndexReader;
 		
 		nodeManager = new NodeManager(nodeStorageContainer);
 		wayManager = new WayManager(wayStorageContainer);
@@ -85,6 +130,40 @@ public class DatasetStoreReader implements DatasetContext {
 	}
 	
 	
+	/**
+	 * Verifies that a dataset was written in the format supported by this
+	 * reader. Datasets written by older versions, or by a write that did not
+	 * finish, must be regenerated before they can be read.
+	 * 
+	 * @param formatVersionFile
+	 *            The file containing the format version of the dataset.
+	 */
+	public static void checkFormatVersion(File formatVersionFile) {
+		int formatVersion;
+		
+		if (!formatVersionFile.exists()) {
+			throw new OsmosisRuntimeException(
+					"Dataset format version file " + formatVersionFile + " does not exist."
+					+ " The dataset was written by an older version or was not completed,"
+					+ " regenerate the dataset using --write-customdb.");
+		}
+		
+		try (DataInputStream in = new DataInputStream(new FileInputStream(formatVersionFile))) {
+			formatVersion = in.readInt();
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException(
+					"Unable to read dataset format version file " + formatVersionFile + ".", e);
+		}
+		
+		if (formatVersion != DatasetStore.FORMAT_VERSION) {
+			throw new OsmosisRuntimeException(
+					"Dataset format version " + formatVersion + " is not supported, version "
+					+ DatasetStore.FORMAT_VERSION + " is required."
+					+ " Regenerate the dataset using --write-customdb.");
+		}
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -312,6 +391,132 @@ public class DatasetStoreReader implements DatasetContext {
 	}
 	
 	
+	/**
+	 * Queries a spatial index for all entries that may intersect the bounding
+	 * box. The query box is expanded by a margin to allow for rounding in the
+	 * fixed precision index coordinates.
+	 * 
+	 * @param spatialIndexReader
+	 *            The spatial index to be queried.
+	 * @param bboxCtx
+	 *            The bounding box data.
+	 * @return The matching entries in the order their entities are stored.
+	 */
+	private Iterator<SpatialIndexElement> querySpatialIndex(PackedRTreeReader<?> spatialIndexReader,
+			BoundingBoxContext bboxCtx) {
+		return spatialIndexReader.query(
+				bboxCtx.minimumFixedLongitude - SPATIAL_INDEX_MARGIN,
+				bboxCtx.minimumFixedLatitude - SPATIAL_INDEX_MARGIN,
+				bboxCtx.maximumFixedLongitude + SPATIAL_INDEX_MARGIN,
+				bboxCtx.maximumFixedLatitude + SPATIAL_INDEX_MARGIN);
+	}
+	
+	
+	/**
+	 * Determines if a spatial index entry lies well inside the bounding box,
+	 * in which case its entity doesn't need to be checked against the box.
+	 * 
+	 * @param element
+	 *            The spatial index entry.
+	 * @param bboxCtx
+	 *            The bounding box data.
+	 * @return True if the entry lies inside the box.
+	 */
+	private boolean isSpatialIndexEntryInsideBox(SpatialIndexElement element, BoundingBoxContext bboxCtx) {
+		return element.isInside(
+				bboxCtx.minimumFixedLongitude + SPATIAL_INDEX_MARGIN,
+				bboxCtx.minimumFixedLatitude + SPATIAL_INDEX_MARGIN,
+				bboxCtx.maximumFixedLongitude - SPATIAL_INDEX_MARGIN,
+				bboxCtx.maximumFixedLatitude - SPATIAL_INDEX_MARGIN);
+	}
+	
+	
+	/**
+	 * Retrieves all nodes for the bounding box using the node spatial index
+	 * and populates the node id tracker. Matching nodes are read from the
+	 * Hilbert ordered node file so they are mostly read sequentially.
+	 * 
+	 * @param bboxCtx
+	 *            The bounding box data.
+	 */
+	private void populateNodeIdsUsingSpatialIndex(BoundingBoxContext bboxCtx) {
+		Iterator<SpatialIndexElement> elements;
+		
+		elements = querySpatialIndex(nodeSpatialIndexReader, bboxCtx);
+		
+		while (elements.hasNext()) {
+			SpatialIndexElement element = elements.next();
+			Node node = nodeSpatialIndexReader.getObject(element);
+			
+			if (isSpatialIndexEntryInsideBox(element, bboxCtx) || isNodeInsideBox(bboxCtx.boundingBox, node)) {
+				bboxCtx.nodeIdTracker.set(node.getId());
+			}
+		}
+	}
+	
+	
+	/**
+	 * Adds a way to the result if it lies within the bounding box, and updates
+	 * the external node tracker with any of its nodes outside the box if
+	 * complete ways are required.
+	 * 
+	 * @param bboxCtx
+	 *            The bounding box data.
+	 * @param way
+	 *            The way to be checked.
+	 * @param knownInside
+	 *            If true the way is already known to lie within the box and
+	 *            its nodes are not checked.
+	 * @param completeWays
+	 *            If true all nodes of selected ways are included.
+	 */
+	private void selectWay(BoundingBoxContext bboxCtx, Way way, boolean knownInside, boolean completeWays) {
+		long wayId = way.getId();
+		
+		if (!knownInside) {
+			List<Node> nodes;
+			
+			// Load the nodes within the way.
+			nodes = new ArrayList<Node>();
+			for (WayNode wayNode : way.getWayNodes()) {
+				try {
+					nodes.add(getNode(wayNode.getNodeId()));
+				} catch (NoSuchIndexElementException e) {
+					// Ignore any referential integrity problems.
+					if (LOG.isLoggable(Level.FINER)) {
+						LOG.finest(
+							"Ignoring referential integrity problem where way " + wayId
+							+ " refers to non-existent node " + wayNode.getNodeId() + "."
+						);
+					}
+				}
+			}
+			
+			// Determine if the way lies within the required bounding box.
+			if (!isWayInsideBox(bboxCtx.boundingBox, nodes)) {
+				return;
+			}
+		}
+		
+		bboxCtx.wayIdTracker.set(wayId);
+		
+		// If we want complete ways, we need to check the list of nodes
+		// adding any nodes that haven't already been selected (ie.
+		// those that are outside the box).
+		if (completeWays) {
+			for (WayNode wayNode : way.getWayNodes()) {
+				long nodeId;
+				
+				nodeId = wayNode.getNodeId();
+				
+				if (!bboxCtx.nodeIdTracker.get(nodeId)) {
+					bboxCtx.externalNodeIdTracker.set(nodeId);
+				}
+			}
+		}
+	}
+	
+	
 	/**
 	 * Retrieves all ways for the bounding box, populates the way id tracker,
 	 * and updates the external node tracker with any nodes outside the box if
@@ -326,54 +531,37 @@ public class DatasetStoreReader implements DatasetContext {
 		try (ReleasableIterator<Long> tileWayIndexValues =
 					 getWayIdsForTileRange(bboxCtx.minimumTile, bboxCtx.maximumTile)) {
 			while (tileWayIndexValues.hasNext()) {
-				long wayId;
-				Way way;
-				List<Node> nodes;
-				
-				// Load the current way.
-				wayId = tileWayIndexValues.next();
-				way = getWay(wayId);
-				
-				// Load the nodes within the way.
-				nodes = new ArrayList<Node>();
-				for (WayNode wayNode : way.getWayNodes()) {
-					try {
-						nodes.add(getNode(wayNode.getNodeId()));
-					} catch (NoSuchIndexElementException e) {
-						// Ignore any referential integrity problems.
-						if (LOG.isLoggable(Level.FINER)) {
-							LOG.finest(
-								"Ignoring referential integrity problem where way " + wayId
-								+ " refers to non-existent node " + wayNode.getNodeId() + "."
-							);
-						}
-					}
-				}
-				
-				// Determine if the way lies within the required bounding box.
-				if (isWayInsideBox(bboxCtx.boundingBox, nodes)) {
-					bboxCtx.wayIdTracker.set(wayId);
-					
-					// If we want complete ways, we need to check the list of nodes
-					// adding any nodes that haven't already been selected (ie.
-					// those that are outside the box).
-					if (completeWays) {
-						for (WayNode wayNode : way.getWayNodes()) {
-							long nodeId;
-							
-							nodeId = wayNode.getNodeId();
-							
-							if (!bboxCtx.nodeIdTracker.get(nodeId)) {
-								bboxCtx.externalNodeIdTracker.set(nodeId);
-							}
-						}
-					}
-				}
+				selectWay(bboxCtx, getWay(tileWayIndexValues.next()), false, completeWays);
 			}
 		}
 	}
 	
 	
+	/**
+	 * Retrieves all ways for the bounding box using the way spatial index,
+	 * populates the way id tracker, and updates the external node tracker
+	 * with any nodes outside the box if complete ways are required. Matching
+	 * ways are read from the Hilbert ordered way file so they are mostly read
+	 * sequentially, and ways with node bounding boxes lying inside the box are
+	 * selected without loading their nodes.
+	 * 
+	 * @param bboxCtx
+	 *            The bounding box data.
+	 */
+	private void populateWayIdsUsingSpatialIndex(BoundingBoxContext bboxCtx, boolean completeWays) {
+		Iterator<SpatialIndexElement> elements;
+		
+		elements = querySpatialIndex(waySpatialIndexReader, bboxCtx);
+		
+		while (elements.hasNext()) {
+			SpatialIndexElement element = elements.next();
+			
+			selectWay(bboxCtx, waySpatialIndexReader.getObject(element), isSpatialIndexEntryInsideBox(element, bboxCtx),
+					completeWays);
+		}
+	}
+	
+	
 	/**
 	 * Retrieves all ways for the currently selected nodes, populates the way id
 	 * tracker, and updates the external node tracker with any nodes outside the
@@ -488,10 +676,18 @@ public class DatasetStoreReader implements DatasetContext {
 			return new EmptyIterator<EntityContainer>();
 		}
 		
-		LOG.fine("Populating node ids.");
-		populateNodeIds(bboxCtx);
+		if (nodeSpatialIndexReader != null) {
+			LOG.fine("Populating node ids using spatial index.");
+			populateNodeIdsUsingSpatialIndex(bboxCtx);
+		} else {
+			LOG.fine("Populating node ids.");
+			populateNodeIds(bboxCtx);
+		}
 		
-		if (isTileWayIndexAvailable()) {
+		if (waySpatialIndexReader != null) {
+			LOG.fine("Populating way ids using spatial index.");
+			populateWayIdsUsingSpatialIndex(bboxCtx, completeWays);
+		} else if (isTileWayIndexAvailable()) {
 			LOG.fine("Populating way ids using tile-way index.");
 			populateWayIdsUsingTileWayIndex(bboxCtx, completeWays);
 		} else {
@@ -601,6 +797,12 @@ public class DatasetStoreReader implements DatasetContext {
 	 */
 	@Override
 	public void close() {
+		if (nodeSpatialIndexReader != null) {
+			nodeSpatialIndexReader.close();
+		}
+		if (waySpatialIndexReader != null) {
+			waySpatialIndexReader.close();
+		}
 		nodeStorageContainer.close();
 		wayStorageContainer.close();
 		relationStorageContainer.close();
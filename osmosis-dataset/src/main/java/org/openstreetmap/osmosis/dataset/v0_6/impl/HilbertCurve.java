@@ -0,0 +1,73 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.dataset.v0_6.impl;
+
+
+/**
+ * Maps fixed precision coordinates to their position along a Hilbert curve.
+ * Points that are close on the curve are close in space, so sorting data by
+ * curve position clusters it spatially.
+ */
+public final class HilbertCurve {
+	
+	/**
+	 * The number of bits used for each dimension.
+	 */
+	private static final int ORDER = 31;
+	/**
+	 * Fixed precision longitudes span more than 31 bits so they are shifted
+	 * right by one bit after being made positive.
+	 */
+	private static final long LONGITUDE_OFFSET = 1800000000L;
+	private static final long LATITUDE_OFFSET = 900000000L;
+	
+	
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private HilbertCurve() {
+	}
+	
+	
+	/**
+	 * Calculates the position of a point on the curve.
+	 * 
+	 * @param longitude
+	 *            The fixed precision longitude.
+	 * @param latitude
+	 *            The fixed precision latitude.
+	 * @return The distance along the curve.
+	 */
+	public static long calculateIndex(int longitude, int latitude) {
+		long x;
+		long y;
+		long index;
+		
+		x = (longitude + LONGITUDE_OFFSET) >>> 1;
+		y = latitude + LATITUDE_OFFSET;
+		index = 0;
+		
+		for (int bit = ORDER - 1; bit >= 0; bit--) {
+			long size = 1L << bit;
+			long rx = (x >>> bit) & 1;
+			long ry = (y >>> bit) & 1;
+			
+			index += size * size * ((3 * rx) ^ ry);
+			
+			// Rotate the quadrant so that the curve is continuous.
+			if (ry == 0) {
+				long tmp;
+				
+				if (rx == 1) {
+					x = size - 1 - (x & (size - 1));
+					y = size - 1 - (y & (size - 1));
+				}
+				
+				tmp = x;
+				x = y;
+				y = tmp;
+			}
+		}
+		
+		return index;
+	}
+}
@@ -60,9 +60,16 @@ public class NodeManager implements EntityManager<Node> {
 	 */
 	@Override
 	public Node getEntity(long id) {
-		return storageContainer.getNodeObjectReader().get(
+		Node node;
+		
+		node = storageContainer.getNodeObjectReader().get(
 				storageContainer.getNodeObjectOffsetIndexReader().get(id).getValue()
 		);
+		
+		// The reader may return the same instance to later callers.
+		node.makeReadOnly();
+		
+		return node;
 	}
 
 	
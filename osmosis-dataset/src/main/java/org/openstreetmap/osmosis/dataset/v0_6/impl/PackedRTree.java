@@ -0,0 +1,320 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.dataset.v0_6.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.Completable;
+import org.openstreetmap.osmosis.core.lifecycle.ReleasableIterator;
+import org.openstreetmap.osmosis.core.sort.common.FileBasedSort;
+import org.openstreetmap.osmosis.core.store.RandomAccessObjectStore;
+import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactory;
+import org.openstreetmap.osmosis.core.store.Storeable;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
+
+
+/**
+ * Builds a static R-tree over entity bounding boxes, together with a copy of
+ * the entities stored in the same order. Entries are sorted by the Hilbert
+ * curve position of their centres and packed into full nodes, so entities
+ * that are close in space are stored close together in both the tree and the
+ * object file. A bounding box query reads a small number of tree nodes, and
+ * the matching entities are mostly read from contiguous regions of the object
+ * file.
+ * <p>
+ * The tree file begins with the number of levels followed by the number of
+ * entries in each level, leaf level first. The levels follow in the same
+ * order. Each entry is a fixed precision bounding box followed by a long value
+ * which is the offset of the entity in the object file for leaf entries, and
+ * the index of the first of up to {@link #NODE_CAPACITY} children in the level
+ * below for other entries.
+ * 
+ * @param <T>
+ *            The type of entity being indexed.
+ */
+public class PackedRTree<T extends Storeable> implements Completable {
+	
+	private static final Logger LOG = Logger.getLogger(PackedRTree.class.getName());
+	
+	/**
+	 * The maximum number of entries in each tree node.
+	 */
+	/* package */ static final int NODE_CAPACITY = 32;
+	
+	/**
+	 * The number of bytes used by each entry.
+	 */
+	/* package */ static final int ENTRY_SIZE = 24;
+	
+	private File file;
+	private StoreableFactory<T> objectFactory;
+	private RandomAccessObjectStore<T> objectStore;
+	private FileBasedSort<SpatialSortElement<T>> sort;
+	private boolean complete;
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param file
+	 *            The file to write the tree to.
+	 * @param objectFile
+	 *            The file to write the Hilbert ordered copy of the entities to.
+	 * @param objectClass
+	 *            The type of entity being indexed.
+	 * @param objectFactory
+	 *            The factory creating entities when they are read back.
+	 */
+	public PackedRTree(File file, File objectFile, Class<T> objectClass, StoreableFactory<T> objectFactory) {
+		this.file = file;
+		this.objectFactory = objectFactory;
+		
+		objectStore = new RandomAccessObjectStore<T>(
+				new SingleClassObjectSerializationFactory(objectClass, objectFactory), objectFile, true);
+		
+		complete = false;
+	}
+	
+	
+	/**
+	 * Adds an entity to the tree.
+	 * 
+	 * @param object
+	 *            The entity.
+	 * @param minimumLongitude
+	 *            The fixed precision minimum longitude.
+	 * @param minimumLatitude
+	 *            The fixed precision minimum latitude.
+	 * @param maximumLongitude
+	 *            The fixed precision maximum longitude.
+	 * @param maximumLatitude
+	 *            The fixed precision maximum latitude.
+	 */
+	public void add(T object, int minimumLongitude, int minimumLatitude, int maximumLongitude, int maximumLatitude) {
+		if (complete) {
+			throw new OsmosisRuntimeException("Cannot add entries once the tree is complete.");
+		}
+		
+		getSort().add(new SpatialSortElement<T>(
+				new SpatialIndexElement(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude, 0),
+				object));
+	}
+	
+	
+	@SuppressWarnings("unchecked")
+	private FileBasedSort<SpatialSortElement<T>> getSort() {
+		if (sort == null) {
+			Class<SpatialSortElement<T>> elementClass;
+			Comparator<SpatialSortElement<T>> ordering;
+			
+			elementClass = (Class<SpatialSortElement<T>>) (Class<?>) SpatialSortElement.class;
+			ordering = new Comparator<SpatialSortElement<T>>() {
+				@Override
+				public int compare(SpatialSortElement<T> o1, SpatialSortElement<T> o2) {
+					return Long.compare(o1.getBox().getHilbertIndex(), o2.getBox().getHilbertIndex());
+				}
+			};
+			
+			sort = new FileBasedSort<SpatialSortElement<T>>(
+					new SingleClassObjectSerializationFactory(
+							elementClass, SpatialSortElement.createFactory(objectFactory)),
+					ordering,
+					true);
+		}
+		
+		return sort;
+	}
+	
+	
+	private static void writeEntry(DataOutputStream out, SpatialIndexElement element) throws IOException {
+		out.writeInt(element.getMinimumLongitude());
+		out.writeInt(element.getMinimumLatitude());
+		out.writeInt(element.getMaximumLongitude());
+		out.writeInt(element.getMaximumLatitude());
+		out.writeLong(element.getValue());
+	}
+	
+	
+	private static DataOutputStream openOutput(File outputFile) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile), 65536));
+	}
+	
+	
+	/**
+	 * Writes the sorted entities to the object store, and their boxes and
+	 * object offsets as the leaf level.
+	 * 
+	 * @return The number of entries written.
+	 */
+	private long writeLeafLevel(File levelFile) throws IOException {
+		long count = 0;
+		
+		try (DataOutputStream out = openOutput(levelFile);
+				ReleasableIterator<SpatialSortElement<T>> elements = getSort().iterate()) {
+			while (elements.hasNext()) {
+				SpatialSortElement<T> element = elements.next();
+				SpatialIndexElement box = element.getBox();
+				long objectOffset = objectStore.add(element.getObject());
+				
+				writeEntry(out, new SpatialIndexElement(
+						box.getMinimumLongitude(), box.getMinimumLatitude(),
+						box.getMaximumLongitude(), box.getMaximumLatitude(),
+						objectOffset));
+				count++;
+			}
+		}
+		
+		objectStore.complete();
+		
+		return count;
+	}
+	
+	
+	/**
+	 * Writes a level containing one entry for each node of the level below.
+	 * 
+	 * @return The number of entries written.
+	 */
+	private long writeParentLevel(File childFile, long childCount, File levelFile) throws IOException {
+		long count = 0;
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(childFile), 65536));
+				DataOutputStream out = openOutput(levelFile)) {
+			for (long childStart = 0; childStart < childCount; childStart += NODE_CAPACITY) {
+				long groupEnd = Math.min(childCount, childStart + NODE_CAPACITY);
+				int minimumLongitude = Integer.MAX_VALUE;
+				int minimumLatitude = Integer.MAX_VALUE;
+				int maximumLongitude = Integer.MIN_VALUE;
+				int maximumLatitude = Integer.MIN_VALUE;
+				
+				for (long i = childStart; i < groupEnd; i++) {
+					minimumLongitude = Math.min(minimumLongitude, in.readInt());
+					minimumLatitude = Math.min(minimumLatitude, in.readInt());
+					maximumLongitude = Math.max(maximumLongitude, in.readInt());
+					maximumLatitude = Math.max(maximumLatitude, in.readInt());
+					in.readLong();
+				}
+				
+				writeEntry(out, new SpatialIndexElement(
+						minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude, childStart));
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	
+	private void buildTree() throws IOException {
+		List<File> levelFiles = new ArrayList<File>();
+		List<Long> levelCounts = new ArrayList<Long>();
+		
+		try {
+			File levelFile;
+			long count;
+			
+			levelFile = File.createTempFile("rtree", null);
+			levelFiles.add(levelFile);
+			count = writeLeafLevel(levelFile);
+			levelCounts.add(count);
+			
+			// Add levels until the top level fits in a single node.
+			while (count > NODE_CAPACITY) {
+				File childFile = levelFile;
+				
+				levelFile = File.createTempFile("rtree", null);
+				levelFiles.add(levelFile);
+				count = writeParentLevel(childFile, count, levelFile);
+				levelCounts.add(count);
+			}
+			
+			// Assemble the levels into the final file.
+			try (DataOutputStream out = openOutput(file)) {
+				byte[] buffer = new byte[65536];
+				
+				out.writeInt(levelCounts.size());
+				for (long levelCount : levelCounts) {
+					out.writeLong(levelCount);
+				}
+				
+				for (File level : levelFiles) {
+					try (InputStream in = new FileInputStream(level)) {
+						int bytesRead;
+						
+						while ((bytesRead = in.read(buffer)) >= 0) {
+							out.write(buffer, 0, bytesRead);
+						}
+					}
+				}
+			}
+			
+		} finally {
+			for (File levelFile : levelFiles) {
+				if (!levelFile.delete()) {
+					LOG.warning("Unable to delete file " + levelFile);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Creates a new reader capable of querying the tree. The reader must be
+	 * explicitly released when no longer required. Readers must be released
+	 * prior to this tree.
+	 * 
+	 * @return A tree reader.
+	 */
+	public PackedRTreeReader<T> createReader() {
+		// The tree reader closes the object reader if it fails to open.
+		return new PackedRTreeReader<T>(file, objectStore.createReader(true, 0));
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete() {
+		if (!complete) {
+			try {
+				buildTree();
+			} catch (IOException e) {
+				throw new OsmosisRuntimeException("Unable to write spatial index file " + file + ".", e);
+			}
+			
+			if (sort != null) {
+				sort.close();
+				sort = null;
+			}
+			
+			complete = true;
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		if (sort != null) {
+			sort.close();
+			sort = null;
+		}
+		
+		objectStore.close();
+	}
+}
@@ -0,0 +1,245 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.dataset.v0_6.impl;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+import org.openstreetmap.osmosis.core.store.MappedFileInputStream;
+import org.openstreetmap.osmosis.core.store.RandomAccessObjectStoreReader;
+
+
+/**
+ * Provides read-only access to a tree written by {@link PackedRTree} and the
+ * entities stored with it.
+ * 
+ * @param <T>
+ *            The type of entity being indexed.
+ */
+public class PackedRTreeReader<T> implements Closeable {
+	
+	private File file;
+	private RandomAccessObjectStoreReader<T> objectReader;
+	private MappedFileInputStream mappedStream;
+	private DataInputStream dataStream;
+	private long[] levelCounts;
+	private long[] levelOffsets;
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param file
+	 *            The file containing the tree.
+	 * @param objectReader
+	 *            Provides access to the Hilbert ordered entities.
+	 */
+	public PackedRTreeReader(File file, RandomAccessObjectStoreReader<T> objectReader) {
+		this.file = file;
+		this.objectReader = objectReader;
+		
+		try {
+			int levelCount;
+			long offset;
+			
+			mappedStream = new MappedFileInputStream(file);
+			dataStream = new DataInputStream(mappedStream);
+			
+			levelCount = dataStream.readInt();
+			levelCounts = new long[levelCount];
+			levelOffsets = new long[levelCount];
+			
+			offset = 4 + 8L * levelCount;
+			for (int i = 0; i < levelCount; i++) {
+				levelCounts[i] = dataStream.readLong();
+				levelOffsets[i] = offset;
+				offset += levelCounts[i] * PackedRTree.ENTRY_SIZE;
+			}
+			
+		} catch (IOException e) {
+			close();
+			throw new OsmosisRuntimeException("Unable to open spatial index file " + file + ".", e);
+		}
+	}
+	
+	
+	/**
+	 * Returns all leaf entries with bounding boxes intersecting the specified
+	 * box. Entries are returned in Hilbert curve order.
+	 * 
+	 * @param minimumLongitude
+	 *            The fixed precision minimum longitude.
+	 * @param minimumLatitude
+	 *            The fixed precision minimum latitude.
+	 * @param maximumLongitude
+	 *            The fixed precision maximum longitude.
+	 * @param maximumLatitude
+	 *            The fixed precision maximum latitude.
+	 * @return The matching entries.
+	 */
+	public Iterator<SpatialIndexElement> query(
+			int minimumLongitude, int minimumLatitude, int maximumLongitude, int maximumLatitude) {
+		return new QueryIterator(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude);
+	}
+	
+	
+	/**
+	 * Gets the entity referenced by a leaf entry. Entities for consecutive
+	 * matches of a query are stored close together, so reading them in the
+	 * order returned by the query mostly reads the object file sequentially.
+	 * 
+	 * @param leafEntry
+	 *            An entry returned by a query.
+	 * @return The entity.
+	 */
+	public T getObject(SpatialIndexElement leafEntry) {
+		return objectReader.get(leafEntry.getValue());
+	}
+	
+	
+	private SpatialIndexElement readEntry(int level, long index) {
+		try {
+			mappedStream.seek(levelOffsets[level] + index * PackedRTree.ENTRY_SIZE);
+			
+			return new SpatialIndexElement(
+					dataStream.readInt(),
+					dataStream.readInt(),
+					dataStream.readInt(),
+					dataStream.readInt(),
+					dataStream.readLong());
+			
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read from spatial index file " + file + ".", e);
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		if (objectReader != null) {
+			objectReader.close();
+			objectReader = null;
+		}
+		if (mappedStream != null) {
+			try {
+				mappedStream.close();
+			} catch (IOException e) {
+				// We are closing the file so there is nothing useful to do.
+			}
+			mappedStream = null;
+			dataStream = null;
+		}
+	}
+	
+	
+	/**
+	 * A contiguous run of entries within a single level of the tree.
+	 */
+	private static class EntryGroup {
+		private int level;
+		private long start;
+		private long end;
+		
+		
+		EntryGroup(int level, long start, long end) {
+			this.level = level;
+			this.start = start;
+			this.end = end;
+		}
+	}
+	
+	
+	/**
+	 * Walks the tree depth first, reading each node only when the previous
+	 * matches have been consumed.
+	 */
+	private class QueryIterator implements Iterator<SpatialIndexElement> {
+		private int minimumLongitude;
+		private int minimumLatitude;
+		private int maximumLongitude;
+		private int maximumLatitude;
+		private Deque<EntryGroup> pendingGroups;
+		private Queue<SpatialIndexElement> matches;
+		
+		
+		QueryIterator(int minimumLongitude, int minimumLatitude, int maximumLongitude, int maximumLatitude) {
+			this.minimumLongitude = minimumLongitude;
+			this.minimumLatitude = minimumLatitude;
+			this.maximumLongitude = maximumLongitude;
+			this.maximumLatitude = maximumLatitude;
+			
+			pendingGroups = new ArrayDeque<EntryGroup>();
+			matches = new LinkedList<SpatialIndexElement>();
+			
+			if (levelCounts.length > 0 && levelCounts[levelCounts.length - 1] > 0) {
+				int topLevel = levelCounts.length - 1;
+				
+				pendingGroups.push(new EntryGroup(topLevel, 0, levelCounts[topLevel]));
+			}
+		}
+		
+		
+		private void readGroup(EntryGroup group) {
+			Deque<EntryGroup> childGroups = new ArrayDeque<EntryGroup>();
+			
+			for (long i = group.start; i < group.end; i++) {
+				SpatialIndexElement element = readEntry(group.level, i);
+				
+				if (element.intersects(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude)) {
+					if (group.level == 0) {
+						matches.add(element);
+					} else {
+						int childLevel = group.level - 1;
+						long childStart = element.getValue();
+						long childEnd = Math.min(levelCounts[childLevel], childStart + PackedRTree.NODE_CAPACITY);
+						
+						childGroups.push(new EntryGroup(childLevel, childStart, childEnd));
+					}
+				}
+			}
+			
+			// Children were collected in reverse so pushing them again restores
+			// their original order at the head of the pending groups.
+			while (!childGroups.isEmpty()) {
+				pendingGroups.push(childGroups.pop());
+			}
+		}
+		
+		
+		@Override
+		public boolean hasNext() {
+			while (matches.isEmpty() && !pendingGroups.isEmpty()) {
+				readGroup(pendingGroups.pop());
+			}
+			
+			return !matches.isEmpty();
+		}
+		
+		
+		@Override
+		public SpatialIndexElement next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			return matches.remove();
+		}
+		
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
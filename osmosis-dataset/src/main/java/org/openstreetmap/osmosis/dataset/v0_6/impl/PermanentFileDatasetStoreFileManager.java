@@ -26,6 +26,11 @@ public class PermanentFileDatasetStoreFileManager implements DatasetStoreFileMan
 	private File nodeRelationIndexFile;
 	private File wayRelationIndexFile;
 	private File relationRelationIndexFile;
+	private File nodeSpatialIndexFile;
+	private File waySpatialIndexFile;
+	private File nodeSpatialObjectFile;
+	private File waySpatialObjectFile;
+	private File formatVersionFile;
 	
 	
 	/**
@@ -210,6 +215,71 @@ public class PermanentFileDatasetStoreFileManager implements DatasetStoreFileMan
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getNodeSpatialIndexFile() {
+		if (nodeSpatialIndexFile == null) {
+			nodeSpatialIndexFile = createDataFile("dsnsi");
+		}
+		
+		return nodeSpatialIndexFile;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getWaySpatialIndexFile() {
+		if (waySpatialIndexFile == null) {
+			waySpatialIndexFile = createDataFile("dswsi");
+		}
+		
+		return waySpatialIndexFile;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getNodeSpatialObjectFile() {
+		if (nodeSpatialObjectFile == null) {
+			nodeSpatialObjectFile = createDataFile("dsnso");
+		}
+		
+		return nodeSpatialObjectFile;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getWaySpatialObjectFile() {
+		if (waySpatialObjectFile == null) {
+			waySpatialObjectFile = createDataFile("dswso");
+		}
+		
+		return waySpatialObjectFile;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getFormatVersionFile() {
+		if (formatVersionFile == null) {
+			formatVersionFile = createDataFile("dsfv");
+		}
+		
+		return formatVersionFile;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
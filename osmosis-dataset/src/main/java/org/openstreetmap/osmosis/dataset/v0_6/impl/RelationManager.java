@@ -60,9 +60,16 @@ public class RelationManager implements EntityManager<Relation> {
 	 */
 	@Override
 	public Relation getEntity(long id) {
-		return storageContainer.getRelationObjectReader().get(
+		Relation relation;
+		
+		relation = storageContainer.getRelationObjectReader().get(
 				storageContainer.getRelationObjectOffsetIndexReader().get(id).getValue()
 		);
+		
+		// The reader may return the same instance to later callers.
+		relation.makeReadOnly();
+		
+		return relation;
 	}
 
 	
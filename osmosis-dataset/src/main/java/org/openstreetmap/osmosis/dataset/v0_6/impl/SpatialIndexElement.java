@@ -0,0 +1,179 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.dataset.v0_6.impl;
+
+import org.openstreetmap.osmosis.core.store.StoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.Storeable;
+
+
+/**
+ * A single entry within a spatial index, holding a fixed precision bounding
+ * box and a value locating the data it bounds.
+ */
+public class SpatialIndexElement implements Storeable {
+	
+	private int minimumLongitude;
+	private int minimumLatitude;
+	private int maximumLongitude;
+	private int maximumLatitude;
+	private long value;
+	private long hilbertIndex;
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param minimumLongitude
+	 *            The fixed precision minimum longitude.
+	 * @param minimumLatitude
+	 *            The fixed precision minimum latitude.
+	 * @param maximumLongitude
+	 *            The fixed precision maximum longitude.
+	 * @param maximumLatitude
+	 *            The fixed precision maximum latitude.
+	 * @param value
+	 *            The offset of the entity in the object file for leaf entries,
+	 *            or the index of the first child for other entries.
+	 */
+	public SpatialIndexElement(
+			int minimumLongitude, int minimumLatitude, int maximumLongitude, int maximumLatitude, long value) {
+		this.minimumLongitude = minimumLongitude;
+		this.minimumLatitude = minimumLatitude;
+		this.maximumLongitude = maximumLongitude;
+		this.maximumLatitude = maximumLatitude;
+		this.value = value;
+		
+		// Use the centre of the box to position the entry on the curve. The
+		// halves are added separately to avoid integer overflow.
+		hilbertIndex = HilbertCurve.calculateIndex(
+				(minimumLongitude >> 1) + (maximumLongitude >> 1),
+				(minimumLatitude >> 1) + (maximumLatitude >> 1));
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param sr
+	 *            The store to read state from.
+	 * @param scr
+	 *            Maintains the mapping between classes and their identifiers
+	 *            within the store.
+	 */
+	public SpatialIndexElement(StoreReader sr, StoreClassRegister scr) {
+		this(sr.readInteger(), sr.readInteger(), sr.readInteger(), sr.readInteger(), sr.readLong());
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void store(StoreWriter sw, StoreClassRegister scr) {
+		sw.writeInteger(minimumLongitude);
+		sw.writeInteger(minimumLatitude);
+		sw.writeInteger(maximumLongitude);
+		sw.writeInteger(maximumLatitude);
+		sw.writeLong(value);
+	}
+	
+	
+	/**
+	 * Gets the fixed precision minimum longitude.
+	 * 
+	 * @return The minimum longitude.
+	 */
+	public int getMinimumLongitude() {
+		return minimumLongitude;
+	}
+	
+	
+	/**
+	 * Gets the fixed precision minimum latitude.
+	 * 
+	 * @return The minimum latitude.
+	 */
+	public int getMinimumLatitude() {
+		return minimumLatitude;
+	}
+	
+	
+	/**
+	 * Gets the fixed precision maximum longitude.
+	 * 
+	 * @return The maximum longitude.
+	 */
+	public int getMaximumLongitude() {
+		return maximumLongitude;
+	}
+	
+	
+	/**
+	 * Gets the fixed precision maximum latitude.
+	 * 
+	 * @return The maximum latitude.
+	 */
+	public int getMaximumLatitude() {
+		return maximumLatitude;
+	}
+	
+	
+	/**
+	 * Gets the entity offset for leaf entries, or the index of the first child
+	 * for other entries.
+	 * 
+	 * @return The value.
+	 */
+	public long getValue() {
+		return value;
+	}
+	
+	
+	/**
+	 * Gets the position of the centre of the box along a Hilbert curve.
+	 * 
+	 * @return The Hilbert curve index.
+	 */
+	public long getHilbertIndex() {
+		return hilbertIndex;
+	}
+	
+	
+	/**
+	 * Indicates if this box intersects the specified box.
+	 * 
+	 * @param minLongitude
+	 *            The fixed precision minimum longitude.
+	 * @param minLatitude
+	 *            The fixed precision minimum latitude.
+	 * @param maxLongitude
+	 *            The fixed precision maximum longitude.
+	 * @param maxLatitude
+	 *            The fixed precision maximum latitude.
+	 * @return True if the boxes overlap or touch.
+	 */
+	public boolean intersects(int minLongitude, int minLatitude, int maxLongitude, int maxLatitude) {
+		return minimumLongitude <= maxLongitude && maximumLongitude >= minLongitude
+				&& minimumLatitude <= maxLatitude && maximumLatitude >= minLatitude;
+	}
+	
+	
+	/**
+	 * Indicates if this box lies entirely within the specified box.
+	 * 
+	 * @param minLongitude
+	 *            The fixed precision minimum longitude.
+	 * @param minLatitude
+	 *            The fixed precision minimum latitude.
+	 * @param maxLongitude
+	 *            The fixed precision maximum longitude.
+	 * @param maxLatitude
+	 *            The fixed precision maximum latitude.
+	 * @return True if this box is contained by the specified box.
+	 */
+	public boolean isInside(int minLongitude, int minLatitude, int maxLongitude, int maxLatitude) {
+		return minimumLongitude >= minLongitude && maximumLongitude <= maxLongitude
+				&& minimumLatitude >= minLatitude && maximumLatitude <= maxLatitude;
+	}
+}
@@ -0,0 +1,86 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.dataset.v0_6.impl;
+
+import org.openstreetmap.osmosis.core.store.StoreClassRegister;
+import org.openstreetmap.osmosis.core.store.StoreReader;
+import org.openstreetmap.osmosis.core.store.StoreWriter;
+import org.openstreetmap.osmosis.core.store.Storeable;
+import org.openstreetmap.osmosis.core.store.StoreableFactory;
+
+
+/**
+ * An object paired with its bounding box, used to sort objects into Hilbert
+ * curve order while a spatial index is being built.
+ * 
+ * @param <T>
+ *            The type of object being indexed.
+ */
+public class SpatialSortElement<T extends Storeable> implements Storeable {
+	
+	private SpatialIndexElement box;
+	private T object;
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param box
+	 *            The bounding box of the object. Its value is not used.
+	 * @param object
+	 *            The object.
+	 */
+	public SpatialSortElement(SpatialIndexElement box, T object) {
+		this.box = box;
+		this.object = object;
+	}
+	
+	
+	/**
+	 * Creates a factory for reading elements from a store.
+	 * 
+	 * @param <T>
+	 *            The type of object being indexed.
+	 * @param objectFactory
+	 *            The factory creating the indexed objects.
+	 * @return The element factory.
+	 */
+	public static <T extends Storeable> StoreableFactory<SpatialSortElement<T>> createFactory(
+			final StoreableFactory<T> objectFactory) {
+		return new StoreableFactory<SpatialSortElement<T>>() {
+			@Override
+			public SpatialSortElement<T> create(StoreReader sr, StoreClassRegister scr) {
+				return new SpatialSortElement<T>(new SpatialIndexElement(sr, scr), objectFactory.create(sr, scr));
+			}
+		};
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void store(StoreWriter sw, StoreClassRegister scr) {
+		box.store(sw, scr);
+		object.store(sw, scr);
+	}
+	
+	
+	/**
+	 * Gets the bounding box of the object.
+	 * 
+	 * @return The bounding box.
+	 */
+	public SpatialIndexElement getBox() {
+		return box;
+	}
+	
+	
+	/**
+	 * Gets the object.
+	 * 
+	 * @return The object.
+	 */
+	public T getObject() {
+		return object;
+	}
+}
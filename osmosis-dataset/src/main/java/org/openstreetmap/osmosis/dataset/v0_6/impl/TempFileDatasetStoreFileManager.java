@@ -35,6 +35,11 @@ public class TempFileDatasetStoreFileManager implements DatasetStoreFileManager
 	private File nodeRelationIndexFile;
 	private File wayRelationIndexFile;
 	private File relationRelationIndexFile;
+	private File nodeSpatialIndexFile;
+	private File waySpatialIndexFile;
+	private File nodeSpatialObjectFile;
+	private File waySpatialObjectFile;
+	private File formatVersionFile;
 	
 	
 	/**
@@ -225,6 +230,71 @@ public class TempFileDatasetStoreFileManager implements DatasetStoreFileManager
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getNodeSpatialIndexFile() {
+		if (nodeSpatialIndexFile == null) {
+			nodeSpatialIndexFile = createTempFile("dsnsi");
+		}
+		
+		return nodeSpatialIndexFile;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getWaySpatialIndexFile() {
+		if (waySpatialIndexFile == null) {
+			waySpatialIndexFile = createTempFile("dswsi");
+		}
+		
+		return waySpatialIndexFile;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getNodeSpatialObjectFile() {
+		if (nodeSpatialObjectFile == null) {
+			nodeSpatialObjectFile = createTempFile("dsnso");
+		}
+		
+		return nodeSpatialObjectFile;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getWaySpatialObjectFile() {
+		if (waySpatialObjectFile == null) {
+			waySpatialObjectFile = createTempFile("dswso");
+		}
+		
+		return waySpatialObjectFile;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getFormatVersionFile() {
+		if (formatVersionFile == null) {
+			formatVersionFile = createTempFile("dsfv");
+		}
+		
+		return formatVersionFile;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -60,9 +60,16 @@ public class WayManager implements EntityManager<Way> {
 	 */
 	@Override
 	public Way getEntity(long id) {
-		return storageContainer.getWayObjectReader().get(
+		Way way;
+		
+		way = storageContainer.getWayObjectReader().get(
 				storageContainer.getWayObjectOffsetIndexReader().get(id).getValue()
 		);
+		
+		// The reader may return the same instance to later callers.
+		way.makeReadOnly();
+		
+		return way;
 	}
 
 	
@@ -1,11 +1,16 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.dataset.v0_6;
 
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 
 import org.junit.Test;
 import org.openstreetmap.osmosis.core.Osmosis;
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.Dataset;
+import org.openstreetmap.osmosis.core.task.v0_6.DatasetSink;
 import org.openstreetmap.osmosis.testutil.AbstractDataTest;
 
 
@@ -16,6 +21,46 @@ import org.openstreetmap.osmosis.testutil.AbstractDataTest;
  */
 public class CustomDbTest extends AbstractDataTest {
 	
+	private void loadAndDump(String writeOption) throws IOException {
+		File inputFile;
+		File outputFile;
+		File dataDir;
+		
+		// Generate input files.
+		inputFile = dataUtils.createDataFile("v0_6/customdb-snapshot.osm");
+		outputFile = File.createTempFile("test", ".osm");
+		dataDir = dataUtils.newFolder();
+		
+		// Load the database with a dataset.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--write-customdb-0.6",
+				"directory=" + dataDir,
+				writeOption
+			}
+		);
+		
+		// Dump the database to an osm file.
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-customdb-0.6",
+				"directory=" + dataDir,
+				"--dataset-dump-0.6",
+				"--tag-sort-0.6",
+				"--write-xml-0.6",
+				outputFile.getPath()
+			}
+		);
+		
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputFile, outputFile);
+	}
+	
+	
 	/**
 	 * A basic test loading an osm file into a pgsql database, then dumping it
 	 * again and verifying that it is identical.
@@ -25,16 +70,38 @@ public class CustomDbTest extends AbstractDataTest {
 	 */
 	@Test
 	public void testLoadAndDump() throws IOException {
+		loadAndDump("enableWayTileIndex=no");
+	}
+	
+	
+	/**
+	 * Tests loading a dataset with indexes finalised by worker threads.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testLoadAndDumpWithWorkers() throws IOException {
+		loadAndDump("workers=4");
+	}
+	
+	
+	/**
+	 * Tests that a dataset written in a different format is rejected rather
+	 * than misread.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test(expected = OsmosisRuntimeException.class)
+	public void testReadUnsupportedFormatVersion() throws IOException {
 		File inputFile;
-		File outputFile;
 		File dataDir;
+		ReadDataset reader;
 		
-		// Generate input files.
 		inputFile = dataUtils.createDataFile("v0_6/customdb-snapshot.osm");
-		outputFile = File.createTempFile("test", ".osm");
 		dataDir = dataUtils.newFolder();
 		
-		// Load the database with a dataset.
 		Osmosis.run(
 			new String[] {
 				"-q",
@@ -45,20 +112,88 @@ public class CustomDbTest extends AbstractDataTest {
 			}
 		);
 		
-		// Dump the database to an osm file.
+		// Replace the format version with one from an earlier release.
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(dataDir, "dsfv")))) {
+			out.writeInt(1);
+		}
+		
+		reader = new ReadDataset(dataDir, false);
+		reader.setDatasetSink(new DatasetSink() {
+			@Override
+			public void process(Dataset dataset) {
+				dataset.createReader().close();
+			}
+			
+			@Override
+			public void close() {
+				// Do nothing.
+			}
+		});
+		reader.run();
+	}
+	
+	
+	private void extractBoundingBox(File dataDir, String readOption, String bottom, File outputFile) {
 		Osmosis.run(
 			new String[] {
 				"-q",
 				"--read-customdb-0.6",
 				"directory=" + dataDir,
-				"--dataset-dump-0.6",
+				"enableWayTileIndex=yes",
+				readOption,
+				"--dataset-bounding-box-0.6",
+				"left=-7",
+				"right=-3",
+				"top=-2",
+				"bottom=" + bottom,
+				"completeWays=yes",
 				"--tag-sort-0.6",
 				"--write-xml-0.6",
 				outputFile.getPath()
 			}
 		);
+	}
+	
+	
+	/**
+	 * Tests that bounding box queries using the spatial indexes select the
+	 * same data as queries using the tile indexes.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testBoundingBoxWithSpatialIndex() throws IOException {
+		File inputFile;
+		File dataDir;
+		
+		inputFile = dataUtils.createDataFile("v0_6/customdb-snapshot.osm");
+		dataDir = dataUtils.newFolder();
+		
+		Osmosis.run(
+			new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputFile.getPath(),
+				"--write-customdb-0.6",
+				"directory=" + dataDir,
+				"enableWayTileIndex=yes",
+				"enableSpatialIndex=yes"
+			}
+		);
 		
-		// Validate that the output file matches the input file.
-		dataUtils.compareFiles(inputFile, outputFile);
+		// The second box has an edge lying exactly on a node.
+		for (String bottom : new String[] {"-6", "-5"}) {
+			File tileOutputFile;
+			File spatialOutputFile;
+			
+			tileOutputFile = File.createTempFile("test", ".osm");
+			spatialOutputFile = File.createTempFile("test", ".osm");
+			
+			extractBoundingBox(dataDir, "enableSpatialIndex=no", bottom, tileOutputFile);
+			extractBoundingBox(dataDir, "enableSpatialIndex=yes", bottom, spatialOutputFile);
+			
+			dataUtils.compareFiles(tileOutputFile, spatialOutputFile);
+		}
 	}
 }
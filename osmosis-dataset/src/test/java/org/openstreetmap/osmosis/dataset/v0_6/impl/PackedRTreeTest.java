@@ -0,0 +1,135 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.dataset.v0_6.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+
+
+/**
+ * Tests the {@link PackedRTree} and {@link PackedRTreeReader} classes.
+ */
+public class PackedRTreeTest extends AbstractDataTest {
+
+	private static final int DEGREE = 10000000;
+
+
+	private PackedRTree<Node> createTree() throws IOException {
+		File folder = dataUtils.newFolder();
+
+		return new PackedRTree<Node>(
+				new File(folder, "rtree"), new File(folder, "objects"), Node.class, Node.STOREABLE_FACTORY);
+	}
+
+
+	private List<Long> query(PackedRTreeReader<Node> reader, int minLon, int minLat, int maxLon, int maxLat) {
+		List<Long> ids = new ArrayList<Long>();
+		Iterator<SpatialIndexElement> elements = reader.query(minLon, minLat, maxLon, maxLat);
+
+		while (elements.hasNext()) {
+			ids.add(reader.getObject(elements.next()).getId());
+		}
+		Collections.sort(ids);
+
+		return ids;
+	}
+
+
+	/**
+	 * Verifies that queries return the same entities as a brute force search
+	 * over a tree with several levels.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testQuery() throws IOException {
+		Random random = new Random(0);
+		List<SpatialIndexElement> elements = new ArrayList<SpatialIndexElement>();
+		PackedRTree<Node> tree = createTree();
+
+		// Enough entries are added to require three levels.
+		for (int i = 0; i < 5000; i++) {
+			int minLon = (random.nextInt(360) - 180) * DEGREE + random.nextInt(DEGREE);
+			int minLat = (random.nextInt(180) - 90) * DEGREE + random.nextInt(DEGREE);
+			int maxLon = minLon + random.nextInt(DEGREE);
+			int maxLat = minLat + random.nextInt(DEGREE);
+
+			if (i % 2 == 0) {
+				maxLon = minLon;
+				maxLat = minLat;
+			}
+
+			elements.add(new SpatialIndexElement(minLon, minLat, maxLon, maxLat, i));
+			tree.add(new Node(new CommonEntityData(i, 1, new Date(0), OsmUser.NONE, 0), 0, 0),
+					minLon, minLat, maxLon, maxLat);
+		}
+		tree.complete();
+
+		try (PackedRTreeReader<Node> reader = tree.createReader()) {
+			for (int i = 0; i < 50; i++) {
+				int minLon = (random.nextInt(360) - 180) * DEGREE;
+				int minLat = (random.nextInt(180) - 90) * DEGREE;
+				int maxLon = minLon + random.nextInt(40) * DEGREE;
+				int maxLat = minLat + random.nextInt(20) * DEGREE;
+				List<Long> expected = new ArrayList<Long>();
+
+				for (SpatialIndexElement element : elements) {
+					if (element.intersects(minLon, minLat, maxLon, maxLat)) {
+						expected.add(element.getValue());
+					}
+				}
+
+				Assert.assertEquals(expected, query(reader, minLon, minLat, maxLon, maxLat));
+			}
+
+			Assert.assertEquals(elements.size(),
+					query(reader, -180 * DEGREE, -90 * DEGREE, 180 * DEGREE, 90 * DEGREE).size());
+
+			// The entities are stored in the order the tree returns them.
+			Iterator<SpatialIndexElement> allElements =
+					reader.query(-180 * DEGREE, -90 * DEGREE, 180 * DEGREE, 90 * DEGREE);
+			long previousOffset = -1;
+			while (allElements.hasNext()) {
+				long offset = allElements.next().getValue();
+
+				Assert.assertTrue(offset > previousOffset);
+				previousOffset = offset;
+			}
+		}
+
+		tree.close();
+	}
+
+
+	/**
+	 * Verifies that an empty tree can be queried.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testEmptyTree() throws IOException {
+		PackedRTree<Node> tree = createTree();
+
+		tree.complete();
+
+		try (PackedRTreeReader<Node> reader = tree.createReader()) {
+			Assert.assertFalse(reader.query(-180 * DEGREE, -90 * DEGREE, 180 * DEGREE, 90 * DEGREE).hasNext());
+		}
+
+		tree.close();
+	}
+}
@@ -19,7 +19,14 @@ package org.openstreetmap.osmosis.osmbinary;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.openstreetmap.osmosis.osmbinary.Osmformat.PrimitiveGroup;
 import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
@@ -33,6 +40,10 @@ import org.openstreetmap.osmosis.osmbinary.file.FileBlock;
  * 
  * All data is converted into PrimGroupWriterInterface objects, which are then
  * ordered to process their data at the appropriate time.
+ * 
+ * If configured with more than one worker, each batch is serialized and
+ * compressed on a thread pool while the caller continues to fill the next
+ * batch. Completed blocks are still written to the output in batch order.
  * */
 
 public class BinarySerializer {
@@ -44,12 +55,13 @@ public class BinarySerializer {
     protected interface PrimGroupWriterInterface {
         /** This callback is invoked on each group that is going into the fileblock in order to give it a chance to 
          * add to the stringtable pool of strings. */
-        public void addStringsToStringtable();
+        public void addStringsToStringtable(StringTable stable);
 
         /**
          * This callback is invoked to request that the primgroup serialize itself into the given protocol buffer object.
+         * The string table is the one previously populated by addStringsToStringtable.
          */
-        public Osmformat.PrimitiveGroup serialize();
+        public Osmformat.PrimitiveGroup serialize(StringTable stable);
     }
 
     /** Set the granularity (precision of lat/lon, measured in unites of nanodegrees. */
@@ -67,6 +79,22 @@ public class BinarySerializer {
         this.batch_limit = batch_limit;
     }
 
+    /**
+     * Configure the number of threads used to serialize and compress batches.
+     * A value of 1 (the default) does all work on the calling thread.
+     */
+    public void configWorkers(int workers) {
+        if (executor != null) {
+            throw new IllegalStateException("Workers have already been configured");
+        }
+        if (workers > 1) {
+            executor = Executors.newFixedThreadPool(workers);
+            // Allow one extra batch to be queued so that a worker can start
+            // on it as soon as it finishes the previous one.
+            max_pending_blocks = workers + 1;
+        }
+    }
+
     // Paramaters affecting the output size.
     protected final int MIN_DENSE = 10;
     protected int batch_limit = 4000;
@@ -84,6 +112,12 @@ public class BinarySerializer {
     protected List<PrimGroupWriterInterface> groups = new ArrayList<PrimGroupWriterInterface>();
     protected BlockOutputStream output;
 
+    /** Serializes batches in parallel, or null if batches are serialized on the calling thread */
+    private ExecutorService executor;
+    private int max_pending_blocks;
+    /** Blocks being built by the executor, in the order they must be written */
+    private Queue<Future<FileBlock>> pending_blocks = new LinkedList<Future<FileBlock>>();
+
     public BinarySerializer(BlockOutputStream output) {
         this.output = output;
     }
@@ -94,11 +128,18 @@ public class BinarySerializer {
 
     public void flush() throws IOException {
         processBatch();
+        writePendingBlocks(0);
         output.flush();
     }
 
     public void close() throws IOException {
-        flush();
+        try {
+            flush();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
         output.close();
     }
 
@@ -108,17 +149,77 @@ public class BinarySerializer {
         // System.out.format("Batch of %d groups: ",groups.size());
         if (groups.size() == 0)
             return;
+        try {
+            if (executor == null) {
+                stringtable.clear();
+                writeBlock(serializeBatch(groups, stringtable));
+            } else {
+                // The groups are handed over to the worker, so give it its
+                // own copy of the list and its own stringtable.
+                final List<PrimGroupWriterInterface> batch = new ArrayList<PrimGroupWriterInterface>(groups);
+                pending_blocks.add(executor.submit(new Callable<FileBlock>() {
+                    @Override
+                    public FileBlock call() {
+                        FileBlock block = serializeBatch(batch, new StringTable());
+                        output.encode(block);
+                        return block;
+                    }
+                }));
+                writePendingBlocks(max_pending_blocks - 1);
+            }
+        } catch (IOException e) {
+            // TODO Auto-generated catch block
+            e.printStackTrace();
+            throw new Error(e);
+        } finally {
+            batch_size = 0;
+            groups.clear();
+        }
+        // System.out.format("\n");
+    }
+
+    /**
+     * Write a block to the output. Any batches still being built by worker
+     * threads are written first so that blocks stay in order.
+     */
+    protected void writeBlock(FileBlock block) throws IOException {
+        writePendingBlocks(0);
+        debug_bytes += block.getData().size();
+        output.write(block);
+    }
+
+    /** Wait for worker threads to finish the oldest batches, writing them until at most targetCount remain. */
+    private void writePendingBlocks(int targetCount) throws IOException {
+        while (pending_blocks.size() > targetCount) {
+            FileBlock block;
+            try {
+                block = pending_blocks.remove().get();
+            } catch (InterruptedException e) {
+                throw new Error("Interrupted while waiting for a block to be serialized", e);
+            } catch (ExecutionException e) {
+                throw new Error("Unable to serialize block", e.getCause());
+            }
+            debug_bytes += block.getData().size();
+            output.write(block);
+        }
+    }
+
+    /**
+     * Serialize a batch of groups into a fileblock, using the provided
+     * stringtable. This touches no other serializer state, so batches with
+     * their own stringtables can be serialized concurrently.
+     */
+    protected FileBlock serializeBatch(List<PrimGroupWriterInterface> batch, StringTable stringtable) {
         Osmformat.PrimitiveBlock.Builder primblock = Osmformat.PrimitiveBlock
                 .newBuilder();
-        stringtable.clear();
         // Preprocessing: Figure out the stringtable.
-        for (PrimGroupWriterInterface i : groups)
-            i.addStringsToStringtable();
+        for (PrimGroupWriterInterface i : batch)
+            i.addStringsToStringtable(stringtable);
 
         stringtable.finish();
         // Now, start serializing.
-        for (PrimGroupWriterInterface i : groups) {
-         PrimitiveGroup group = i.serialize();
+        for (PrimGroupWriterInterface i : batch) {
+         PrimitiveGroup group = i.serialize(stringtable);
          if (group != null)
            primblock.addPrimitivegroup(group);
         }
@@ -131,22 +232,10 @@ public class BinarySerializer {
         Osmformat.PrimitiveBlock message = primblock.build();
 
         // System.out.println(message);
-        debug_bytes += message.getSerializedSize();
         // if (message.getSerializedSize() > 1000000)
         // System.out.println(message);
 
-        try {
-            output.write(FileBlock.newInstance("OSMData", message
-                    .toByteString(), null));
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-            throw new Error(e);
-        } finally {
-            batch_size = 0;
-            groups.clear();
-        }
-        // System.out.format("\n");
+        return FileBlock.newInstance("OSMData", message.toByteString(), null);
     }
 
     /** Convert from a degrees represented as a double into the serialized offset in nanodegrees.. */
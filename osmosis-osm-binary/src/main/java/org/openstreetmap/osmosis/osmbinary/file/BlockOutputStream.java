@@ -52,6 +52,15 @@ public class BlockOutputStream {
         this.write(block, compression);
     }
 
+    /**
+     * Compress a block with the stream's default compression flag without
+     * writing it. This may be called from any thread, allowing several blocks
+     * to be compressed in parallel before being written in order with write().
+     */
+    public void encode(FileBlock block) {
+        block.encode(compression);
+    }
+
     /** Write a specific block with a specific compression flags */
     public void write(FileBlock block, CompressFlags compression)
             throws IOException {
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.Deflater;
 
 import com.google.protobuf.ByteString;
@@ -36,7 +37,12 @@ public class FileBlock extends FileBlockBase {
     ByteString data; // serialized Format.Blob
 
     /** Don't be noisy unless the warning occurs somewhat often */
-    static int warncount = 0;
+    static AtomicInteger warncount = new AtomicInteger();
+
+    /** The blob built by encode(), or null if the block hasn't been encoded yet */
+    private Fileformat.Blob encoded;
+    /** The compression flags that the encoded blob was built with */
+    private CompressFlags encodedFlags;
 
     private FileBlock(String type, ByteString blob, ByteString indexdata) {
         super(type, indexdata);
@@ -70,8 +76,8 @@ public class FileBlock extends FileBlockBase {
         
         if (!deflater.finished()) {
             // Buffer wasn't long enough. Be noisy.
-          ++warncount;
-          if (warncount > 10 && warncount%100 == 0)
+          int count = warncount.incrementAndGet();
+          if (count > 10 && count%100 == 0)
                System.out.println("Compressed buffers are too short, causing extra copy");
             out = Arrays.copyOf(out, size + size / 64 + 16);
             deflater.deflate(out, deflater.getTotalOut(), out.length
@@ -86,14 +92,13 @@ public class FileBlock extends FileBlockBase {
         deflater.end();
     }
 
-    public FileBlockPosition writeTo(OutputStream outwrite, CompressFlags flags)
-            throws IOException {
-        BlobHeader.Builder builder = Fileformat.BlobHeader
-                .newBuilder();
-        if (indexdata != null)
-            builder.setIndexdata(indexdata);
-        builder.setType(type);
-
+    /**
+     * Build the (possibly compressed) blob for this fileblock ahead of writing
+     * it. Compression is the expensive part of writing a block, so this may be
+     * called from a worker thread; writeTo will then reuse the result as long
+     * as it is called with the same flags.
+     */
+    void encode(CompressFlags flags) {
         Fileformat.Blob.Builder blobbuilder = Fileformat.Blob.newBuilder();
         if (flags == CompressFlags.NONE) {
             blobbuilder.setRaw(data);
@@ -105,7 +110,21 @@ public class FileBlock extends FileBlockBase {
             else
                 throw new Error("Compression flag not understood");
         }
-        Fileformat.Blob blob = blobbuilder.build();
+        encoded = blobbuilder.build();
+        encodedFlags = flags;
+    }
+
+    public FileBlockPosition writeTo(OutputStream outwrite, CompressFlags flags)
+            throws IOException {
+        BlobHeader.Builder builder = Fileformat.BlobHeader
+                .newBuilder();
+        if (indexdata != null)
+            builder.setIndexdata(indexdata);
+        builder.setType(type);
+
+        if (encoded == null || encodedFlags != flags)
+            encode(flags);
+        Fileformat.Blob blob = encoded;
 
         builder.setDatasize(blob.getSerializedSize());
         Fileformat.BlobHeader message = builder.build();
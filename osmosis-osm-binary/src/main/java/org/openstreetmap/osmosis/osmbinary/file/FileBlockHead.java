@@ -42,7 +42,7 @@ public class FileBlockHead extends FileBlockReference {
      * Read the header. After reading the header, either the contents must be
      * skipped or read
      */
-    static FileBlockHead readHead(InputStream input) throws IOException {
+    public static FileBlockHead readHead(InputStream input) throws IOException {
         DataInputStream datinput = new DataInputStream(input);
         int headersize = datinput.readInt();
         // System.out.format("Header size %d %x\n",headersize,headersize);
@@ -77,7 +77,7 @@ public class FileBlockHead extends FileBlockReference {
      * 
      * @throws IOException
      */
-    void skipContents(InputStream input) throws IOException {
+    public void skipContents(InputStream input) throws IOException {
         if (input.skip(getDatasize()) != getDatasize())
             assert false : "SHORT READ";
     }
@@ -89,9 +89,20 @@ public class FileBlockHead extends FileBlockReference {
      * @throws IOException
      */
     FileBlock readContents(InputStream input) throws IOException {
+        return parseData(readRawContents(input));
+    }
+
+    /**
+     * Assumes the stream is positioned over at the start of the data, read it
+     * without decompressing it. The result can be passed to parseData, which
+     * need not happen on the thread reading the stream.
+     * 
+     * @throws IOException
+     */
+    public byte[] readRawContents(InputStream input) throws IOException {
         DataInputStream datinput = new DataInputStream(input);
         byte buf[] = new byte[getDatasize()];
         datinput.readFully(buf);
-        return parseData(buf);
+        return buf;
     }
 }
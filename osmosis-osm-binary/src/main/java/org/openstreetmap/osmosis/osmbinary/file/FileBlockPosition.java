@@ -42,26 +42,51 @@ public class FileBlockPosition extends FileBlockBase {
         super(type, indexdata);
     }
 
+    /**
+     * Inflaters hold native memory that is only reclaimed by finalization
+     * unless they are ended, and blocks are usually decoded by a small pool of
+     * worker threads. Each thread re-uses a single inflater and output buffer
+     * for all of the blocks it decompresses.
+     */
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+    private static final ThreadLocal<byte[]> INFLATE_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[0];
+        }
+    };
+
     /** Parse out and decompress the data part of a fileblock helper function. */
-    FileBlock parseData(byte buf[]) throws InvalidProtocolBufferException {
+    public FileBlock parseData(byte buf[]) throws InvalidProtocolBufferException {
         FileBlock out = FileBlock.newInstance(type, null, indexdata);
         Fileformat.Blob blob = Fileformat.Blob.parseFrom(buf);
         if (blob.hasRaw()) {
             out.data = blob.getRaw();
         } else if (blob.hasZlibData()) {
-            byte buf2[] = new byte[blob.getRawSize()];
-            Inflater decompresser = new Inflater();
+            int rawsize = blob.getRawSize();
+            byte buf2[] = INFLATE_BUFFER.get();
+            if (buf2.length < rawsize) {
+                buf2 = new byte[rawsize];
+                INFLATE_BUFFER.set(buf2);
+            }
+            Inflater decompresser = INFLATER.get();
+            decompresser.reset();
             decompresser.setInput(blob.getZlibData().toByteArray());
             // decompresser.getRemaining();
             try {
-                decompresser.inflate(buf2);
+                decompresser.inflate(buf2, 0, rawsize);
             } catch (DataFormatException e) {
                 e.printStackTrace();
                 throw new Error(e);
             }
             assert (decompresser.finished());
-            decompresser.end();
-            out.data = ByteString.copyFrom(buf2);
+            // The buffer is re-used, so the block gets its own copy.
+            out.data = ByteString.copyFrom(buf2, 0, rawsize);
         }
         return out;
     }
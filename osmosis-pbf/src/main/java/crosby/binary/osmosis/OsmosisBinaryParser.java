@@ -13,14 +13,15 @@ import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
 import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
 import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
 import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityDataInterner;
 import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
 import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
 import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
-import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMemberList;
 import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
-import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNodeList;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 
 import org.openstreetmap.osmosis.osmbinary.BinaryParser;
@@ -30,11 +31,23 @@ import org.openstreetmap.osmosis.osmbinary.Osmformat.DenseInfo;
 /** Class that reads and parses binary files and sends the contained entities to the sink. */
 public class OsmosisBinaryParser extends BinaryParser {
 
+    /** Shares strings, tags and users between the entities of all blocks. */
+    private EntityDataInterner interner = EntityDataInterner.getSharedInstance();
+
     @Override
     public void complete() {
         sink.complete();
     }
 
+    /** Look up a string in the current block's string table, returning the interned instance so that
+     * repeated strings don't consume memory once per block.
+     * @param id The string table index.
+     * @return The string. */
+    @Override
+    protected String getStringById(int id) {
+        return interner.intern(super.getStringById(id));
+    }
+
     /** Get the osmosis object representing a the user in a given Info protobuf.
      * @param info The info protobuf.
      * @return The OsmUser object */
@@ -44,7 +57,7 @@ public class OsmosisBinaryParser extends BinaryParser {
             if (info.getUid() < 0) {
               return OsmUser.NONE;
             }
-            return new OsmUser(info.getUid(), getStringById(info.getUserSid()));
+            return interner.getUser(info.getUid(), getStringById(info.getUserSid()));
         } else {
             return OsmUser.NONE;
         }
@@ -60,7 +73,7 @@ public class OsmosisBinaryParser extends BinaryParser {
       for (Osmformat.Node i : nodes) {
         List<Tag> tags = new ArrayList<Tag>();
         for (int j = 0; j < i.getKeysCount(); j++) {
-          tags.add(new Tag(getStringById(i.getKeys(j)), getStringById(i.getVals(j))));
+          tags.add(interner.getTag(getStringById(i.getKeys(j)), getStringById(i.getVals(j))));
         }
         // long id, int version, Date timestamp, OsmUser user,
         // long changesetId, Collection<Tag> tags,
@@ -110,7 +123,7 @@ public class OsmosisBinaryParser extends BinaryParser {
                 while (nodes.getKeysVals(j) != 0) {
                     int keyid = nodes.getKeysVals(j++);
                     int valid = nodes.getKeysVals(j++);
-                    tags.add(new Tag(getStringById(keyid), getStringById(valid)));
+                    tags.add(interner.getTag(getStringById(keyid), getStringById(valid)));
                 }
                 j++; // Skip over the '0' delimiter.
             }
@@ -128,7 +141,7 @@ public class OsmosisBinaryParser extends BinaryParser {
               if (uid < 0) {
                 user = OsmUser.NONE;
               } else {
-                user = new OsmUser(uid, getStringById(userSid));
+                user = interner.getUser(uid, getStringById(userSid));
               }
               tmp = new Node(new CommonEntityData(id, version, date, user, changeset, tags), latf, lonf);
             } else {
@@ -144,13 +157,13 @@ public class OsmosisBinaryParser extends BinaryParser {
         for (Osmformat.Way i : ways) {
             List<Tag> tags = new ArrayList<Tag>();
             for (int j = 0; j < i.getKeysCount(); j++) {
-                tags.add(new Tag(getStringById(i.getKeys(j)), getStringById(i.getVals(j))));
+                tags.add(interner.getTag(getStringById(i.getKeys(j)), getStringById(i.getVals(j))));
             }
                 
             long lastId = 0;
-            List<WayNode> nodes = new ArrayList<WayNode>();
+            WayNodeList nodes = new WayNodeList();
             for (long j : i.getRefsList()) {
-                nodes.add(new WayNode(j + lastId));
+                nodes.addNodeId(j + lastId);
                 lastId = j + lastId;
             }
 
@@ -177,13 +190,13 @@ public class OsmosisBinaryParser extends BinaryParser {
         for (Osmformat.Relation i : rels) {
             List<Tag> tags = new ArrayList<Tag>();
             for (int j = 0; j < i.getKeysCount(); j++) {
-                tags.add(new Tag(getStringById(i.getKeys(j)), getStringById(i.getVals(j))));
+                tags.add(interner.getTag(getStringById(i.getKeys(j)), getStringById(i.getVals(j))));
             }
 
             long id = i.getId();
 
             long lastMid = 0;
-            List<RelationMember> nodes = new ArrayList<RelationMember>();
+            RelationMemberList nodes = new RelationMemberList();
             for (int j = 0; j < i.getMemidsCount(); j++) {
                 long mid = lastMid + i.getMemids(j);
                 lastMid = mid;
@@ -200,7 +213,7 @@ public class OsmosisBinaryParser extends BinaryParser {
                     assert false; // TODO; Illegal file?
                 }
 
-                nodes.add(new RelationMember(mid, etype, role));
+                nodes.addMember(mid, etype, role);
             }
             // long id, int version, TimestampContainer timestampContainer,
             // OsmUser user,
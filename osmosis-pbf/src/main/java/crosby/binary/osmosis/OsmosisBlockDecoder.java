@@ -0,0 +1,170 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package crosby.binary.osmosis;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.osmbinary.file.FileBlockHead;
+
+
+/**
+ * Decodes all blocks from a PBF stream using worker threads, and passes the
+ * results to the downstream sink in file order. The calling thread reads the
+ * raw blocks from the stream, while the workers inflate them and convert them
+ * into entities.
+ */
+public class OsmosisBlockDecoder implements Runnable {
+	private InputStream input;
+	private ExecutorService executorService;
+	private int maxPendingBlocks;
+	private Sink sink;
+	private Queue<Future<List<EntityContainer>>> pendingBlocks;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param input
+	 *            The PBF stream providing the blocks to be decoded.
+	 * @param executorService
+	 *            The executor service managing the thread pool.
+	 * @param maxPendingBlocks
+	 *            The maximum number of blocks to have in progress at any point
+	 *            in time.
+	 * @param sink
+	 *            The sink to send all decoded entities to.
+	 */
+	public OsmosisBlockDecoder(InputStream input, ExecutorService executorService, int maxPendingBlocks,
+			Sink sink) {
+		this.input = input;
+		this.executorService = executorService;
+		this.maxPendingBlocks = maxPendingBlocks;
+		this.sink = sink;
+
+		pendingBlocks = new LinkedList<Future<List<EntityContainer>>>();
+	}
+
+
+	private void sendResultsToSink(int targetQueueSize) {
+		while (pendingBlocks.size() > targetQueueSize) {
+			List<EntityContainer> entities;
+
+			// Wait for the oldest block to be decoded.
+			try {
+				entities = pendingBlocks.remove().get();
+			} catch (InterruptedException e) {
+				throw new OsmosisRuntimeException("Thread was interrupted.", e);
+			} catch (ExecutionException e) {
+				throw new OsmosisRuntimeException("A PBF decoding worker thread failed, aborting.", e.getCause());
+			}
+
+			for (EntityContainer entity : entities) {
+				sink.process(entity);
+			}
+		}
+	}
+
+
+	private void processBlocks() throws IOException {
+		// The parser is only used by this thread to decide which blocks are
+		// worth reading. Each worker uses its own parser because parsers hold
+		// the string table of the block being decoded.
+		OsmosisBinaryParser blockFilter = new OsmosisBinaryParser();
+
+		while (true) {
+			final FileBlockHead blockHead;
+			final byte[] rawBlock;
+
+			// Reading the header length is the only place an EOF is expected.
+			try {
+				blockHead = FileBlockHead.readHead(input);
+			} catch (EOFException e) {
+				break;
+			}
+
+			if (blockFilter.skipBlock(blockHead)) {
+				blockHead.skipContents(input);
+				continue;
+			}
+			rawBlock = blockHead.readRawContents(input);
+
+			pendingBlocks.add(executorService.submit(new Callable<List<EntityContainer>>() {
+				@Override
+				public List<EntityContainer> call() throws IOException {
+					EntityCollector collector = new EntityCollector();
+					OsmosisBinaryParser parser = new OsmosisBinaryParser();
+
+					parser.setSink(collector);
+					parser.handleBlock(blockHead.parseData(rawBlock));
+
+					return collector.entities;
+				}
+			}));
+
+			// If the number of pending blocks has reached capacity we must
+			// begin sending results to the sink. This will block until the
+			// oldest block has been decoded.
+			sendResultsToSink(maxPendingBlocks - 1);
+		}
+
+		// There are no more blocks available in the PBF stream, so send all
+		// remaining data to the sink.
+		sendResultsToSink(0);
+	}
+
+
+	@Override
+	public void run() {
+		try {
+			processBlocks();
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to process PBF stream", e);
+		}
+	}
+
+
+	/**
+	 * Captures the entities decoded from a single block so they can be passed
+	 * to the real sink by the reading thread.
+	 */
+	private static class EntityCollector implements Sink {
+		private List<EntityContainer> entities = new ArrayList<EntityContainer>();
+
+
+		@Override
+		public void initialize(Map<String, Object> metaData) {
+			// Do nothing.
+		}
+
+
+		@Override
+		public void process(EntityContainer entityContainer) {
+			entities.add(entityContainer);
+		}
+
+
+		@Override
+		public void complete() {
+			// Do nothing.
+		}
+
+
+		@Override
+		public void close() {
+			// Do nothing.
+		}
+	}
+}
@@ -4,6 +4,8 @@ package crosby.binary.osmosis;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
@@ -24,10 +26,22 @@ public class OsmosisReader implements RunnableSource {
      * @param input The input stream to read from. 
      */
     public OsmosisReader(InputStream input) {
+        this(input, 1);
+    }
+
+    /**
+     * Make a reader based on a target input stream that decodes blocks using
+     * several threads.
+     * @param input The input stream to read from.
+     * @param workers The number of worker threads for decoding PBF blocks. A
+     *            value of 1 decodes all blocks on the calling thread.
+     */
+    public OsmosisReader(InputStream input, int workers) {
         if (input == null) {
             throw new Error("Null input");
         }
         this.input = input;
+        this.workers = workers;
         parser = new OsmosisBinaryParser();
     }
 
@@ -42,7 +56,11 @@ public class OsmosisReader implements RunnableSource {
         try {
         	sink.initialize(Collections.<String, Object>emptyMap());
         	
-            (new BlockInputStream(input, parser)).process();
+        	if (workers > 1) {
+        		processParallel();
+        	} else {
+        		(new BlockInputStream(input, parser)).process();
+        	}
             
         } catch (IOException e) {
             throw new OsmosisRuntimeException("Unable to process PBF stream", e);
@@ -50,8 +68,24 @@ public class OsmosisReader implements RunnableSource {
         	sink.close();
         }
     }
+
+    private void processParallel() {
+    	ExecutorService executorService = Executors.newFixedThreadPool(workers);
+
+    	try {
+    		// Allow one more block than there are workers to be in progress
+    		// so that a worker never waits for this thread to read a block.
+    		new OsmosisBlockDecoder(input, executorService, workers + 1, sink).run();
+
+    		sink.complete();
+    	} finally {
+    		executorService.shutdownNow();
+    	}
+    }
     /** Store the input stream we're using. */
     InputStream input;
     /** The binary parser object. */
     OsmosisBinaryParser parser;
+    /** The number of worker threads for decoding PBF blocks. */
+    int workers;
 }
@@ -17,6 +17,8 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.RunnableSourceManager;
 public class OsmosisReaderFactory extends TaskManagerFactory {
     private static final String ARG_FILE_NAME = "file";
     private static final String DEFAULT_FILE_NAME = "dump.osm.pbf";
+    private static final String ARG_WORKERS = "workers";
+    private static final int DEFAULT_WORKERS = 1;
 
     /**
      * {@inheritDoc}
@@ -26,17 +28,19 @@ public class OsmosisReaderFactory extends TaskManagerFactory {
         String fileName;
         File file;
         OsmosisReader task;
+        int workers;
 
         // Get the task arguments.
         fileName = getStringArgument(taskConfig, ARG_FILE_NAME,
                 getDefaultStringArgument(taskConfig, DEFAULT_FILE_NAME));
+        workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
 
         // Create a file object from the file name provided.
         file = new File(fileName);
 
         // Build the task object.
         try {
-            task = new OsmosisReader(new FileInputStream(file));
+            task = new OsmosisReader(new FileInputStream(file), workers);
         } catch (FileNotFoundException e) {
             // TODO Auto-generated catch block
             e.printStackTrace();
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -52,7 +53,7 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
   /**
    * Tracks the number of warnings that have occurred during serialisation.
    */
-  static int warncount = 0;
+  static AtomicInteger warncount = new AtomicInteger();
 
 	/**
 	 * Construct a serializer that writes to the target BlockOutputStream.
@@ -86,8 +87,7 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
         }
 
         /** Add all of the tags of all entities in the queue to the stringtable. */
-        public void addStringsToStringtable() {
-            StringTable stable = getStringTable();
+        public void addStringsToStringtable(StringTable stable) {
             for (T i : contents) {
                 Collection<Tag> tags = i.getTags();
                 for (Tag tag : tags) {
@@ -100,19 +100,18 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
             }
         }
         private static final int MAXWARN = 100;
-        public void serializeMetadataDense(DenseInfo.Builder b, List<? extends Entity> entities) {
+        public void serializeMetadataDense(DenseInfo.Builder b, List<? extends Entity> entities, StringTable stable) {
 			if (omit_metadata) {
 				return;
 			}
 
 			long lasttimestamp = 0, lastchangeset = 0;
 			int lastuserSid = 0, lastuid = 0;
-			StringTable stable = getStringTable();
 			for (Entity e : entities) {
 
-            if (e.getUser() == OsmUser.NONE && warncount  < MAXWARN) {
+            if (e.getUser() == OsmUser.NONE && warncount.get() < MAXWARN) {
               LOG.warning("Attention: Data being output lacks metadata. Please use omitmetadata=true");
-              warncount++;
+              warncount.incrementAndGet();
             }
 				int uid = e.getUser().getId();
 				int userSid = stable.getIndex(e.getUser().getName());
@@ -132,13 +131,12 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
 			}
         }
          
-        public Osmformat.Info.Builder serializeMetadata(Entity e) {
-            StringTable stable = getStringTable();
+        public Osmformat.Info.Builder serializeMetadata(Entity e, StringTable stable) {
             Osmformat.Info.Builder b = Osmformat.Info.newBuilder();
             if (!omit_metadata) {
-                if (e.getUser() == OsmUser.NONE && warncount  < MAXWARN) {
+                if (e.getUser() == OsmUser.NONE && warncount.get() < MAXWARN) {
                   LOG.warning("Attention: Data being output lacks metadata. Please use omitmetadata=true");
-                  warncount++;
+                  warncount.incrementAndGet();
                 }
                 if (e.getUser() != OsmUser.NONE) {
                     b.setUid(e.getUser().getId());
@@ -154,25 +152,24 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
 
     private class NodeGroup extends Prim<Node> implements PrimGroupWriterInterface {
 
-      public Osmformat.PrimitiveGroup serialize() {
+      public Osmformat.PrimitiveGroup serialize(StringTable stable) {
           if (useDense) {
-            return serializeDense();
+            return serializeDense(stable);
           } else {
-            return serializeNonDense();
+            return serializeNonDense(stable);
           }
       }
         
         /**
          *  Serialize all nodes in the 'dense' format.
          */
-        public Osmformat.PrimitiveGroup serializeDense() {
+        public Osmformat.PrimitiveGroup serializeDense(StringTable stable) {
             if (contents.size() == 0) {
               return null;
             }
             // System.out.format("%d Dense   ",nodes.size());
             Osmformat.PrimitiveGroup.Builder builder = Osmformat.PrimitiveGroup
                     .newBuilder();
-            StringTable stable = getStringTable();
 
             long lastlat = 0, lastlon = 0, lastid = 0;
             Osmformat.DenseNodes.Builder bi = Osmformat.DenseNodes.newBuilder();
@@ -183,7 +180,7 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
             }
             if (!omit_metadata) {
               Osmformat.DenseInfo.Builder bdi = Osmformat.DenseInfo.newBuilder();
-              serializeMetadataDense(bdi, contents);
+              serializeMetadataDense(bdi, contents, stable);
               bi.setDenseinfo(bdi);
             }
               
@@ -214,14 +211,13 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
         /**
          *  Serialize all nodes in the non-dense format.
          * 
-         * @param parentbuilder Add to this PrimitiveBlock.
+         * @param stable The stringtable for the block being built.
          */
-        public Osmformat.PrimitiveGroup serializeNonDense() {
+        public Osmformat.PrimitiveGroup serializeNonDense(StringTable stable) {
           if (contents.size() == 0) {
             return null;
           }
           // System.out.format("%d Nodes   ",nodes.size());
-          StringTable stable = getStringTable();
           Osmformat.PrimitiveGroup.Builder builder = Osmformat.PrimitiveGroup
           .newBuilder();
           for (Node i : contents) {
@@ -237,7 +233,7 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
               bi.addVals(stable.getIndex(t.getValue()));
             }
             if (!omit_metadata) {
-              bi.setInfo(serializeMetadata(i));
+              bi.setInfo(serializeMetadata(i, stable));
             }
             builder.addNodes(bi);
           }
@@ -249,13 +245,12 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
     
 
     private class WayGroup extends Prim<Way> implements PrimGroupWriterInterface {
-      public Osmformat.PrimitiveGroup serialize() {
+      public Osmformat.PrimitiveGroup serialize(StringTable stable) {
         if (contents.size() == 0) {
           return null;
         }
 
             // System.out.format("%d Ways  ",contents.size());
-            StringTable stable = getStringTable();
             Osmformat.PrimitiveGroup.Builder builder = Osmformat.PrimitiveGroup
                     .newBuilder();
             for (Way i : contents) {
@@ -272,7 +267,7 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
                     bi.addVals(stable.getIndex(t.getValue()));
                 }
                 if (!omit_metadata) {
-                    bi.setInfo(serializeMetadata(i));
+                    bi.setInfo(serializeMetadata(i, stable));
                 }
                 builder.addWays(bi);
             }
@@ -282,9 +277,8 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
 
     private class RelationGroup extends Prim<Relation> implements
             PrimGroupWriterInterface {
-        public void addStringsToStringtable() {
-            StringTable stable = getStringTable();
-            super.addStringsToStringtable();
+        public void addStringsToStringtable(StringTable stable) {
+            super.addStringsToStringtable(stable);
             for (Relation i : contents) {
                 for (RelationMember j : i.getMembers()) {
                     stable.incr(j.getMemberRole());
@@ -292,13 +286,12 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
             }
         }
 
-        public Osmformat.PrimitiveGroup serialize() {
+        public Osmformat.PrimitiveGroup serialize(StringTable stable) {
           if (contents.size() == 0) {
             return null;
           }
 
           // System.out.format("%d Relations  ",contents.size());
-            StringTable stable = getStringTable();
             Osmformat.PrimitiveGroup.Builder builder = Osmformat.PrimitiveGroup
                     .newBuilder();
             for (Relation i : contents) {
@@ -328,7 +321,7 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
                     bi.addVals(stable.getIndex(t.getValue()));
                 }
                 if (!omit_metadata) {
-                    bi.setInfo(serializeMetadata(i));
+                    bi.setInfo(serializeMetadata(i, stable));
                 }
                 builder.addRelations(bi);
             }
@@ -464,7 +457,7 @@ public class OsmosisSerializer extends BinarySerializer implements Sink {
       }
       Osmformat.HeaderBlock message = headerblock.build();
       try {
-          output.write(FileBlock.newInstance("OSMHeader", message
+          writeBlock(FileBlock.newInstance("OSMHeader", message
                   .toByteString(), null));
       } catch (IOException e) {
           throw new OsmosisRuntimeException("Unable to write OSM header.", e);
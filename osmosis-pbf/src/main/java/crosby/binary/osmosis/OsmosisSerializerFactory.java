@@ -47,6 +47,8 @@ public class OsmosisSerializerFactory extends TaskManagerFactory {
                 true));
             task.configGranularity(this.getIntegerArgument(taskConfig,
                     "granularity", 100));
+            task.configWorkers(this.getIntegerArgument(taskConfig,
+                    "workers", 1));
 
             output.setCompress(this.getStringArgument(taskConfig, "compress",
                     "deflate"));
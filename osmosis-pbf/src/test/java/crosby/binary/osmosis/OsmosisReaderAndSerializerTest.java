@@ -49,4 +49,81 @@ public class OsmosisReaderAndSerializerTest extends AbstractDataTest {
         // Validate that the output file matches the input file.
         dataUtils.compareFiles(inputXmlFile, outputXmlFile);
 	}
+
+	/**
+	 * Tests writing to a PBF file using multiple worker threads and reading it
+	 * back.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testWriteWithWorkersAndRead() throws IOException {
+		// Generate data files.
+		File inputXmlFile = dataUtils.createDataFile("v0_6/data-snapshot.osm");
+		File pbfFile = dataUtils.newFile();
+		File outputXmlFile = dataUtils.newFile();
+
+		// Read the XML and write to PBF using small batches spread across
+		// several workers.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputXmlFile.getPath(),
+				"--write-pbf-0.6",
+				"file=" + pbfFile.getPath(),
+				"batchlimit=10",
+				"workers=4"
+				});
+
+		// Read the PBF and write to XML.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-pbf-0.6",
+				pbfFile.getPath(),
+				"--write-xml-0.6",
+				outputXmlFile.getPath()
+				});
+
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputXmlFile, outputXmlFile);
+	}
+
+	/**
+	 * Tests reading a PBF file using multiple worker threads.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testWriteAndReadWithWorkers() throws IOException {
+		// Generate data files.
+		File inputXmlFile = dataUtils.createDataFile("v0_6/data-snapshot.osm");
+		File pbfFile = dataUtils.newFile();
+		File outputXmlFile = dataUtils.newFile();
+
+		// Read the XML and write to PBF using small batches so that the file
+		// contains many blocks.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-xml-0.6",
+				inputXmlFile.getPath(),
+				"--write-pbf-0.6",
+				"file=" + pbfFile.getPath(),
+				"batchlimit=10"
+				});
+
+		// Read the PBF using several workers and write to XML.
+		Osmosis.run(new String[] {
+				"-q",
+				"--read-pbf-0.6",
+				"file=" + pbfFile.getPath(),
+				"workers=4",
+				"--write-xml-0.6",
+				outputXmlFile.getPath()
+				});
+
+		// Validate that the output file matches the input file.
+		dataUtils.compareFiles(inputXmlFile, outputXmlFile);
+	}
 }
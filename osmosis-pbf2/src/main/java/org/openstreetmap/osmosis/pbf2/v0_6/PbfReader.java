@@ -7,26 +7,38 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
 import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfBlobSource;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfBufferPool;
 import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfDecoder;
+import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfMappedFileSplitter;
 import org.openstreetmap.osmosis.pbf2.v0_6.impl.PbfStreamSplitter;
 
 /**
  * An OSM data source reading from a PBF file. The entire contents of the file
- * are read.
+ * are read unless the consumer only requires some entity types.
+ * <p>
+ * Files are memory mapped which allows blocks to be skipped without being read
+ * if the file is sorted and they can't contain any of the required entity
+ * types. Other input streams are read sequentially.
  * 
  * @author Brett Henderson
  */
 public class PbfReader implements RunnableSource {
+	private final File file;
 	private final Supplier<InputStream> supplier;
 	private Sink sink;
 	private int workers;
+	private Set<EntityType> entityTypes;
 
 	/**
 	 * Creates a new instance.
@@ -37,7 +49,23 @@ public class PbfReader implements RunnableSource {
 	 *            The number of worker threads for decoding PBF blocks.
 	 */
 	public PbfReader(final File file, int workers) {
-		this(new Supplier<InputStream>() {
+		this(file, workers, EnumSet.of(EntityType.Node, EntityType.Way, EntityType.Relation));
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param file
+	 *            The file to read.
+	 * @param workers
+	 *            The number of worker threads for decoding PBF blocks.
+	 * @param entityTypes
+	 *            The types of entity to be passed to the sink. Bounds are
+	 *            always passed.
+	 */
+	public PbfReader(final File file, int workers, Set<EntityType> entityTypes) {
+		this.file = file;
+		this.supplier = new Supplier<InputStream>() {
 			@Override
 			public InputStream get() {
 				// make "-" an alias for /dev/stdin
@@ -50,7 +78,9 @@ public class PbfReader implements RunnableSource {
 					throw new OsmosisRuntimeException("Unable to read PBF file " + file + ".", e);
 				}
 			}
-		}, workers);
+		};
+		this.workers = workers;
+		this.entityTypes = entityTypes;
 	}
 
 	/**
@@ -62,8 +92,10 @@ public class PbfReader implements RunnableSource {
 	 *            The number of worker threads for decoding PBF blocks.
 	 */
 	public PbfReader(Supplier<InputStream> supplier, int workers) {
+		this.file = null;
 		this.supplier = supplier;
 		this.workers = workers;
+		this.entityTypes = EnumSet.of(EntityType.Node, EntityType.Way, EntityType.Relation);
 	}
 
 	@Override
@@ -73,16 +105,24 @@ public class PbfReader implements RunnableSource {
 
 	@Override
 	public void run() {
-		PbfStreamSplitter streamSplitter = null;
+		PbfBlobSource blobSource = null;
 		ExecutorService executorService = Executors.newFixedThreadPool(workers);
 
 		try {
-			sink.initialize(Collections.<String, Object>emptyMap());
+			// Each pending blob holds a raw buffer and each worker an
+			// uncompressed buffer, so the pool retains enough of each size to
+			// cover them.
+			PbfBufferPool bufferPool = new PbfBufferPool(2 * (workers + 1));
 
-			InputStream inputStream = supplier.get();
+			sink.initialize(Collections.<String, Object>emptyMap());
 
-			// Create a stream splitter to break the PBF stream into blobs.
-			streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream));
+			// Create a blob source to break the PBF data into blobs. Regular
+			// files are memory mapped so that unnecessary blobs can be skipped.
+			if (file != null && !file.getName().equals("-") && file.isFile()) {
+				blobSource = new PbfMappedFileSplitter(file, bufferPool, entityTypes);
+			} else {
+				blobSource = new PbfStreamSplitter(new DataInputStream(supplier.get()), bufferPool);
+			}
 
 			// Process all blobs of data in the stream using threads from the
 			// executor service. We allow the decoder to issue an extra blob
@@ -90,7 +130,7 @@ public class PbfReader implements RunnableSource {
 			// immediately ready for processing when a worker thread completes.
 			// The main thread is responsible for splitting blobs from the
 			// request stream, and sending decoded entities to the sink.
-			PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink);
+			PbfDecoder pbfDecoder = new PbfDecoder(blobSource, executorService, workers + 1, entityTypes, sink);
 			pbfDecoder.run();
 
 			sink.complete();
@@ -99,8 +139,8 @@ public class PbfReader implements RunnableSource {
 
 			executorService.shutdownNow();
 
-			if (streamSplitter != null) {
-				streamSplitter.close();
+			if (blobSource != null) {
+				blobSource.close();
 			}
 		}
 	}
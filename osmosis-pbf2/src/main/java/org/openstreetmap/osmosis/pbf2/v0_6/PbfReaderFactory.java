@@ -2,7 +2,10 @@
 package org.openstreetmap.osmosis.pbf2.v0_6;
 
 import java.io.File;
+import java.util.EnumSet;
+import java.util.Set;
 
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManagerFactory;
@@ -19,6 +22,9 @@ public class PbfReaderFactory extends TaskManagerFactory {
 	private static final String DEFAULT_FILE_NAME = "dump.osm.pbf";
 	private static final String ARG_WORKERS = "workers";
 	private static final int DEFAULT_WORKERS = 1;
+	private static final String ARG_SKIP_NODES = "skipNodes";
+	private static final String ARG_SKIP_WAYS = "skipWays";
+	private static final String ARG_SKIP_RELATIONS = "skipRelations";
 
 
 	/**
@@ -30,17 +36,28 @@ public class PbfReaderFactory extends TaskManagerFactory {
 		File file;
 		PbfReader task;
 		int workers;
+		Set<EntityType> entityTypes;
 
 		// Get the task arguments.
 		fileName = getStringArgument(taskConfig, ARG_FILE_NAME,
 				getDefaultStringArgument(taskConfig, DEFAULT_FILE_NAME));
 		workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+		entityTypes = EnumSet.noneOf(EntityType.class);
+		if (!getBooleanArgument(taskConfig, ARG_SKIP_NODES, false)) {
+			entityTypes.add(EntityType.Node);
+		}
+		if (!getBooleanArgument(taskConfig, ARG_SKIP_WAYS, false)) {
+			entityTypes.add(EntityType.Way);
+		}
+		if (!getBooleanArgument(taskConfig, ARG_SKIP_RELATIONS, false)) {
+			entityTypes.add(EntityType.Relation);
+		}
 
 		// Create a file object from the file name provided.
 		file = new File(fileName);
 
 		// Build the task object.
-		task = new PbfReader(file, workers);
+		task = new PbfReader(file, workers, entityTypes);
 
 		return new RunnableSourceManager(taskConfig.getId(), task, taskConfig.getPipeArgs());
 	}
@@ -0,0 +1,22 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.util.Iterator;
+
+import org.openstreetmap.osmosis.core.lifecycle.Closeable;
+
+
+/**
+ * Provides the raw blobs of a PBF file in file order.
+ */
+public interface PbfBlobSource extends Iterator<PbfRawBlob>, Closeable {
+
+	/**
+	 * Gets the pool providing the buffers holding raw blob data. Consumers of
+	 * the blobs should return the buffers to this pool once they have been
+	 * decoded.
+	 *
+	 * @return The buffer pool.
+	 */
+	PbfBufferPool getBufferPool();
+}
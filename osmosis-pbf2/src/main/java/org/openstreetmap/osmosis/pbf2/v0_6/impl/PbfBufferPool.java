@@ -0,0 +1,126 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+
+/**
+ * Maintains a pool of byte arrays for holding raw and uncompressed blob data.
+ * Blobs can be several megabytes in size, and allocating new arrays for every
+ * blob in a large file causes significant garbage collection overhead. Arrays
+ * are grouped into power of two size classes so that an array released after
+ * decoding one blob can be re-used for any other blob of a similar size.
+ * <p>
+ * The pool is shared by the thread splitting the stream and the worker threads
+ * decoding blobs, so all methods are thread safe.
+ */
+public class PbfBufferPool {
+	/**
+	 * The smallest array size handed out by the pool is 64KB.
+	 */
+	private static final int MIN_SIZE_CLASS = 16;
+	/**
+	 * The largest array size retained by the pool is 1GB. Larger requests are
+	 * allocated exactly and are not pooled.
+	 */
+	private static final int MAX_SIZE_CLASS = 30;
+
+	private int maxBuffersPerSize;
+	private int maxSizeClass;
+	private Deque<byte[]>[] pools;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param maxBuffersPerSize
+	 *            The maximum number of released arrays to retain for each size
+	 *            class. This should be at least the number of arrays expected
+	 *            to be in use at once.
+	 */
+	public PbfBufferPool(int maxBuffersPerSize) {
+		this(maxBuffersPerSize, MAX_SIZE_CLASS);
+	}
+
+
+	/**
+	 * Creates a new instance with a smaller limit on the size of pooled
+	 * arrays. This allows tests to exercise the handling of large arrays.
+	 *
+	 * @param maxBuffersPerSize
+	 *            The maximum number of released arrays to retain for each size
+	 *            class.
+	 * @param maxSizeClass
+	 *            The power of two size of the largest array to be pooled.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	/* package */ PbfBufferPool(int maxBuffersPerSize, int maxSizeClass) {
+		this.maxBuffersPerSize = maxBuffersPerSize;
+		this.maxSizeClass = maxSizeClass;
+
+		pools = new Deque[maxSizeClass + 1];
+		for (int i = MIN_SIZE_CLASS; i <= maxSizeClass; i++) {
+			pools[i] = new ArrayDeque<byte[]>();
+		}
+	}
+
+
+	private static int getSizeClass(int size) {
+		return Math.max(MIN_SIZE_CLASS, 32 - Integer.numberOfLeadingZeros(size - 1));
+	}
+
+
+	/**
+	 * Obtains an array of at least the requested size. The contents of the
+	 * array are undefined.
+	 *
+	 * @param size
+	 *            The minimum size of the array.
+	 * @return The array.
+	 */
+	public byte[] acquire(int size) {
+		int sizeClass = getSizeClass(size);
+		byte[] buffer;
+
+		if (sizeClass > maxSizeClass) {
+			return new byte[size];
+		}
+
+		synchronized (this) {
+			buffer = pools[sizeClass].pollFirst();
+		}
+		if (buffer == null) {
+			buffer = new byte[1 << sizeClass];
+		}
+
+		return buffer;
+	}
+
+
+	/**
+	 * Returns an array to the pool so that it can be re-used. Arrays not
+	 * obtained from the pool are ignored. The caller must not use the array
+	 * after releasing it.
+	 *
+	 * @param buffer
+	 *            The array to be released.
+	 */
+	public void release(byte[] buffer) {
+		int sizeClass;
+
+		if (buffer == null || Integer.bitCount(buffer.length) != 1) {
+			return;
+		}
+		sizeClass = getSizeClass(buffer.length);
+		if (buffer.length != 1 << sizeClass || sizeClass > maxSizeClass) {
+			return;
+		}
+
+		synchronized (this) {
+			if (pools[sizeClass].size() < maxBuffersPerSize) {
+				pools[sizeClass].addFirst(buffer);
+			}
+		}
+	}
+}
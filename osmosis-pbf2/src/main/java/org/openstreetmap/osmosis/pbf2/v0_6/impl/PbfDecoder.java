@@ -1,9 +1,11 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -11,6 +13,7 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 
 
@@ -21,9 +24,10 @@ import org.openstreetmap.osmosis.core.task.v0_6.Sink;
  * @author Brett Henderson
  */
 public class PbfDecoder implements Runnable {
-	private PbfStreamSplitter streamSplitter;
+	private PbfBlobSource blobSource;
 	private ExecutorService executorService;
 	private int maxPendingBlobs;
+	private Set<EntityType> entityTypes;
 	private Sink sink;
 	private Lock lock;
 	private Condition dataWaitCondition;
@@ -33,9 +37,8 @@ public class PbfDecoder implements Runnable {
 	/**
 	 * Creates a new instance.
 	 * 
-	 * @param streamSplitter
-	 *            The PBF stream splitter providing the source of blobs to be
-	 *            decoded.
+	 * @param blobSource
+	 *            The source of blobs to be decoded.
 	 * @param executorService
 	 *            The executor service managing the thread pool.
 	 * @param maxPendingBlobs
@@ -44,11 +47,33 @@ public class PbfDecoder implements Runnable {
 	 * @param sink
 	 *            The sink to send all decoded entities to.
 	 */
-	public PbfDecoder(PbfStreamSplitter streamSplitter, ExecutorService executorService, int maxPendingBlobs,
+	public PbfDecoder(PbfBlobSource blobSource, ExecutorService executorService, int maxPendingBlobs,
 			Sink sink) {
-		this.streamSplitter = streamSplitter;
+		this(blobSource, executorService, maxPendingBlobs, EnumSet.allOf(EntityType.class), sink);
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param blobSource
+	 *            The source of blobs to be decoded.
+	 * @param executorService
+	 *            The executor service managing the thread pool.
+	 * @param maxPendingBlobs
+	 *            The maximum number of blobs to have in progress at any point
+	 *            in time.
+	 * @param entityTypes
+	 *            The types of entity to be passed to the sink.
+	 * @param sink
+	 *            The sink to send all decoded entities to.
+	 */
+	public PbfDecoder(PbfBlobSource blobSource, ExecutorService executorService, int maxPendingBlobs,
+			Set<EntityType> entityTypes, Sink sink) {
+		this.blobSource = blobSource;
 		this.executorService = executorService;
 		this.maxPendingBlobs = maxPendingBlobs;
+		this.entityTypes = entityTypes;
 		this.sink = sink;
 
 		// Create the thread synchronisation primitives.
@@ -114,9 +139,9 @@ public class PbfDecoder implements Runnable {
 
 	private void processBlobs() {
 		// Process until the PBF stream is exhausted.
-		while (streamSplitter.hasNext()) {
+		while (blobSource.hasNext()) {
 			// Obtain the next raw blob from the PBF stream.
-			PbfRawBlob rawBlob = streamSplitter.next();
+			PbfRawBlob rawBlob = blobSource.next();
 
 			// Create the result object to capture the results of the decoded
 			// blob and add it to the blob results queue.
@@ -154,7 +179,8 @@ public class PbfDecoder implements Runnable {
 			};
 
 			// Create the blob decoder itself and execute it on a worker thread.
-			PbfBlobDecoder blobDecoder = new PbfBlobDecoder(rawBlob.getType(), rawBlob.getData(), decoderListener);
+			PbfBlobDecoder blobDecoder =
+					new PbfBlobDecoder(rawBlob, blobSource.getBufferPool(), entityTypes, decoderListener);
 			executorService.execute(blobDecoder);
 
 			// If the number of pending blobs has reached capacity we must begin
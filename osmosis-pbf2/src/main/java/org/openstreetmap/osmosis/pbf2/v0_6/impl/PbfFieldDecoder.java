@@ -44,6 +44,30 @@ public class PbfFieldDecoder {
 	}
 
 
+	/**
+	 * Creates a new instance from fields that have already been decoded.
+	 * 
+	 * @param strings
+	 *            The string table of the block.
+	 * @param coordGranularity
+	 *            The granularity of coordinates in nanodegrees.
+	 * @param coordLatitudeOffset
+	 *            The offset applied to latitudes in nanodegrees.
+	 * @param coordLongitudeOffset
+	 *            The offset applied to longitudes in nanodegrees.
+	 * @param dateGranularity
+	 *            The granularity of timestamps in milliseconds.
+	 */
+	public PbfFieldDecoder(String[] strings, int coordGranularity, long coordLatitudeOffset,
+			long coordLongitudeOffset, int dateGranularity) {
+		this.strings = strings;
+		this.coordGranularity = coordGranularity;
+		this.coordLatitudeOffset = coordLatitudeOffset;
+		this.coordLongitudeOffset = coordLongitudeOffset;
+		this.dateGranularity = dateGranularity;
+	}
+
+
 	/**
 	 * Decodes a raw latitude value into degrees.
 	 * 
@@ -0,0 +1,443 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.osmbinary.Fileformat.Blob;
+import org.openstreetmap.osmosis.osmbinary.Fileformat.BlobHeader;
+import org.openstreetmap.osmosis.osmbinary.Osmformat.HeaderBlock;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+
+/**
+ * Provides the raw blobs of a PBF file by memory mapping the file instead of
+ * reading it as a stream. Only the blob headers are read up front, which
+ * allows blobs that can't contain any of the requested entity types to be
+ * skipped without being read or inflated.
+ * <p>
+ * Blobs can only be skipped if the file header declares that the file is
+ * sorted by type then id. In that case the first entity type of each block is
+ * non-decreasing through the file, and a block can only contain types between
+ * its own first type and the first type of the next block. The first type of a
+ * block is found by inflating only the start of the block, and a binary search
+ * means only a handful of blocks need to be examined to find the boundaries
+ * between types. Blocks without any nodes, ways or relations, such as empty or
+ * changeset only blocks, are treated as having the type of the preceding
+ * block so that types remain non-decreasing. Files that aren't sorted are
+ * read in full.
+ */
+public class PbfMappedFileSplitter implements PbfBlobSource {
+
+	private static final Logger LOG = Logger.getLogger(PbfMappedFileSplitter.class.getName());
+
+	private static final long MAX_WINDOW_SIZE = 1L << 30;
+	private static final int MAX_HEADER_SIZE = 64 * 1024;
+	private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+	private static final String SORTED_FEATURE = "Sort.Type_then_ID";
+
+	// Entity types in the order they appear in a sorted file.
+	private static final int RANK_NODE = 0;
+	private static final int RANK_WAY = 1;
+	private static final int RANK_RELATION = 2;
+	private static final int RANK_NONE = 3;
+
+	private File file;
+	private PbfBufferPool bufferPool;
+	private boolean[] rankRequired;
+	private RandomAccessFile randomAccessFile;
+	private FileChannel channel;
+	private long fileSize;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private Inflater inflater;
+	private List<BlobPosition> blobs;
+	private List<BlobPosition> dataBlobs;
+	private int nextBlobIndex;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param file
+	 *            The PBF file to be read.
+	 * @param bufferPool
+	 *            The pool providing the buffers to hold raw blob data.
+	 * @param entityTypes
+	 *            The entity types required by the consumer. Blocks that can be
+	 *            proven to contain none of these types are skipped.
+	 */
+	public PbfMappedFileSplitter(File file, PbfBufferPool bufferPool, Set<EntityType> entityTypes) {
+		this.file = file;
+		this.bufferPool = bufferPool;
+
+		rankRequired = new boolean[RANK_NONE];
+		rankRequired[RANK_NODE] = entityTypes.contains(EntityType.Node);
+		rankRequired[RANK_WAY] = entityTypes.contains(EntityType.Way);
+		rankRequired[RANK_RELATION] = entityTypes.contains(EntityType.Relation);
+
+		inflater = new Inflater();
+	}
+
+
+	/**
+	 * Gets a buffer containing the specified range of the file, mapping a new
+	 * region of the file if the range isn't within the current one.
+	 */
+	private ByteBuffer map(long offset, int length) throws IOException {
+		ByteBuffer buffer;
+
+		if (offset + length > fileSize) {
+			throw new OsmosisRuntimeException("PBF file " + file + " is truncated.");
+		}
+
+		if (window == null || offset < windowStart || offset + length > windowStart + window.capacity()) {
+			window = channel.map(MapMode.READ_ONLY, offset,
+					Math.min(Math.max(MAX_WINDOW_SIZE, length), fileSize - offset));
+			windowStart = offset;
+		}
+
+		buffer = window.duplicate();
+		buffer.position((int) (offset - windowStart));
+		buffer.limit(buffer.position() + length);
+
+		return buffer;
+	}
+
+
+	private void scanBlobHeaders() throws IOException {
+		byte[] headerBuffer = new byte[0];
+		long offset = 0;
+
+		blobs = new ArrayList<BlobPosition>();
+		dataBlobs = new ArrayList<BlobPosition>();
+
+		while (offset < fileSize) {
+			int headerLength;
+			BlobHeader blobHeader;
+			BlobPosition blob;
+
+			headerLength = map(offset, 4).getInt();
+			if (headerLength < 0 || headerLength > MAX_HEADER_SIZE) {
+				throw new OsmosisRuntimeException("PBF file " + file + " contains an invalid blob header length "
+						+ headerLength + " at offset " + offset + ".");
+			}
+			offset += 4;
+
+			if (headerBuffer.length < headerLength) {
+				headerBuffer = new byte[headerLength];
+			}
+			map(offset, headerLength).get(headerBuffer, 0, headerLength);
+			blobHeader = BlobHeader.parseFrom(CodedInputStream.newInstance(headerBuffer, 0, headerLength));
+			offset += headerLength;
+
+			if (blobHeader.getDatasize() < 0 || blobHeader.getDatasize() > MAX_BLOB_SIZE) {
+				throw new OsmosisRuntimeException("PBF file " + file + " contains an invalid blob size "
+						+ blobHeader.getDatasize() + " at offset " + offset + ".");
+			}
+
+			blob = new BlobPosition(blobHeader.getType(), offset, blobHeader.getDatasize());
+			blobs.add(blob);
+			if ("OSMData".equals(blob.type)) {
+				dataBlobs.add(blob);
+			}
+			offset += blob.length;
+		}
+	}
+
+
+	/**
+	 * Opens the uncompressed contents of a blob for streaming. Only as much of
+	 * the blob as the caller reads is inflated.
+	 */
+	private InputStream openBlobContent(BlobPosition blob) throws IOException {
+		byte[] rawBlob = bufferPool.acquire(blob.length);
+		Blob parsedBlob;
+
+		try {
+			map(blob.offset, blob.length).get(rawBlob, 0, blob.length);
+			parsedBlob = Blob.parseFrom(CodedInputStream.newInstance(rawBlob, 0, blob.length));
+		} finally {
+			bufferPool.release(rawBlob);
+		}
+
+		if (parsedBlob.hasRaw()) {
+			return parsedBlob.getRaw().newInput();
+		} else if (parsedBlob.hasZlibData()) {
+			inflater.reset();
+			return new InflaterInputStream(parsedBlob.getZlibData().newInput(), inflater);
+		} else {
+			throw new OsmosisRuntimeException("PBF blob uses unsupported compression, only raw or zlib may be used.");
+		}
+	}
+
+
+	private boolean isSorted() throws IOException {
+		for (BlobPosition blob : blobs) {
+			if ("OSMHeader".equals(blob.type)) {
+				HeaderBlock header = HeaderBlock.parseFrom(openBlobContent(blob));
+
+				return header.getOptionalFeaturesList().contains(SORTED_FEATURE);
+			}
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Gets the rank of the first entity type in a data block. Only the string
+	 * table and the start of the first primitive group are inflated.
+	 */
+	private int getFirstRank(int dataBlobIndex) throws IOException {
+		BlobPosition blob = dataBlobs.get(dataBlobIndex);
+
+		if (blob.firstRank < 0) {
+			CodedInputStream input = CodedInputStream.newInstance(openBlobContent(blob));
+			int tag;
+
+			blob.firstRank = RANK_NONE;
+
+			// Stop as soon as the type is known to avoid inflating the rest of
+			// the block.
+			tag = input.readTag();
+			while (tag != 0 && blob.firstRank == RANK_NONE) {
+				if (WireFormat.getTagFieldNumber(tag) == 2) {
+					int oldLimit = input.pushLimit(PbfPrimitiveBlockDecoder.readLength(input, tag));
+
+					switch (WireFormat.getTagFieldNumber(input.readTag())) {
+					case 1:
+					case 2:
+						blob.firstRank = RANK_NODE;
+						break;
+					case 3:
+						blob.firstRank = RANK_WAY;
+						break;
+					case 4:
+						blob.firstRank = RANK_RELATION;
+						break;
+					default:
+						// Empty or changeset groups don't help, move on to the
+						// next group.
+						input.skipRawBytes(input.getBytesUntilLimit());
+						input.popLimit(oldLimit);
+						tag = input.readTag();
+						break;
+					}
+				} else {
+					input.skipField(tag);
+					tag = input.readTag();
+				}
+			}
+		}
+
+		return blob.firstRank;
+	}
+
+
+	/**
+	 * Gets the rank used to order a data block. This is the rank of its first
+	 * entity type, or for a block without nodes, ways or relations the rank of
+	 * the closest preceding block that has them. A block without entities can
+	 * only be followed by entities of the same or a higher rank than those
+	 * before it, so this keeps ranks non-decreasing through a sorted file.
+	 */
+	private int getBlockRank(int dataBlobIndex) throws IOException {
+		for (int i = dataBlobIndex; i >= 0; i--) {
+			int rank = getFirstRank(i);
+
+			if (rank != RANK_NONE) {
+				return rank;
+			}
+		}
+
+		return RANK_NODE;
+	}
+
+
+	/**
+	 * Finds the first data block whose rank is at least the specified rank.
+	 */
+	private int findFirstBlockWithRank(int rank) throws IOException {
+		int low = 0;
+		int high = dataBlobs.size();
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (getBlockRank(middle) >= rank) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+
+		return low;
+	}
+
+
+	private void selectRequiredBlobs() throws IOException {
+		int[] rankStarts;
+		boolean[] required;
+		int skippedCount;
+
+		// Nothing can be skipped if all types are required, or if the file
+		// isn't sorted.
+		if ((rankRequired[RANK_NODE] && rankRequired[RANK_WAY] && rankRequired[RANK_RELATION]) || !isSorted()) {
+			return;
+		}
+
+		// Block i may contain ranks from its own rank up to the rank of block
+		// i + 1. Therefore the blocks that may contain rank r are
+		// those from the block before the first block starting with at least
+		// rank r up to the block before the first block starting with a
+		// higher rank.
+		rankStarts = new int[RANK_NONE + 1];
+		for (int rank = RANK_WAY; rank <= RANK_NONE; rank++) {
+			rankStarts[rank] = findFirstBlockWithRank(rank);
+		}
+
+		required = new boolean[dataBlobs.size()];
+		for (int rank = RANK_NODE; rank < RANK_NONE; rank++) {
+			if (rankRequired[rank]) {
+				Arrays.fill(required, Math.max(0, rankStarts[rank] - 1), rankStarts[rank + 1], true);
+			}
+		}
+
+		skippedCount = 0;
+		for (int i = 0; i < required.length; i++) {
+			if (!required[i]) {
+				dataBlobs.get(i).skip = true;
+				skippedCount++;
+			}
+		}
+
+		if (LOG.isLoggable(Level.FINE)) {
+			LOG.fine("Skipping " + skippedCount + " of " + dataBlobs.size() + " data blocks.");
+		}
+	}
+
+
+	private void initialize() {
+		try {
+			randomAccessFile = new RandomAccessFile(file, "r");
+			channel = randomAccessFile.getChannel();
+			fileSize = channel.size();
+
+			scanBlobHeaders();
+			selectRequiredBlobs();
+
+			nextBlobIndex = 0;
+
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read PBF file " + file + ".", e);
+		}
+	}
+
+
+	@Override
+	public boolean hasNext() {
+		if (blobs == null) {
+			initialize();
+		}
+
+		while (nextBlobIndex < blobs.size() && blobs.get(nextBlobIndex).skip) {
+			nextBlobIndex++;
+		}
+
+		return nextBlobIndex < blobs.size();
+	}
+
+
+	@Override
+	public PbfRawBlob next() {
+		BlobPosition blob;
+		byte[] rawBlob;
+
+		if (!hasNext()) {
+			throw new OsmosisRuntimeException("No blobs remain, should call hasNext first.");
+		}
+
+		blob = blobs.get(nextBlobIndex++);
+		rawBlob = bufferPool.acquire(blob.length);
+		try {
+			map(blob.offset, blob.length).get(rawBlob, 0, blob.length);
+		} catch (IOException e) {
+			throw new OsmosisRuntimeException("Unable to read blob from PBF file " + file + ".", e);
+		}
+
+		return new PbfRawBlob(blob.type, rawBlob, blob.length);
+	}
+
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public PbfBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+
+	@Override
+	public void close() {
+		window = null;
+
+		if (randomAccessFile != null) {
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+				LOG.log(Level.SEVERE, "Unable to close PBF file " + file + ".", e);
+			}
+			randomAccessFile = null;
+			channel = null;
+		}
+
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+	}
+
+
+	/**
+	 * The location of a blob within the file.
+	 */
+	private static class BlobPosition {
+		private String type;
+		private long offset;
+		private int length;
+		private int firstRank;
+		private boolean skip;
+
+
+		BlobPosition(String type, long offset, int length) {
+			this.type = type;
+			this.offset = offset;
+			this.length = length;
+
+			firstRank = -1;
+		}
+	}
+}
@@ -0,0 +1,827 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityDataInterner;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMemberList;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNodeList;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+
+/**
+ * Decodes a PBF PrimitiveBlock directly into Osmosis entities. Unlike parsing
+ * the block with the generated protobuf classes, no intermediate message
+ * objects or boxed lists are created. The fields of each primitive are read
+ * into primitive scratch arrays which are re-used for every primitive decoded
+ * by this instance, so an instance should be re-used by a thread for all of
+ * the blocks it decodes. Instances are not thread safe.
+ * <p>
+ * Strings, tags and users are shared with entities from other blocks through
+ * an {@link EntityDataInterner}, so repeated values occupy memory only once
+ * regardless of how many blocks they appear in.
+ */
+public class PbfPrimitiveBlockDecoder {
+	private static final Set<EntityType> ALL_ENTITY_TYPES = EnumSet.allOf(EntityType.class);
+
+	private static final int EMPTY_VERSION = -1;
+	private static final Date EMPTY_TIMESTAMP = new Date(0);
+	private static final long EMPTY_CHANGESET = -1;
+
+	private static final int DEFAULT_GRANULARITY = 100;
+	private static final int DEFAULT_DATE_GRANULARITY = 1000;
+
+	private static final int MEMBER_TYPE_NODE = 0;
+	private static final int MEMBER_TYPE_WAY = 1;
+	private static final int MEMBER_TYPE_RELATION = 2;
+
+	// Scratch arrays re-used across primitives.
+	private IntList keys;
+	private IntList values;
+	private IntList keysValues;
+	private IntList roles;
+	private IntList memberTypes;
+	private IntList versions;
+	private IntList uids;
+	private IntList userSids;
+	private LongList ids;
+	private LongList latitudes;
+	private LongList longitudes;
+	private LongList refs;
+	private LongList timestamps;
+	private LongList changesets;
+	private IntList groupOffsets;
+	private IntList groupLengths;
+	private InfoFields info;
+	private EntityDataInterner interner;
+
+
+	/**
+	 * Creates a new instance using the interner shared by all readers.
+	 */
+	public PbfPrimitiveBlockDecoder() {
+		this(EntityDataInterner.getSharedInstance());
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param interner
+	 *            The interner used to share strings, tags and users between
+	 *            entities.
+	 */
+	public PbfPrimitiveBlockDecoder(EntityDataInterner interner) {
+		this.interner = interner;
+
+		keys = new IntList();
+		values = new IntList();
+		keysValues = new IntList();
+		roles = new IntList();
+		memberTypes = new IntList();
+		versions = new IntList();
+		uids = new IntList();
+		userSids = new IntList();
+		ids = new LongList();
+		latitudes = new LongList();
+		longitudes = new LongList();
+		refs = new LongList();
+		timestamps = new LongList();
+		changesets = new LongList();
+		groupOffsets = new IntList();
+		groupLengths = new IntList();
+		info = new InfoFields();
+	}
+
+
+	/**
+	 * Decodes all entities within a PrimitiveBlock.
+	 *
+	 * @param data
+	 *            The uncompressed PrimitiveBlock data.
+	 * @param decodedEntities
+	 *            The list to add the decoded entities to.
+	 * @throws IOException
+	 *             if the block is malformed.
+	 */
+	public void decode(byte[] data, List<EntityContainer> decodedEntities) throws IOException {
+		decode(data, data.length, ALL_ENTITY_TYPES, decodedEntities);
+	}
+
+
+	/**
+	 * Decodes all entities within a PrimitiveBlock held at the start of a
+	 * possibly larger buffer.
+	 *
+	 * @param data
+	 *            The buffer containing the uncompressed PrimitiveBlock data.
+	 * @param length
+	 *            The number of bytes of block data in the buffer.
+	 * @param entityTypes
+	 *            The types of entity to decode. Primitives of other types are
+	 *            skipped without being decoded.
+	 * @param decodedEntities
+	 *            The list to add the decoded entities to.
+	 * @throws IOException
+	 *             if the block is malformed.
+	 */
+	public void decode(byte[] data, int length, Set<EntityType> entityTypes, List<EntityContainer> decodedEntities)
+			throws IOException {
+		CodedInputStream input = CodedInputStream.newInstance(data, 0, length);
+		String[] strings = new String[0];
+		int granularity = DEFAULT_GRANULARITY;
+		long latOffset = 0;
+		long lonOffset = 0;
+		int dateGranularity = DEFAULT_DATE_GRANULARITY;
+		int groupLength;
+
+		// The groups can't be decoded until the granularity fields are known,
+		// and those may appear after the groups. Record the group locations
+		// and decode them once the whole block has been scanned.
+		groupOffsets.clear();
+		groupLengths.clear();
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1:
+				strings = readStringTable(input, tag);
+				break;
+			case 2:
+				groupLength = readLength(input, tag);
+				groupOffsets.add(input.getTotalBytesRead());
+				groupLengths.add(groupLength);
+				input.skipRawBytes(groupLength);
+				break;
+			case 17:
+				granularity = input.readInt32();
+				break;
+			case 18:
+				dateGranularity = input.readInt32();
+				break;
+			case 19:
+				latOffset = input.readInt64();
+				break;
+			case 20:
+				lonOffset = input.readInt64();
+				break;
+			default:
+				input.skipField(tag);
+				break;
+			}
+		}
+
+		PbfFieldDecoder fieldDecoder =
+				new PbfFieldDecoder(strings, granularity, latOffset, lonOffset, dateGranularity);
+
+		for (int i = 0; i < groupOffsets.size(); i++) {
+			decodeGroup(CodedInputStream.newInstance(data, groupOffsets.get(i), groupLengths.get(i)), fieldDecoder,
+					entityTypes, decodedEntities);
+		}
+	}
+
+
+	/**
+	 * Reads the length prefix of a length delimited field.
+	 *
+	 * @param input
+	 *            The stream positioned after the field tag.
+	 * @param tag
+	 *            The field tag.
+	 * @return The length of the field data.
+	 * @throws IOException
+	 *             if the stream cannot be read.
+	 */
+	/* package */ static int readLength(CodedInputStream input, int tag) throws IOException {
+		if (WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+			throw new OsmosisRuntimeException("PBF field " + WireFormat.getTagFieldNumber(tag)
+					+ " is not length delimited.");
+		}
+
+		return input.readRawVarint32();
+	}
+
+
+	private String[] readStringTable(CodedInputStream input, int tag) throws IOException {
+		String[] strings = new String[256];
+		int count = 0;
+		int oldLimit = input.pushLimit(readLength(input, tag));
+
+		for (int fieldTag = input.readTag(); fieldTag != 0; fieldTag = input.readTag()) {
+			if (WireFormat.getTagFieldNumber(fieldTag) == 1) {
+				if (count >= strings.length) {
+					strings = Arrays.copyOf(strings, strings.length * 2);
+				}
+				strings[count++] = interner.intern(input.readString());
+			} else {
+				input.skipField(fieldTag);
+			}
+		}
+
+		input.popLimit(oldLimit);
+
+		return Arrays.copyOf(strings, count);
+	}
+
+
+	/**
+	 * Reads an unsigned or non-negative 32-bit integer field that may be
+	 * packed or unpacked.
+	 */
+	private static void readUInt32s(CodedInputStream input, int tag, IntList list) throws IOException {
+		if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+			int oldLimit = input.pushLimit(input.readRawVarint32());
+			while (input.getBytesUntilLimit() > 0) {
+				list.add(input.readRawVarint32());
+			}
+			input.popLimit(oldLimit);
+		} else {
+			list.add(input.readRawVarint32());
+		}
+	}
+
+
+	/**
+	 * Reads a zig-zag encoded 32-bit integer field that may be packed or
+	 * unpacked.
+	 */
+	private static void readSInt32s(CodedInputStream input, int tag, IntList list) throws IOException {
+		if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+			int oldLimit = input.pushLimit(input.readRawVarint32());
+			while (input.getBytesUntilLimit() > 0) {
+				list.add(input.readSInt32());
+			}
+			input.popLimit(oldLimit);
+		} else {
+			list.add(input.readSInt32());
+		}
+	}
+
+
+	/**
+	 * Reads a zig-zag encoded 64-bit integer field that may be packed or
+	 * unpacked.
+	 */
+	private static void readSInt64s(CodedInputStream input, int tag, LongList list) throws IOException {
+		if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+			int oldLimit = input.pushLimit(input.readRawVarint32());
+			while (input.getBytesUntilLimit() > 0) {
+				list.add(input.readSInt64());
+			}
+			input.popLimit(oldLimit);
+		} else {
+			list.add(input.readSInt64());
+		}
+	}
+
+
+	private void decodeGroup(CodedInputStream input, PbfFieldDecoder fieldDecoder, Set<EntityType> entityTypes,
+			List<EntityContainer> decodedEntities) throws IOException {
+		boolean decodeNodes = entityTypes.contains(EntityType.Node);
+		boolean decodeWays = entityTypes.contains(EntityType.Way);
+		boolean decodeRelations = entityTypes.contains(EntityType.Relation);
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			int oldLimit;
+
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1:
+				if (decodeNodes) {
+					oldLimit = input.pushLimit(readLength(input, tag));
+					decodeNode(input, fieldDecoder, decodedEntities);
+					input.popLimit(oldLimit);
+				} else {
+					input.skipField(tag);
+				}
+				break;
+			case 2:
+				if (decodeNodes) {
+					oldLimit = input.pushLimit(readLength(input, tag));
+					decodeDenseNodes(input, fieldDecoder, decodedEntities);
+					input.popLimit(oldLimit);
+				} else {
+					input.skipField(tag);
+				}
+				break;
+			case 3:
+				if (decodeWays) {
+					oldLimit = input.pushLimit(readLength(input, tag));
+					decodeWay(input, fieldDecoder, decodedEntities);
+					input.popLimit(oldLimit);
+				} else {
+					input.skipField(tag);
+				}
+				break;
+			case 4:
+				if (decodeRelations) {
+					oldLimit = input.pushLimit(readLength(input, tag));
+					decodeRelation(input, fieldDecoder, decodedEntities);
+					input.popLimit(oldLimit);
+				} else {
+					input.skipField(tag);
+				}
+				break;
+			default:
+				input.skipField(tag);
+				break;
+			}
+		}
+	}
+
+
+	private void readInfo(CodedInputStream input, int tag) throws IOException {
+		int oldLimit = input.pushLimit(readLength(input, tag));
+
+		info.present = true;
+
+		for (int fieldTag = input.readTag(); fieldTag != 0; fieldTag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(fieldTag)) {
+			case 1:
+				info.version = input.readInt32();
+				break;
+			case 2:
+				info.timestamp = input.readInt64();
+				break;
+			case 3:
+				info.changeset = input.readInt64();
+				break;
+			case 4:
+				info.uid = input.readInt32();
+				info.hasUid = true;
+				break;
+			case 5:
+				info.userSid = input.readUInt32();
+				info.hasUserSid = true;
+				break;
+			default:
+				input.skipField(fieldTag);
+				break;
+			}
+		}
+
+		input.popLimit(oldLimit);
+	}
+
+
+	/**
+	 * Builds the common entity data from the id, the scratch info fields, and
+	 * the scratch key and value lists.
+	 */
+	private CommonEntityData buildCommonEntityData(long entityId, PbfFieldDecoder fieldDecoder) {
+		CommonEntityData entityData;
+
+		if (info.present) {
+			OsmUser user;
+
+			// Build the user, but only if one exists.
+			if (info.hasUid && info.uid >= 0 && info.hasUserSid) {
+				user = interner.getUser(info.uid, fieldDecoder.decodeString(info.userSid));
+			} else {
+				user = OsmUser.NONE;
+			}
+
+			entityData = new CommonEntityData(entityId, info.version, fieldDecoder.decodeTimestamp(info.timestamp),
+					user, info.changeset);
+		} else {
+			entityData = new CommonEntityData(entityId, EMPTY_VERSION, EMPTY_TIMESTAMP, OsmUser.NONE,
+					EMPTY_CHANGESET);
+		}
+
+		// Ensure parallel lists are of equal size.
+		if (keys.size() != values.size()) {
+			throw new OsmosisRuntimeException("Number of tag keys (" + keys.size() + ") and tag values ("
+					+ values.size() + ") don't match");
+		}
+
+		Collection<Tag> tags = entityData.getTags();
+		for (int i = 0; i < keys.size(); i++) {
+			tags.add(interner.getTag(fieldDecoder.decodeString(keys.get(i)), fieldDecoder.decodeString(values.get(i))));
+		}
+
+		return entityData;
+	}
+
+
+	private void resetEntityFields() {
+		keys.clear();
+		values.clear();
+		info.reset();
+	}
+
+
+	private void decodeNode(CodedInputStream input, PbfFieldDecoder fieldDecoder,
+			List<EntityContainer> decodedEntities) throws IOException {
+		long id = 0;
+		long latitude = 0;
+		long longitude = 0;
+
+		resetEntityFields();
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1:
+				id = input.readSInt64();
+				break;
+			case 2:
+				readUInt32s(input, tag, keys);
+				break;
+			case 3:
+				readUInt32s(input, tag, values);
+				break;
+			case 4:
+				readInfo(input, tag);
+				break;
+			case 8:
+				latitude = input.readSInt64();
+				break;
+			case 9:
+				longitude = input.readSInt64();
+				break;
+			default:
+				input.skipField(tag);
+				break;
+			}
+		}
+
+		Node node = new Node(buildCommonEntityData(id, fieldDecoder), fieldDecoder.decodeLatitude(latitude),
+				fieldDecoder.decodeLongitude(longitude));
+
+		decodedEntities.add(new NodeContainer(node));
+	}
+
+
+	private void readDenseInfo(CodedInputStream input, int tag) throws IOException {
+		int oldLimit = input.pushLimit(readLength(input, tag));
+
+		info.present = true;
+
+		for (int fieldTag = input.readTag(); fieldTag != 0; fieldTag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(fieldTag)) {
+			case 1:
+				readUInt32s(input, fieldTag, versions);
+				break;
+			case 2:
+				readSInt64s(input, fieldTag, timestamps);
+				break;
+			case 3:
+				readSInt64s(input, fieldTag, changesets);
+				break;
+			case 4:
+				readSInt32s(input, fieldTag, uids);
+				break;
+			case 5:
+				readSInt32s(input, fieldTag, userSids);
+				break;
+			default:
+				input.skipField(fieldTag);
+				break;
+			}
+		}
+
+		input.popLimit(oldLimit);
+	}
+
+
+	private void decodeDenseNodes(CodedInputStream input, PbfFieldDecoder fieldDecoder,
+			List<EntityContainer> decodedEntities) throws IOException {
+		ids.clear();
+		latitudes.clear();
+		longitudes.clear();
+		keysValues.clear();
+		versions.clear();
+		timestamps.clear();
+		changesets.clear();
+		uids.clear();
+		userSids.clear();
+		info.reset();
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1:
+				readSInt64s(input, tag, ids);
+				break;
+			case 5:
+				readDenseInfo(input, tag);
+				break;
+			case 8:
+				readSInt64s(input, tag, latitudes);
+				break;
+			case 9:
+				readSInt64s(input, tag, longitudes);
+				break;
+			case 10:
+				readUInt32s(input, tag, keysValues);
+				break;
+			default:
+				input.skipField(tag);
+				break;
+			}
+		}
+
+		int nodeCount = ids.size();
+
+		// Ensure parallel lists are of equal size.
+		if ((nodeCount != latitudes.size()) || (nodeCount != longitudes.size())) {
+			throw new OsmosisRuntimeException("Number of ids (" + nodeCount + "), latitudes (" + latitudes.size()
+					+ "), and longitudes (" + longitudes.size() + ") don't match");
+		}
+		if (info.present
+				&& ((nodeCount != versions.size()) || (nodeCount != timestamps.size())
+						|| (nodeCount != changesets.size()) || (nodeCount != uids.size())
+						|| (nodeCount != userSids.size()))) {
+			throw new OsmosisRuntimeException("Number of ids (" + nodeCount
+					+ ") doesn't match the number of DenseInfo values.");
+		}
+
+		long nodeId = 0;
+		long latitude = 0;
+		long longitude = 0;
+		int userId = 0;
+		int userSid = 0;
+		long timestamp = 0;
+		long changesetId = 0;
+		int keyValueIndex = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			CommonEntityData entityData;
+
+			// Delta decode node fields.
+			nodeId += ids.get(i);
+			latitude += latitudes.get(i);
+			longitude += longitudes.get(i);
+
+			if (info.present) {
+				// Delta decode dense info fields.
+				userId += uids.get(i);
+				userSid += userSids.get(i);
+				timestamp += timestamps.get(i);
+				changesetId += changesets.get(i);
+
+				// Build the user, but only if one exists.
+				OsmUser user;
+				if (userId >= 0) {
+					user = interner.getUser(userId, fieldDecoder.decodeString(userSid));
+				} else {
+					user = OsmUser.NONE;
+				}
+
+				entityData = new CommonEntityData(nodeId, versions.get(i), fieldDecoder.decodeTimestamp(timestamp),
+						user, changesetId);
+			} else {
+				entityData = new CommonEntityData(nodeId, EMPTY_VERSION, EMPTY_TIMESTAMP, OsmUser.NONE,
+						EMPTY_CHANGESET);
+			}
+
+			// Build the tags. The key and value string indexes are sequential
+			// in the same PBF array. Each set of tags is delimited by an index
+			// with a value of 0.
+			Collection<Tag> tags = entityData.getTags();
+			while (keyValueIndex < keysValues.size()) {
+				int keyIndex = keysValues.get(keyValueIndex++);
+				if (keyIndex == 0) {
+					break;
+				}
+				if (keyValueIndex >= keysValues.size()) {
+					throw new OsmosisRuntimeException(
+							"The PBF DenseInfo keys/values list contains a key with no corresponding value.");
+				}
+				int valueIndex = keysValues.get(keyValueIndex++);
+
+				tags.add(interner.getTag(fieldDecoder.decodeString(keyIndex), fieldDecoder.decodeString(valueIndex)));
+			}
+
+			Node node = new Node(entityData, fieldDecoder.decodeLatitude(latitude),
+					fieldDecoder.decodeLongitude(longitude));
+
+			decodedEntities.add(new NodeContainer(node));
+		}
+	}
+
+
+	private void decodeWay(CodedInputStream input, PbfFieldDecoder fieldDecoder,
+			List<EntityContainer> decodedEntities) throws IOException {
+		long id = 0;
+
+		resetEntityFields();
+		refs.clear();
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1:
+				id = input.readInt64();
+				break;
+			case 2:
+				readUInt32s(input, tag, keys);
+				break;
+			case 3:
+				readUInt32s(input, tag, values);
+				break;
+			case 4:
+				readInfo(input, tag);
+				break;
+			case 8:
+				readSInt64s(input, tag, refs);
+				break;
+			default:
+				input.skipField(tag);
+				break;
+			}
+		}
+
+		// The node ids are delta encoded meaning that each id is stored as a
+		// delta against the previous one.
+		long nodeId = 0;
+		WayNodeList wayNodes = new WayNodeList();
+		for (int i = 0; i < refs.size(); i++) {
+			nodeId += refs.get(i);
+			wayNodes.addNodeId(nodeId);
+		}
+
+		decodedEntities.add(new WayContainer(new Way(buildCommonEntityData(id, fieldDecoder), wayNodes)));
+	}
+
+
+	private void decodeRelation(CodedInputStream input, PbfFieldDecoder fieldDecoder,
+			List<EntityContainer> decodedEntities) throws IOException {
+		long id = 0;
+
+		resetEntityFields();
+		roles.clear();
+		refs.clear();
+		memberTypes.clear();
+
+		for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+			switch (WireFormat.getTagFieldNumber(tag)) {
+			case 1:
+				id = input.readInt64();
+				break;
+			case 2:
+				readUInt32s(input, tag, keys);
+				break;
+			case 3:
+				readUInt32s(input, tag, values);
+				break;
+			case 4:
+				readInfo(input, tag);
+				break;
+			case 8:
+				readUInt32s(input, tag, roles);
+				break;
+			case 9:
+				readSInt64s(input, tag, refs);
+				break;
+			case 10:
+				readUInt32s(input, tag, memberTypes);
+				break;
+			default:
+				input.skipField(tag);
+				break;
+			}
+		}
+
+		CommonEntityData entityData = buildCommonEntityData(id, fieldDecoder);
+
+		// Ensure parallel lists are of equal size.
+		if ((refs.size() != roles.size()) || (refs.size() != memberTypes.size())) {
+			throw new OsmosisRuntimeException("Number of member ids (" + refs.size() + "), member roles ("
+					+ roles.size() + "), and member types (" + memberTypes.size() + ") don't match");
+		}
+
+		// The member ids are delta encoded meaning that each id is stored as
+		// a delta against the previous one.
+		long memberId = 0;
+		RelationMemberList members = new RelationMemberList();
+		for (int i = 0; i < refs.size(); i++) {
+			int memberType = memberTypes.get(i);
+			EntityType entityType;
+
+			memberId += refs.get(i);
+
+			if (memberType == MEMBER_TYPE_NODE) {
+				entityType = EntityType.Node;
+			} else if (memberType == MEMBER_TYPE_WAY) {
+				entityType = EntityType.Way;
+			} else if (memberType == MEMBER_TYPE_RELATION) {
+				entityType = EntityType.Relation;
+			} else {
+				throw new OsmosisRuntimeException("Member type of " + memberType + " is not supported.");
+			}
+
+			members.addMember(memberId, entityType, fieldDecoder.decodeString(roles.get(i)));
+		}
+
+		decodedEntities.add(new RelationContainer(new Relation(entityData, members)));
+	}
+
+
+	/**
+	 * Holds the fields of a single Info message.
+	 */
+	private static class InfoFields {
+		private boolean present;
+		private int version;
+		private long timestamp;
+		private long changeset;
+		private boolean hasUid;
+		private int uid;
+		private boolean hasUserSid;
+		private int userSid;
+
+
+		/**
+		 * Resets all fields to the protobuf defaults.
+		 */
+		void reset() {
+			present = false;
+			version = EMPTY_VERSION;
+			timestamp = 0;
+			changeset = 0;
+			hasUid = false;
+			uid = 0;
+			hasUserSid = false;
+			userSid = 0;
+		}
+	}
+
+
+	/**
+	 * A growable array of ints that is cleared rather than re-allocated.
+	 */
+	private static class IntList {
+		private int[] data = new int[16];
+		private int size;
+
+
+		void clear() {
+			size = 0;
+		}
+
+
+		void add(int value) {
+			if (size >= data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			data[size++] = value;
+		}
+
+
+		int get(int index) {
+			return data[index];
+		}
+
+
+		int size() {
+			return size;
+		}
+	}
+
+
+	/**
+	 * A growable array of longs that is cleared rather than re-allocated.
+	 */
+	private static class LongList {
+		private long[] data = new long[16];
+		private int size;
+
+
+		void clear() {
+			size = 0;
+		}
+
+
+		void add(long value) {
+			if (size >= data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			data[size++] = value;
+		}
+
+
+		long get(int index) {
+			return data[index];
+		}
+
+
+		int size() {
+			return size;
+		}
+	}
+}
@@ -10,6 +10,7 @@ package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 public class PbfRawBlob {
 	private String type;
 	private byte[] data;
+	private int length;
 
 
 	/**
@@ -22,8 +23,27 @@ public class PbfRawBlob {
 	 *            The raw contents of the blob in binary undecoded form.
 	 */
 	public PbfRawBlob(String type, byte[] data) {
+		this(type, data, data.length);
+	}
+
+
+	/**
+	 * Creates a new instance where the data occupies the start of a possibly
+	 * larger buffer.
+	 * 
+	 * @param type
+	 *            The type of data represented by this blob. This corresponds to
+	 *            the type field in the blob header.
+	 * @param data
+	 *            The buffer holding the raw contents of the blob in binary
+	 *            undecoded form.
+	 * @param length
+	 *            The number of bytes of blob data in the buffer.
+	 */
+	public PbfRawBlob(String type, byte[] data, int length) {
 		this.type = type;
 		this.data = data;
+		this.length = length;
 	}
 
 
@@ -39,11 +59,23 @@ public class PbfRawBlob {
 
 
 	/**
-	 * Gets the raw contents of the blob in binary undecoded form.
+	 * Gets the raw contents of the blob in binary undecoded form. The buffer
+	 * may be longer than the blob, only the first {@link #getLength()} bytes
+	 * are valid.
 	 * 
 	 * @return The raw blob data.
 	 */
 	public byte[] getData() {
 		return data;
 	}
+
+
+	/**
+	 * Gets the number of bytes of blob data held in the buffer.
+	 * 
+	 * @return The blob length.
+	 */
+	public int getLength() {
+		return length;
+	}
 }
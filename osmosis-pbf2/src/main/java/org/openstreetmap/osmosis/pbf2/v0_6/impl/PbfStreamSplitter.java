@@ -4,15 +4,15 @@ package org.openstreetmap.osmosis.pbf2.v0_6.impl;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
-import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 import org.openstreetmap.osmosis.osmbinary.Fileformat;
 import org.openstreetmap.osmosis.osmbinary.Fileformat.BlobHeader;
 
+import com.google.protobuf.CodedInputStream;
+
 
 /**
  * Parses a PBF data stream and extracts the raw data of each blob in sequence
@@ -20,11 +20,13 @@ import org.openstreetmap.osmosis.osmbinary.Fileformat.BlobHeader;
  * 
  * @author Brett Henderson
  */
-public class PbfStreamSplitter implements Iterator<PbfRawBlob>, Closeable {
+public class PbfStreamSplitter implements PbfBlobSource {
 
 	private static Logger log = Logger.getLogger(PbfStreamSplitter.class.getName());
 
 	private DataInputStream dis;
+	private PbfBufferPool bufferPool;
+	private byte[] headerBuffer;
 	private int dataBlockCount;
 	private boolean eof;
 	private PbfRawBlob nextBlob;
@@ -37,26 +39,54 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob>, Closeable {
 	 *            The PBF data stream to be parsed.
 	 */
 	public PbfStreamSplitter(DataInputStream pbfStream) {
+		this(pbfStream, new PbfBufferPool(0));
+	}
+
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param pbfStream
+	 *            The PBF data stream to be parsed.
+	 * @param bufferPool
+	 *            The pool providing the buffers to hold raw blob data.
+	 *            Consumers of the blobs should return the buffers to this pool
+	 *            once they have been decoded.
+	 */
+	public PbfStreamSplitter(DataInputStream pbfStream, PbfBufferPool bufferPool) {
 		dis = pbfStream;
+		this.bufferPool = bufferPool;
+		headerBuffer = new byte[0];
 		dataBlockCount = 0;
 		eof = false;
 	}
 
 
+	@Override
+	public PbfBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+
 	private BlobHeader readHeader(int headerLength) throws IOException {
-		byte[] headerBuffer = new byte[headerLength];
-		dis.readFully(headerBuffer);
+		// Headers are small and parsed immediately, so a single buffer is
+		// re-used for all of them.
+		if (headerBuffer.length < headerLength) {
+			headerBuffer = new byte[headerLength];
+		}
+		dis.readFully(headerBuffer, 0, headerLength);
 
-		BlobHeader blobHeader = Fileformat.BlobHeader.parseFrom(headerBuffer);
+		BlobHeader blobHeader =
+				Fileformat.BlobHeader.parseFrom(CodedInputStream.newInstance(headerBuffer, 0, headerLength));
 
 		return blobHeader;
 	}
 
 
 	private byte[] readRawBlob(BlobHeader blobHeader) throws IOException {
-		byte[] rawBlob = new byte[blobHeader.getDatasize()];
+		byte[] rawBlob = bufferPool.acquire(blobHeader.getDatasize());
 
-		dis.readFully(rawBlob);
+		dis.readFully(rawBlob, 0, blobHeader.getDatasize());
 
 		return rawBlob;
 	}
@@ -85,7 +115,7 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob>, Closeable {
 			}
 			byte[] blobData = readRawBlob(blobHeader);
 
-			nextBlob = new PbfRawBlob(blobHeader.getType(), blobData);
+			nextBlob = new PbfRawBlob(blobHeader.getType(), blobData, blobHeader.getDatasize());
 
 		} catch (IOException e) {
 			throw new OsmosisRuntimeException("Unable to get next blob from PBF stream.", e);
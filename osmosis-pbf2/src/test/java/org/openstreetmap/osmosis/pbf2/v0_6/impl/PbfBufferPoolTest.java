@@ -0,0 +1,109 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link PbfBufferPool} class.
+ */
+public class PbfBufferPoolTest {
+
+	/**
+	 * Verifies that requests are rounded up to a power of two of at least
+	 * 64KB.
+	 */
+	@Test
+	public void testSizeClassRounding() {
+		PbfBufferPool pool = new PbfBufferPool(2);
+
+		Assert.assertEquals(1 << 16, pool.acquire(1).length);
+		Assert.assertEquals(1 << 16, pool.acquire(1 << 16).length);
+		Assert.assertEquals(1 << 17, pool.acquire((1 << 16) + 1).length);
+		Assert.assertEquals(1 << 20, pool.acquire(1000000).length);
+	}
+
+
+	/**
+	 * Verifies that released arrays are re-used for requests in the same size
+	 * class only.
+	 */
+	@Test
+	public void testReuse() {
+		PbfBufferPool pool = new PbfBufferPool(2);
+		byte[] buffer;
+
+		buffer = pool.acquire(100000);
+		pool.release(buffer);
+
+		Assert.assertNotSame(buffer, pool.acquire(1000));
+		Assert.assertSame(buffer, pool.acquire(70000));
+		Assert.assertNotSame(buffer, pool.acquire(70000));
+	}
+
+
+	/**
+	 * Verifies that no more than the configured number of arrays are retained
+	 * for each size class.
+	 */
+	@Test
+	public void testMaxBuffersPerSize() {
+		PbfBufferPool pool = new PbfBufferPool(2);
+		byte[] buffer1 = pool.acquire(1000);
+		byte[] buffer2 = pool.acquire(1000);
+		byte[] buffer3 = pool.acquire(1000);
+
+		pool.release(buffer1);
+		pool.release(buffer2);
+		pool.release(buffer3);
+
+		// The most recently released arrays are handed out first, and the
+		// third array was discarded.
+		Assert.assertSame(buffer2, pool.acquire(1000));
+		Assert.assertSame(buffer1, pool.acquire(1000));
+		Assert.assertNotSame(buffer3, pool.acquire(1000));
+	}
+
+
+	/**
+	 * Verifies that arrays which can't have come from the pool are ignored.
+	 */
+	@Test
+	public void testReleaseForeignArrays() {
+		PbfBufferPool pool = new PbfBufferPool(2);
+		byte[] small = new byte[1024];
+		byte[] odd = new byte[(1 << 16) + 1];
+
+		pool.release(null);
+		pool.release(small);
+		pool.release(odd);
+
+		Assert.assertEquals(1 << 16, pool.acquire(1).length);
+		Assert.assertEquals(1 << 17, pool.acquire(odd.length).length);
+	}
+
+
+	/**
+	 * Verifies that requests larger than the largest size class are allocated
+	 * exactly and are not retained.
+	 */
+	@Test
+	public void testLargeArraysNotPooled() {
+		PbfBufferPool pool = new PbfBufferPool(2, 17);
+		byte[] buffer;
+
+		buffer = pool.acquire((1 << 17) + 1);
+		Assert.assertEquals((1 << 17) + 1, buffer.length);
+
+		buffer = pool.acquire(1 << 18);
+		Assert.assertEquals(1 << 18, buffer.length);
+		pool.release(buffer);
+		Assert.assertNotSame(buffer, pool.acquire(1 << 18));
+
+		// The largest size class is still pooled.
+		buffer = pool.acquire(1 << 17);
+		pool.release(buffer);
+		Assert.assertSame(buffer, pool.acquire(1 << 17));
+	}
+}
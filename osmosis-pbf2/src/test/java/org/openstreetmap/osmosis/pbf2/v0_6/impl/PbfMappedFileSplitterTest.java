@@ -0,0 +1,194 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pbf2.v0_6.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+import org.openstreetmap.osmosis.osmbinary.file.BlockOutputStream;
+import org.openstreetmap.osmosis.osmbinary.file.FileBlock;
+import org.openstreetmap.osmosis.pbf2.v0_6.PbfReader;
+import org.openstreetmap.osmosis.testutil.AbstractDataTest;
+import org.openstreetmap.osmosis.testutil.v0_6.SinkEntityInspector;
+
+import com.google.protobuf.ByteString;
+
+
+/**
+ * Tests the {@link PbfMappedFileSplitter} class.
+ */
+public class PbfMappedFileSplitterTest extends AbstractDataTest {
+
+	private static Osmformat.PrimitiveGroup.Builder buildGroup(EntityType type, long id) {
+		Osmformat.PrimitiveGroup.Builder group = Osmformat.PrimitiveGroup.newBuilder();
+
+		switch (type) {
+		case Node:
+			group.addNodes(Osmformat.Node.newBuilder().setId(id).setLat(0).setLon(0));
+			break;
+		case Way:
+			group.addWays(Osmformat.Way.newBuilder().setId(id));
+			break;
+		default:
+			group.addRelations(Osmformat.Relation.newBuilder().setId(id));
+			break;
+		}
+
+		return group;
+	}
+
+
+	/**
+	 * Writes a file containing a block for each of the specified types. Each
+	 * block contains a single entity whose id is the block number, or a single
+	 * changeset if the type is null.
+	 */
+	private File writeFile(boolean sorted, EntityType... blockTypes) throws IOException {
+		File file = dataUtils.newFile();
+		BlockOutputStream output = new BlockOutputStream(new FileOutputStream(file));
+		Osmformat.HeaderBlock.Builder header = Osmformat.HeaderBlock.newBuilder();
+
+		header.addRequiredFeatures("OsmSchema-V0.6");
+		if (sorted) {
+			header.addOptionalFeatures("Sort.Type_then_ID");
+		}
+		output.write(FileBlock.newInstance("OSMHeader", header.build().toByteString(), null));
+
+		for (int i = 0; i < blockTypes.length; i++) {
+			Osmformat.PrimitiveBlock.Builder block = Osmformat.PrimitiveBlock.newBuilder();
+
+			block.setStringtable(Osmformat.StringTable.newBuilder().addS(ByteString.copyFromUtf8("")));
+			if (blockTypes[i] == null) {
+				block.addPrimitivegroup(
+						Osmformat.PrimitiveGroup.newBuilder().addChangesets(Osmformat.ChangeSet.newBuilder().setId(i)));
+			} else {
+				block.addPrimitivegroup(buildGroup(blockTypes[i], i));
+			}
+
+			output.write(FileBlock.newInstance("OSMData", block.build().toByteString(), null));
+		}
+
+		output.close();
+
+		return file;
+	}
+
+
+	private int countBlobs(File file, EntityType... entityTypes) {
+		PbfMappedFileSplitter splitter =
+				new PbfMappedFileSplitter(file, new PbfBufferPool(1), EnumSet.of(EntityType.Bound, entityTypes));
+		int count = 0;
+
+		try {
+			while (splitter.hasNext()) {
+				splitter.next();
+				count++;
+			}
+		} finally {
+			splitter.close();
+		}
+
+		return count;
+	}
+
+
+	private List<Long> readIds(File file, EntityType entityType) {
+		PbfReader reader = new PbfReader(file, 2, EnumSet.of(entityType));
+		SinkEntityInspector inspector = new SinkEntityInspector();
+		List<Long> ids = new ArrayList<Long>();
+
+		reader.setSink(inspector);
+		reader.run();
+
+		for (EntityContainer entityContainer : inspector.getProcessedEntities()) {
+			if (entityContainer.getEntity().getType() != EntityType.Bound) {
+				Assert.assertEquals(entityType, entityContainer.getEntity().getType());
+				ids.add(entityContainer.getEntity().getId());
+			}
+		}
+
+		return ids;
+	}
+
+
+	/**
+	 * Verifies that blocks which can't contain the required types are skipped
+	 * in a sorted file.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testSkipSortedBlocks() throws IOException {
+		File file = writeFile(true, EntityType.Node, EntityType.Node, EntityType.Node, EntityType.Way,
+				EntityType.Way, EntityType.Relation, EntityType.Relation);
+
+		// The header plus every data block.
+		Assert.assertEquals(8, countBlobs(file, EntityType.Node, EntityType.Way, EntityType.Relation));
+		// The header and the node blocks. The first way block can't contain
+		// nodes because they would precede its first way.
+		Assert.assertEquals(4, countBlobs(file, EntityType.Node));
+		// The header, the last node block which may contain ways, and the way
+		// blocks.
+		Assert.assertEquals(4, countBlobs(file, EntityType.Way));
+		// The header, the last way block which may contain relations, and the
+		// relation blocks.
+		Assert.assertEquals(4, countBlobs(file, EntityType.Relation));
+
+		Assert.assertEquals(Arrays.asList(0L, 1L, 2L), readIds(file, EntityType.Node));
+		Assert.assertEquals(Arrays.asList(3L, 4L), readIds(file, EntityType.Way));
+		Assert.assertEquals(Arrays.asList(5L, 6L), readIds(file, EntityType.Relation));
+	}
+
+
+	/**
+	 * Verifies that a block without any nodes, ways or relations in the middle
+	 * of a sorted file doesn't cause blocks containing required types to be
+	 * skipped.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testSortedFileWithChangesetBlock() throws IOException {
+		File file = writeFile(true, EntityType.Node, EntityType.Node, null, EntityType.Node, EntityType.Way);
+
+		// The changeset block is treated as a node block, so only the way block
+		// is skipped.
+		Assert.assertEquals(5, countBlobs(file, EntityType.Node));
+		// The header, the last node block which may contain ways, and the way
+		// block.
+		Assert.assertEquals(3, countBlobs(file, EntityType.Way));
+
+		Assert.assertEquals(Arrays.asList(0L, 1L, 3L), readIds(file, EntityType.Node));
+		Assert.assertEquals(Arrays.asList(4L), readIds(file, EntityType.Way));
+		Assert.assertEquals(Arrays.<Long>asList(), readIds(file, EntityType.Relation));
+	}
+
+
+	/**
+	 * Verifies that all blocks are read from a file that isn't declared to be
+	 * sorted, but that unwanted entities are still discarded.
+	 *
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testUnsortedFile() throws IOException {
+		File file = writeFile(false, EntityType.Relation, EntityType.Node, EntityType.Way, EntityType.Node);
+
+		Assert.assertEquals(5, countBlobs(file, EntityType.Relation));
+
+		Assert.assertEquals(Arrays.asList(1L, 3L), readIds(file, EntityType.Node));
+		Assert.assertEquals(Arrays.asList(0L), readIds(file, EntityType.Relation));
+	}
+}
@@ -17,6 +17,12 @@ import org.openstreetmap.osmosis.core.store.SingleClassObjectSerializationFactor
  */
 public class CompactPersistentNodeLocationStore implements NodeLocationStore {
 
+	/**
+	 * Ways commonly share nodes with nearby ways, so recently used locations
+	 * are cached.
+	 */
+	private static final int LOCATION_CACHE_SIZE = 10000;
+
 	private IndexedObjectStore<CompactPersistentNodeLocation> nodeLocations;
 	private IndexedObjectStoreReader<CompactPersistentNodeLocation> nodeLocationsReader;
 	
@@ -47,7 +53,7 @@ public class CompactPersistentNodeLocationStore implements NodeLocationStore {
 	public NodeLocation getNodeLocation(long nodeId) {
 		if (nodeLocationsReader == null) {
 			nodeLocations.complete();
-			nodeLocationsReader = nodeLocations.createReader();
+			nodeLocationsReader = nodeLocations.createReader(true, LOCATION_CACHE_SIZE);
 		}
 		
 		try {
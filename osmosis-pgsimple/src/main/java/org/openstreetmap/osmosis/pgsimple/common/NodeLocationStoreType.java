@@ -24,5 +24,19 @@ public enum NodeLocationStoreType {
 	 * temporary file on disk. This is optimised for small datasets, and is less
 	 * efficient for large datasets.
 	 */
-	CompactTempFile
+	CompactTempFile,
+	
+	/**
+	 * A temporary file based node location store which memory maps the file.
+	 * This avoids a system call for each lookup and holds no data on the JVM
+	 * heap, but requires a 64-bit JVM for large datasets.
+	 */
+	MappedFile,
+	
+	/**
+	 * An in-memory node location store which holds nodes in compressed blocks.
+	 * Memory usage depends on the number of nodes instead of the highest node
+	 * id which suits extracts of large datasets. Nodes must be sorted by id.
+	 */
+	CompressedInMemory
 }
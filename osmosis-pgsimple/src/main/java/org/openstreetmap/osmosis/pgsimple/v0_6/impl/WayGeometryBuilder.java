@@ -10,7 +10,9 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Way;
 import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.lifecycle.Closeable;
 import org.openstreetmap.osmosis.pgsimple.common.CompactPersistentNodeLocationStore;
+import org.openstreetmap.osmosis.pgsimple.common.CompressedNodeLocationStore;
 import org.openstreetmap.osmosis.pgsimple.common.InMemoryNodeLocationStore;
+import org.openstreetmap.osmosis.pgsimple.common.MappedNodeLocationStore;
 import org.openstreetmap.osmosis.pgsimple.common.NodeLocation;
 import org.openstreetmap.osmosis.pgsimple.common.NodeLocationStore;
 import org.openstreetmap.osmosis.pgsimple.common.NodeLocationStoreType;
@@ -48,6 +50,10 @@ public class WayGeometryBuilder implements Closeable {
 			locationStore = new PersistentNodeLocationStore();
 		} else if (NodeLocationStoreType.CompactTempFile.equals(storeType)) {
 			locationStore = new CompactPersistentNodeLocationStore();
+		} else if (NodeLocationStoreType.MappedFile.equals(storeType)) {
+			locationStore = new MappedNodeLocationStore();
+		} else if (NodeLocationStoreType.CompressedInMemory.equals(storeType)) {
+			locationStore = new CompressedNodeLocationStore();
 		} else {
 			throw new OsmosisRuntimeException("The store type " + storeType + " is not recognized.");
 		}
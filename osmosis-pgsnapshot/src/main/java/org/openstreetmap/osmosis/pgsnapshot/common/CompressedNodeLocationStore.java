@@ -0,0 +1,57 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import org.openstreetmap.osmosis.core.store.CompressedNodeLocationIndex;
+
+
+/**
+ * An in-memory node location store implementation holding nodes in compressed
+ * blocks. Memory consumption is proportional to the number of nodes rather
+ * than the highest node id, but nodes must be added in id order.
+ */
+public class CompressedNodeLocationStore implements NodeLocationStore {
+
+	private CompressedNodeLocationIndex index;
+	private NodeLocation invalidNodeLocation;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public CompressedNodeLocationStore() {
+		index = new CompressedNodeLocationIndex();
+
+		invalidNodeLocation = new NodeLocation();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addLocation(long nodeId, NodeLocation nodeLocation) {
+		index.put(nodeId, nodeLocation.getLongitude(), nodeLocation.getLatitude());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeLocation getNodeLocation(long nodeId) {
+		if (index.contains(nodeId)) {
+			return new NodeLocation(index.getLongitude(nodeId), index.getLatitude(nodeId));
+		} else {
+			return invalidNodeLocation;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		index.close();
+	}
+}
@@ -0,0 +1,57 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.pgsnapshot.common;
+
+import org.openstreetmap.osmosis.core.store.MappedNodeLocationIndex;
+
+
+/**
+ * A node location store implementation backed by a memory mapped temporary
+ * file. Lookups don't require any system calls once the operating system has
+ * cached the file, and the data is held outside the JVM heap.
+ */
+public class MappedNodeLocationStore implements NodeLocationStore {
+
+	private MappedNodeLocationIndex index;
+	private NodeLocation invalidNodeLocation;
+
+
+	/**
+	 * Creates a new instance.
+	 */
+	public MappedNodeLocationStore() {
+		index = new MappedNodeLocationIndex();
+
+		invalidNodeLocation = new NodeLocation();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addLocation(long nodeId, NodeLocation nodeLocation) {
+		index.put(nodeId, nodeLocation.getLongitude(), nodeLocation.getLatitude());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeLocation getNodeLocation(long nodeId) {
+		if (index.contains(nodeId)) {
+			return new NodeLocation(index.getLongitude(nodeId), index.getLatitude(nodeId));
+		} else {
+			return invalidNodeLocation;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		index.close();
+	}
+}
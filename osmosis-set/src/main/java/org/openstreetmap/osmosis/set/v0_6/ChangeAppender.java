@@ -10,6 +10,7 @@ import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
 import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxChangeSink;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.DataPostboxOwner;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.MultiChangeSinkRunnableChangeSource;
 
@@ -19,7 +20,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.MultiChangeSinkRunnableChangeSou
  * 
  * @author Brett Henderson
  */
-public class ChangeAppender implements MultiChangeSinkRunnableChangeSource {
+public class ChangeAppender implements MultiChangeSinkRunnableChangeSource, DataPostboxOwner {
 	
 	private List<DataPostbox<ChangeContainer>> sources;
 	private ChangeSink changeSink;
@@ -72,6 +73,15 @@ public class ChangeAppender implements MultiChangeSinkRunnableChangeSource {
 	}
 
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<DataPostbox<?>> getPostboxes() {
+		return new ArrayList<DataPostbox<?>>(sources);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1,7 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.set.v0_6;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
@@ -12,6 +14,7 @@ import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.SortedDeltaChangePipeValidator;
 import org.openstreetmap.osmosis.core.sort.v0_6.SortedEntityPipeValidator;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.DataPostboxOwner;
 import org.openstreetmap.osmosis.core.task.common.ChangeAction;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.MultiSinkMultiChangeSinkRunnableSource;
@@ -25,7 +28,7 @@ import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxSink;
  * 
  * @author Brett Henderson
  */
-public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
+public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource, DataPostboxOwner {
 	
 	private Sink sink;
 	private DataPostbox<EntityContainer> basePostbox;
@@ -160,6 +163,14 @@ public class ChangeApplier implements MultiSinkMultiChangeSinkRunnableSource {
 	}
 
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DataPostbox<?>> getPostboxes() {
+		return Arrays.<DataPostbox<?>>asList(basePostbox, changePostbox);
+	}
+	
+	
 	/**
 	 * Processes the input sources and sends the updated data stream to the
 	 * sink.
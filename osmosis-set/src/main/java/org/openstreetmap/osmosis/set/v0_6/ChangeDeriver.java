@@ -1,7 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.set.v0_6;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.change.v0_6.impl.TimestampSetter;
@@ -10,6 +12,7 @@ import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.DataPostboxOwner;
 import org.openstreetmap.osmosis.core.task.common.ChangeAction;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.MultiSinkRunnableChangeSource;
@@ -22,7 +25,7 @@ import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxSink;
  * 
  * @author Brett Henderson
  */
-public class ChangeDeriver implements MultiSinkRunnableChangeSource {
+public class ChangeDeriver implements MultiSinkRunnableChangeSource, DataPostboxOwner {
 
 	private ChangeSink changeSink;
 	private DataPostbox<EntityContainer> fromPostbox;
@@ -79,6 +82,14 @@ public class ChangeDeriver implements MultiSinkRunnableChangeSource {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DataPostbox<?>> getPostboxes() {
+		return Arrays.<DataPostbox<?>>asList(fromPostbox, toPostbox);
+	}
+	
+	
 	/**
 	 * Processes the input sources and sends the changes to the change sink.
 	 */
@@ -1,7 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.set.v0_6;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.ChangeContainer;
@@ -10,6 +12,7 @@ import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdThenVersionCom
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.SortedHistoryChangePipeValidator;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.DataPostboxOwner;
 import org.openstreetmap.osmosis.core.task.v0_6.ChangeSink;
 import org.openstreetmap.osmosis.core.task.v0_6.MultiChangeSinkRunnableChangeSource;
 import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxChangeSink;
@@ -22,7 +25,7 @@ import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxChangeSink;
  * 
  * @author Brett Henderson
  */
-public class ChangeMerger implements MultiChangeSinkRunnableChangeSource {
+public class ChangeMerger implements MultiChangeSinkRunnableChangeSource, DataPostboxOwner {
 	
 	private ChangeSink changeSink;
 	private DataPostbox<ChangeContainer> postbox0;
@@ -88,6 +91,14 @@ public class ChangeMerger implements MultiChangeSinkRunnableChangeSource {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DataPostbox<?>> getPostboxes() {
+		return Arrays.<DataPostbox<?>>asList(postbox0, postbox1);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1,7 +1,9 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.set.v0_6;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.logging.Logger;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
@@ -14,6 +16,7 @@ import org.openstreetmap.osmosis.core.sort.v0_6.EntityByTypeThenIdComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.EntityContainerComparator;
 import org.openstreetmap.osmosis.core.sort.v0_6.SortedEntityPipeValidator;
 import org.openstreetmap.osmosis.core.store.DataPostbox;
+import org.openstreetmap.osmosis.core.store.DataPostboxOwner;
 import org.openstreetmap.osmosis.core.task.v0_6.MultiSinkRunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxSink;
@@ -26,7 +29,7 @@ import org.openstreetmap.osmosis.set.v0_6.impl.DataPostboxSink;
  * 
  * @author Brett Henderson
  */
-public class EntityMerger implements MultiSinkRunnableSource {
+public class EntityMerger implements MultiSinkRunnableSource, DataPostboxOwner {
 	
 	private static final Logger LOG = Logger.getLogger(EntityMerger.class.getName());
 
@@ -100,6 +103,14 @@ public class EntityMerger implements MultiSinkRunnableSource {
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DataPostbox<?>> getPostboxes() {
+		return Arrays.<DataPostbox<?>>asList(postbox0, postbox1);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -48,11 +48,14 @@ public class UsedNodeFilter implements SinkSource, EntityProcessor {
 	 */
 	public UsedNodeFilter(IdTrackerType idTrackerType) {
 		allNodes = new SimpleObjectStore<NodeContainer>(
-				new SingleClassObjectSerializationFactory(NodeContainer.class), "afnd", true);
+				new SingleClassObjectSerializationFactory(NodeContainer.class, NodeContainer.STOREABLE_FACTORY),
+				"afnd", true);
 		allWays = new SimpleObjectStore<WayContainer>(
-				new SingleClassObjectSerializationFactory(WayContainer.class), "afwy", true);
+				new SingleClassObjectSerializationFactory(WayContainer.class, WayContainer.STOREABLE_FACTORY),
+				"afwy", true);
 		allRelations = new SimpleObjectStore<RelationContainer>(
-				new SingleClassObjectSerializationFactory(RelationContainer.class), "afrl", true);
+				new SingleClassObjectSerializationFactory(RelationContainer.class, RelationContainer.STOREABLE_FACTORY),
+				"afrl", true);
 
 		requiredNodes = IdTrackerFactory.createInstance(idTrackerType);
 	}
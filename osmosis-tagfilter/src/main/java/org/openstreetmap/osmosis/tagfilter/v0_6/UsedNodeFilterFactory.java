@@ -16,6 +16,7 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
  * @author Christoph Sommer
  */
 public class UsedNodeFilterFactory extends TaskManagerFactory {
+	private static final String ARG_ID_TRACKER_TYPE = "idTrackerType";
 	private static final IdTrackerType DEFAULT_ID_TRACKER_TYPE = IdTrackerType.Dynamic;
 	
 	
@@ -29,8 +30,9 @@ public class UsedNodeFilterFactory extends TaskManagerFactory {
 	 */
 	protected IdTrackerType getIdTrackerType(
 			TaskConfiguration taskConfig) {
-		
-		return DEFAULT_ID_TRACKER_TYPE;
+		return Enum.valueOf(
+				IdTrackerType.class,
+				getStringArgument(taskConfig, ARG_ID_TRACKER_TYPE, DEFAULT_ID_TRACKER_TYPE.name()));
 	}
 
 	/**
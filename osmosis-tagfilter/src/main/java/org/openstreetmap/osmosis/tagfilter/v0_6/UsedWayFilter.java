@@ -46,11 +46,14 @@ public class UsedWayFilter implements SinkSource, EntityProcessor {
 	 */
 	public UsedWayFilter(IdTrackerType idTrackerType) {
 		allNodes = new SimpleObjectStore<NodeContainer>(
-				new SingleClassObjectSerializationFactory(NodeContainer.class), "afnd", true);
+				new SingleClassObjectSerializationFactory(NodeContainer.class, NodeContainer.STOREABLE_FACTORY),
+				"afnd", true);
 		allWays = new SimpleObjectStore<WayContainer>(
-				new SingleClassObjectSerializationFactory(WayContainer.class), "afwy", true);
+				new SingleClassObjectSerializationFactory(WayContainer.class, WayContainer.STOREABLE_FACTORY),
+				"afwy", true);
 		allRelations = new SimpleObjectStore<RelationContainer>(
-				new SingleClassObjectSerializationFactory(RelationContainer.class), "afrl", true);
+				new SingleClassObjectSerializationFactory(RelationContainer.class, RelationContainer.STOREABLE_FACTORY),
+				"afrl", true);
 
 		requiredWays = IdTrackerFactory.createInstance(idTrackerType);
 	}
@@ -16,6 +16,7 @@ import org.openstreetmap.osmosis.core.pipeline.v0_6.SinkSourceManager;
  * @author Bartosz Fabianowski
  */
 public class UsedWayFilterFactory extends TaskManagerFactory {
+	private static final String ARG_ID_TRACKER_TYPE = "idTrackerType";
 	private static final IdTrackerType DEFAULT_ID_TRACKER_TYPE = IdTrackerType.Dynamic;
 	
 	
@@ -29,7 +30,9 @@ public class UsedWayFilterFactory extends TaskManagerFactory {
 	 */
 	protected IdTrackerType getIdTrackerType(
 			TaskConfiguration taskConfig) {
-		return DEFAULT_ID_TRACKER_TYPE;
+		return Enum.valueOf(
+				IdTrackerType.class,
+				getStringArgument(taskConfig, ARG_ID_TRACKER_TYPE, DEFAULT_ID_TRACKER_TYPE.name()));
 	}
 
 	/**
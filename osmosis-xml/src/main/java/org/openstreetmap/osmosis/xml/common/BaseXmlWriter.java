@@ -30,6 +30,7 @@ public abstract class BaseXmlWriter {
 	private boolean initialized;
 	private BufferedWriter writer;
 	private CompressionMethod compressionMethod;
+	private int compressionWorkers;
 	
 	
 	/**
@@ -54,8 +55,25 @@ public abstract class BaseXmlWriter {
 	 *            Specifies the compression method to employ.
 	 */
 	public BaseXmlWriter(File file, CompressionMethod compressionMethod) {
+		this(file, compressionMethod, 0);
+	}
+	
+	
+	/**
+	 * Creates a new instance to write to the specified file.
+	 * 
+	 * @param file
+	 *            The file to write.
+	 * @param compressionMethod
+	 *            Specifies the compression method to employ.
+	 * @param compressionWorkers
+	 *            The number of threads used to compress output. If 0,
+	 *            compression occurs in the writing thread.
+	 */
+	public BaseXmlWriter(File file, CompressionMethod compressionMethod, int compressionWorkers) {
 		this.file = file;
 		this.compressionMethod = compressionMethod;
+		this.compressionWorkers = compressionWorkers;
 		
 		writerProvided = false;
 		closeRequired = true;
@@ -148,8 +166,8 @@ public abstract class BaseXmlWriter {
 						outStream = new FileOutputStream(file);
 					}
 					
-					outStream =
-						new CompressionActivator(compressionMethod).createCompressionOutputStream(outStream);
+					outStream = new CompressionActivator(compressionMethod, compressionWorkers)
+							.createCompressionOutputStream(outStream);
 					
 					outStreamWriter = new OutputStreamWriter(outStream, "UTF-8");
 					
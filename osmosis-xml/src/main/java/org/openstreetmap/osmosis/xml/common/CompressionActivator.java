@@ -22,6 +22,7 @@ import org.openstreetmap.osmosis.core.util.MultiMemberGZIPInputStream;
 public class CompressionActivator {
 	
 	private CompressionMethod compressionMethod;
+	private int workers;
 	
 	
 	/**
@@ -31,7 +32,22 @@ public class CompressionActivator {
 	 *            The compression method to employ.
 	 */
 	public CompressionActivator(CompressionMethod compressionMethod) {
+		this(compressionMethod, 0);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param compressionMethod
+	 *            The compression method to employ.
+	 * @param workers
+	 *            The number of threads used to compress or decompress data. If
+	 *            0, compression occurs in the calling thread.
+	 */
+	public CompressionActivator(CompressionMethod compressionMethod, int workers) {
 		this.compressionMethod = compressionMethod;
+		this.workers = workers;
 	}
 	
 	
@@ -39,7 +55,9 @@ public class CompressionActivator {
 	 * Wraps a compression stream around the destination stream based upon the
 	 * requested compression method. If this method returns successfully, the
 	 * input destination stream does not require closing after use because it
-	 * will be closed when the returned output stream is closed.
+	 * will be closed when the returned output stream is closed. If workers have
+	 * been requested the data is compressed as a series of independently
+	 * compressed blocks.
 	 * 
 	 * @param destinationStream
 	 *            The destination stream for receiving compressed data.
@@ -51,6 +69,11 @@ public class CompressionActivator {
 				return destinationStream;
 			}
 			
+			if (workers > 0 && (CompressionMethod.GZip.equals(compressionMethod)
+					|| CompressionMethod.BZip2.equals(compressionMethod))) {
+				return new ParallelCompressionOutputStream(destinationStream, compressionMethod, workers);
+			}
+			
 			if (CompressionMethod.GZip.equals(compressionMethod)) {
 				return new GZIPOutputStream(destinationStream);
 			}
@@ -72,7 +95,9 @@ public class CompressionActivator {
 	 * Wraps a compression stream around the source stream based upon the
 	 * requested compression method. If this method returns successfully, the
 	 * input source stream does not require closing after use because it will be
-	 * closed when the returned input stream is closed.
+	 * closed when the returned input stream is closed. Concatenated gzip members
+	 * and bzip2 streams are read as a single stream. If workers have been
+	 * requested the data is decompressed on other threads.
 	 * 
 	 * @param sourceStream
 	 *            The source stream for providing compressed data.
@@ -84,12 +109,17 @@ public class CompressionActivator {
 				return sourceStream;
 			}
 			
+			if (workers > 0 && (CompressionMethod.GZip.equals(compressionMethod)
+					|| CompressionMethod.BZip2.equals(compressionMethod))) {
+				return new ParallelDecompressionInputStream(sourceStream, compressionMethod, workers);
+			}
+			
 			if (CompressionMethod.GZip.equals(compressionMethod)) {
 				return new MultiMemberGZIPInputStream(sourceStream);
 			}
 			
 			if (CompressionMethod.BZip2.equals(compressionMethod)) {
-				return new BZip2CompressorInputStream(sourceStream);
+				return new BZip2CompressorInputStream(sourceStream, true);
 			}
 			
 			throw new OsmosisRuntimeException("Compression method " + compressionMethod + " is not recognized.");
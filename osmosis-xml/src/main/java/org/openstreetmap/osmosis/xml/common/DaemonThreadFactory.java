@@ -0,0 +1,45 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Creates named daemon threads for background workers such as those used by
+ * compression streams. Daemon threads ensure that a task that is never
+ * closed, such as a stream writing to stdout, doesn't prevent the application
+ * exiting.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+	private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+	private String namePrefix;
+	private AtomicInteger threadCount;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param name
+	 *            The name used as a prefix for all thread names.
+	 */
+	public DaemonThreadFactory(String name) {
+		namePrefix = name + "-" + POOL_COUNT.incrementAndGet() + "-";
+		threadCount = new AtomicInteger();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread thread;
+
+		thread = new Thread(r, namePrefix + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+
+		return thread;
+	}
+}
@@ -0,0 +1,350 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+
+/**
+ * Compresses data using several threads in the style of pigz and pbzip2. The
+ * data is split into fixed size blocks and each block is compressed
+ * independently into a complete gzip member or bzip2 stream. The compressed
+ * blocks are written in their original order, and the concatenated result can
+ * be read by standard tools, by {@code MultiMemberGZIPInputStream} and by a
+ * bzip2 input stream that decompresses concatenated streams.
+ * <p>
+ * Like BGZF, each gzip member records its own length in an extra header field
+ * so that {@link ParallelDecompressionInputStream} can find member boundaries
+ * without decompressing. Readers ignore extra fields they don't recognise.
+ * <p>
+ * The number of blocks held in memory is bounded, so writes block while the
+ * workers fall behind.
+ */
+public class ParallelCompressionOutputStream extends OutputStream {
+
+	/**
+	 * The gzip block size. Deflate only looks back 32KB so larger blocks gain
+	 * little compression.
+	 */
+	private static final int GZIP_BLOCK_SIZE = 1 << 20;
+	/**
+	 * The bzip2 block size which matches the largest block bzip2 itself uses.
+	 */
+	private static final int BZIP2_BLOCK_SIZE = 900000;
+	private static final int GZIP_BUFFER_SIZE = 1 << 16;
+	private static final int GZIP_FLAG_EXTRA = 4;
+	private static final int GZIP_OS_UNKNOWN = 255;
+	private static final int GZIP_EXTRA_LENGTH = 8;
+	private static final int GZIP_SIZE_FIELD_LENGTH = 4;
+
+	/**
+	 * The length of the header written at the start of each gzip member.
+	 */
+	/* package */ static final int GZIP_HEADER_LENGTH = 20;
+	/**
+	 * The first byte of the gzip extra field identifier holding the member
+	 * length.
+	 */
+	/* package */ static final byte GZIP_SIZE_FIELD_ID1 = 'O';
+	/**
+	 * The second byte of the gzip extra field identifier holding the member
+	 * length.
+	 */
+	/* package */ static final byte GZIP_SIZE_FIELD_ID2 = 'S';
+
+	private OutputStream destination;
+	private CompressionMethod compressionMethod;
+	private ExecutorService executorService;
+	private int maxPendingBlocks;
+	private Deque<Future<byte[]>> pendingBlocks;
+	private int blockSize;
+	private byte[] buffer;
+	private int bufferCount;
+	private boolean blockSubmitted;
+	private boolean closed;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param destination
+	 *            The stream to receive the compressed data. It will be closed
+	 *            when this stream is closed.
+	 * @param compressionMethod
+	 *            The compression method, either GZip or BZip2.
+	 * @param workers
+	 *            The number of compression threads.
+	 */
+	public ParallelCompressionOutputStream(OutputStream destination, CompressionMethod compressionMethod,
+			int workers) {
+		if (CompressionMethod.GZip.equals(compressionMethod)) {
+			blockSize = GZIP_BLOCK_SIZE;
+		} else if (CompressionMethod.BZip2.equals(compressionMethod)) {
+			blockSize = BZIP2_BLOCK_SIZE;
+		} else {
+			throw new IllegalArgumentException("Compression method " + compressionMethod
+					+ " can't be compressed in parallel.");
+		}
+		if (workers <= 0) {
+			throw new IllegalArgumentException("At least one worker is required.");
+		}
+
+		this.destination = destination;
+		this.compressionMethod = compressionMethod;
+
+		// Allow each worker to have a block queued behind the one it is
+		// compressing.
+		maxPendingBlocks = workers * 2;
+		pendingBlocks = new ArrayDeque<Future<byte[]>>(maxPendingBlocks + 1);
+		executorService = Executors.newFixedThreadPool(workers, new DaemonThreadFactory("compressor"));
+
+		buffer = new byte[blockSize];
+		bufferCount = 0;
+		blockSubmitted = false;
+		closed = false;
+	}
+
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The stream is closed.");
+		}
+	}
+
+
+	private void writeBlock(Future<byte[]> block) throws IOException {
+		try {
+			destination.write(block.get());
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a block to be compressed.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Unable to compress a block.", e.getCause());
+		}
+	}
+
+
+	private void submitBlock() throws IOException {
+		pendingBlocks.add(executorService.submit(new BlockCompressor(compressionMethod, buffer, bufferCount)));
+		blockSubmitted = true;
+
+		// The worker now owns the old buffer.
+		buffer = new byte[blockSize];
+		bufferCount = 0;
+
+		while (pendingBlocks.size() > maxPendingBlocks) {
+			writeBlock(pendingBlocks.remove());
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+
+		buffer[bufferCount++] = (byte) b;
+		if (bufferCount == blockSize) {
+			submitBlock();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		int offset;
+		int remaining;
+
+		ensureOpen();
+
+		offset = off;
+		remaining = len;
+		while (remaining > 0) {
+			int count;
+
+			count = Math.min(remaining, blockSize - bufferCount);
+			System.arraycopy(b, offset, buffer, bufferCount, count);
+			bufferCount += count;
+			offset += count;
+			remaining -= count;
+
+			if (bufferCount == blockSize) {
+				submitBlock();
+			}
+		}
+	}
+
+
+	/**
+	 * Compresses all buffered data and writes it to the destination. Each
+	 * flush ends the current block, so frequent flushing reduces the
+	 * compression ratio.
+	 *
+	 * @throws IOException
+	 *             if an error occurs.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+
+		if (bufferCount > 0) {
+			submitBlock();
+		}
+		while (!pendingBlocks.isEmpty()) {
+			writeBlock(pendingBlocks.remove());
+		}
+
+		destination.flush();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		try {
+			// An empty file isn't valid compressed data so always write at
+			// least one block.
+			if (!blockSubmitted) {
+				submitBlock();
+			}
+			flush();
+
+		} finally {
+			closed = true;
+			executorService.shutdownNow();
+			destination.close();
+		}
+	}
+
+
+	/**
+	 * Compresses a single block into a self-contained gzip member or bzip2
+	 * stream.
+	 */
+	private static class BlockCompressor implements Callable<byte[]> {
+		private CompressionMethod compressionMethod;
+		private byte[] data;
+		private int length;
+
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param compressionMethod
+		 *            The compression method.
+		 * @param data
+		 *            The block to compress.
+		 * @param length
+		 *            The number of bytes in the block.
+		 */
+		BlockCompressor(CompressionMethod compressionMethod, byte[] data, int length) {
+			this.compressionMethod = compressionMethod;
+			this.data = data;
+			this.length = length;
+		}
+
+
+		private static void writeInt(byte[] buffer, int offset, int value) {
+			buffer[offset] = (byte) value;
+			buffer[offset + 1] = (byte) (value >>> 8);
+			buffer[offset + 2] = (byte) (value >>> 16);
+			buffer[offset + 3] = (byte) (value >>> 24);
+		}
+
+
+		private byte[] compressGZip() throws IOException {
+			ByteArrayOutputStream out;
+			Deflater deflater;
+			CRC32 crc;
+			byte[] trailer;
+			byte[] member;
+
+			out = new ByteArrayOutputStream(length / 4 + 64);
+
+			// The header is written with a zero length and patched once the
+			// compressed length is known.
+			out.write(new byte[] {
+				0x1f, (byte) 0x8b, Deflater.DEFLATED, GZIP_FLAG_EXTRA, 0, 0, 0, 0, 0, (byte) GZIP_OS_UNKNOWN,
+				GZIP_EXTRA_LENGTH, 0, GZIP_SIZE_FIELD_ID1, GZIP_SIZE_FIELD_ID2, GZIP_SIZE_FIELD_LENGTH, 0,
+				0, 0, 0, 0});
+
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				DeflaterOutputStream deflaterOut;
+
+				deflaterOut = new DeflaterOutputStream(out, deflater, GZIP_BUFFER_SIZE);
+				deflaterOut.write(data, 0, length);
+				deflaterOut.finish();
+
+			} finally {
+				deflater.end();
+			}
+
+			crc = new CRC32();
+			crc.update(data, 0, length);
+			trailer = new byte[8];
+			writeInt(trailer, 0, (int) crc.getValue());
+			writeInt(trailer, 4, length);
+			out.write(trailer);
+
+			member = out.toByteArray();
+			writeInt(member, GZIP_HEADER_LENGTH - 4, member.length);
+
+			return member;
+		}
+
+
+		private byte[] compressBZip2() throws IOException {
+			ByteArrayOutputStream out;
+			OutputStream compressor;
+
+			out = new ByteArrayOutputStream(length / 4 + 64);
+			compressor = new BZip2CompressorOutputStream(out);
+			compressor.write(data, 0, length);
+			compressor.close();
+
+			return out.toByteArray();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public byte[] call() throws IOException {
+			if (CompressionMethod.GZip.equals(compressionMethod)) {
+				return compressGZip();
+			} else {
+				return compressBZip2();
+			}
+		}
+	}
+}
@@ -0,0 +1,493 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Decompresses gzip or bzip2 data using several threads. A reader thread splits
+ * the compressed input into segments at boundaries that can be found without
+ * decompressing, worker threads decompress the segments, and the decompressed
+ * data is returned in its original order.
+ * <p>
+ * bzip2 input is split at the start of each concatenated stream, as written by
+ * pbzip2 and {@link ParallelCompressionOutputStream}. gzip input is split at
+ * members that record their own length, as written by
+ * {@link ParallelCompressionOutputStream}. Boundaries inside a single bzip2
+ * stream or between ordinary gzip members can't be found reliably, so such
+ * input is decompressed sequentially on the reader thread, which still
+ * removes decompression from the thread consuming the data.
+ */
+public class ParallelDecompressionInputStream extends InputStream {
+
+	/**
+	 * The compressed size at which segments are submitted to workers.
+	 */
+	private static final int SEGMENT_SIZE = 1 << 19;
+	/**
+	 * The amount of bzip2 data searched for a stream boundary before falling
+	 * back to sequential decompression.
+	 */
+	private static final int MAX_SEARCH_SIZE = 1 << 24;
+	private static final int READ_SIZE = 1 << 16;
+	private static final int SEQUENTIAL_CHUNK_SIZE = 1 << 20;
+	private static final int BZIP2_SIGNATURE_LENGTH = 10;
+	private static final byte[] BZIP2_BLOCK_MAGIC = {0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+	private static final byte[] BZIP2_END_MAGIC = {0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90};
+
+	private InputStream source;
+	private CompressionMethod compressionMethod;
+	private ExecutorService executorService;
+	private BlockingQueue<Future<byte[]>> chunks;
+	private Thread readerThread;
+	private byte[] chunk;
+	private int chunkOffset;
+	private boolean endOfStream;
+	private boolean closed;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param source
+	 *            The stream providing compressed data. It will be closed when
+	 *            this stream is closed.
+	 * @param compressionMethod
+	 *            The compression method, either GZip or BZip2.
+	 * @param workers
+	 *            The number of decompression threads.
+	 */
+	public ParallelDecompressionInputStream(InputStream source, CompressionMethod compressionMethod, int workers) {
+		if (!CompressionMethod.GZip.equals(compressionMethod) && !CompressionMethod.BZip2.equals(compressionMethod)) {
+			throw new IllegalArgumentException("Compression method " + compressionMethod
+					+ " can't be decompressed in parallel.");
+		}
+		if (workers <= 0) {
+			throw new IllegalArgumentException("At least one worker is required.");
+		}
+
+		this.source = source;
+		this.compressionMethod = compressionMethod;
+
+		// Allow each worker to have a segment queued behind the one it is
+		// decompressing.
+		chunks = new ArrayBlockingQueue<Future<byte[]>>(workers * 2);
+		executorService = Executors.newFixedThreadPool(workers, new DaemonThreadFactory("decompressor"));
+
+		readerThread = new DaemonThreadFactory("decompression-reader").newThread(new SegmentReader());
+		readerThread.start();
+
+		endOfStream = false;
+		closed = false;
+	}
+
+
+	private boolean nextChunk() throws IOException {
+		if (endOfStream) {
+			return false;
+		}
+
+		try {
+			chunk = chunks.take().get();
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for data to be decompressed.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Unable to decompress data.", e.getCause());
+		}
+
+		chunkOffset = 0;
+		if (chunk == null) {
+			endOfStream = true;
+			return false;
+		}
+
+		return true;
+	}
+
+
+	private boolean ensureData() throws IOException {
+		if (closed) {
+			throw new IOException("The stream is closed.");
+		}
+
+		while (chunk == null || chunkOffset >= chunk.length) {
+			if (!nextChunk()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		if (!ensureData()) {
+			return -1;
+		}
+
+		return chunk[chunkOffset++] & 0xff;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int count;
+
+		if (len == 0) {
+			return 0;
+		}
+		if (!ensureData()) {
+			return -1;
+		}
+
+		count = Math.min(len, chunk.length - chunkOffset);
+		System.arraycopy(chunk, chunkOffset, b, off, count);
+		chunkOffset += count;
+
+		return count;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		chunk = null;
+		readerThread.interrupt();
+		executorService.shutdownNow();
+		source.close();
+	}
+
+
+	private static int readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+		int total = 0;
+
+		while (total < length) {
+			int count;
+
+			count = in.read(buffer, offset + total, length - total);
+			if (count < 0) {
+				break;
+			}
+			total += count;
+		}
+
+		return total;
+	}
+
+
+	private static int readInt(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xff) | ((buffer[offset + 1] & 0xff) << 8) | ((buffer[offset + 2] & 0xff) << 16)
+				| ((buffer[offset + 3] & 0xff) << 24);
+	}
+
+
+	/**
+	 * Gets the length of a gzip member from the extra field written by
+	 * {@link ParallelCompressionOutputStream}.
+	 *
+	 * @param header
+	 *            The start of the member.
+	 * @return The member length, or -1 if the member doesn't record its
+	 *         length.
+	 */
+	private static int getGZipMemberLength(byte[] header) {
+		if (header[0] == 0x1f && header[1] == (byte) 0x8b && header[2] == 8 && header[3] == 4
+				&& header[10] == 8 && header[11] == 0
+				&& header[12] == ParallelCompressionOutputStream.GZIP_SIZE_FIELD_ID1
+				&& header[13] == ParallelCompressionOutputStream.GZIP_SIZE_FIELD_ID2
+				&& header[14] == 4 && header[15] == 0) {
+			int length = readInt(header, ParallelCompressionOutputStream.GZIP_HEADER_LENGTH - 4);
+
+			if (length >= ParallelCompressionOutputStream.GZIP_HEADER_LENGTH) {
+				return length;
+			}
+		}
+
+		return -1;
+	}
+
+
+	private static boolean matches(byte[] buffer, int offset, byte[] magic) {
+		for (int i = 0; i < magic.length; i++) {
+			if (buffer[offset + i] != magic[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Checks for a bzip2 stream header followed by either a block or an end of
+	 * stream marker. Both markers are byte aligned at the start of a stream.
+	 */
+	private static boolean isBZip2StreamStart(byte[] buffer, int offset) {
+		return buffer[offset] == 'B' && buffer[offset + 1] == 'Z' && buffer[offset + 2] == 'h'
+				&& buffer[offset + 3] >= '1' && buffer[offset + 3] <= '9'
+				&& (matches(buffer, offset + 4, BZIP2_BLOCK_MAGIC) || matches(buffer, offset + 4, BZIP2_END_MAGIC));
+	}
+
+
+	/**
+	 * Decompresses a segment containing one or more complete gzip members or
+	 * bzip2 streams.
+	 */
+	private static class SegmentDecompressor implements Callable<byte[]> {
+		private CompressionMethod compressionMethod;
+		private byte[] data;
+
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param compressionMethod
+		 *            The compression method.
+		 * @param data
+		 *            The compressed segment.
+		 */
+		SegmentDecompressor(CompressionMethod compressionMethod, byte[] data) {
+			this.compressionMethod = compressionMethod;
+			this.data = data;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public byte[] call() throws IOException {
+			ByteArrayOutputStream out;
+			InputStream in;
+			byte[] buffer;
+			int count;
+
+			out = new ByteArrayOutputStream(data.length * 8);
+			in = new CompressionActivator(compressionMethod).createCompressionInputStream(
+					new ByteArrayInputStream(data));
+			buffer = new byte[READ_SIZE];
+			while ((count = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, count);
+			}
+			in.close();
+
+			return out.toByteArray();
+		}
+	}
+
+
+	/**
+	 * Splits the compressed input into segments and queues them for
+	 * decompression in order.
+	 */
+	private class SegmentReader implements Runnable {
+		private boolean dataQueued;
+
+
+		private void submitSegment(byte[] data) throws InterruptedException {
+			chunks.put(executorService.submit(new SegmentDecompressor(compressionMethod, data)));
+			dataQueued = true;
+		}
+
+
+		private void decompressSequentially(InputStream in) throws IOException, InterruptedException {
+			InputStream decompressor;
+
+			dataQueued = true;
+			decompressor = new CompressionActivator(compressionMethod).createCompressionInputStream(in);
+			while (true) {
+				byte[] buffer;
+				int count;
+
+				buffer = new byte[SEQUENTIAL_CHUNK_SIZE];
+				count = readFully(decompressor, buffer, 0, buffer.length);
+				if (count == 0) {
+					break;
+				}
+				chunks.put(CompletableFuture.completedFuture(Arrays.copyOf(buffer, count)));
+			}
+		}
+
+
+		private void splitGZip() throws IOException, InterruptedException {
+			ByteArrayOutputStream segment;
+			byte[] header;
+
+			segment = new ByteArrayOutputStream(SEGMENT_SIZE * 2);
+			header = new byte[ParallelCompressionOutputStream.GZIP_HEADER_LENGTH];
+			while (true) {
+				int count;
+				int memberLength;
+				byte[] member;
+
+				count = readFully(source, header, 0, header.length);
+				if (count == 0) {
+					break;
+				}
+
+				memberLength = -1;
+				if (count == header.length) {
+					memberLength = getGZipMemberLength(header);
+				}
+				if (memberLength < 0) {
+					// The remaining members can't be split without decompressing.
+					if (segment.size() > 0) {
+						submitSegment(segment.toByteArray());
+					}
+					decompressSequentially(
+							new SequenceInputStream(new ByteArrayInputStream(header, 0, count), source));
+					return;
+				}
+
+				member = new byte[memberLength - header.length];
+				if (readFully(source, member, 0, member.length) < member.length) {
+					throw new EOFException("Unexpected end of gzip member.");
+				}
+				segment.write(header);
+				segment.write(member);
+
+				if (segment.size() >= SEGMENT_SIZE) {
+					submitSegment(segment.toByteArray());
+					segment.reset();
+				}
+			}
+
+			if (segment.size() > 0) {
+				submitSegment(segment.toByteArray());
+			}
+		}
+
+
+		private int findBZip2Boundary(byte[] buffer, int start, int count) {
+			for (int i = start; i + BZIP2_SIGNATURE_LENGTH <= count; i++) {
+				if (isBZip2StreamStart(buffer, i)) {
+					return i;
+				}
+			}
+
+			return -1;
+		}
+
+
+		private void splitBZip2() throws IOException, InterruptedException {
+			byte[] buffer;
+			int count;
+			int scanStart;
+
+			buffer = new byte[SEGMENT_SIZE * 2];
+			count = 0;
+			scanStart = SEGMENT_SIZE;
+			while (true) {
+				int readCount;
+				int boundary;
+
+				if (count + READ_SIZE > buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+				readCount = source.read(buffer, count, READ_SIZE);
+				if (readCount < 0) {
+					break;
+				}
+				count += readCount;
+
+				// Cut a segment at the first stream boundary once it is large
+				// enough.
+				while ((boundary = findBZip2Boundary(buffer, scanStart, count)) >= 0) {
+					submitSegment(Arrays.copyOf(buffer, boundary));
+					System.arraycopy(buffer, boundary, buffer, 0, count - boundary);
+					count -= boundary;
+					scanStart = SEGMENT_SIZE;
+				}
+				scanStart = Math.max(scanStart, count - BZIP2_SIGNATURE_LENGTH + 1);
+
+				if (count > MAX_SEARCH_SIZE) {
+					// This is probably a single stream which can't be split.
+					decompressSequentially(
+							new SequenceInputStream(new ByteArrayInputStream(buffer, 0, count), source));
+					return;
+				}
+			}
+
+			if (count > 0) {
+				submitSegment(Arrays.copyOf(buffer, count));
+			}
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			try {
+				if (CompressionMethod.GZip.equals(compressionMethod)) {
+					splitGZip();
+				} else {
+					splitBZip2();
+				}
+
+				// Empty input is passed to a decompressor so that it reports
+				// the error.
+				if (!dataQueued) {
+					decompressSequentially(new ByteArrayInputStream(new byte[0]));
+				}
+
+				chunks.put(CompletableFuture.completedFuture((byte[]) null));
+
+			} catch (InterruptedException e) {
+				// The stream has been closed.
+			} catch (IOException e) {
+				fail(e);
+			} catch (RuntimeException e) {
+				fail(e);
+			}
+		}
+
+
+		private void fail(Exception e) {
+			CompletableFuture<byte[]> failure;
+
+			failure = new CompletableFuture<byte[]>();
+			failure.completeExceptionally(e);
+			try {
+				chunks.put(failure);
+			} catch (InterruptedException e2) {
+				// The stream has been closed.
+			}
+		}
+	}
+}
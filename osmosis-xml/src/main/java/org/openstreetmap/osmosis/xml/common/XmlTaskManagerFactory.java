@@ -15,6 +15,8 @@ public abstract class XmlTaskManagerFactory extends TaskManagerFactory {
 	private static final String ARG_COMPRESSION_METHOD = "compressionMethod";
 	private static final String ARG_ENCODING_HACK = "encodingHack";
 	private static final boolean DEFAULT_ENCODING_HACK = false;
+	private static final String ARG_COMPRESSION_WORKERS = "compressionWorkers";
+	private static final int DEFAULT_COMPRESSION_WORKERS = 0;
 	
 	
 	/**
@@ -52,6 +54,28 @@ public abstract class XmlTaskManagerFactory extends TaskManagerFactory {
 	}
 	
 	
+	/**
+	 * Utility method for retrieving the number of threads used to compress or
+	 * decompress the file.
+	 * 
+	 * @param taskConfig
+	 *            Contains all information required to instantiate and configure
+	 *            the task.
+	 * @return The value of the argument. 0 indicates that compression occurs
+	 *         in the task thread.
+	 */
+	protected int getCompressionWorkersArgument(TaskConfiguration taskConfig) {
+		int workers;
+		
+		workers = getIntegerArgument(taskConfig, ARG_COMPRESSION_WORKERS, DEFAULT_COMPRESSION_WORKERS);
+		if (workers < 0) {
+			throw new OsmosisRuntimeException("Argument " + ARG_COMPRESSION_WORKERS + " cannot be negative.");
+		}
+		
+		return workers;
+	}
+	
+	
 	/**
 	 * Utility method for retrieving the argument specifying whether to enable
 	 * the production file encoding hack to work around a bug in the current
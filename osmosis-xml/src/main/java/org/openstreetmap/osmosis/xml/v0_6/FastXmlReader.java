@@ -6,6 +6,8 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,6 +19,7 @@ import org.openstreetmap.osmosis.core.task.v0_6.RunnableSource;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.openstreetmap.osmosis.xml.common.CompressionActivator;
 import org.openstreetmap.osmosis.xml.common.CompressionMethod;
+import org.openstreetmap.osmosis.xml.common.DaemonThreadFactory;
 import org.openstreetmap.osmosis.xml.v0_6.impl.FastXmlParser;
 
 
@@ -35,6 +38,8 @@ public class FastXmlReader implements RunnableSource {
 		private final File file;
 		private final boolean enableDateParsing;
 		private final CompressionMethod compressionMethod;
+		private final int compressionWorkers;
+		private final int workers;
 		
 		
 		/**
@@ -49,9 +54,55 @@ public class FastXmlReader implements RunnableSource {
 		 *            Specifies the compression method to employ.
 		 */
 		public FastXmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod) {
+			this(file, enableDateParsing, compressionMethod, 0);
+		}
+		
+		
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param file
+		 *            The file to read.
+		 * @param enableDateParsing
+		 *            If true, dates will be parsed from xml data, else the current
+		 *            date will be used thus saving parsing time.
+		 * @param compressionMethod
+		 *            Specifies the compression method to employ.
+		 * @param compressionWorkers
+		 *            The number of threads used to decompress input. If 0,
+		 *            decompression occurs in the reading thread.
+		 */
+		public FastXmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod,
+				int compressionWorkers) {
+			this(file, enableDateParsing, compressionMethod, compressionWorkers, 0);
+		}
+		
+		
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param file
+		 *            The file to read.
+		 * @param enableDateParsing
+		 *            If true, dates will be parsed from xml data, else the current
+		 *            date will be used thus saving parsing time.
+		 * @param compressionMethod
+		 *            Specifies the compression method to employ.
+		 * @param compressionWorkers
+		 *            The number of threads used to decompress input. If 0,
+		 *            decompression occurs in the reading thread.
+		 * @param workers
+		 *            The number of threads used to build entities while the
+		 *            reading thread tokenizes the xml. If 0, entities are built
+		 *            in the reading thread.
+		 */
+		public FastXmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod,
+				int compressionWorkers, int workers) {
 			this.file = file;
 			this.enableDateParsing = enableDateParsing;
 			this.compressionMethod = compressionMethod;
+			this.compressionWorkers = compressionWorkers;
+			this.workers = workers;
 		}
 		
 		
@@ -70,6 +121,7 @@ public class FastXmlReader implements RunnableSource {
 		public void run() {
 			InputStream inputStream = null;
 			FastXmlParser parser = null;
+			ExecutorService executorService = null;
 			
 			try {
 				sink.initialize(Collections.<String, Object>emptyMap());
@@ -83,7 +135,7 @@ public class FastXmlReader implements RunnableSource {
 				
 				
 				inputStream =
-					new CompressionActivator(compressionMethod).
+					new CompressionActivator(compressionMethod, compressionWorkers).
 						createCompressionInputStream(inputStream);
 				
 		        XMLInputFactory factory = XMLInputFactory.newInstance();
@@ -92,7 +144,15 @@ public class FastXmlReader implements RunnableSource {
 		        factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
 		        XMLStreamReader xpp = factory.createXMLStreamReader(inputStream);
 				
-				parser = new FastXmlParser(sink, xpp, enableDateParsing);
+				// Entities are built on worker threads if requested. We allow an
+				// extra batch than there are workers to ensure there is another
+				// batch immediately ready for processing when a worker completes.
+				if (workers > 0) {
+					executorService = Executors.newFixedThreadPool(workers, new DaemonThreadFactory("xml-builder"));
+					parser = new FastXmlParser(sink, xpp, enableDateParsing, executorService, workers + 1);
+				} else {
+					parser = new FastXmlParser(sink, xpp, enableDateParsing);
+				}
 				
 				parser.readOsm();
 				
@@ -103,6 +163,10 @@ public class FastXmlReader implements RunnableSource {
 			} finally {
 				sink.close();
 				
+				if (executorService != null) {
+					executorService.shutdownNow();
+				}
+				
 				if (inputStream != null) {
 					try {
 						inputStream.close();
@@ -3,6 +3,7 @@ package org.openstreetmap.osmosis.xml.v0_6;
 
 import java.io.File;
 
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskConfiguration;
 import org.openstreetmap.osmosis.core.pipeline.common.TaskManager;
 import org.openstreetmap.osmosis.core.pipeline.v0_6.RunnableSourceManager;
@@ -21,6 +22,8 @@ public class FastXmlReaderFactory extends XmlTaskManagerFactory {
 		private static final String DEFAULT_FILE_NAME = "dump.osm";
 		private static final String ARG_ENABLE_DATE_PARSING = "enableDateParsing";
 		private static final boolean DEFAULT_ENABLE_DATE_PARSING = true;
+		private static final String ARG_WORKERS = "workers";
+		private static final int DEFAULT_WORKERS = 0;
 		
 		
 		/**
@@ -32,6 +35,8 @@ public class FastXmlReaderFactory extends XmlTaskManagerFactory {
 			File file;
 			boolean enableDateParsing;
 			CompressionMethod compressionMethod;
+			int compressionWorkers;
+			int workers;
 			FastXmlReader task;
 			
 			// Get the task arguments.
@@ -42,12 +47,18 @@ public class FastXmlReaderFactory extends XmlTaskManagerFactory {
 			);
 			enableDateParsing = getBooleanArgument(taskConfig, ARG_ENABLE_DATE_PARSING, DEFAULT_ENABLE_DATE_PARSING);
 			compressionMethod = getCompressionMethodArgument(taskConfig, fileName);
+			compressionWorkers = getCompressionWorkersArgument(taskConfig);
+			workers = getIntegerArgument(taskConfig, ARG_WORKERS, DEFAULT_WORKERS);
+			
+			if (workers < 0) {
+				throw new OsmosisRuntimeException("Argument " + ARG_WORKERS + " cannot be negative.");
+			}
 			
 			// Create a file object from the file name provided.
 			file = new File(fileName);
 			
 			// Build the task object.
-			task = new FastXmlReader(file, enableDateParsing, compressionMethod);
+			task = new FastXmlReader(file, enableDateParsing, compressionMethod, compressionWorkers, workers);
 			
 			return new RunnableSourceManager(taskConfig.getId(), task, taskConfig.getPipeArgs());
 		}
@@ -43,12 +43,28 @@ public class XmlChangeWriter extends BaseXmlWriter implements ChangeSink {
 	 *            Specifies the compression method to employ.
 	 */
 	public XmlChangeWriter(File file, CompressionMethod compressionMethod) {
-    	super(file, compressionMethod);
-
-        osmChangeWriter = new OsmChangeWriter("osmChange", 0);
+    	this(file, compressionMethod, 0);
     }
 
 
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param file
+	 *            The file to write.
+	 * @param compressionMethod
+	 *            Specifies the compression method to employ.
+	 * @param compressionWorkers
+	 *            The number of threads used to compress output. If 0,
+	 *            compression occurs in the writing thread.
+	 */
+	public XmlChangeWriter(File file, CompressionMethod compressionMethod, int compressionWorkers) {
+		super(file, compressionMethod, compressionWorkers);
+
+		osmChangeWriter = new OsmChangeWriter("osmChange", 0);
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -28,6 +28,7 @@ public class XmlChangeWriterFactory extends XmlTaskManagerFactory {
 		String fileName;
 		File file;
 		CompressionMethod compressionMethod;
+		int compressionWorkers;
 		XmlChangeWriter task;
 		
 		// Get the task arguments.
@@ -37,12 +38,13 @@ public class XmlChangeWriterFactory extends XmlTaskManagerFactory {
 			getDefaultStringArgument(taskConfig, DEFAULT_FILE_NAME)
 		);
 		compressionMethod = getCompressionMethodArgument(taskConfig, fileName);
+		compressionWorkers = getCompressionWorkersArgument(taskConfig);
 		
 		// Create a file object from the file name provided.
 		file = new File(fileName);
 		
 		// Build the task object.
-		task = new XmlChangeWriter(file, compressionMethod);
+		task = new XmlChangeWriter(file, compressionMethod, compressionWorkers);
 		
 		return new ChangeSinkManager(taskConfig.getId(), task, taskConfig.getPipeArgs());
 	}
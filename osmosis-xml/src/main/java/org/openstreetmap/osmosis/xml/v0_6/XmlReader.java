@@ -35,6 +35,7 @@ public class XmlReader implements RunnableSource {
 	private File file;
 	private boolean enableDateParsing;
 	private CompressionMethod compressionMethod;
+	private int compressionWorkers;
 	
 	
 	/**
@@ -49,9 +50,30 @@ public class XmlReader implements RunnableSource {
 	 *            Specifies the compression method to employ.
 	 */
 	public XmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod) {
+		this(file, enableDateParsing, compressionMethod, 0);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param file
+	 *            The file to read.
+	 * @param enableDateParsing
+	 *            If true, dates will be parsed from xml data, else the current
+	 *            date will be used thus saving parsing time.
+	 * @param compressionMethod
+	 *            Specifies the compression method to employ.
+	 * @param compressionWorkers
+	 *            The number of threads used to decompress input. If 0,
+	 *            decompression occurs in the reading thread.
+	 */
+	public XmlReader(File file, boolean enableDateParsing, CompressionMethod compressionMethod,
+			int compressionWorkers) {
 		this.file = file;
 		this.enableDateParsing = enableDateParsing;
 		this.compressionMethod = compressionMethod;
+		this.compressionWorkers = compressionWorkers;
 	}
 	
 	
@@ -82,7 +104,7 @@ public class XmlReader implements RunnableSource {
 			}
 
 			inputStream =
-				new CompressionActivator(compressionMethod).
+				new CompressionActivator(compressionMethod, compressionWorkers).
 					createCompressionInputStream(inputStream);
 
 			parser = SaxParserFactory.createParser();
@@ -31,6 +31,7 @@ public class XmlReaderFactory extends XmlTaskManagerFactory {
 		File file;
 		boolean enableDateParsing;
 		CompressionMethod compressionMethod;
+		int compressionWorkers;
 		XmlReader task;
 		
 		// Get the task arguments.
@@ -41,12 +42,13 @@ public class XmlReaderFactory extends XmlTaskManagerFactory {
 		);
 		enableDateParsing = getBooleanArgument(taskConfig, ARG_ENABLE_DATE_PARSING, DEFAULT_ENABLE_DATE_PARSING);
 		compressionMethod = getCompressionMethodArgument(taskConfig, fileName);
+		compressionWorkers = getCompressionWorkersArgument(taskConfig);
 		
 		// Create a file object from the file name provided.
 		file = new File(fileName);
 		
 		// Build the task object.
-		task = new XmlReader(file, enableDateParsing, compressionMethod);
+		task = new XmlReader(file, enableDateParsing, compressionMethod, compressionWorkers);
 		
 		return new RunnableSourceManager(taskConfig.getId(), task, taskConfig.getPipeArgs());
 	}
@@ -60,7 +60,26 @@ public class XmlWriter extends BaseXmlWriter implements Sink {
 	 *            instead of the correct {@literal <bounds>} one.
 	 */
 	public XmlWriter(File file, CompressionMethod compressionMethod, boolean legacyBound) {
-		super(file, compressionMethod);
+		this(file, compressionMethod, legacyBound, 0);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param file
+	 *            The file to write.
+	 * @param compressionMethod
+	 *            Specifies the compression method to employ.
+	 * @param legacyBound
+	 *            If true, write the legacy {@literal <bound>} element
+	 *            instead of the correct {@literal <bounds>} one.
+	 * @param compressionWorkers
+	 *            The number of threads used to compress output. If 0,
+	 *            compression occurs in the writing thread.
+	 */
+	public XmlWriter(File file, CompressionMethod compressionMethod, boolean legacyBound, int compressionWorkers) {
+		super(file, compressionMethod, compressionWorkers);
 		
 		osmWriter = new OsmWriter("osm", 0, true, legacyBound);
 	}
@@ -1,7 +1,14 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package org.openstreetmap.osmosis.xml.v0_6.impl;
 
-import java.util.Calendar;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLStreamConstants;
@@ -10,29 +17,20 @@ import javax.xml.stream.XMLStreamReader;
 
 import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
 import org.openstreetmap.osmosis.core.container.v0_6.BoundContainer;
-import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
-import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
-import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
-import org.openstreetmap.osmosis.core.domain.common.SimpleTimestampContainer;
-import org.openstreetmap.osmosis.core.domain.common.TimestampContainer;
-import org.openstreetmap.osmosis.core.domain.common.TimestampFormat;
-import org.openstreetmap.osmosis.core.domain.common.UnparsedTimestampContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
-import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
 import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
-import org.openstreetmap.osmosis.core.domain.v0_6.Node;
-import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
-import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
-import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
-import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
-import org.openstreetmap.osmosis.core.domain.v0_6.Way;
-import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
-import org.openstreetmap.osmosis.xml.common.XmlTimestampFormat;
 
 
 /**
  * Reads the contents of an osm file using a Stax parser.
+ * <p>
+ * Entity elements are tokenized into {@link XmlEntityRecord}s holding their raw
+ * values, and the entities are built from the records by an
+ * {@link XmlEntityBuilder}. If an executor service is provided, records are
+ * built in batches on its threads while this thread continues tokenizing, and
+ * the entities are passed to the sink in their original order.
  * 
  * @author Jiri Klement
  * @author Brett Henderson
@@ -68,8 +66,11 @@ public class FastXmlParser {
 	private static final Object ELEMENT_NAME_BOUNDS = "bounds";
 	
 	
+	private static final int BATCH_SIZE = 1000;
+	
+	
 	/**
-	 * Creates a new instance.
+	 * Creates a new instance that builds entities in the parsing thread.
 	 * 
 	 * @param sink
 	 *            The sink receiving all output data.
@@ -80,39 +81,77 @@ public class FastXmlParser {
 	 *            otherwise the current system time will be used.
 	 */
 	public FastXmlParser(Sink sink, XMLStreamReader reader, boolean enableDateParsing) {
+		this(sink, reader, enableDateParsing, null, 0);
+	}
+	
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param sink
+	 *            The sink receiving all output data.
+	 * @param reader
+	 *            The input xml reader.
+	 * @param enableDateParsing
+	 *            If true, parsing of dates in the xml will be enabled,
+	 *            otherwise the current system time will be used.
+	 * @param executorService
+	 *            The executor service used to build entities, or null to
+	 *            build entities in the parsing thread.
+	 * @param maxPendingBatches
+	 *            The maximum number of batches of entities to have in
+	 *            progress at any point in time.
+	 */
+	public FastXmlParser(Sink sink, XMLStreamReader reader, boolean enableDateParsing,
+			ExecutorService executorService, int maxPendingBatches) {
+		this(sink, reader, enableDateParsing, executorService, maxPendingBatches, BATCH_SIZE);
+	}
+	
+	
+	/**
+	 * Creates a new instance with a specific batch size. This allows tests to
+	 * exercise batching with small amounts of data.
+	 * 
+	 * @param sink
+	 *            The sink receiving all output data.
+	 * @param reader
+	 *            The input xml reader.
+	 * @param enableDateParsing
+	 *            If true, parsing of dates in the xml will be enabled,
+	 *            otherwise the current system time will be used.
+	 * @param executorService
+	 *            The executor service used to build entities, or null to
+	 *            build entities in the parsing thread.
+	 * @param maxPendingBatches
+	 *            The maximum number of batches of entities to have in
+	 *            progress at any point in time.
+	 * @param batchSize
+	 *            The number of entities built by each task submitted to the
+	 *            executor service.
+	 */
+	/* package */ FastXmlParser(Sink sink, XMLStreamReader reader, boolean enableDateParsing,
+			ExecutorService executorService, int maxPendingBatches, int batchSize) {
 		this.sink = sink;
-		this.enableDateParsing = enableDateParsing;
 		this.reader = reader;
+		this.executorService = executorService;
+		this.maxPendingBatches = maxPendingBatches;
+		this.batchSize = batchSize;
 		
-		if (enableDateParsing) {
-			timestampFormat = new XmlTimestampFormat();
-		} else {
-			Calendar calendar;
-			
-			calendar = Calendar.getInstance();
-			calendar.set(Calendar.MILLISECOND, 0);
-			dummyTimestampContainer = new SimpleTimestampContainer(calendar.getTime());
-		}
-		
-		memberTypeParser = new MemberTypeParser();
+		entityBuilder = new XmlEntityBuilder(enableDateParsing);
+		batch = new ArrayList<XmlEntityRecord>(batchSize);
+		pendingBatches = new ArrayDeque<Future<List<EntityContainer>>>();
 	}
 	
 	private final XMLStreamReader reader;
 	private final Sink sink;
-	private final boolean enableDateParsing;
-	private final MemberTypeParser memberTypeParser;
-	private TimestampFormat timestampFormat;
-	private TimestampContainer dummyTimestampContainer;
+	private final XmlEntityBuilder entityBuilder;
+	private final ExecutorService executorService;
+	private final int maxPendingBatches;
+	private final int batchSize;
+	private List<XmlEntityRecord> batch;
+	private Deque<Future<List<EntityContainer>>> pendingBatches;
 
 	
-	private TimestampContainer parseTimestamp(String data) {
-		if (enableDateParsing) {
-			return new UnparsedTimestampContainer(timestampFormat, data);
-		} else {
-			return dummyTimestampContainer;
-		}
-	}
-	
 	private void readUnknownElement() throws XMLStreamException {
 		int level = 0;
 		
@@ -127,55 +166,6 @@ public class FastXmlParser {
 	}
 
 
-	/**
-	 * Creates a user instance based on the current entity attributes. This includes identifying the
-	 * case where no user is available.
-	 * 
-	 * @return The appropriate user instance.
-	 */
-	private OsmUser readUser() {
-		String rawUserId;
-		String rawUserName;
-		
-		rawUserId = reader.getAttributeValue(null, ATTRIBUTE_NAME_USER_ID);
-		rawUserName = reader.getAttributeValue(null, ATTRIBUTE_NAME_USER);
-		
-		if (rawUserId != null) {
-			int userId;
-			String userName;
-			
-			userId = Integer.parseInt(rawUserId);
-			if (rawUserName == null) {
-				userName = "";
-			} else {
-				userName = rawUserName;
-			}
-			
-			return new OsmUser(userId, userName);
-			
-		} else {
-			return OsmUser.NONE;
-		}
-	}
-	
-	
-	/**
-	 * Parses a changeset id from the current entity.
-	 * 
-	 * @return The changeset id as a long. 0 is returned if no attribute is available.
-	 */
-	private long readChangesetId() {
-		String changesetIdAttribute;
-		
-		changesetIdAttribute = reader.getAttributeValue(null, ATTRIBUTE_NAME_CHANGESET_ID);
-		if (changesetIdAttribute != null) {
-			return Long.parseLong(changesetIdAttribute);
-		} else {
-			return 0;
-		}
-	}
-	
-	
 	private Bound readBound() throws Exception {
 		String boxString;
 		String origin;
@@ -247,39 +237,35 @@ public class FastXmlParser {
 		}
 	}
 	
-	private Tag readTag() throws Exception {
-		Tag tag = new Tag(reader.getAttributeValue(null, ATTRIBUTE_NAME_KEY),
+	private XmlEntityRecord readEntityAttributes(EntityType type) {
+		return new XmlEntityRecord(
+				type,
+				reader.getAttributeValue(null, ATTRIBUTE_NAME_ID),
+				reader.getAttributeValue(null, ATTRIBUTE_NAME_VERSION),
+				reader.getAttributeValue(null, ATTRIBUTE_NAME_TIMESTAMP),
+				reader.getAttributeValue(null, ATTRIBUTE_NAME_USER_ID),
+				reader.getAttributeValue(null, ATTRIBUTE_NAME_USER),
+				reader.getAttributeValue(null, ATTRIBUTE_NAME_CHANGESET_ID));
+	}
+	
+	private void readTag(XmlEntityRecord record) throws Exception {
+		record.addTag(reader.getAttributeValue(null, ATTRIBUTE_NAME_KEY),
 				reader.getAttributeValue(null, ATTRIBUTE_NAME_VALUE));
 		reader.nextTag();
 		reader.nextTag();
-		return tag;
 	}
 	
-	private Node readNode() throws Exception {
-		long id;
-		int version;
-		TimestampContainer timestamp;
-		OsmUser user;
-		long changesetId;
-		double latitude;
-		double longitude;
-		Node node;
+	private XmlEntityRecord readNode() throws Exception {
+		XmlEntityRecord record;
 		
-		id = Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_NAME_ID));
-		version = Integer.parseInt(reader.getAttributeValue(null, ATTRIBUTE_NAME_VERSION));
-		timestamp = parseTimestamp(reader.getAttributeValue(null, ATTRIBUTE_NAME_TIMESTAMP));
-		changesetId = Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_NAME_CHANGESET_ID));
-		user = readUser();
-		changesetId = readChangesetId();
-		latitude = Double.parseDouble(reader.getAttributeValue(null, ATTRIBUTE_NAME_LATITUDE));
-		longitude = Double.parseDouble(reader.getAttributeValue(null, ATTRIBUTE_NAME_LONGITUDE));
-		
-		node = new Node(new CommonEntityData(id, version, timestamp, user, changesetId), latitude, longitude);
+		record = readEntityAttributes(EntityType.Node);
+		record.setLocation(reader.getAttributeValue(null, ATTRIBUTE_NAME_LATITUDE),
+				reader.getAttributeValue(null, ATTRIBUTE_NAME_LONGITUDE));
 		
 		reader.nextTag();
 		while (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
 			if (reader.getLocalName().equals(ELEMENT_NAME_TAG)) {
-				node.getTags().add(readTag());
+				readTag(record);
 			} else {
 				readUnknownElement();
 			}
@@ -287,94 +273,103 @@ public class FastXmlParser {
 		
 		reader.nextTag();
 		
-		return node;
+		return record;
 	}
 	
-	private WayNode readWayNode() throws Exception {
-		WayNode node = new WayNode(
-				Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_NAME_REF)));
+	private void readWayNode(XmlEntityRecord record) throws Exception {
+		record.addWayNode(reader.getAttributeValue(null, ATTRIBUTE_NAME_REF));
 		reader.nextTag();
 		reader.nextTag();
-		return node;
 	}
 	
-	private Way readWay() throws Exception {
-		long id;
-		int version;
-		TimestampContainer timestamp;
-		OsmUser user;
-		long changesetId;
-		Way way;
-		
-		id = Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_NAME_ID));
-		version = Integer.parseInt(reader.getAttributeValue(null, ATTRIBUTE_NAME_VERSION));
-		timestamp = parseTimestamp(reader.getAttributeValue(null, ATTRIBUTE_NAME_TIMESTAMP));
-		user = readUser();
-		changesetId = readChangesetId();
+	private XmlEntityRecord readWay() throws Exception {
+		XmlEntityRecord record;
 		
-		way = new Way(new CommonEntityData(id, version, timestamp, user, changesetId));
+		record = readEntityAttributes(EntityType.Way);
 		
 		reader.nextTag();
 		while (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
 			if (reader.getLocalName().equals(ELEMENT_NAME_TAG)) {
-				way.getTags().add(readTag());
+				readTag(record);
 			} else if (reader.getLocalName().equals(ELEMENT_NAME_NODE_REFERENCE)) {
-				way.getWayNodes().add(readWayNode());
+				readWayNode(record);
 			} else {
 				readUnknownElement();
 			}
 		}
 		reader.nextTag();
 
-		return way;
+		return record;
 	}
 	
-	private RelationMember readRelationMember() throws Exception {
-		long id;
-		EntityType type;
-		String role;
-		
-		id = Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_NAME_REF));
-		type = memberTypeParser.parse(reader.getAttributeValue(null, ATTRIBUTE_NAME_TYPE));
-		role = reader.getAttributeValue(null, ATTRIBUTE_NAME_ROLE);
-		
-		RelationMember relationMember = new RelationMember(id, type, role);
+	private void readRelationMember(XmlEntityRecord record) throws Exception {
+		record.addMember(reader.getAttributeValue(null, ATTRIBUTE_NAME_REF),
+				reader.getAttributeValue(null, ATTRIBUTE_NAME_TYPE),
+				reader.getAttributeValue(null, ATTRIBUTE_NAME_ROLE));
 		
 		reader.nextTag();
 		reader.nextTag();
-		
-		return relationMember;
 	}
 	
-	private Relation readRelation() throws Exception {
-		long id;
-		int version;
-		TimestampContainer timestamp;
-		OsmUser user;
-		long changesetId;
-		Relation relation;
-		
-		id = Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_NAME_ID));
-		version = Integer.parseInt(reader.getAttributeValue(null, ATTRIBUTE_NAME_VERSION));
-		timestamp = parseTimestamp(reader.getAttributeValue(null, ATTRIBUTE_NAME_TIMESTAMP));
-		user = readUser();
-		changesetId = readChangesetId();
+	private XmlEntityRecord readRelation() throws Exception {
+		XmlEntityRecord record;
 		
-		relation = new Relation(new CommonEntityData(id, version, timestamp, user, changesetId));
+		record = readEntityAttributes(EntityType.Relation);
 		
 		reader.nextTag();
 		while (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
 			if (reader.getLocalName().equals(ELEMENT_NAME_TAG)) {
-				relation.getTags().add(readTag());
+				readTag(record);
 			} else if (reader.getLocalName().equals(ELEMENT_NAME_MEMBER)) {
-				relation.getMembers().add(readRelationMember());
+				readRelationMember(record);
 			} else {
 				readUnknownElement();
 			}
 		}
 		reader.nextTag();
 		
-		return relation;
+		return record;
+	}
+	
+	
+	private void sendBatchesToSink(int targetQueueSize) throws InterruptedException, ExecutionException {
+		while (pendingBatches.size() > targetQueueSize) {
+			for (EntityContainer entity : pendingBatches.remove().get()) {
+				sink.process(entity);
+			}
+		}
+	}
+	
+	
+	private void submitBatch() throws InterruptedException, ExecutionException {
+		if (batch.size() > 0) {
+			pendingBatches.add(executorService.submit(new BatchBuilder(entityBuilder, batch)));
+			batch = new ArrayList<XmlEntityRecord>(batchSize);
+			
+			// If the number of pending batches has reached capacity we must
+			// wait for the oldest to be built.
+			sendBatchesToSink(maxPendingBatches - 1);
+		}
+	}
+	
+	
+	private void processRecord(XmlEntityRecord record) throws InterruptedException, ExecutionException {
+		if (executorService == null) {
+			sink.process(entityBuilder.build(record));
+		} else {
+			batch.add(record);
+			if (batch.size() >= batchSize) {
+				submitBatch();
+			}
+		}
+	}
+	
+	
+	private void flushRecords() throws InterruptedException, ExecutionException {
+		if (executorService != null) {
+			submitBatch();
+			sendBatchesToSink(0);
+		}
 	}
 
 	
@@ -419,21 +414,57 @@ public class FastXmlParser {
 				while (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {			
 					// Node, way, relation
 					if (reader.getLocalName().equals(ELEMENT_NAME_NODE)) {
-						sink.process(new NodeContainer(readNode()));
+						processRecord(readNode());
 					} else if (reader.getLocalName().equals(ELEMENT_NAME_WAY)) {
-						sink.process(new WayContainer(readWay()));
+						processRecord(readWay());
 					} else if (reader.getLocalName().equals(ELEMENT_NAME_RELATION)) {
-						sink.process(new RelationContainer(readRelation()));
+						processRecord(readRelation());
 					} else {
 						readUnknownElement();
 					}
 				}
+				
+				flushRecords();
 
 			} else {
 				throw new XMLStreamException();
 			}
+		} catch (ExecutionException e) {
+			throw new OsmosisRuntimeException("Unable to build entities.", e.getCause());
 		} catch (Exception e) {
 			throw new OsmosisRuntimeException(e);
 		}
 	}
+	
+	
+	/**
+	 * Builds a batch of entities on a worker thread.
+	 */
+	private static class BatchBuilder implements Callable<List<EntityContainer>> {
+		private XmlEntityBuilder entityBuilder;
+		private List<XmlEntityRecord> records;
+		
+		
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param entityBuilder
+		 *            The builder used to create the entities.
+		 * @param records
+		 *            The records describing the entities.
+		 */
+		BatchBuilder(XmlEntityBuilder entityBuilder, List<XmlEntityRecord> records) {
+			this.entityBuilder = entityBuilder;
+			this.records = records;
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public List<EntityContainer> call() {
+			return entityBuilder.build(records);
+		}
+	}
 }
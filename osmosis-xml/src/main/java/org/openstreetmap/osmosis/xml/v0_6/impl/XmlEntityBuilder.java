@@ -0,0 +1,213 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6.impl;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+
+import org.openstreetmap.osmosis.core.OsmosisRuntimeException;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.NodeContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.RelationContainer;
+import org.openstreetmap.osmosis.core.container.v0_6.WayContainer;
+import org.openstreetmap.osmosis.core.domain.common.SimpleTimestampContainer;
+import org.openstreetmap.osmosis.core.domain.common.TimestampContainer;
+import org.openstreetmap.osmosis.core.domain.common.TimestampFormat;
+import org.openstreetmap.osmosis.core.domain.common.UnparsedTimestampContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.xml.common.XmlTimestampFormat;
+
+
+/**
+ * Builds entities from the raw values captured in entity records. Instances
+ * hold no per-entity state so a single builder may be used by several threads
+ * at once.
+ */
+public class XmlEntityBuilder {
+
+	private final boolean enableDateParsing;
+	private final MemberTypeParser memberTypeParser;
+	private TimestampFormat timestampFormat;
+	private TimestampContainer dummyTimestampContainer;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param enableDateParsing
+	 *            If true, parsing of dates in the xml will be enabled,
+	 *            otherwise the current system time will be used.
+	 */
+	public XmlEntityBuilder(boolean enableDateParsing) {
+		this.enableDateParsing = enableDateParsing;
+
+		if (enableDateParsing) {
+			timestampFormat = new XmlTimestampFormat();
+		} else {
+			Calendar calendar;
+
+			calendar = Calendar.getInstance();
+			calendar.set(Calendar.MILLISECOND, 0);
+			dummyTimestampContainer = new SimpleTimestampContainer(calendar.getTime());
+		}
+
+		memberTypeParser = new MemberTypeParser();
+	}
+
+
+	private TimestampContainer parseTimestamp(String data) {
+		if (enableDateParsing) {
+			return new UnparsedTimestampContainer(timestampFormat, data);
+		} else {
+			return dummyTimestampContainer;
+		}
+	}
+
+
+	/**
+	 * Creates a user instance based on the entity attributes. This includes
+	 * identifying the case where no user is available.
+	 *
+	 * @return The appropriate user instance.
+	 */
+	private OsmUser buildUser(XmlEntityRecord record) {
+		if (record.getUserId() != null) {
+			int userId;
+			String userName;
+
+			userId = Integer.parseInt(record.getUserId());
+			if (record.getUserName() == null) {
+				userName = "";
+			} else {
+				userName = record.getUserName();
+			}
+
+			return new OsmUser(userId, userName);
+
+		} else {
+			return OsmUser.NONE;
+		}
+	}
+
+
+	/**
+	 * Parses the changeset id of the entity.
+	 *
+	 * @return The changeset id as a long. 0 is returned if no attribute is
+	 *         available.
+	 */
+	private long buildChangesetId(XmlEntityRecord record) {
+		if (record.getChangesetId() != null) {
+			return Long.parseLong(record.getChangesetId());
+		} else {
+			return 0;
+		}
+	}
+
+
+	private CommonEntityData buildEntityData(XmlEntityRecord record) {
+		return new CommonEntityData(
+				Long.parseLong(record.getId()),
+				Integer.parseInt(record.getVersion()),
+				parseTimestamp(record.getTimestamp()),
+				buildUser(record),
+				buildChangesetId(record));
+	}
+
+
+	private void buildTags(XmlEntityRecord record, Collection<Tag> tags) {
+		List<String> values = record.getTags();
+
+		for (int i = 0; i < values.size(); i += 2) {
+			tags.add(new Tag(values.get(i), values.get(i + 1)));
+		}
+	}
+
+
+	private Node buildNode(XmlEntityRecord record) {
+		Node node;
+
+		node = new Node(buildEntityData(record), Double.parseDouble(record.getLatitude()),
+				Double.parseDouble(record.getLongitude()));
+		buildTags(record, node.getTags());
+
+		return node;
+	}
+
+
+	private Way buildWay(XmlEntityRecord record) {
+		Way way;
+
+		way = new Way(buildEntityData(record));
+		buildTags(record, way.getTags());
+		for (String ref : record.getWayNodes()) {
+			way.getWayNodes().add(new WayNode(Long.parseLong(ref)));
+		}
+
+		return way;
+	}
+
+
+	private Relation buildRelation(XmlEntityRecord record) {
+		Relation relation;
+		List<String> values;
+
+		relation = new Relation(buildEntityData(record));
+		buildTags(record, relation.getTags());
+		values = record.getMembers();
+		for (int i = 0; i < values.size(); i += 3) {
+			relation.getMembers().add(new RelationMember(Long.parseLong(values.get(i)),
+					memberTypeParser.parse(values.get(i + 1)), values.get(i + 2)));
+		}
+
+		return relation;
+	}
+
+
+	/**
+	 * Builds the entity described by a record.
+	 *
+	 * @param record
+	 *            The entity record.
+	 * @return The entity container.
+	 */
+	public EntityContainer build(XmlEntityRecord record) {
+		if (EntityType.Node.equals(record.getType())) {
+			return new NodeContainer(buildNode(record));
+		} else if (EntityType.Way.equals(record.getType())) {
+			return new WayContainer(buildWay(record));
+		} else if (EntityType.Relation.equals(record.getType())) {
+			return new RelationContainer(buildRelation(record));
+		} else {
+			throw new OsmosisRuntimeException("Entity type " + record.getType() + " is not supported.");
+		}
+	}
+
+
+	/**
+	 * Builds the entities described by a batch of records.
+	 *
+	 * @param records
+	 *            The entity records.
+	 * @return The entity containers in the same order as the records.
+	 */
+	public List<EntityContainer> build(List<XmlEntityRecord> records) {
+		List<EntityContainer> entities;
+
+		entities = new ArrayList<EntityContainer>(records.size());
+		for (XmlEntityRecord record : records) {
+			entities.add(build(record));
+		}
+
+		return entities;
+	}
+}
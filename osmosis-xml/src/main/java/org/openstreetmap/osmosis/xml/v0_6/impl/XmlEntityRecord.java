@@ -0,0 +1,238 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+
+
+/**
+ * Holds the raw attribute values of an entity element and its child elements
+ * as read from the xml. No values are parsed, which keeps tokenizing cheap and
+ * allows entities to be built on other threads by {@link XmlEntityBuilder}.
+ */
+public class XmlEntityRecord {
+	private EntityType type;
+	private String id;
+	private String version;
+	private String timestamp;
+	private String userId;
+	private String userName;
+	private String changesetId;
+	private String latitude;
+	private String longitude;
+	private List<String> tags;
+	private List<String> wayNodes;
+	private List<String> members;
+
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param type
+	 *            The type of entity.
+	 * @param id
+	 *            The id attribute.
+	 * @param version
+	 *            The version attribute.
+	 * @param timestamp
+	 *            The timestamp attribute.
+	 * @param userId
+	 *            The user id attribute, or null if not present.
+	 * @param userName
+	 *            The user name attribute, or null if not present.
+	 * @param changesetId
+	 *            The changeset id attribute, or null if not present.
+	 */
+	public XmlEntityRecord(EntityType type, String id, String version, String timestamp, String userId,
+			String userName, String changesetId) {
+		this.type = type;
+		this.id = id;
+		this.version = version;
+		this.timestamp = timestamp;
+		this.userId = userId;
+		this.userName = userName;
+		this.changesetId = changesetId;
+
+		tags = new ArrayList<String>();
+		wayNodes = new ArrayList<String>();
+		members = new ArrayList<String>();
+	}
+
+
+	/**
+	 * Sets the node location attributes.
+	 *
+	 * @param nodeLatitude
+	 *            The latitude attribute.
+	 * @param nodeLongitude
+	 *            The longitude attribute.
+	 */
+	public void setLocation(String nodeLatitude, String nodeLongitude) {
+		this.latitude = nodeLatitude;
+		this.longitude = nodeLongitude;
+	}
+
+
+	/**
+	 * Adds a tag element.
+	 *
+	 * @param key
+	 *            The key attribute.
+	 * @param value
+	 *            The value attribute.
+	 */
+	public void addTag(String key, String value) {
+		tags.add(key);
+		tags.add(value);
+	}
+
+
+	/**
+	 * Adds a way node element.
+	 *
+	 * @param ref
+	 *            The ref attribute.
+	 */
+	public void addWayNode(String ref) {
+		wayNodes.add(ref);
+	}
+
+
+	/**
+	 * Adds a relation member element.
+	 *
+	 * @param ref
+	 *            The ref attribute.
+	 * @param memberType
+	 *            The type attribute.
+	 * @param role
+	 *            The role attribute.
+	 */
+	public void addMember(String ref, String memberType, String role) {
+		members.add(ref);
+		members.add(memberType);
+		members.add(role);
+	}
+
+
+	/**
+	 * Gets the type of entity.
+	 *
+	 * @return The entity type.
+	 */
+	public EntityType getType() {
+		return type;
+	}
+
+
+	/**
+	 * Gets the id attribute.
+	 *
+	 * @return The id.
+	 */
+	public String getId() {
+		return id;
+	}
+
+
+	/**
+	 * Gets the version attribute.
+	 *
+	 * @return The version.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+
+	/**
+	 * Gets the timestamp attribute.
+	 *
+	 * @return The timestamp.
+	 */
+	public String getTimestamp() {
+		return timestamp;
+	}
+
+
+	/**
+	 * Gets the user id attribute.
+	 *
+	 * @return The user id, or null if not present.
+	 */
+	public String getUserId() {
+		return userId;
+	}
+
+
+	/**
+	 * Gets the user name attribute.
+	 *
+	 * @return The user name, or null if not present.
+	 */
+	public String getUserName() {
+		return userName;
+	}
+
+
+	/**
+	 * Gets the changeset id attribute.
+	 *
+	 * @return The changeset id, or null if not present.
+	 */
+	public String getChangesetId() {
+		return changesetId;
+	}
+
+
+	/**
+	 * Gets the latitude attribute of a node.
+	 *
+	 * @return The latitude.
+	 */
+	public String getLatitude() {
+		return latitude;
+	}
+
+
+	/**
+	 * Gets the longitude attribute of a node.
+	 *
+	 * @return The longitude.
+	 */
+	public String getLongitude() {
+		return longitude;
+	}
+
+
+	/**
+	 * Gets the tags as alternating keys and values.
+	 *
+	 * @return The tag keys and values.
+	 */
+	public List<String> getTags() {
+		return tags;
+	}
+
+
+	/**
+	 * Gets the way node references.
+	 *
+	 * @return The way node refs.
+	 */
+	public List<String> getWayNodes() {
+		return wayNodes;
+	}
+
+
+	/**
+	 * Gets the relation members as consecutive ref, type and role values.
+	 *
+	 * @return The member values.
+	 */
+	public List<String> getMembers() {
+		return members;
+	}
+}
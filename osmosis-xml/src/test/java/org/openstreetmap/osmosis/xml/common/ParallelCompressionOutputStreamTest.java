@@ -0,0 +1,115 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link ParallelCompressionOutputStream} class.
+ */
+public class ParallelCompressionOutputStreamTest {
+
+	private byte[] compress(CompressionMethod compressionMethod, byte[] data, int writeSize) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OutputStream compressedOut = new CompressionActivator(compressionMethod, 3).createCompressionOutputStream(out);
+
+		Assert.assertTrue(compressedOut instanceof ParallelCompressionOutputStream);
+
+		for (int offset = 0; offset < data.length; offset += writeSize) {
+			if (writeSize == 1) {
+				compressedOut.write(data[offset]);
+			} else {
+				compressedOut.write(data, offset, Math.min(writeSize, data.length - offset));
+			}
+		}
+		compressedOut.close();
+
+		return out.toByteArray();
+	}
+
+
+	private byte[] decompress(CompressionMethod compressionMethod, byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream compressedIn = new CompressionActivator(compressionMethod).createCompressionInputStream(
+				new ByteArrayInputStream(data));
+		byte[] buffer = new byte[4096];
+		int count;
+
+		while ((count = compressedIn.read(buffer)) >= 0) {
+			out.write(buffer, 0, count);
+		}
+		compressedIn.close();
+
+		return out.toByteArray();
+	}
+
+
+	/**
+	 * Builds xml-like data spanning several compression blocks.
+	 */
+	private byte[] buildData() {
+		StringBuilder builder = new StringBuilder();
+		Random random = new Random(0);
+
+		for (int i = 0; i < 40000; i++) {
+			builder.append("  <node id=\"").append(1000000 + i * 3).append("\" version=\"").append(random.nextInt(5));
+			builder.append("\" lat=\"").append(random.nextDouble()).append("\" lon=\"").append(random.nextDouble());
+			builder.append("\"/>\n");
+		}
+
+		return builder.toString().getBytes();
+	}
+
+
+	/**
+	 * Verifies that multi-member gzip output is restored correctly.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testGZip() throws IOException {
+		byte[] data = buildData();
+		byte[] compressed = compress(CompressionMethod.GZip, data, 7777);
+
+		Assert.assertTrue("The data was not compressed.", compressed.length < data.length / 2);
+		Assert.assertArrayEquals(data, decompress(CompressionMethod.GZip, compressed));
+	}
+
+
+	/**
+	 * Verifies that concatenated bzip2 streams are restored correctly.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testBZip2() throws IOException {
+		byte[] data = buildData();
+
+		Assert.assertArrayEquals(data, decompress(CompressionMethod.BZip2, compress(CompressionMethod.BZip2, data, 1)));
+	}
+
+
+	/**
+	 * Verifies that empty output is still a valid compressed file.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testEmpty() throws IOException {
+		Assert.assertEquals(0,
+				decompress(CompressionMethod.GZip, compress(CompressionMethod.GZip, new byte[0], 1)).length);
+		Assert.assertEquals(0,
+				decompress(CompressionMethod.BZip2, compress(CompressionMethod.BZip2, new byte[0], 1)).length);
+	}
+}
@@ -0,0 +1,129 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link ParallelDecompressionInputStream} class.
+ */
+public class ParallelDecompressionInputStreamTest {
+
+	private byte[] compress(CompressionMethod compressionMethod, int workers, byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OutputStream compressedOut = new CompressionActivator(compressionMethod, workers)
+				.createCompressionOutputStream(out);
+
+		compressedOut.write(data);
+		compressedOut.close();
+
+		return out.toByteArray();
+	}
+
+
+	private byte[] decompress(CompressionMethod compressionMethod, byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream compressedIn = new CompressionActivator(compressionMethod, 3).createCompressionInputStream(
+				new ByteArrayInputStream(data));
+		byte[] buffer = new byte[4096];
+		int count;
+
+		Assert.assertTrue(compressedIn instanceof ParallelDecompressionInputStream);
+
+		while ((count = compressedIn.read(buffer)) >= 0) {
+			out.write(buffer, 0, count);
+		}
+		compressedIn.close();
+
+		return out.toByteArray();
+	}
+
+
+	private byte[] concatenate(byte[] first, byte[] second) {
+		byte[] result = Arrays.copyOf(first, first.length + second.length);
+
+		System.arraycopy(second, 0, result, first.length, second.length);
+
+		return result;
+	}
+
+
+	/**
+	 * Builds xml-like data spanning several compression blocks.
+	 */
+	private byte[] buildData() {
+		StringBuilder builder = new StringBuilder();
+		Random random = new Random(0);
+
+		for (int i = 0; i < 40000; i++) {
+			builder.append("  <node id=\"").append(1000000 + i * 3).append("\" version=\"").append(random.nextInt(5));
+			builder.append("\" lat=\"").append(random.nextDouble()).append("\" lon=\"").append(random.nextDouble());
+			builder.append("\"/>\n");
+		}
+
+		return builder.toString().getBytes();
+	}
+
+
+	/**
+	 * Verifies that gzip data is restored correctly whether or not its members
+	 * record their length.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testGZip() throws IOException {
+		byte[] data = buildData();
+		byte[] parallel = compress(CompressionMethod.GZip, 2, data);
+		byte[] sequential = compress(CompressionMethod.GZip, 0, data);
+
+		Assert.assertArrayEquals(data, decompress(CompressionMethod.GZip, parallel));
+		Assert.assertArrayEquals(data, decompress(CompressionMethod.GZip, sequential));
+		Assert.assertArrayEquals(concatenate(data, data),
+				decompress(CompressionMethod.GZip, concatenate(parallel, sequential)));
+	}
+
+
+	/**
+	 * Verifies that bzip2 data is restored correctly whether it holds one or
+	 * many streams.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test
+	public void testBZip2() throws IOException {
+		byte[] data = buildData();
+		byte[] parallel = compress(CompressionMethod.BZip2, 2, data);
+		byte[] sequential = compress(CompressionMethod.BZip2, 0, data);
+
+		Assert.assertArrayEquals(data, decompress(CompressionMethod.BZip2, parallel));
+		Assert.assertArrayEquals(data, decompress(CompressionMethod.BZip2, sequential));
+		Assert.assertArrayEquals(concatenate(data, data),
+				decompress(CompressionMethod.BZip2, concatenate(parallel, sequential)));
+	}
+
+
+	/**
+	 * Verifies that corrupt data is reported to the reader.
+	 *
+	 * @throws IOException
+	 *             if an IO error occurs.
+	 */
+	@Test(expected = IOException.class)
+	public void testCorruptData() throws IOException {
+		byte[] compressed = compress(CompressionMethod.GZip, 2, buildData());
+
+		decompress(CompressionMethod.GZip, Arrays.copyOf(compressed, compressed.length - 10));
+	}
+}
@@ -83,4 +83,91 @@ public class XmlReaderWriterTest extends AbstractDataTest {
 		// Validate that the output file matches the input file.
 		dataUtils.compareFiles(inputFile, outputFile);
 	}
+	
+	
+	/**
+	 * Tests writing and reading files compressed by multiple threads.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testParallelCompressed() throws IOException {
+		File inputFile;
+		File workingFolder;
+		
+		inputFile = dataUtils.createDataFile("v0_6/xml-task-tests-v0_6.osm");
+		workingFolder = dataUtils.newFolder();
+		
+		for (String extension : new String[] {"gz", "bz2"}) {
+			File compressedFile;
+			File outputFile;
+			
+			compressedFile = new File(workingFolder, "test.osm." + extension);
+			outputFile = new File(workingFolder, "test-" + extension + ".osm");
+			
+			// Run the pipelines.
+			Osmosis.run(
+				new String[] {
+					"-q",
+					"--read-xml-0.6",
+					inputFile.getPath(),
+					"--write-xml-0.6",
+					"file=" + compressedFile.getPath(),
+					"compressionWorkers=2"
+				}
+			);
+			Osmosis.run(
+				new String[] {
+					"-q",
+					"--read-xml-0.6",
+					"file=" + compressedFile.getPath(),
+					"compressionWorkers=2",
+					"--write-xml-0.6",
+					outputFile.getPath()
+				}
+			);
+			
+			// Validate that the output file matches the input file.
+			dataUtils.compareFiles(inputFile, outputFile);
+		}
+	}
+	
+	
+	/**
+	 * Tests the fast reader building entities in the reading thread and on
+	 * worker threads.
+	 * 
+	 * @throws IOException
+	 *             if any file operations fail.
+	 */
+	@Test
+	public void testFastReader() throws IOException {
+		File inputFile;
+		File workingFolder;
+		
+		inputFile = dataUtils.createDataFile("v0_6/xml-task-tests-v0_6.osm");
+		workingFolder = dataUtils.newFolder();
+		
+		for (String workers : new String[] {"0", "2"}) {
+			File outputFile;
+			
+			outputFile = new File(workingFolder, "test-" + workers + ".osm");
+			
+			// Run the pipeline.
+			Osmosis.run(
+				new String[] {
+					"-q",
+					"--fast-read-xml",
+					"file=" + inputFile.getPath(),
+					"workers=" + workers,
+					"--write-xml-0.6",
+					outputFile.getPath()
+				}
+			);
+			
+			// Validate that the output file matches the input file.
+			dataUtils.compareFiles(inputFile, outputFile);
+		}
+	}
 }
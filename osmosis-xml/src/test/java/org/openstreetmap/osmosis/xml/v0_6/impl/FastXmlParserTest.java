@@ -0,0 +1,147 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package org.openstreetmap.osmosis.xml.v0_6.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.testutil.v0_6.SinkEntityInspector;
+
+
+/**
+ * Tests the {@link FastXmlParser} class.
+ */
+public class FastXmlParserTest {
+
+	private static final int NODE_COUNT = 50;
+	private static final int WAY_COUNT = 10;
+	private static final int RELATION_COUNT = 5;
+
+
+	private String buildXml() {
+		StringBuilder xml;
+
+		xml = new StringBuilder();
+		xml.append("<osm version=\"0.6\">\n");
+		for (int i = 1; i <= NODE_COUNT; i++) {
+			xml.append("<node id=\"").append(i).append("\" version=\"1\" timestamp=\"2008-01-01T00:00:00Z\"");
+			xml.append(" uid=\"1\" user=\"user1\" changeset=\"1\" lat=\"1.0\" lon=\"").append(i).append("\">");
+			xml.append("<tag k=\"ref\" v=\"").append(i).append("\"/></node>\n");
+		}
+		for (int i = 1; i <= WAY_COUNT; i++) {
+			xml.append("<way id=\"").append(i).append("\" version=\"1\" timestamp=\"2008-01-01T00:00:00Z\">");
+			xml.append("<nd ref=\"").append(i).append("\"/><nd ref=\"").append(i + 1).append("\"/></way>\n");
+		}
+		for (int i = 1; i <= RELATION_COUNT; i++) {
+			xml.append("<relation id=\"").append(i).append("\" version=\"1\" timestamp=\"2008-01-01T00:00:00Z\">");
+			xml.append("<member type=\"way\" ref=\"").append(i).append("\" role=\"outer\"/></relation>\n");
+		}
+		xml.append("</osm>");
+
+		return xml.toString();
+	}
+
+
+	private XMLStreamReader createReader(String xml) throws XMLStreamException, UnsupportedEncodingException {
+		XMLInputFactory factory;
+
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+
+		return factory.createXMLStreamReader(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+	}
+
+
+	private List<EntityContainer> toList(Iterable<EntityContainer> entities) {
+		List<EntityContainer> result;
+
+		result = new ArrayList<EntityContainer>();
+		for (EntityContainer entityContainer : entities) {
+			result.add(entityContainer);
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Verifies that entities built in batches on worker threads reach the sink
+	 * in the same order as the xml, and match those built on the parsing
+	 * thread.
+	 *
+	 * @throws Exception
+	 *             if the xml cannot be read.
+	 */
+	@Test
+	public void testBatchedOutputOrder() throws Exception {
+		String xml;
+		SinkEntityInspector sequentialInspector;
+		SinkEntityInspector batchedInspector;
+		ExecutorService executorService;
+		List<EntityContainer> sequentialEntities;
+		List<EntityContainer> batchedEntities;
+
+		xml = buildXml();
+
+		sequentialInspector = new SinkEntityInspector();
+		new FastXmlParser(sequentialInspector, createReader(xml), true).readOsm();
+
+		// A small batch size splits the data across many batches, several of
+		// which are in progress at once.
+		batchedInspector = new SinkEntityInspector();
+		executorService = Executors.newFixedThreadPool(3);
+		try {
+			new FastXmlParser(batchedInspector, createReader(xml), true, executorService, 4, 3).readOsm();
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		sequentialEntities = toList(sequentialInspector.getProcessedEntities());
+		batchedEntities = toList(batchedInspector.getProcessedEntities());
+
+		Assert.assertEquals(NODE_COUNT + WAY_COUNT + RELATION_COUNT, batchedEntities.size());
+		Assert.assertEquals(sequentialEntities.size(), batchedEntities.size());
+
+		for (int i = 0; i < batchedEntities.size(); i++) {
+			Entity expected = sequentialEntities.get(i).getEntity();
+			Entity actual = batchedEntities.get(i).getEntity();
+			EntityType expectedType;
+			long expectedId;
+
+			if (i < NODE_COUNT) {
+				expectedType = EntityType.Node;
+				expectedId = i + 1;
+			} else if (i < NODE_COUNT + WAY_COUNT) {
+				expectedType = EntityType.Way;
+				expectedId = i - NODE_COUNT + 1;
+			} else {
+				expectedType = EntityType.Relation;
+				expectedId = i - NODE_COUNT - WAY_COUNT + 1;
+			}
+
+			Assert.assertEquals("Incorrect type at position " + i, expectedType, actual.getType());
+			Assert.assertEquals("Incorrect id at position " + i, expectedId, actual.getId());
+			Assert.assertEquals("Entity differs at position " + i, expected, actual);
+		}
+
+		Assert.assertEquals(5.0, ((Node) batchedEntities.get(4).getEntity()).getLongitude(), 0);
+		Assert.assertEquals(3, ((Way) batchedEntities.get(NODE_COUNT + 2).getEntity()).getWayNodes().get(0)
+				.getNodeId());
+	}
+}